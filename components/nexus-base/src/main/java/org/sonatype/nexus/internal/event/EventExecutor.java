@@ -89,6 +89,9 @@ class EventExecutor
 
   private volatile boolean asyncProcessing;
 
+  @Nullable
+  private QueuedEventDispatcher queuedDispatcher;
+
   @Inject
   public EventExecutor(@Named("${nexus.event.affinityEnabled:-true}") final boolean affinityEnabled,
                        @Named("${nexus.event.affinityCacheSize:-1000}") final int affinityCacheSize,
@@ -103,6 +106,24 @@ class EventExecutor
     this.fairThreading = fairThreading;
   }
 
+  /**
+   * @since 3.70
+   */
+  @Inject
+  public void setQueuedEventDispatcher(@Nullable final QueuedEventDispatcher queuedDispatcher) {
+    this.queuedDispatcher = queuedDispatcher != null && queuedDispatcher.isEnabled() ? queuedDispatcher : null;
+  }
+
+  /**
+   * Returns the dispatcher to use for {@link Asynchronous} subscribers, if queued delivery is enabled.
+   *
+   * @since 3.70
+   */
+  @Nullable
+  QueuedEventDispatcher getQueuedDispatcher() {
+    return queuedDispatcher;
+  }
+
   /**
    * Move from direct to asynchronous subscriber processing.
    */
@@ -152,6 +173,10 @@ class EventExecutor
               new AffinityBarrier(coordinator.get(), eventProcessor, affinityTimeout)));
     }
 
+    if (queuedDispatcher != null) {
+      queuedDispatcher.start();
+    }
+
     asyncProcessing = true;
   }
 
@@ -159,6 +184,9 @@ class EventExecutor
   protected void doStop() throws Exception {
     if (asyncProcessing) {
       shutdown(affinityProcessor);
+      if (queuedDispatcher != null) {
+        queuedDispatcher.stop();
+      }
       shutdown(eventProcessor);
       asyncProcessing = false;
     }
@@ -170,7 +198,8 @@ class EventExecutor
   @VisibleForTesting
   boolean isCalmPeriod() {
     if (asyncProcessing) {
-      return isCalmPeriod(affinityProcessor) && isCalmPeriod(eventProcessor);
+      return isCalmPeriod(affinityProcessor) && isCalmPeriod(eventProcessor) &&
+          (queuedDispatcher == null || queuedDispatcher.isCalmPeriod());
     }
     else {
       return true; // single-threaded mode is always calm
@@ -12,6 +12,7 @@
  */
 package org.sonatype.nexus.internal.event;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -60,6 +61,9 @@ public class EventManagerImpl
 
   private final EventBus asyncBus;
 
+  @Nullable
+  private final QueuedEventDispatcher queuedDispatcher;
+
   @Inject
   public EventManagerImpl(final BeanLocator beanLocator, final EventExecutor eventExecutor)
   {
@@ -68,6 +72,7 @@ public class EventManagerImpl
 
     this.eventBus = reentrantEventBus("nexus");
     this.asyncBus = reentrantAsyncEventBus("nexus.async", eventExecutor);
+    this.queuedDispatcher = eventExecutor.getQueuedDispatcher();
   }
 
   /**
@@ -97,7 +102,10 @@ public class EventManagerImpl
   public void register(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && queuedDispatcher != null) {
+      queuedDispatcher.register(object);
+    }
+    else if (async) {
       asyncBus.register(object);
     }
     else {
@@ -111,7 +119,10 @@ public class EventManagerImpl
   public void unregister(final Object object) {
     boolean async = object instanceof Asynchronous;
 
-    if (async) {
+    if (async && queuedDispatcher != null) {
+      queuedDispatcher.unregister(object);
+    }
+    else if (async) {
       asyncBus.unregister(object);
     }
     else {
@@ -129,14 +140,23 @@ public class EventManagerImpl
     if (isAffinityEnabled() && event instanceof HasAffinity) {
       String affinity = ((HasAffinity) event).getAffinity();
       if (affinity != null) {
-        eventExecutor.executeWithAffinity(affinity, () -> asyncBus.post(event));
+        eventExecutor.executeWithAffinity(affinity, () -> postAsync(event));
       }
       else {
         // unexpected state, fall back to previous behaviour
         log.warn("Event {} requested 'null' affinity", event);
-        asyncBus.post(event);
+        postAsync(event);
       }
     }
+    else {
+      postAsync(event);
+    }
+  }
+
+  private void postAsync(final Object event) {
+    if (queuedDispatcher != null) {
+      queuedDispatcher.post(event);
+    }
     else {
       asyncBus.post(event);
     }
@@ -0,0 +1,524 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.common.event.EventAware.Batching;
+import org.sonatype.nexus.common.event.HasAffinity;
+import org.sonatype.nexus.security.subject.CurrentSubjectSupplier;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.reflect.TypeToken;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.sonatype.nexus.common.event.EventHelper.asReplicating;
+import static org.sonatype.nexus.common.event.EventHelper.isReplicating;
+import static org.sonatype.nexus.common.text.Strings2.upper;
+
+/**
+ * Alternative to the asynchronous {@link com.google.common.eventbus.EventBus} that delivers events from a bounded
+ * queue per subscriber method, drained by a fixed pool of threads.
+ *
+ * Unlike the default dispatch, a burst of events only runs subscribers on the posting thread once a subscriber's
+ * queue is full, and then only if the configured {@link OverflowPolicy} says so. The default policy,
+ * {@link OverflowPolicy#BLOCK}, first holds the posting thread for up to {@code overflowTimeout} waiting for room, so
+ * a slow subscriber can stall request threads that post events. Subscribers without
+ * {@link AllowConcurrentEvents} are drained by one thread at a time, others by up to {@code subscriberConcurrency}
+ * threads. Each drain delivers up to {@code batchSize} events, wrapped in the {@link Batching} callbacks when the
+ * subscriber implements them. Deliveries made while coordinating an event with {@link HasAffinity} are tracked by its
+ * {@link AffinityBarrier}, so ordering by affinity works as before.
+ *
+ * Subscriber methods are found the same way as the event bus finds them, but are invoked through method handles.
+ * Queue depth, time spent waiting in the queue and time spent handling are recorded for each subscriber method of
+ * each subscriber instance.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+class QueuedEventDispatcher
+    extends ComponentSupport
+{
+  /**
+   * What to do with an event when a subscriber's queue is full.
+   */
+  enum OverflowPolicy
+  {
+    /**
+     * Wait for room in the queue, delivering on the posting thread if none frees up in time.
+     *
+     * The posting thread, which may be serving a request, is held for up to {@code overflowTimeout} (5s by default)
+     * for each full queue the event goes to. Use {@link #CALLER_RUNS} or {@link #DROP} where that is not acceptable.
+     */
+    BLOCK,
+
+    /**
+     * Deliver on the posting thread straight away.
+     */
+    CALLER_RUNS,
+
+    /**
+     * Drop the event for that subscriber.
+     */
+    DROP
+  }
+
+  private static final String KEY_PREFIX = "nexus.event.queue.";
+
+  private static final MethodType HANDLER_TYPE = MethodType.methodType(void.class, Object.class);
+
+  private final boolean enabled;
+
+  private final int queueCapacity;
+
+  private final int threads;
+
+  private final int subscriberConcurrency;
+
+  private final int batchSize;
+
+  private final OverflowPolicy overflowPolicy;
+
+  private final Time overflowTimeout;
+
+  private final MetricRegistry metricRegistry;
+
+  private final CurrentSubjectSupplier subjectSupplier = new CurrentSubjectSupplier();
+
+  private final Map<Class<?>, Set<QueuedSubscriber>> subscribersByType = new ConcurrentHashMap<>();
+
+  private final LoadingCache<Class<?>, Set<Class<?>>> typeHierarchy = CacheBuilder.newBuilder()
+      .weakKeys()
+      .build(CacheLoader.from((Class<?> type) -> ImmutableSet.<Class<?>>copyOf(TypeToken.of(type).getTypes().rawTypes())));
+
+  private volatile ThreadPoolExecutor threadPool;
+
+  @Inject
+  QueuedEventDispatcher(
+      @Named("${" + KEY_PREFIX + "enabled:-false}") final boolean enabled,
+      @Named("${" + KEY_PREFIX + "capacity:-1000}") final int queueCapacity,
+      @Named("${" + KEY_PREFIX + "threads:-50}") final int threads,
+      @Named("${" + KEY_PREFIX + "subscriberConcurrency:-8}") final int subscriberConcurrency,
+      @Named("${" + KEY_PREFIX + "batchSize:-100}") final int batchSize,
+      @Named("${" + KEY_PREFIX + "overflowPolicy:-block}") final String overflowPolicy,
+      @Named("${" + KEY_PREFIX + "overflowTimeout:-5s}") final Time overflowTimeout,
+      final MetricRegistry metricRegistry)
+  {
+    checkArgument(queueCapacity > 0, KEY_PREFIX + "capacity must be positive");
+    checkArgument(threads > 0, KEY_PREFIX + "threads must be positive");
+    checkArgument(subscriberConcurrency > 0, KEY_PREFIX + "subscriberConcurrency must be positive");
+    checkArgument(batchSize > 0, KEY_PREFIX + "batchSize must be positive");
+    this.enabled = enabled;
+    this.queueCapacity = queueCapacity;
+    this.threads = threads;
+    this.subscriberConcurrency = subscriberConcurrency;
+    this.batchSize = batchSize;
+    this.overflowPolicy = OverflowPolicy.valueOf(upper(overflowPolicy).replace('-', '_'));
+    this.overflowTimeout = checkNotNull(overflowTimeout);
+    this.metricRegistry = checkNotNull(metricRegistry);
+  }
+
+  /**
+   * Whether asynchronous subscribers should be registered here instead of with the asynchronous event bus.
+   */
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Moves from direct to queued delivery.
+   */
+  public synchronized void start() {
+    if (threadPool == null) {
+      // the work queue only ever holds one drain request per busy subscriber and thread, so it stays small
+      threadPool = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+          new NexusThreadFactory("event", "event-queue"));
+      threadPool.allowCoreThreadTimeOut(true);
+    }
+  }
+
+  /**
+   * Moves back to direct delivery, delivering any events still queued on the calling thread.
+   */
+  public synchronized void stop() {
+    ThreadPoolExecutor pool = threadPool;
+    if (pool != null) {
+      threadPool = null;
+      pool.shutdown();
+      try {
+        pool.awaitTermination(5L, TimeUnit.SECONDS);
+      }
+      catch (InterruptedException e) {
+        log.debug("Interrupted while waiting for termination", e);
+      }
+      allSubscribers().forEach(this::drainRemaining);
+    }
+  }
+
+  /**
+   * Whether there are no queued or running deliveries.
+   */
+  public boolean isCalmPeriod() {
+    return allSubscribers().stream().allMatch(subscriber -> subscriber.queue.isEmpty() && subscriber.workers.get() == 0);
+  }
+
+  public void register(final Object object) {
+    for (Method method : findSubscriberMethods(object.getClass())) {
+      QueuedSubscriber subscriber = new QueuedSubscriber(object, method);
+      Set<QueuedSubscriber> subscribers =
+          subscribersByType.computeIfAbsent(method.getParameterTypes()[0], type -> new CopyOnWriteArraySet<>());
+      if (subscribers.add(subscriber)) {
+        subscriber.registerMetrics();
+      }
+    }
+  }
+
+  public void unregister(final Object object) {
+    for (Method method : findSubscriberMethods(object.getClass())) {
+      Set<QueuedSubscriber> subscribers = subscribersByType.get(method.getParameterTypes()[0]);
+      if (subscribers != null) {
+        subscribers.removeIf(subscriber -> {
+          if (subscriber.target == object && subscriber.method.equals(method)) {
+            subscriber.unregisterMetrics();
+            return true;
+          }
+          return false;
+        });
+      }
+    }
+  }
+
+  public void post(final Object event) {
+    ThreadPoolExecutor pool = threadPool;
+    for (Class<?> type : typeHierarchy.getUnchecked(event.getClass())) {
+      Set<QueuedSubscriber> subscribers = subscribersByType.get(type);
+      if (subscribers != null) {
+        for (QueuedSubscriber subscriber : subscribers) {
+          if (pool != null) {
+            subscriber.enqueue(pool, event);
+          }
+          else {
+            subscriber.invoke(event);
+          }
+        }
+      }
+    }
+  }
+
+  @VisibleForTesting
+  static Collection<Method> findSubscriberMethods(final Class<?> type) {
+    Map<String, Method> methods = new HashMap<>();
+    for (Class<?> supertype : TypeToken.of(type).getTypes().rawTypes()) {
+      for (Method method : supertype.getDeclaredMethods()) {
+        if (method.isAnnotationPresent(Subscribe.class) && !method.isSynthetic()) {
+          checkArgument(method.getParameterCount() == 1,
+              "Method %s has @Subscribe annotation but has %s parameters. Subscriber methods must have exactly 1 parameter.",
+              method, method.getParameterCount());
+          // overriding methods take precedence, as with the event bus
+          methods.putIfAbsent(method.getName() + Arrays.toString(method.getParameterTypes()), method);
+        }
+      }
+    }
+    return methods.values();
+  }
+
+  private List<QueuedSubscriber> allSubscribers() {
+    List<QueuedSubscriber> subscribers = new ArrayList<>();
+    subscribersByType.values().forEach(subscribers::addAll);
+    return subscribers;
+  }
+
+  private void drainRemaining(final QueuedSubscriber subscriber) {
+    List<Delivery> remaining = new ArrayList<>();
+    subscriber.queue.drainTo(remaining);
+    remaining.forEach(delivery -> subscriber.deliver(delivery));
+  }
+
+  /**
+   * Event waiting to be delivered to a subscriber.
+   */
+  private final class Delivery
+  {
+    private final Runnable task;
+
+    private final long enqueuedNanos = System.nanoTime();
+
+    @Nullable
+    private final AffinityBarrier barrier;
+
+    private Delivery(final Runnable task, @Nullable final AffinityBarrier barrier) {
+      this.task = task;
+      this.barrier = barrier;
+      if (barrier != null) {
+        barrier.register(); // lets the next posting with the same affinity wait for this delivery
+      }
+    }
+
+    void done() {
+      if (barrier != null) {
+        barrier.arriveAndDeregister();
+      }
+    }
+  }
+
+  /**
+   * Subscriber method with its own queue of events.
+   */
+  private final class QueuedSubscriber
+  {
+    private final Object target;
+
+    private final Method method;
+
+    private final MethodHandle handle;
+
+    private final boolean concurrent;
+
+    private final String metricPrefix;
+
+    private final BlockingQueue<Delivery> queue = new ArrayBlockingQueue<>(queueCapacity);
+
+    private final AtomicInteger workers = new AtomicInteger();
+
+    private final Timer waitTimer;
+
+    private final Timer handleTimer;
+
+    private final Meter overflowMeter;
+
+    QueuedSubscriber(final Object target, final Method method) {
+      this.target = target;
+      this.method = method;
+      this.concurrent = method.isAnnotationPresent(AllowConcurrentEvents.class);
+      try {
+        method.setAccessible(true);
+        this.handle = MethodHandles.lookup().unreflect(method).bindTo(target).asType(HANDLER_TYPE);
+      }
+      catch (IllegalAccessException e) {
+        throw new IllegalArgumentException("Cannot access subscriber method " + method, e);
+      }
+      // several instances of the same class can subscribe, so the metrics are named after the instance too
+      this.metricPrefix = MetricRegistry.name(QueuedEventDispatcher.class,
+          target.getClass().getName() + '@' + Integer.toHexString(System.identityHashCode(target)),
+          method.getName(), method.getParameterTypes()[0].getSimpleName());
+      this.waitTimer = new Timer();
+      this.handleTimer = new Timer();
+      this.overflowMeter = new Meter();
+    }
+
+    void registerMetrics() {
+      metricRegistry.remove(MetricRegistry.name(metricPrefix, "queueDepth"));
+      metricRegistry.register(MetricRegistry.name(metricPrefix, "queueDepth"), (Gauge<Integer>) queue::size);
+      metricRegistry.remove(MetricRegistry.name(metricPrefix, "wait"));
+      metricRegistry.register(MetricRegistry.name(metricPrefix, "wait"), waitTimer);
+      metricRegistry.remove(MetricRegistry.name(metricPrefix, "handle"));
+      metricRegistry.register(MetricRegistry.name(metricPrefix, "handle"), handleTimer);
+      metricRegistry.remove(MetricRegistry.name(metricPrefix, "overflow"));
+      metricRegistry.register(MetricRegistry.name(metricPrefix, "overflow"), overflowMeter);
+    }
+
+    void unregisterMetrics() {
+      metricRegistry.removeMatching((name, metric) -> name.startsWith(metricPrefix + '.'));
+    }
+
+    void enqueue(final ThreadPoolExecutor pool, final Object event) {
+      Delivery delivery = new Delivery(capture(event), AffinityBarrier.current());
+      if (!queue.offer(delivery) && !overflow(delivery)) {
+        return;
+      }
+      schedule(pool);
+    }
+
+    /**
+     * Applies the overflow policy, returning whether the delivery was queued after all.
+     */
+    private boolean overflow(final Delivery delivery) {
+      overflowMeter.mark();
+      switch (overflowPolicy) {
+        case DROP:
+          log.warn("Dropping event for {}, its queue is full", metricPrefix);
+          delivery.done();
+          return false;
+        case BLOCK:
+          try {
+            if (queue.offer(delivery, overflowTimeout.toMillis(), MILLISECONDS)) {
+              return true;
+            }
+          }
+          catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+          log.debug("Queue for {} is still full, delivering on posting thread", metricPrefix);
+          deliver(delivery);
+          return false;
+        default:
+          deliver(delivery);
+          return false;
+      }
+    }
+
+    /**
+     * Makes sure enough workers are draining the queue.
+     */
+    private void schedule(final ThreadPoolExecutor pool) {
+      int maxWorkers = concurrent ? subscriberConcurrency : 1;
+      int current;
+      while ((current = workers.get()) < maxWorkers && !queue.isEmpty()) {
+        if (workers.compareAndSet(current, current + 1)) {
+          try {
+            pool.execute(() -> drain(pool));
+          }
+          catch (RejectedExecutionException e) { // NOSONAR: shutting down, stop() delivers what is left
+            workers.decrementAndGet();
+          }
+          return;
+        }
+      }
+    }
+
+    private void drain(final ThreadPoolExecutor pool) {
+      try {
+        List<Delivery> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        if (!batch.isEmpty()) {
+          deliverBatch(batch);
+        }
+      }
+      finally {
+        workers.decrementAndGet();
+        // events may have arrived after the batch was taken
+        if (!queue.isEmpty() && !pool.isShutdown()) {
+          schedule(pool);
+        }
+      }
+    }
+
+    private void deliverBatch(final List<Delivery> batch) {
+      Batching batching = target instanceof Batching ? (Batching) target : null;
+      if (batching != null) {
+        batching.beforeBatch();
+      }
+      try {
+        batch.forEach(this::deliver);
+      }
+      finally {
+        if (batching != null) {
+          batching.afterBatch();
+        }
+      }
+    }
+
+    void deliver(final Delivery delivery) {
+      waitTimer.update(System.nanoTime() - delivery.enqueuedNanos, NANOSECONDS);
+      try {
+        delivery.task.run();
+      }
+      finally {
+        delivery.done();
+      }
+    }
+
+    /**
+     * Binds the posting thread's subject and replication state to the delivery.
+     */
+    private Runnable capture(final Object event) {
+      Runnable task = () -> invoke(event);
+      if (isReplicating()) {
+        Runnable replicating = task;
+        task = () -> {
+          if (isReplicating()) {
+            replicating.run();
+          }
+          else {
+            asReplicating(replicating);
+          }
+        };
+      }
+      return subjectSupplier.get().associateWith(task);
+    }
+
+    void invoke(final Object event) {
+      try (Timer.Context ignored = handleTimer.time()) {
+        if (concurrent) {
+          handle.invokeExact(event);
+        }
+        else {
+          synchronized (this) {
+            handle.invokeExact(event);
+          }
+        }
+      }
+      catch (Throwable e) { // NOSONAR: report all subscriber failures like the event bus does
+        log.error("Could not dispatch event {} to subscriber {} method [{}]", event, target, method, e);
+      }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof QueuedSubscriber)) {
+        return false;
+      }
+      QueuedSubscriber that = (QueuedSubscriber) o;
+      return target == that.target && method.equals(that.method);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(target) + method.hashCode();
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.event;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.sonatype.goodies.common.Time;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.event.EventAware.Asynchronous;
+import org.sonatype.nexus.common.event.EventAware.Batching;
+import org.sonatype.nexus.common.event.EventManager;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.util.ThreadContext;
+import org.eclipse.sisu.inject.DefaultBeanLocator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.awaitility.Awaitility.await;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.not;
+
+/**
+ * Tests for {@link QueuedEventDispatcher}.
+ */
+public class QueuedEventDispatcherTest
+    extends TestSupport
+{
+  private final MetricRegistry metricRegistry = new MetricRegistry();
+
+  private QueuedEventDispatcher underTest;
+
+  @Before
+  public void setUp() {
+    // deliveries run as the posting subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+  }
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.stop();
+    }
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void deliversDirectlyUntilStarted() {
+    underTest = newDispatcher(10, "block");
+    RecordingHandler handler = new RecordingHandler();
+    underTest.register(handler);
+
+    underTest.post("a string");
+
+    assertThat(handler.threads, contains(Thread.currentThread().getName()));
+  }
+
+  @Test
+  public void deliversInOrderOnPoolThreads() {
+    underTest = newDispatcher(100, "block");
+    RecordingHandler handler = new RecordingHandler();
+    underTest.register(handler);
+    underTest.start();
+
+    for (int i = 0; i < 50; i++) {
+      underTest.post(i);
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.numbers.size(), is(50));
+    for (int i = 0; i < 50; i++) {
+      assertThat(handler.numbers.get(i), is(i));
+    }
+    assertThat(handler.threads, not(hasItem(Thread.currentThread().getName())));
+  }
+
+  @Test
+  public void dropsEventsWhenQueueIsFull() throws Exception {
+    underTest = newDispatcher(1, "drop");
+    BlockingHandler handler = new BlockingHandler();
+    underTest.register(handler);
+    underTest.start();
+
+    for (int i = 0; i < 10; i++) {
+      underTest.post(i);
+    }
+    handler.release.countDown();
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.count.get(), lessThan(10));
+    assertThat(overflowCount(BlockingHandler.class), greaterThan(0L));
+  }
+
+  @Test
+  public void runsOnPostingThreadWhenQueueIsFull() throws Exception {
+    underTest = newDispatcher(1, "caller-runs");
+    BlockingHandler handler = new BlockingHandler();
+    underTest.register(handler);
+    underTest.start();
+
+    underTest.post(0); // taken by the worker, which then blocks
+    await().atMost(5, TimeUnit.SECONDS).until(() -> handler.count.get() == 1);
+    underTest.post(1); // queued
+    handler.release.countDown();
+    underTest.post(2); // either queued or run here, never lost
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.count.get(), is(3));
+  }
+
+  @Test
+  public void batchingCallbacksWrapEachDrain() {
+    underTest = newDispatcher(100, "block");
+    BatchingHandler handler = new BatchingHandler();
+    underTest.register(handler);
+    underTest.start();
+
+    for (int i = 0; i < 20; i++) {
+      underTest.post(i);
+    }
+
+    await().atMost(5, TimeUnit.SECONDS).until(underTest::isCalmPeriod);
+
+    assertThat(handler.count.get(), is(20));
+    assertThat(handler.batches.get(), greaterThan(0));
+    assertThat(handler.open.get(), is(0));
+  }
+
+  @Test
+  public void unregisterRemovesMetrics() {
+    underTest = newDispatcher(10, "block");
+    RecordingHandler handler = new RecordingHandler();
+    underTest.register(handler);
+
+    assertThat(metricRegistry.getNames().isEmpty(), is(false));
+
+    underTest.unregister(handler);
+    underTest.post("a string");
+
+    assertThat(metricRegistry.getNames().isEmpty(), is(true));
+    assertThat(handler.threads.isEmpty(), is(true));
+  }
+
+  @Test
+  public void instancesOfTheSameClassKeepTheirOwnMetrics() {
+    underTest = newDispatcher(10, "block");
+    RecordingHandler first = new RecordingHandler();
+    RecordingHandler second = new RecordingHandler();
+    underTest.register(first);
+    underTest.register(second);
+    int registered = metricRegistry.getNames().size();
+
+    underTest.unregister(first);
+
+    assertThat(metricRegistry.getNames().size(), is(registered / 2));
+  }
+
+  @Test
+  public void managerRoutesAsynchronousSubscribersThroughDispatcher() {
+    underTest = newDispatcher(10, "block");
+    EventExecutor executor = new EventExecutor(false, 0, Time.seconds(0), false, false);
+    executor.setQueuedEventDispatcher(underTest);
+    EventManager eventManager = new EventManagerImpl(new DefaultBeanLocator(), executor);
+    RecordingHandler handler = new RecordingHandler();
+    eventManager.register(handler);
+
+    eventManager.post(42);
+
+    assertThat(handler.numbers, contains(42));
+    assertThat(metricRegistry.getNames().isEmpty(), is(false));
+  }
+
+  private QueuedEventDispatcher newDispatcher(final int capacity, final String overflowPolicy) {
+    return new QueuedEventDispatcher(true, capacity, 4, 2, 5, overflowPolicy, Time.seconds(1), metricRegistry);
+  }
+
+  private long overflowCount(final Class<?> handlerClass) {
+    return metricRegistry.getMeters().entrySet().stream()
+        .filter(entry -> entry.getKey().contains(handlerClass.getName()) && entry.getKey().endsWith(".overflow"))
+        .mapToLong(entry -> entry.getValue().getCount())
+        .sum();
+  }
+
+  private static class RecordingHandler
+      implements Asynchronous
+  {
+    private final List<String> threads = new CopyOnWriteArrayList<>();
+
+    private final List<Integer> numbers = new CopyOnWriteArrayList<>();
+
+    @Subscribe
+    public void on(final String event) {
+      threads.add(Thread.currentThread().getName());
+    }
+
+    @Subscribe
+    public void on(final Integer event) {
+      threads.add(Thread.currentThread().getName());
+      numbers.add(event);
+    }
+  }
+
+  private static class BlockingHandler
+      implements Asynchronous
+  {
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Subscribe
+    public void on(final Integer event) throws InterruptedException {
+      count.incrementAndGet();
+      release.await(5, TimeUnit.SECONDS);
+    }
+  }
+
+  private static class BatchingHandler
+      implements Asynchronous, Batching
+  {
+    private final AtomicInteger count = new AtomicInteger();
+
+    private final AtomicInteger batches = new AtomicInteger();
+
+    private final AtomicInteger open = new AtomicInteger();
+
+    @Override
+    public void beforeBatch() {
+      open.incrementAndGet();
+    }
+
+    @Subscribe
+    public void on(final Integer event) {
+      assertThat(open.get(), is(1));
+      count.incrementAndGet();
+    }
+
+    @Override
+    public void afterBatch() {
+      open.decrementAndGet();
+      batches.incrementAndGet();
+    }
+  }
+}
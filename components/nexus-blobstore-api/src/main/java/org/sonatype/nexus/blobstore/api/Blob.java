@@ -13,8 +13,11 @@
 package org.sonatype.nexus.blobstore.api;
 
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 /**
  * A handle for binary data stored within a {@link BlobStore}.
  *
@@ -42,6 +45,19 @@ public interface Blob
    */
   InputStream getInputStream();
 
+  /**
+   * Opens a channel to the blob's content when it is held in a local file, so that it can be transferred without
+   * copying it through the JVM. Returns {@code null} when the content is only available via {@link #getInputStream()}.
+   *
+   * @throws BlobStoreException may be thrown if the blob is {@link BlobStore#delete deleted} or
+   *                            {@link BlobStore#delete hard deleted}.
+   * @since 3.70
+   */
+  @Nullable
+  default FileChannel openFileChannel() {
+    return null;
+  }
+
   /**
    * Provides metrics about this Blob.
    *
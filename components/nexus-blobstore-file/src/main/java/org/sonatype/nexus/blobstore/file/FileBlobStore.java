@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryStream;
 import java.nio.file.FileStore;
@@ -1067,6 +1068,27 @@ public class FileBlobStore
         throw new BlobStoreException(e, getId());
       }
     }
+
+    @Nullable
+    @Override
+    public FileChannel openFileChannel() {
+      if (performanceLogger.isEnabled()) {
+        // read through the stream so that transfers are still measured
+        return null;
+      }
+      Path contentPath = contentPath(getId());
+      try {
+        checkExists(contentPath, getId());
+        return fileOperations.openFileChannel(contentPath);
+      }
+      catch (BlobStoreException e) {
+        markStale();
+        throw e;
+      }
+      catch (Exception e) {
+        throw new BlobStoreException(e, getId());
+      }
+    }
   }
 
   private interface BlobIngester
@@ -14,6 +14,7 @@ package org.sonatype.nexus.blobstore.file.internal;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 
 import org.sonatype.nexus.blobstore.StreamMetrics;
@@ -89,6 +90,13 @@ public interface FileOperations
 
   InputStream openInputStream(Path path) throws IOException;
 
+  /**
+   * Opens a read-only channel to the file.
+   *
+   * @since 3.70
+   */
+  FileChannel openFileChannel(Path path) throws IOException;
+
   /**
    * Returns true if the file existed before deletion, false otherwise.
    */
@@ -15,6 +15,7 @@ package org.sonatype.nexus.blobstore.file.internal;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.FileSystemException;
@@ -179,6 +180,12 @@ public class SimpleFileOperations
     return Files.newInputStream(path, StandardOpenOption.READ);
   }
 
+  @Override
+  public FileChannel openFileChannel(final Path path) throws IOException {
+    checkNotNull(path);
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
   @Override
   public boolean delete(final Path path) throws IOException {
     checkNotNull(path);
@@ -18,34 +18,62 @@ import java.security.DigestInputStream;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
+
 import com.google.common.io.BaseEncoding;
 import com.google.common.io.CountingInputStream;
 
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA1;
+
 /**
  * A utility to collect metrics about the content of an input stream.
  *
+ * When reading directly from an unread {@link MultiHashingInputStream} that already maintains a SHA1 hash, that hash
+ * is reused rather than hashing the same content twice.
+ *
  * @since 3.0
  */
 public class MetricsInputStream
     extends FilterInputStream
 {
+  @Nullable
   private final MessageDigest messageDigest;
 
+  @Nullable
+  private final MultiHashingInputStream hashingStream;
+
   private final CountingInputStream countingInputStream;
 
   public MetricsInputStream(final InputStream input) {
-    this(new CountingInputStream(input), createSha1());
+    this(new CountingInputStream(input), sha1HashingStream(input));
   }
 
-  private MetricsInputStream(final CountingInputStream countingStream, final MessageDigest messageDigest) {
-    super(new DigestInputStream(countingStream, messageDigest));
+  private MetricsInputStream(
+      final CountingInputStream countingStream,
+      @Nullable final MultiHashingInputStream hashingStream)
+  {
+    this(countingStream, hashingStream, hashingStream != null ? null : createSha1());
+  }
+
+  private MetricsInputStream(
+      final CountingInputStream countingStream,
+      @Nullable final MultiHashingInputStream hashingStream,
+      @Nullable final MessageDigest messageDigest)
+  {
+    super(messageDigest != null ? new DigestInputStream(countingStream, messageDigest) : countingStream);
     this.messageDigest = messageDigest;
+    this.hashingStream = hashingStream;
     this.countingInputStream = countingStream;
   }
 
   private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
 
   public String getMessageDigest() {
+    if (hashingStream != null) {
+      return hashingStream.hashes().get(SHA1).toString();
+    }
     return HEX.encode(messageDigest.digest());
   }
 
@@ -57,6 +85,20 @@ public class MetricsInputStream
     return new StreamMetrics(getSize(), getMessageDigest());
   }
 
+  /**
+   * Returns the input if it is a {@link MultiHashingInputStream} whose SHA1 hash will cover exactly what we read.
+   */
+  @Nullable
+  private static MultiHashingInputStream sha1HashingStream(final InputStream input) {
+    if (input instanceof MultiHashingInputStream) {
+      MultiHashingInputStream hashingStream = (MultiHashingInputStream) input;
+      if (hashingStream.isHashing(SHA1) && hashingStream.count() == 0) {
+        return hashingStream;
+      }
+    }
+    return null;
+  }
+
   private static MessageDigest createSha1() {
     try {
       return MessageDigest.getInstance("SHA1");
@@ -38,6 +38,13 @@ public class PerformanceLogger {
     this.blobStoreName = blobStoreName;
   }
 
+  /**
+   * @since 3.70
+   */
+  public boolean isEnabled() {
+    return log.isDebugEnabled();
+  }
+
   public InputStream maybeWrapForPerformanceLogging(final InputStream inputStream) {
     if (log.isDebugEnabled()) {
       return new PerformanceLoggingInputStream(inputStream, this);
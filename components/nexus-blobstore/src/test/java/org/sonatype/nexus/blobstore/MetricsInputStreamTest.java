@@ -14,8 +14,11 @@ package org.sonatype.nexus.blobstore;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.Arrays;
 
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
 
 import org.junit.Test;
 
@@ -53,6 +56,29 @@ public class MetricsInputStreamTest
     assertThat(measure.getMessageDigest(), is(equalTo("2589766c6dac3402cab552602d457e7e8af12efd")));
   }
 
+  @Test
+  public void reusesUpstreamSha1Hash() throws Exception {
+    final MultiHashingInputStream hashingStream = new MultiHashingInputStream(
+        Arrays.asList(HashAlgorithm.SHA1, HashAlgorithm.SHA256),
+        getClass().getResourceAsStream("sha1_is_2589766c6dac3402cab552602d457e7e8af12efd.bytes"));
+
+    final MetricsInputStream measure = measure(hashingStream);
+
+    assertThat(measure.getMessageDigest(), is(equalTo("2589766c6dac3402cab552602d457e7e8af12efd")));
+    assertThat(measure.getSize(), is(equalTo(hashingStream.count())));
+    assertThat(hashingStream.hashes().get(HashAlgorithm.SHA1).toString(),
+        is(equalTo("2589766c6dac3402cab552602d457e7e8af12efd")));
+  }
+
+  @Test
+  public void hashesItselfWhenUpstreamDoesNotHashSha1() throws Exception {
+    final MultiHashingInputStream hashingStream = new MultiHashingInputStream(
+        Arrays.asList(HashAlgorithm.MD5),
+        getClass().getResourceAsStream("sha1_is_2589766c6dac3402cab552602d457e7e8af12efd.bytes"));
+
+    assertThat(measure(hashingStream).getMessageDigest(), is(equalTo("2589766c6dac3402cab552602d457e7e8af12efd")));
+  }
+
   private MetricsInputStream measure(final byte[] testData) throws Exception {
     return measure(new ByteArrayInputStream(testData));
   }
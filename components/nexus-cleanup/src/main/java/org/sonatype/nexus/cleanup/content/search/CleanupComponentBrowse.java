@@ -12,7 +12,17 @@
  */
 package org.sonatype.nexus.cleanup.content.search;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import org.sonatype.nexus.cleanup.storage.CleanupPolicy;
 import org.sonatype.nexus.extdirect.model.PagedResponse;
@@ -22,6 +32,11 @@ import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.query.QueryOptions;
 
+import com.google.common.collect.Iterators;
+
+import static java.util.Spliterators.spliteratorUnknownSize;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
+
 /**
  * Finds components to be cleaned up.
  *
@@ -37,6 +52,45 @@ public interface CleanupComponentBrowse
 
   Stream<FluentComponent> browse(CleanupPolicy policy, Repository repository);
 
+  /**
+   * Returns the components that match any of the policies, so they can be cleaned up in one pass.
+   *
+   * By default each policy is browsed in turn, only once the components of the previous policy have been consumed.
+   * Components matching more than one policy are only returned once.
+   *
+   * @since 3.70
+   */
+  default Stream<FluentComponent> browse(final List<CleanupPolicy> policies, final Repository repository) {
+    if (policies.size() == 1) {
+      return browse(policies.get(0), repository);
+    }
+    return concatDistinct(policies.stream()
+        .map(policy -> (Supplier<Stream<FluentComponent>>) () -> browse(policy, repository))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Lazily concatenates the passes, each started once the previous one has been consumed, skipping components
+   * already returned by an earlier pass.
+   *
+   * @since 3.70
+   */
+  static Stream<FluentComponent> concatDistinct(final List<Supplier<Stream<FluentComponent>>> passes) {
+    // only ids returned before the last pass need remembering, as nothing browses after it
+    Set<Integer> returned = new HashSet<>();
+    int lastPass = passes.size() - 1;
+    List<Supplier<Iterator<FluentComponent>>> distinctPasses = new ArrayList<>(passes.size());
+    for (int i = 0; i < passes.size(); i++) {
+      Supplier<Stream<FluentComponent>> pass = passes.get(i);
+      Predicate<Integer> unseen = i < lastPass ? returned::add : id -> !returned.contains(id);
+      distinctPasses.add(() -> pass.get().filter(component -> unseen.test(internalComponentId(component))).iterator());
+    }
+
+    // Stream.flatMap would buffer each pass when consumed through an iterator, so concatenate the iterators lazily
+    return StreamSupport.stream(spliteratorUnknownSize(
+        Iterators.concat(distinctPasses.stream().map(Supplier::get).iterator()), Spliterator.ORDERED), false);
+  }
+
   Stream<FluentComponent> browseIncludingAssets(CleanupPolicy policy, Repository repository);
 
   /**
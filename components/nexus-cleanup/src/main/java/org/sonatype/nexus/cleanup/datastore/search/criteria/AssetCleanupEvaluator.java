@@ -16,6 +16,7 @@ import java.util.function.Predicate;
 
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 
 /**
  * An evaluator of a cleanup policy criteria which is only concerned with an Asset
@@ -32,4 +33,18 @@ public interface AssetCleanupEvaluator
    * @return            the predicate
    */
   Predicate<Asset> getPredicate(Repository repository, String value);
+
+  /**
+   * Narrows the components the content store returns to those that could possibly have a matching asset.
+   *
+   * The predicate is always tested afterwards, because a policy requires a single asset to match all its asset criteria.
+   *
+   * @param repository  the repository being browsed
+   * @param value       the value associated with the CleanupPolicy for use with this criteria
+   * @param criteria    the criteria the content store will evaluate
+   * @since 3.70
+   */
+  default void narrow(final Repository repository, final String value, final ComponentCriteria criteria) {
+    // no narrowing by default
+  }
 }
@@ -17,6 +17,7 @@ import java.util.function.BiPredicate;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 
 /**
  * An evaluator for cleanup tasks that cares about the Component, or the all the assets.
@@ -35,4 +36,18 @@ public interface ComponentCleanupEvaluator
    * @return            the predicate
    */
   BiPredicate<Component, Iterable<Asset>> getPredicate(Repository repository, String value);
+
+  /**
+   * Adds this criteria to those evaluated by the content store, so fewer components need to be loaded and tested.
+   *
+   * @param repository  the repository being browsed
+   * @param value       the value associated with the CleanupPolicy for use with this criteria
+   * @param criteria    the criteria the content store will evaluate
+   * @return            {@code true} if the content store now applies this criteria in full and the predicate need not
+   *                    be tested, {@code false} if the predicate must still be tested
+   * @since 3.70
+   */
+  default boolean pushDown(final Repository repository, final String value, final ComponentCriteria criteria) {
+    return false;
+  }
 }
@@ -0,0 +1,128 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.method;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.sonatype.nexus.scheduling.TaskInterruptedException;
+
+import com.google.common.base.Throwables;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Fetches the next batch of components on another thread while the caller works on the current one.
+ *
+ * At most one batch is held ready ahead of the caller. The fetching thread is never interrupted, as interrupts can
+ * break the database connection it is using; instead it checks a flag and gives up once the prefetcher is closed.
+ *
+ * @since 3.70
+ */
+class BatchPrefetcher<T>
+    implements Iterator<List<T>>, AutoCloseable
+{
+  private static final Object END = new Object();
+
+  private static final long OFFER_INTERVAL_MILLIS = 100;
+
+  private final BlockingQueue<Object> ready = new ArrayBlockingQueue<>(1);
+
+  private final Future<?> fetcher;
+
+  private volatile boolean closed;
+
+  private Object next;
+
+  BatchPrefetcher(final Iterator<List<T>> batches, final ExecutorService executor) {
+    checkNotNull(batches);
+    this.fetcher = executor.submit(() -> fetch(batches));
+  }
+
+  private void fetch(final Iterator<List<T>> batches) {
+    try {
+      while (!closed && batches.hasNext()) {
+        handOver(batches.next());
+      }
+      handOver(END);
+    }
+    catch (Throwable e) { // NOSONAR: rethrown on the caller's thread
+      handOver(e);
+    }
+  }
+
+  private void handOver(final Object item) {
+    try {
+      while (!closed && !ready.offer(item, OFFER_INTERVAL_MILLIS, MILLISECONDS)) {
+        // keep waiting for the caller to take the previous batch
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (next == null) {
+      try {
+        next = ready.take();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new TaskInterruptedException("Interrupted while fetching components", true);
+      }
+    }
+    if (next instanceof Throwable) {
+      Throwables.throwIfUnchecked((Throwable) next);
+      throw new RuntimeException((Throwable) next);
+    }
+    return next != END;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public List<T> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    List<T> batch = (List<T>) next;
+    next = null;
+    return batch;
+  }
+
+  /**
+   * Stops fetching and waits for the batch being fetched, if any, so no query outlives the caller's work.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    ready.clear();
+    try {
+      fetcher.get();
+    }
+    catch (ExecutionException e) { // NOSONAR: failures are handed over to the caller
+      // already reported through hasNext
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
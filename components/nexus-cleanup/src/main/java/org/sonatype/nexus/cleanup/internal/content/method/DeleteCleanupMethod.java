@@ -12,8 +12,13 @@
  */
 package org.sonatype.nexus.cleanup.internal.content.method;
 
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
+import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.goodies.common.ComponentSupport;
@@ -24,12 +29,17 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.content.maintenance.ContentMaintenanceFacet;
 import org.sonatype.nexus.repository.task.DeletionProgress;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.google.common.collect.Iterators;
 
 /**
  * Provides a delete mechanism for cleanup
  *
+ * The next batch of components is fetched while the current batch is being deleted, unless
+ * {@code nexus.cleanup.prefetchBatches} is disabled.
+ *
  * @since 3.29
  */
 @Named
@@ -37,6 +47,17 @@ public class DeleteCleanupMethod
     extends ComponentSupport
     implements CleanupMethod
 {
+  private final boolean prefetchBatches;
+
+  public DeleteCleanupMethod() {
+    this(true);
+  }
+
+  @Inject
+  public DeleteCleanupMethod(@Named("${nexus.cleanup.prefetchBatches:-true}") final boolean prefetchBatches) {
+    this.prefetchBatches = prefetchBatches;
+  }
+
   @Override
   public DeletionProgress run(
       final Repository repository,
@@ -46,8 +67,20 @@ public class DeleteCleanupMethod
     ContentMaintenanceFacet maintenance = repository.facet(ContentMaintenanceFacet.class);
     DeletionProgress progress = new DeletionProgress();
 
-    Iterators.partition(components.iterator(), Continuations.BROWSE_LIMIT)
-        .forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+    Iterator<List<FluentComponent>> batches = Iterators.partition(components.iterator(), Continuations.BROWSE_LIMIT);
+    if (!prefetchBatches) {
+      batches.forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+      return progress;
+    }
+
+    ExecutorService executor = NexusExecutorService.forCurrentSubject(
+        Executors.newSingleThreadExecutor(new NexusThreadFactory("cleanup-prefetch", "cleanup")));
+    try (BatchPrefetcher<FluentComponent> prefetcher = new BatchPrefetcher<>(batches, executor)) {
+      prefetcher.forEachRemaining((batch) -> deleteBatch(maintenance, batch.stream(), progress, cancelledCheck));
+    }
+    finally {
+      executor.shutdown();
+    }
 
     return progress;
   }
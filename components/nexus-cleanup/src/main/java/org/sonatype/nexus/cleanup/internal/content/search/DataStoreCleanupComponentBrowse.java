@@ -12,12 +12,16 @@
  */
 package org.sonatype.nexus.cleanup.internal.content.search;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -40,6 +44,8 @@ import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+import org.sonatype.nexus.repository.content.fluent.FluentComponents;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 import org.sonatype.nexus.repository.query.QueryOptions;
 import org.sonatype.nexus.scheduling.CancelableHelper;
 
@@ -82,14 +88,62 @@ public class DataStoreCleanupComponentBrowse
     checkNotNull(repository);
 
 
-    return Continuations.streamOf(getComponentBrowser(repository, policy)::browse)
-        .filter(createComponentFilter(repository, policy));
+    ComponentCriteria criteria = new ComponentCriteria();
+    Set<String> pushedDown = pushDown(repository, policy, criteria);
+
+    return Continuations.streamOf(getComponentBrowser(repository, criteria)::browse)
+        .filter(createComponentFilter(repository, policy, pushedDown));
+  }
+
+  /**
+   * Policies which the content store can narrow down are browsed separately, while the remaining policies share a
+   * single pass over the repository which returns components matching any of them. Components matching several
+   * policies are only returned once.
+   */
+  @Override
+  public Stream<FluentComponent> browse(final List<CleanupPolicy> policies, final Repository repository) {
+    checkNotNull(policies);
+    checkNotNull(repository);
+
+    if (policies.size() == 1) {
+      return browse(policies.get(0), repository);
+    }
+
+    List<Supplier<Stream<FluentComponent>>> passes = new ArrayList<>();
+    Predicate<FluentComponent> sharedFilter = null;
+    for (CleanupPolicy policy : policies) {
+      ComponentCriteria criteria = new ComponentCriteria();
+      Set<String> pushedDown = pushDown(repository, policy, criteria);
+      Predicate<FluentComponent> filter = createComponentFilter(repository, policy, pushedDown);
+
+      if (criteria.isEmpty()) {
+        sharedFilter = sharedFilter == null ? filter : sharedFilter.or(filter);
+      }
+      else {
+        passes.add(() -> Continuations.streamOf(getComponentBrowser(repository, criteria)::browse).filter(filter));
+      }
+    }
+
+    if (sharedFilter != null) {
+      Predicate<FluentComponent> filter = sharedFilter;
+      passes.add(0, () -> Continuations.streamOf(getComponentBrowser(repository, new ComponentCriteria())::browse)
+          .filter(filter));
+    }
+
+    return CleanupComponentBrowse.concatDistinct(passes);
   }
 
   @Override
   public Stream<FluentComponent> browseIncludingAssets(final CleanupPolicy policy, final Repository repository) {
-    return Continuations.streamOf(repository.facet(ContentFacet.class).components()::browseEager)
-        .filter(createComponentFilter(repository, policy));
+    ComponentCriteria criteria = new ComponentCriteria();
+    Set<String> pushedDown = pushDown(repository, policy, criteria);
+
+    FluentComponents components = repository.facet(ContentFacet.class).components();
+    ContinuationBrowse<FluentComponent> browser = criteria.isEmpty() ? components::browseEager
+        : (limit, continuationToken) -> components.byCriteriaEager(criteria, limit, continuationToken);
+
+    return Continuations.streamOf(browser::browse)
+        .filter(createComponentFilter(repository, policy, pushedDown));
   }
 
   @Override
@@ -104,7 +158,10 @@ public class DataStoreCleanupComponentBrowse
     checkNotNull(options.getStart());
     checkNotNull(options.getLimit());
 
-    Predicate<FluentComponent> componentFilter = createComponentFilter(repository, policy);
+    ComponentCriteria criteria = new ComponentCriteria();
+    Set<String> pushedDown = pushDown(repository, policy, criteria);
+
+    Predicate<FluentComponent> componentFilter = createComponentFilter(repository, policy, pushedDown);
 
     Optional<Predicate<FluentComponent>> optionsFilter = createOptionsFilter(options);
     if (optionsFilter.isPresent()) {
@@ -112,7 +169,7 @@ public class DataStoreCleanupComponentBrowse
     }
 
     List<Component> result =
-        Continuations.streamOf(getComponentBrowser(repository, policy)::browse, Continuations.BROWSE_LIMIT,
+        Continuations.streamOf(getComponentBrowser(repository, criteria)::browse, Continuations.BROWSE_LIMIT,
                 options.getLastId())
             .peek(__ -> CancelableHelper.checkCancellation())
             .filter(componentFilter)
@@ -155,19 +212,59 @@ public class DataStoreCleanupComponentBrowse
   }
 
   /*
-   * Creates a Predicate which will return true if the Component and any of its Assets match all of the specified
-   * cleanup criteria.
+   * Adds the cleanup criteria that the content store can evaluate to the given component criteria, returning the keys
+   * of those it applies in full.
    */
-  private Predicate<FluentComponent> createComponentFilter(final Repository repository, final CleanupPolicy policy) {
+  private Set<String> pushDown(
+      final Repository repository,
+      final CleanupPolicy policy,
+      final ComponentCriteria criteria)
+  {
     validateCleanupPolicy(policy);
 
+    Set<String> pushedDown = new HashSet<>();
+    getFilterableCriteria(repository, policy).forEach((key, value) -> {
+      ComponentCleanupEvaluator componentEvaluator = componentCriteria.get(key);
+      if (componentEvaluator != null && componentEvaluator.pushDown(repository, value, criteria)) {
+        pushedDown.add(key);
+      }
+      AssetCleanupEvaluator assetEvaluator = assetCriteria.get(key);
+      if (assetEvaluator != null) {
+        assetEvaluator.narrow(repository, value, criteria);
+      }
+    });
+
+    log.debug("Cleanup policy {} on repository {} browses with {}, fully applying {}", policy.getName(),
+        repository.getName(), criteria, pushedDown);
+
+    return pushedDown;
+  }
+
+  /*
+   * Creates a Predicate which will return true if the Component and any of its Assets match all of the specified
+   * cleanup criteria, other than those already applied by the content store.
+   */
+  private Predicate<FluentComponent> createComponentFilter(
+      final Repository repository,
+      final CleanupPolicy policy,
+      final Set<String> pushedDown)
+  {
     List<BiPredicate<Component, Iterable<Asset>>> componentFilters =
         getFilterableCriteria(repository, policy).entrySet().stream()
             .filter(entry -> componentCriteria.containsKey(entry.getKey()))
+            .filter(entry -> !pushedDown.contains(entry.getKey()))
             .map(entry -> componentCriteria.get(entry.getKey()).getPredicate(repository, entry.getValue()))
             .filter(Objects::nonNull)
             .collect(Collectors.toList());
 
+    boolean hasAssetCriteria = getFilterableCriteria(repository, policy).keySet().stream()
+        .anyMatch(assetCriteria::containsKey);
+
+    if (componentFilters.isEmpty() && !hasAssetCriteria && !pushedDown.isEmpty()) {
+      // everything was applied by the content store, which only returns components with assets
+      return component -> true;
+    }
+
     componentFilters.add(createAssetFilter(repository, policy));
 
     return component -> {
@@ -225,13 +322,21 @@ public class DataStoreCleanupComponentBrowse
 
   /**
    * Returns a Continuation-based browser of components that are eligible for cleanup.
+   *
+   * Cleanup criteria the content store applies in full are not tested again, so the browser must apply the given
+   * component criteria.
+   *
    * @param repository the Repository to browse
-   * @param policy the Cleanup Policy to use for filtering
+   * @param criteria the component criteria pushed down from the Cleanup Policy
    * @return a continuation of components eligible for cleanup
    */
   protected ContinuationBrowse<FluentComponent> getComponentBrowser(
-      final Repository repository, final CleanupPolicy policy)
+      final Repository repository, final ComponentCriteria criteria)
   {
-    return repository.facet(ContentFacet.class).components()::browse;
+    FluentComponents components = repository.facet(ContentFacet.class).components();
+    if (criteria.isEmpty()) {
+      return components::browse;
+    }
+    return (limit, continuationToken) -> components.byCriteria(criteria, limit, continuationToken);
   }
 }
@@ -18,9 +18,14 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -40,17 +45,28 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.task.DeletionProgress;
 import org.sonatype.nexus.repository.types.GroupType;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.google.common.base.Predicates;
 import org.apache.commons.lang.exception.ExceptionUtils;
 import org.elasticsearch.search.SearchContextMissingException;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.nonNull;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_KEY;
 import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.RETAIN_SORT_BY_KEY;
 
 /**
+ * Cleans up repositories according to their cleanup policies.
+ *
+ * All policies of a repository are applied in a single pass over its components. Up to
+ * {@code nexus.cleanup.concurrency} repositories are cleaned up at once, with at most
+ * {@code nexus.cleanup.blobStoreConcurrency} of them on the same blob store and
+ * {@code nexus.cleanup.dataStoreConcurrency} on the same data store.
+ *
  * @since 3.29
  */
 @Named
@@ -81,6 +97,12 @@ public class CleanupServiceImpl
 
   private final CleanupFeatureCheck cleanupFeatureCheck;
 
+  private final int concurrency;
+
+  private final int blobStoreConcurrency;
+
+  private final int dataStoreConcurrency;
+
   @Inject
   public CleanupServiceImpl(final RepositoryManager repositoryManager,
                             final CleanupPolicyStorage cleanupPolicyStorage,
@@ -88,7 +110,10 @@ public class CleanupServiceImpl
                             final GroupType groupType,
                             @Named("${nexus.cleanup.retries:-3}") final int cleanupRetryLimit,
                             final CleanupBrowseServiceFactory browseServiceFactory,
-                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck)
+                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck,
+                            @Named("${nexus.cleanup.concurrency:-1}") final int concurrency,
+                            @Named("${nexus.cleanup.blobStoreConcurrency:-1}") final int blobStoreConcurrency,
+                            @Named("${nexus.cleanup.dataStoreConcurrency:-2}") final int dataStoreConcurrency)
   {
     this.repositoryManager = checkNotNull(repositoryManager);
     this.cleanupMethod = checkNotNull(cleanupMethod);
@@ -97,76 +122,161 @@ public class CleanupServiceImpl
     this.cleanupRetryLimit = cleanupRetryLimit;
     this.browseServiceFactory = checkNotNull(browseServiceFactory);
     this.cleanupFeatureCheck = cleanupFeatureCheck;
+
+    checkArgument(concurrency > 0, "nexus.cleanup.concurrency must be positive");
+    checkArgument(blobStoreConcurrency > 0, "nexus.cleanup.blobStoreConcurrency must be positive");
+    checkArgument(dataStoreConcurrency > 0, "nexus.cleanup.dataStoreConcurrency must be positive");
+    this.concurrency = concurrency;
+    this.blobStoreConcurrency = blobStoreConcurrency;
+    this.dataStoreConcurrency = dataStoreConcurrency;
+  }
+
+  public CleanupServiceImpl(final RepositoryManager repositoryManager,
+                            final CleanupPolicyStorage cleanupPolicyStorage,
+                            final CleanupMethod cleanupMethod,
+                            final GroupType groupType,
+                            final int cleanupRetryLimit,
+                            final CleanupBrowseServiceFactory browseServiceFactory,
+                            @Nullable final CleanupFeatureCheck cleanupFeatureCheck)
+  {
+    this(repositoryManager, cleanupPolicyStorage, cleanupMethod, groupType, cleanupRetryLimit, browseServiceFactory,
+        cleanupFeatureCheck, 1, 1, 2);
   }
 
   @Override
   public void cleanup(final BooleanSupplier cancelledCheck) {
     AtomicLong totalDeletedCount = new AtomicLong(0L);
-    repositoryManager.browse().forEach(repository -> {
-      if (!cancelledCheck.getAsBoolean() && !repository.getType().equals(groupType)) {
-        totalDeletedCount.addAndGet(this.cleanup(repository, cancelledCheck));
-      }
-    });
+    List<Repository> repositories = StreamSupport.stream(repositoryManager.browse().spliterator(), false)
+        .filter(repository -> !repository.getType().equals(groupType))
+        .collect(toList());
+
+    if (concurrency == 1 || repositories.size() < 2) {
+      repositories.forEach(repository -> {
+        if (!cancelledCheck.getAsBoolean()) {
+          totalDeletedCount.addAndGet(this.cleanup(repository, cancelledCheck));
+        }
+      });
+    }
+    else {
+      cleanupConcurrently(repositories, cancelledCheck, totalDeletedCount);
+    }
     log.info("{} assets cleaned up across all repositories", totalDeletedCount.get());
   }
 
-  private Long cleanup(final Repository repository, final BooleanSupplier cancelledCheck) {
-    AtomicLong deleted = new AtomicLong(0L);
-    findPolicies(repository).forEach(policy -> {
-      CleanupComponentBrowse browseService = browseServiceFactory.get(repository.getFormat());
-      deleted.addAndGet(deleteByPolicy(repository, policy, cancelledCheck, browseService));
-      log.info("{} assets cleaned up for repository {} in total", deleted, repository.getName());
-    });
-    return deleted.get();
+  private void cleanupConcurrently(
+      final List<Repository> repositories,
+      final BooleanSupplier cancelledCheck,
+      final AtomicLong totalDeletedCount)
+  {
+    RepositoryCleanupQueue queue = new RepositoryCleanupQueue(repositories, blobStoreConcurrency, dataStoreConcurrency);
+    int workers = Math.min(concurrency, repositories.size());
+
+    ExecutorService executor = NexusExecutorService.forCurrentSubject(
+        Executors.newFixedThreadPool(workers, new NexusThreadFactory("cleanup", "cleanup")));
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < workers; i++) {
+        futures.add(executor.submit(() -> {
+          Repository repository;
+          while ((repository = queue.take(cancelledCheck)) != null) {
+            try {
+              totalDeletedCount.addAndGet(cleanup(repository, cancelledCheck));
+            }
+            finally {
+              queue.release(repository);
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        }
+        catch (ExecutionException e) {
+          log.error("Failed to clean up repositories", e.getCause());
+        }
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      log.warn("Interrupted while cleaning up repositories");
+    }
+    finally {
+      // workers stop taking repositories once cleanup is cancelled, avoid interrupting their database work
+      executor.shutdown();
+    }
   }
 
-  protected Long deleteByPolicy(final Repository repository,
-                                final CleanupPolicy policy,
-                                final BooleanSupplier cancelledCheck,
-                                CleanupComponentBrowse browseService)
-  {
-    log.info("Deleting components and assets in repository {} using policy {}", repository.getName(), policy.getName());
+  private Long cleanup(final Repository repository, final BooleanSupplier cancelledCheck) {
+    List<CleanupPolicy> policies = findPolicies(repository).stream()
+        .filter(policy -> isApplicable(repository, policy))
+        .collect(toList());
 
-    DeletionProgress deletionProgress = new DeletionProgress(cleanupRetryLimit);
+    if (policies.isEmpty()) {
+      return 0L;
+    }
+
+    CleanupComponentBrowse browseService = browseServiceFactory.get(repository.getFormat());
+    Long deleted = deleteByPolicies(repository, policies, cancelledCheck, browseService);
+    log.info("{} assets cleaned up for repository {} in total", deleted, repository.getName());
+    return deleted;
+  }
 
+  private boolean isApplicable(final Repository repository, final CleanupPolicy policy) {
     // Skip the policy if it somehow has exclusion criteria but exclusion (retain) is not supported by the format.
     if (hasExclusionCriteria(policy.getCriteria()) &&
             (cleanupFeatureCheck==null || !cleanupFeatureCheck.isRetainSupported(repository.getFormat().getValue()))) {
       log.warn("Skipping policy {} in repository {} since exclusion criteria is not currently supported.",
-          repository.getName(), policy.getName());
+          policy.getName(), repository.getName());
 
-      return 0L;
+      return false;
     }
 
-    if (!policy.getCriteria().isEmpty()) {
-      do {
-        try {
-          Stream<FluentComponent> componentsToDelete = browseService.browse(policy, repository);
-          DeletionProgress currentProgress = cleanupMethod.run(repository, componentsToDelete, cancelledCheck);
-          deletionProgress.update(currentProgress);
+    if (policy.getCriteria().isEmpty()) {
+      log.info("Policy {} has no criteria and will therefore be ignored (i.e. no components will be deleted)",
+          policy.getName());
+      return false;
+    }
+
+    return true;
+  }
+
+  /**
+   * Deletes the components matching any of the policies, browsing the repository in a single pass.
+   */
+  protected Long deleteByPolicies(final Repository repository,
+                                  final List<CleanupPolicy> policies,
+                                  final BooleanSupplier cancelledCheck,
+                                  CleanupComponentBrowse browseService)
+  {
+    log.info("Deleting components and assets in repository {} using policies {}", repository.getName(),
+        policies.stream().map(CleanupPolicy::getName).collect(toList()));
+
+    DeletionProgress deletionProgress = new DeletionProgress(cleanupRetryLimit);
+
+    do {
+      try {
+        Stream<FluentComponent> componentsToDelete = browseService.browse(policies, repository);
+        DeletionProgress currentProgress = cleanupMethod.run(repository, componentsToDelete, cancelledCheck);
+        deletionProgress.update(currentProgress);
+      }
+      catch (Exception e) {
+        deletionProgress.setAttempts(deletionProgress.getAttempts() + 1);
+        deletionProgress.setFailed(true);
+        if (ExceptionUtils.getRootCause(e) instanceof SearchContextMissingException) {
+          log.warn("Search scroll timed out, continuing with new scrollId.", log.isDebugEnabled() ? e : null);
         }
-        catch (Exception e) {
-          deletionProgress.setAttempts(deletionProgress.getAttempts() + 1);
-          deletionProgress.setFailed(true);
-          if (ExceptionUtils.getRootCause(e) instanceof SearchContextMissingException) {
-            log.warn("Search scroll timed out, continuing with new scrollId.", log.isDebugEnabled() ? e : null);
-          }
-          else {
-            log.error("Failed to delete components.", e);
-          }
+        else {
+          log.error("Failed to delete components.", e);
         }
-      } while (!deletionProgress.isFinished());
-
-      if (deletionProgress.isFailed()) {
-        log.warn("Deletion attempts exceeded for repository {}", repository.getName());
       }
-      return deletionProgress.getComponentCount();
-    }
-    else {
-      log.info("Policy {} has no criteria and will therefore be ignored (i.e. no components will be deleted)",
-          policy.getName());
-      return 0L;
+    } while (!deletionProgress.isFinished());
+
+    if (deletionProgress.isFailed()) {
+      log.warn("Deletion attempts exceeded for repository {}", repository.getName());
     }
+    return deletionProgress.getComponentCount();
   }
 
   private boolean hasExclusionCriteria(final Map<String, String> criteria) {
@@ -0,0 +1,145 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.service;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BooleanSupplier;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.Repository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static org.sonatype.nexus.datastore.api.DataStoreManager.DEFAULT_DATASTORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.DATA_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.STORAGE;
+
+/**
+ * Hands out repositories to clean up while limiting how many are cleaned up at once on each blob store and on each
+ * data store, so concurrent cleanup is spread across storage rather than piling onto one store.
+ *
+ * Repositories are handed out in order, except that a repository whose stores are busy is passed over in favour of
+ * the next one whose stores are not.
+ *
+ * @since 3.70
+ */
+class RepositoryCleanupQueue
+{
+  /**
+   * Longest time a worker waits for busy stores before checking again whether cleanup was cancelled.
+   */
+  private static final long WAIT_MILLIS = 1000;
+
+  private final List<PendingRepository> pending = new LinkedList<>();
+
+  private final Map<String, Integer> blobStoresInUse = new HashMap<>();
+
+  private final Map<String, Integer> dataStoresInUse = new HashMap<>();
+
+  private final Map<Repository, PendingRepository> inProgress = new HashMap<>();
+
+  private final int blobStoreLimit;
+
+  private final int dataStoreLimit;
+
+  RepositoryCleanupQueue(final List<Repository> repositories, final int blobStoreLimit, final int dataStoreLimit) {
+    checkArgument(blobStoreLimit > 0);
+    checkArgument(dataStoreLimit > 0);
+    this.blobStoreLimit = blobStoreLimit;
+    this.dataStoreLimit = dataStoreLimit;
+    repositories.forEach(repository -> pending.add(new PendingRepository(repository)));
+  }
+
+  /**
+   * Waits for a repository whose stores can take more cleanup work.
+   *
+   * @return the repository to clean up, or {@code null} when none remain or cleanup was cancelled
+   */
+  @Nullable
+  synchronized Repository take(final BooleanSupplier cancelledCheck) throws InterruptedException {
+    while (!pending.isEmpty() && !cancelledCheck.getAsBoolean()) {
+      Iterator<PendingRepository> itr = pending.iterator();
+      while (itr.hasNext()) {
+        PendingRepository next = itr.next();
+        if (hasCapacity(blobStoresInUse, next.blobStore, blobStoreLimit) &&
+            hasCapacity(dataStoresInUse, next.dataStore, dataStoreLimit)) {
+          itr.remove();
+          acquire(blobStoresInUse, next.blobStore);
+          acquire(dataStoresInUse, next.dataStore);
+          inProgress.put(next.repository, next);
+          return next.repository;
+        }
+      }
+      wait(WAIT_MILLIS);
+    }
+    return null;
+  }
+
+  /**
+   * Marks cleanup of a repository handed out by {@link #take} as done, freeing its stores for other repositories.
+   */
+  synchronized void release(final Repository repository) {
+    PendingRepository done = inProgress.remove(repository);
+    if (done != null) {
+      release(blobStoresInUse, done.blobStore);
+      release(dataStoresInUse, done.dataStore);
+      notifyAll();
+    }
+  }
+
+  private static boolean hasCapacity(
+      final Map<String, Integer> inUse,
+      @Nullable final String store,
+      final int limit)
+  {
+    return store == null || inUse.getOrDefault(store, 0) < limit;
+  }
+
+  private static void acquire(final Map<String, Integer> inUse, @Nullable final String store) {
+    if (store != null) {
+      inUse.merge(store, 1, Integer::sum);
+    }
+  }
+
+  private static void release(final Map<String, Integer> inUse, @Nullable final String store) {
+    if (store != null) {
+      inUse.computeIfPresent(store, (name, count) -> count > 1 ? count - 1 : null);
+    }
+  }
+
+  private static class PendingRepository
+  {
+    private final Repository repository;
+
+    @Nullable
+    private final String blobStore;
+
+    private final String dataStore;
+
+    PendingRepository(final Repository repository) {
+      this.repository = repository;
+
+      Optional<Map<String, Object>> storage = Optional.ofNullable(repository.getConfiguration().getAttributes())
+          .map(attributes -> attributes.get(STORAGE));
+      this.blobStore = storage.map(attributes -> (String) attributes.get(BLOB_STORE_NAME)).orElse(null);
+      this.dataStore = storage.map(attributes -> (String) attributes.get(DATA_STORE_NAME))
+          .orElse(DEFAULT_DATASTORE_NAME);
+    }
+  }
+}
@@ -24,6 +24,7 @@ import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.AssetBlob;
 import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -46,7 +47,7 @@ public class LastBlobUpdatedCleanupEvaluator
    */
   @Override
   public BiPredicate<Component, Iterable<Asset>> getPredicate(final Repository repository, final String value) {
-    OffsetDateTime cutTime = OffsetDateTime.now().minusSeconds(Long.valueOf(value));
+    OffsetDateTime cutTime = cutTime(value);
 
     return (component, assets) -> {
       OffsetDateTime max = StreamSupport.stream(assets.spliterator(), false)
@@ -64,4 +65,14 @@ public class LastBlobUpdatedCleanupEvaluator
       return false;
     };
   }
+
+  @Override
+  public boolean pushDown(final Repository repository, final String value, final ComponentCriteria criteria) {
+    criteria.lastBlobCreatedBefore(cutTime(value));
+    return true;
+  }
+
+  private static OffsetDateTime cutTime(final String value) {
+    return OffsetDateTime.now().minusSeconds(Long.parseLong(value));
+  }
 }
@@ -22,6 +22,9 @@ import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.cleanup.datastore.search.criteria.AssetCleanupEvaluator;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
+
+import com.google.common.annotations.VisibleForTesting;
 
 import static org.sonatype.nexus.repository.search.DefaultComponentMetadataProducer.REGEX_KEY;
 
@@ -35,6 +38,8 @@ public class RegexCleanupEvaluator
     extends ComponentSupport
     implements AssetCleanupEvaluator
 {
+  private static final String META_CHARACTERS = ".[]{}()*+?^$|";
+
   /*
    * Value is expected to be a regular expression which Java understands.
    */
@@ -52,4 +57,46 @@ public class RegexCleanupEvaluator
           String.format("Repository %s specifies an invalid regular expression.", repository.getName()), e);
     }
   }
+
+  /*
+   * Narrows components to those with an asset path starting with the literal prefix of the regular expression.
+   */
+  @Override
+  public void narrow(final Repository repository, final String value, final ComponentCriteria criteria) {
+    String prefix = literalPrefix(value);
+    if (!prefix.isEmpty()) {
+      criteria.assetPathPrefix(prefix);
+    }
+  }
+
+  /**
+   * Returns the text every match of the regular expression must start with, which may be empty.
+   */
+  @VisibleForTesting
+  static String literalPrefix(final String regex) {
+    if (regex.indexOf('|') >= 0) {
+      return ""; // alternatives need not share a prefix
+    }
+    StringBuilder prefix = new StringBuilder();
+    int i = regex.startsWith("^") ? 1 : 0;
+    while (i < regex.length()) {
+      char c = regex.charAt(i);
+      if (c == '\\' && i + 1 < regex.length() && !Character.isLetterOrDigit(regex.charAt(i + 1))) {
+        prefix.append(regex.charAt(i + 1)); // escaped punctuation is literal
+        i += 2;
+      }
+      else if (c == '\\' || META_CHARACTERS.indexOf(c) >= 0) {
+        break;
+      }
+      else {
+        prefix.append(c);
+        i++;
+      }
+    }
+    // the last character is optional when followed by a quantifier that allows zero occurrences
+    if (i < regex.length() && "*?{".indexOf(regex.charAt(i)) >= 0 && prefix.length() > 0) {
+      prefix.setLength(prefix.length() - 1);
+    }
+    return prefix.toString();
+  }
 }
@@ -14,6 +14,9 @@ package org.sonatype.nexus.cleanup.internal.content.method;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
@@ -23,11 +26,17 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.content.maintenance.ContentMaintenanceFacet;
 import org.sonatype.nexus.repository.task.DeletionProgress;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
 
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
@@ -56,6 +65,14 @@ public class DeleteCleanupMethodTest
     System.setProperty("nexus.continuation.browse.limit", String.valueOf(BATCH_SIZE));
     underTest = new DeleteCleanupMethod();
     when(repository.facet(ContentMaintenanceFacet.class)).thenReturn(contentMaintenanceFacet);
+
+    // batches are prefetched as the current subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
   }
 
   @Test(expected = TaskInterruptedException.class)
@@ -84,6 +101,54 @@ public class DeleteCleanupMethodTest
     assertEquals(5000, deleted.getComponentCount());
   }
 
+  @Test
+  public void testRunFetchesNextBatchWhileDeleting() {
+    CountDownLatch secondBatchFetched = new CountDownLatch(1);
+    AtomicInteger fetched = new AtomicInteger();
+    AtomicInteger deletes = new AtomicInteger();
+    AtomicBoolean overlapped = new AtomicBoolean();
+    when(contentMaintenanceFacet.deleteComponents(any(Stream.class)))
+        .thenAnswer(invocation -> {
+          Stream<FluentComponent> input = invocation.getArgument(0);
+          if (deletes.incrementAndGet() == 1) {
+            overlapped.set(secondBatchFetched.await(5, SECONDS));
+          }
+          return (int) input.count();
+        });
+
+    Stream<FluentComponent> input = getRandomStream(1000).peek(component -> {
+      if (fetched.incrementAndGet() > BATCH_SIZE) {
+        secondBatchFetched.countDown();
+      }
+    });
+
+    DeletionProgress deleted = underTest.run(repository, input, cancelledCheck);
+
+    assertThat(overlapped.get(), is(true));
+    assertEquals(1000, deleted.getComponentCount());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testRunReportsFailureToFetch() {
+    Stream<FluentComponent> input = Stream.concat(getRandomStream(BATCH_SIZE), Stream.generate(() -> {
+      throw new IllegalStateException();
+    }));
+
+    underTest.run(repository, input, cancelledCheck);
+  }
+
+  @Test
+  public void testRunWithoutPrefetching() {
+    underTest = new DeleteCleanupMethod(false);
+    when(contentMaintenanceFacet.deleteComponents(any(Stream.class)))
+        .thenAnswer(invocation -> (int) ((Stream<?>) invocation.getArgument(0)).count());
+
+    DeletionProgress deleted = underTest.run(repository, getRandomStream(1000), cancelledCheck);
+
+    verify(cancelledCheck, times(2)).getAsBoolean();
+    assertEquals(1000, deleted.getComponentCount());
+  }
+
   public Stream<FluentComponent> getRandomStream(final int size) {
     List<FluentComponent> resultList = new ArrayList<>(size);
 
@@ -0,0 +1,188 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.content.search;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.cleanup.content.search.ContinuationBrowse;
+import org.sonatype.nexus.cleanup.datastore.search.criteria.ComponentCleanupEvaluator;
+import org.sonatype.nexus.cleanup.internal.content.method.DeleteCleanupMethod;
+import org.sonatype.nexus.cleanup.storage.CleanupPolicy;
+import org.sonatype.nexus.common.entity.Continuation;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.fluent.FluentComponent;
+import org.sonatype.nexus.repository.content.maintenance.ContentMaintenanceFacet;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
+import org.sonatype.nexus.repository.content.store.ComponentData;
+import org.sonatype.nexus.repository.content.store.WrappedContent;
+import org.sonatype.nexus.repository.task.DeletionProgress;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.google.common.collect.ForwardingCollection;
+import com.google.common.collect.ImmutableMap;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_BLOB_UPDATED_KEY;
+import static org.sonatype.nexus.cleanup.config.CleanupPolicyConstants.LAST_DOWNLOADED_KEY;
+
+public class DataStoreCleanupComponentBrowseTest
+    extends TestSupport
+{
+  private static final OffsetDateTime DOWNLOADED_BEFORE = OffsetDateTime.now().minusDays(10);
+
+  private static final OffsetDateTime CREATED_BEFORE = OffsetDateTime.now().minusDays(20);
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private ContentMaintenanceFacet maintenance;
+
+  @Mock
+  private ComponentCleanupEvaluator lastDownloaded;
+
+  @Mock
+  private ComponentCleanupEvaluator lastBlobUpdated;
+
+  private final FluentComponent onlyDownloadedPolicy = component(1);
+
+  private final FluentComponent bothPolicies = component(2);
+
+  private final FluentComponent onlyUpdatedPolicy = component(3);
+
+  private DataStoreCleanupComponentBrowse underTest;
+
+  @Before
+  public void setUp() {
+    when(lastDownloaded.pushDown(eq(repository), anyString(), any(ComponentCriteria.class)))
+        .thenAnswer(invocation -> {
+          invocation.<ComponentCriteria>getArgument(2).lastDownloadedBefore(DOWNLOADED_BEFORE);
+          return true;
+        });
+    when(lastBlobUpdated.pushDown(eq(repository), anyString(), any(ComponentCriteria.class)))
+        .thenAnswer(invocation -> {
+          invocation.<ComponentCriteria>getArgument(2).lastBlobCreatedBefore(CREATED_BEFORE);
+          return true;
+        });
+
+    // each policy is narrowed down by the content store, so each gets its own pass over the repository
+    underTest = new DataStoreCleanupComponentBrowse(
+        ImmutableMap.of(LAST_DOWNLOADED_KEY, lastDownloaded, LAST_BLOB_UPDATED_KEY, lastBlobUpdated),
+        ImmutableMap.of())
+    {
+      @Override
+      protected ContinuationBrowse<FluentComponent> getComponentBrowser(
+          final Repository repository,
+          final ComponentCriteria criteria)
+      {
+        List<FluentComponent> matches = criteria.getLastDownloadedBefore() != null
+            ? Arrays.asList(onlyDownloadedPolicy, bothPolicies)
+            : Arrays.asList(bothPolicies, onlyUpdatedPolicy);
+        return (limit, continuationToken) -> new TestContinuation<>(matches);
+      }
+    };
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void componentsMatchingOverlappingPoliciesAreReturnedOnce() {
+    List<FluentComponent> components = underTest.browse(policies(), repository).collect(Collectors.toList());
+
+    assertThat(components, contains(onlyDownloadedPolicy, bothPolicies, onlyUpdatedPolicy));
+  }
+
+  @Test
+  public void componentsMatchingOverlappingPoliciesAreDeletedOnce() {
+    // batches are prefetched as the current subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+    when(repository.facet(ContentMaintenanceFacet.class)).thenReturn(maintenance);
+    List<FluentComponent> deleted = new ArrayList<>();
+    when(maintenance.deleteComponents(any(Stream.class))).thenAnswer(invocation -> {
+      List<FluentComponent> batch = invocation.<Stream<FluentComponent>>getArgument(0).collect(Collectors.toList());
+      deleted.addAll(batch);
+      return batch.size();
+    });
+
+    DeletionProgress progress =
+        new DeleteCleanupMethod(true).run(repository, underTest.browse(policies(), repository), () -> false);
+
+    assertThat(deleted, contains(onlyDownloadedPolicy, bothPolicies, onlyUpdatedPolicy));
+    assertThat(progress.getComponentCount(), is(3L));
+  }
+
+  private List<CleanupPolicy> policies() {
+    return Arrays.asList(policy("downloaded", LAST_DOWNLOADED_KEY), policy("updated", LAST_BLOB_UPDATED_KEY));
+  }
+
+  private static CleanupPolicy policy(final String name, final String criteria) {
+    CleanupPolicy policy = mock(CleanupPolicy.class);
+    when(policy.getName()).thenReturn(name);
+    when(policy.getCriteria()).thenReturn(singletonMap(criteria, "1"));
+    return policy;
+  }
+
+  private static FluentComponent component(final int id) {
+    ComponentData data = new ComponentData();
+    data.setComponentId(id);
+    FluentComponent component = mock(FluentComponent.class, withSettings().extraInterfaces(WrappedContent.class));
+    doReturn(data).when((WrappedContent<?>) component).unwrap();
+    return component;
+  }
+
+  private static class TestContinuation<E>
+      extends ForwardingCollection<E>
+      implements Continuation<E>
+  {
+    private final Collection<E> collection;
+
+    TestContinuation(final Collection<E> collection) {
+      this.collection = collection;
+    }
+
+    @Override
+    protected Collection<E> delegate() {
+      return collection;
+    }
+
+    @Override
+    public String nextContinuationToken() {
+      return "end";
+    }
+  }
+}
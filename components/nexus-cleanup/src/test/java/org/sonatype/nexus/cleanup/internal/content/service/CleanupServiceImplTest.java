@@ -13,7 +13,11 @@
 package org.sonatype.nexus.cleanup.internal.content.service;
 
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BooleanSupplier;
 import java.util.stream.Stream;
 
@@ -32,22 +36,29 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.storage.DefaultComponentMaintenanceImpl.DeletionProgress;
 import org.sonatype.nexus.repository.types.GroupType;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import org.apache.shiro.util.ThreadContext;
 import org.elasticsearch.search.SearchContextMissingException;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameters;
+import org.mockito.Answers;
 import org.mockito.Mock;
 
 import static com.google.common.collect.Sets.newLinkedHashSet;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.singletonMap;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static java.util.stream.Stream.empty;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.junit.Assume.assumeFalse;
 import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -60,6 +71,8 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.hamcrest.MockitoHamcrest.argThat;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.BLOB_STORE_NAME;
+import static org.sonatype.nexus.repository.config.ConfigurationConstants.STORAGE;
 import static org.sonatype.nexus.repository.search.DefaultComponentMetadataProducer.LAST_BLOB_UPDATED_KEY;
 import static org.sonatype.nexus.repository.search.DefaultComponentMetadataProducer.LAST_DOWNLOADED_KEY;
 import static org.sonatype.nexus.testcommon.matchers.NexusMatchers.streamContains;
@@ -85,7 +98,7 @@ public class CleanupServiceImplTest
   @Mock
   private Repository repository1, repository2, repository3;
 
-  @Mock
+  @Mock(answer = Answers.CALLS_REAL_METHODS)
   private CleanupComponentBrowse browseService;
 
   @Mock
@@ -159,6 +172,14 @@ public class CleanupServiceImplTest
     when(format.getValue()).thenReturn("maven2");
 
     when(cleanupFeatureCheck.isRetainSupported(any())).thenReturn(true);
+
+    // concurrent cleanup runs repositories as the current subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
   }
 
   @Test
@@ -172,15 +193,16 @@ public class CleanupServiceImplTest
   @Test
   public void fetchMultiplePoliciesForEachRepositoryAndRunCleanup() {
     String[] policyNamesForRepo1 = {"abc", "def", "ghi"};
-    Stream<FluentComponent> componentsForRepo1 = setupForMultiplePolicies(repository1, policyNamesForRepo1);
+    FluentComponent[] componentsForRepo1 = setupForMultiplePolicies(repository1, policyNamesForRepo1);
 
     String[] policyNamesForRepo2 = {"qwe", "rty", "uio"};
-    Stream<FluentComponent> componentsForRepo2 = setupForMultiplePolicies(repository2, policyNamesForRepo2);
+    FluentComponent[] componentsForRepo2 = setupForMultiplePolicies(repository2, policyNamesForRepo2);
 
     underTest.cleanup(cancelledCheck);
 
-    verify(cleanupMethod, times(policyNamesForRepo1.length)).run(repository1, componentsForRepo1, cancelledCheck);
-    verify(cleanupMethod, times(policyNamesForRepo2.length)).run(repository2, componentsForRepo2, cancelledCheck);
+    // all policies of a repository are applied in a single pass
+    verify(cleanupMethod).run(eq(repository1), argThat(streamContains(componentsForRepo1)), eq(cancelledCheck));
+    verify(cleanupMethod).run(eq(repository2), argThat(streamContains(componentsForRepo2)), eq(cancelledCheck));
   }
 
   @Test
@@ -342,6 +364,76 @@ public class CleanupServiceImplTest
     verify(cleanupMethod, times(3)).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
   }
 
+  @Test
+  public void cleanupRepositoriesOnDifferentBlobStoresConcurrently() {
+    setupBlobStore(repository1, "blobs-1");
+    setupBlobStore(repository2, "blobs-2");
+
+    CountDownLatch bothRunning = new CountDownLatch(2);
+    AtomicBoolean concurrent = new AtomicBoolean(true);
+    when(cleanupMethod.run(any(), any(), any())).thenAnswer(i -> {
+      bothRunning.countDown();
+      if (!bothRunning.await(5, SECONDS)) {
+        concurrent.set(false);
+      }
+      return deletionProgress;
+    });
+
+    concurrentCleanupService().cleanup(cancelledCheck);
+
+    assertThat(concurrent.get(), is(true));
+    verify(cleanupMethod).run(eq(repository1), argThat(streamContains(component1, component2)), eq(cancelledCheck));
+    verify(cleanupMethod).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
+  }
+
+  @Test
+  public void cleanupRepositoriesOnSameBlobStoreOneAtATime() {
+    setupBlobStore(repository1, "blobs");
+    setupBlobStore(repository2, "blobs");
+
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger mostRunning = new AtomicInteger();
+    when(cleanupMethod.run(any(), any(), any())).thenAnswer(i -> {
+      mostRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(100);
+      running.decrementAndGet();
+      return deletionProgress;
+    });
+
+    concurrentCleanupService().cleanup(cancelledCheck);
+
+    assertThat(mostRunning.get(), is(1));
+    verify(cleanupMethod).run(eq(repository1), argThat(streamContains(component1, component2)), eq(cancelledCheck));
+    verify(cleanupMethod).run(eq(repository2), argThat(streamContains(component3)), eq(cancelledCheck));
+  }
+
+  @Test
+  public void concurrentCleanupStopsTakingRepositoriesWhenCancelled() {
+    setupBlobStore(repository1, "blobs");
+    setupBlobStore(repository2, "blobs");
+    AtomicBoolean cancelled = new AtomicBoolean();
+    when(cleanupMethod.run(any(), any(), any())).thenAnswer(i -> {
+      cancelled.set(true);
+      return deletionProgress;
+    });
+
+    concurrentCleanupService().cleanup(cancelled::get);
+
+    verify(cleanupMethod).run(any(), any(), any());
+  }
+
+  private CleanupServiceImpl concurrentCleanupService() {
+    return new CleanupServiceImpl(repositoryManager, cleanupPolicyStorage, cleanupMethod, new GroupType(), RETRY_LIMIT,
+        cleanupBrowseFactory, cleanupFeatureCheck, 2, 1, 2);
+  }
+
+  private void setupBlobStore(final Repository repository, final String blobStoreName) {
+    Configuration repositoryConfig = repository.getConfiguration();
+    Map<String, Map<String, Object>> attributes = new HashMap<>(repositoryConfig.getAttributes());
+    attributes.put(STORAGE, singletonMap(BLOB_STORE_NAME, blobStoreName));
+    when(repositoryConfig.getAttributes()).thenReturn(attributes);
+  }
+
   private void setupRepository(final Repository repository, final String... policyName) {
     Configuration repositoryConfig = mock(Configuration.class);
     when(repository.getConfiguration()).thenReturn(repositoryConfig);
@@ -354,22 +446,25 @@ public class CleanupServiceImplTest
 
   }
 
-  private Stream<FluentComponent> setupForMultiplePolicies(final Repository repository, final String... policyNames) {
+  private FluentComponent[] setupForMultiplePolicies(final Repository repository, final String... policyNames) {
     setupRepository(repository, policyNames);
     return setupComponents(repository, policyNames);
   }
 
-  private Stream<FluentComponent> setupComponents(final Repository repository,
-                                           final String... policyNames)
-  {
-    Stream<FluentComponent> components = ImmutableList.of(mock(FluentComponent.class), mock(FluentComponent.class)).stream();
+  /**
+   * Gives each policy its own component, returning them in policy order.
+   */
+  private FluentComponent[] setupComponents(final Repository repository, final String... policyNames) {
+    FluentComponent[] components = new FluentComponent[policyNames.length];
 
-    asList(policyNames).forEach(policyName -> {
+    for (int i = 0; i < policyNames.length; i++) {
       CleanupPolicy cleanupPolicy = mock(CleanupPolicy.class);
       when(cleanupPolicy.getCriteria()).thenReturn(ImmutableMap.of(LAST_BLOB_UPDATED_KEY, "1"));
-      when(cleanupPolicyStorage.get(policyName)).thenReturn(cleanupPolicy);
-      when(browseService.browse(cleanupPolicy, repository)).thenReturn(components);
-    });
+      when(cleanupPolicyStorage.get(policyNames[i])).thenReturn(cleanupPolicy);
+
+      components[i] = mock(FluentComponent.class);
+      when(browseService.browse(cleanupPolicy, repository)).thenReturn(Stream.of(components[i]));
+    }
 
     return components;
   }
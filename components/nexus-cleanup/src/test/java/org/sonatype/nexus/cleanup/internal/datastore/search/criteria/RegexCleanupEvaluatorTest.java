@@ -0,0 +1,66 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.cleanup.internal.datastore.search.criteria;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.sonatype.nexus.cleanup.internal.datastore.search.criteria.RegexCleanupEvaluator.literalPrefix;
+
+public class RegexCleanupEvaluatorTest
+    extends TestSupport
+{
+  @Mock
+  private Repository repository;
+
+  @Test
+  public void findsLiteralPrefix() {
+    assertThat(literalPrefix("/org/example/.*"), is("/org/example/"));
+    assertThat(literalPrefix("^/org/example/.*"), is("/org/example/"));
+    assertThat(literalPrefix("/org/example\\.foo/.*"), is("/org/example.foo/"));
+    assertThat(literalPrefix("/org/exampl(e|es)/.*"), is(""));
+    assertThat(literalPrefix("/org/examples?/.*"), is("/org/example"));
+    assertThat(literalPrefix("/org/examples+/.*"), is("/org/examples"));
+    assertThat(literalPrefix("/org/\\d+/.*"), is("/org/"));
+    assertThat(literalPrefix("(?i)/org/.*"), is(""));
+    assertThat(literalPrefix(".*\\.jar"), is(""));
+    assertThat(literalPrefix("/a|/b"), is(""));
+  }
+
+  @Test
+  public void prefixIsUsedToNarrowComponents() {
+    ComponentCriteria criteria = new ComponentCriteria();
+
+    new RegexCleanupEvaluator().narrow(repository, "/org/ex_ample/100%/.*", criteria);
+
+    assertThat(criteria.getAssetPathPrefix(), is("/org/ex_ample/100%/"));
+    assertThat(criteria.getAssetPathPattern(), is("/org/ex\\_ample/100\\%/%"));
+  }
+
+  @Test
+  public void noNarrowingWithoutPrefix() {
+    ComponentCriteria criteria = new ComponentCriteria();
+
+    new RegexCleanupEvaluator().narrow(repository, ".*\\.jar", criteria);
+
+    assertThat(criteria.getAssetPathPrefix(), nullValue());
+    assertThat(criteria.isEmpty(), is(true));
+  }
+}
@@ -28,4 +28,26 @@ public interface EventAware
   {
     // empty
   }
+
+  /**
+   * Optional callbacks for {@link Asynchronous} components that can handle a run of events more efficiently together,
+   * for example by flushing their work once per run. When events are delivered from per-subscriber queues, each run
+   * of queued events is delivered by a single thread between these calls.
+   *
+   * @since 3.70
+   */
+  interface Batching
+  {
+    /**
+     * Called before a run of queued events is delivered on the current thread.
+     */
+    default void beforeBatch() {
+      // no-op
+    }
+
+    /**
+     * Called after a run of queued events was delivered on the current thread, even when delivery failed.
+     */
+    void afterBatch();
+  }
 }
@@ -41,6 +41,8 @@ public class MultiHashingInputStream
 
   private long count;
 
+  private Map<HashAlgorithm, HashCode> hashes;
+
   public MultiHashingInputStream(final Iterable<HashAlgorithm> algorithms, final InputStream inputStream) {
     super(checkNotNull(inputStream));
     checkNotNull(algorithms);
@@ -88,15 +90,28 @@ public class MultiHashingInputStream
     throw new IOException("reset not supported");
   }
 
+  /**
+   * Whether this stream maintains a hash using the given algorithm.
+   *
+   * @since 3.70
+   */
+  public boolean isHashing(final HashAlgorithm algorithm) {
+    return hashers.containsKey(algorithm);
+  }
+
   /**
    * Gets the {@link HashCode}s based on the data read from this stream.
+   *
+   * Hashes are computed on the first call, after which no more data should be read from this stream.
    */
   public Map<HashAlgorithm, HashCode> hashes() {
-    Map<HashAlgorithm, HashCode> hashes = new HashMap<>(hashers.size());
-    for (Entry<HashAlgorithm, Hasher> entry : hashers.entrySet()) {
-      hashes.put(entry.getKey(), entry.getValue().hash());
+    if (hashes == null) {
+      hashes = new HashMap<>(hashers.size());
+      for (Entry<HashAlgorithm, Hasher> entry : hashers.entrySet()) {
+        hashes.put(entry.getKey(), entry.getValue().hash());
+      }
     }
-    return hashes;
+    return new HashMap<>(hashes);
   }
 
   /**
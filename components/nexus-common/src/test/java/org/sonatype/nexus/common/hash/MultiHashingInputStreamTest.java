@@ -46,6 +46,13 @@ public class MultiHashingInputStreamTest
     assertThat(andUseHashingStream.count(), is(equalTo(byteArrayLength)));
   }
 
+  @Test
+  public void hashesCanBeRequestedMoreThanOnce() throws IOException {
+    final MultiHashingInputStream hashingStream = createAndUseHashingStream(new byte[100]);
+
+    assertThat(hashingStream.hashes(), is(equalTo(hashingStream.hashes())));
+  }
+
   private MultiHashingInputStream createAndUseHashingStream(final byte[] bytes) throws IOException {
     final MultiHashingInputStream hashingStream = new MultiHashingInputStream(
         Arrays.asList(HashAlgorithm.SHA512), new ByteArrayInputStream(bytes));
@@ -78,6 +78,15 @@ public abstract class AbstractJsonTypeHandler<T>
     return getRawType();
   }
 
+  /**
+   * Override this method to return {@code true} if JSON objects should be read as a {@link LazyJsonMap}.
+   *
+   * @since 3.70
+   */
+  protected boolean isLazyMap() {
+    return false;
+  }
+
   /**
    * Override this method to call {@link #writeToEncryptedJson} if you want to store encrypted JSON.
    */
@@ -97,6 +106,12 @@ public abstract class AbstractJsonTypeHandler<T>
    * Override this method if you want to customize exactly how the object is serialized to plain JSON.
    */
   protected byte[] writeToPlainJson(final Object value) throws SQLException {
+    if (value instanceof LazyJsonMap) {
+      byte[] json = ((LazyJsonMap) value).unparsedJson(objectMapper);
+      if (json != null) {
+        return json; // untouched since it was read, so no need to serialize it again
+      }
+    }
     try {
       return objectMapper.writeValueAsBytes(value);
     }
@@ -110,6 +125,9 @@ public abstract class AbstractJsonTypeHandler<T>
    */
   @Nullable
   protected Object readFromPlainJson(@Nullable final byte[] json) throws SQLException {
+    if (json != null && isLazyMap() && isJsonObject(json)) {
+      return new LazyJsonMap(json, objectMapper, jsonType);
+    }
     try {
       return json != null ? objectMapper.readValue(json, jsonType) : null;
     }
@@ -148,6 +166,21 @@ public abstract class AbstractJsonTypeHandler<T>
     return readFromPlainJson(plain);
   }
 
+  /**
+   * Does the JSON hold an object? Anything else, such as {@code null}, is read eagerly.
+   */
+  private static boolean isJsonObject(final byte[] json) {
+    for (byte b : json) {
+      if (b == '{') {
+        return true;
+      }
+      if (b != ' ' && b != '\t' && b != '\n' && b != '\r') {
+        return false;
+      }
+    }
+    return false;
+  }
+
   @Override
   public final void setNonNullParameter(
       final PreparedStatement ps,
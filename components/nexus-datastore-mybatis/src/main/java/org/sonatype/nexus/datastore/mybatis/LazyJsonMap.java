@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ForwardingMap;
+
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * {@link Map} read from a JSON object which is only parsed the first time its content is accessed.
+ *
+ * Rows fetched in bulk often never look at their attributes, so this avoids building maps that are thrown away.
+ * Single values can be {@link #peek peeked} by streaming through the JSON without building the map. If the map
+ * is written back before it was parsed, the original JSON is reused as-is.
+ *
+ * @since 3.70
+ */
+public final class LazyJsonMap
+    extends ForwardingMap<String, Object>
+{
+  private final byte[] json;
+
+  private final ObjectMapper objectMapper;
+
+  private final JavaType jsonType;
+
+  @Nullable
+  private volatile Map<String, Object> delegate;
+
+  LazyJsonMap(final byte[] json, final ObjectMapper objectMapper, final JavaType jsonType) {
+    this.json = checkNotNull(json);
+    this.objectMapper = checkNotNull(objectMapper);
+    this.jsonType = checkNotNull(jsonType);
+  }
+
+  /**
+   * Whether the JSON has been parsed into a map.
+   */
+  public boolean isParsed() {
+    return delegate != null;
+  }
+
+  /**
+   * Returns the value found by following the given keys through nested objects, or {@code null} if there's no such
+   * value. Unless the map has already been parsed only the requested value is deserialized.
+   */
+  @Nullable
+  public Object peek(final String... path) {
+    checkArgument(path.length > 0, "Path must not be empty");
+
+    Map<String, Object> map = delegate;
+    if (map != null) {
+      return peek(map, path);
+    }
+
+    try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+      if (parser.nextToken() != START_OBJECT) {
+        return null;
+      }
+      int depth = 0;
+      while (parser.nextToken() == FIELD_NAME) {
+        String name = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+        if (!path[depth].equals(name)) {
+          parser.skipChildren();
+        }
+        else if (depth == path.length - 1) {
+          return objectMapper.readValue(parser, Object.class);
+        }
+        else if (token == START_OBJECT) {
+          depth++; // carry on with the fields of the nested object
+        }
+        else {
+          return null;
+        }
+      }
+      return null;
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Returns the original JSON if the map hasn't been parsed and was read by the given mapper, otherwise {@code null}.
+   */
+  @Nullable
+  byte[] unparsedJson(final ObjectMapper mapper) {
+    return delegate == null && objectMapper == mapper ? json : null;
+  }
+
+  @Override
+  protected Map<String, Object> delegate() {
+    Map<String, Object> map = delegate;
+    if (map == null) {
+      synchronized (this) {
+        map = delegate;
+        if (map == null) {
+          try {
+            map = objectMapper.readValue(json, jsonType);
+          }
+          catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          delegate = map;
+        }
+      }
+    }
+    return map;
+  }
+
+  @Nullable
+  private static Object peek(final Map<?, ?> map, final String... path) {
+    Object value = map;
+    for (String key : path) {
+      if (!(value instanceof Map)) {
+        return null;
+      }
+      value = ((Map<?, ?>) value).get(key);
+    }
+    return value;
+  }
+}
@@ -23,6 +23,8 @@ import org.apache.ibatis.type.TypeHandler;
  *
  * Sensitive fields will be automatically encrypted at rest when persisting to the config store.
  *
+ * Maps are read as a {@link org.sonatype.nexus.datastore.mybatis.LazyJsonMap} which is parsed on first access.
+ *
  * @see org.sonatype.nexus.datastore.mybatis.SensitiveAttributes
  *
  * @since 3.19
@@ -31,5 +33,8 @@ import org.apache.ibatis.type.TypeHandler;
 public class AttributesTypeHandler
     extends AbstractJsonTypeHandler<Map<String, ?>>
 {
-  // nothing to do
+  @Override
+  protected boolean isLazyMap() {
+    return true;
+  }
 }
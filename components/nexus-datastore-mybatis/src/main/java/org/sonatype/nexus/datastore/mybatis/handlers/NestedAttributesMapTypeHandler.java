@@ -26,6 +26,8 @@ import org.apache.ibatis.type.TypeHandler;
  *
  * Sensitive fields will be automatically encrypted at rest when persisting to the config store.
  *
+ * The backing map is a {@link org.sonatype.nexus.datastore.mybatis.LazyJsonMap} which is parsed on first access.
+ *
  * @see org.sonatype.nexus.datastore.mybatis.SensitiveAttributes
  *
  * @since 3.20
@@ -39,6 +41,11 @@ public class NestedAttributesMapTypeHandler
     return Map.class;
   }
 
+  @Override
+  protected boolean isLazyMap() {
+    return true;
+  }
+
   @Override
   protected byte[] writeToJson(final Object value) throws SQLException {
     return super.writeToJson(((NestedAttributesMap) value).backing());
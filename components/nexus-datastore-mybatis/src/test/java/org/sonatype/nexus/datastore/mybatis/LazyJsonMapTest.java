@@ -0,0 +1,102 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.datastore.mybatis;
+
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.datastore.mybatis.handlers.AttributesTypeHandler;
+import org.sonatype.nexus.datastore.mybatis.handlers.NestedAttributesMapTypeHandler;
+
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Test {@link LazyJsonMap}.
+ */
+public class LazyJsonMapTest
+    extends TestSupport
+{
+  private static final byte[] JSON =
+      "{\"maven2\":{\"groupId\":\"org.example\",\"size\":42,\"tags\":[\"a\",\"b\"]},\"checksum\":{\"sha1\":\"abc\"}}"
+          .getBytes(UTF_8);
+
+  private final AbstractJsonTypeHandler<Map<String, ?>> handler = new AttributesTypeHandler();
+
+  @Test
+  public void parsesOnFirstAccess() throws Exception {
+    LazyJsonMap map = (LazyJsonMap) handler.readFromJson(JSON);
+
+    assertThat(map.isParsed(), is(false));
+    assertThat(((Map<?, ?>) map.get("checksum")).get("sha1"), is("abc"));
+    assertThat(map.isParsed(), is(true));
+  }
+
+  @Test
+  public void peeksWithoutParsing() throws Exception {
+    LazyJsonMap map = (LazyJsonMap) handler.readFromJson(JSON);
+
+    assertThat(map.peek("checksum", "sha1"), is("abc"));
+    assertThat(map.peek("maven2", "groupId"), is("org.example"));
+    assertThat(map.peek("maven2", "size"), is(42));
+    assertThat(map.peek("maven2", "tags"), instanceOf(List.class));
+    assertThat(map.peek("maven2", "missing"), nullValue());
+    assertThat(map.peek("checksum", "sha1", "deeper"), nullValue());
+    assertThat(map.peek("missing"), nullValue());
+    assertThat(map.isParsed(), is(false));
+
+    map.size();
+
+    assertThat(map.peek("checksum", "sha1"), is("abc"));
+    assertThat(map.peek("maven2", "size"), is(42));
+  }
+
+  @Test
+  public void reusesJsonUntilParsed() throws Exception {
+    LazyJsonMap map = (LazyJsonMap) handler.readFromJson(JSON);
+
+    assertThat(handler.writeToJson(map), sameInstance(JSON));
+
+    map.put("extra", "value");
+
+    byte[] written = handler.writeToJson(map);
+    assertThat(written, not(sameInstance(JSON)));
+    assertThat(((Map<?, ?>) handler.readFromJson(written)).get("extra"), is("value"));
+  }
+
+  @Test
+  public void nestedAttributesAreLazy() throws Exception {
+    AbstractJsonTypeHandler<NestedAttributesMap> nestedHandler = new NestedAttributesMapTypeHandler();
+
+    NestedAttributesMap attributes = (NestedAttributesMap) nestedHandler.readFromJson(JSON);
+
+    assertThat(attributes.backing(), instanceOf(LazyJsonMap.class));
+    assertThat(nestedHandler.writeToJson(attributes), sameInstance(JSON));
+    assertThat(attributes.child("maven2").get("groupId"), is("org.example"));
+  }
+
+  @Test
+  public void nonObjectsAreReadEagerly() throws Exception {
+    assertThat(handler.readFromJson("null".getBytes(UTF_8)), nullValue());
+    assertThat(handler.readFromJson(" {}".getBytes(UTF_8)), instanceOf(LazyJsonMap.class));
+  }
+}
@@ -55,6 +55,8 @@ import com.google.common.eventbus.Subscribe;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Boolean.FALSE;
+import static java.lang.Boolean.TRUE;
 import static java.lang.Integer.parseInt;
 import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED;
 import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
@@ -264,10 +266,20 @@ public class BrowseEventHandler
 
   /**
    * Asynchronous receiver of {@link FlushEvent}s and {@link PurgeEvent}s.
+   *
+   * When events are delivered in batches the {@link PurgeEvent}s of a batch only trim the repositories once, after
+   * the batch, instead of once per deleted asset or component.
    */
   private class FlushEventReceiver
-      implements EventAware.Asynchronous
+      implements EventAware.Asynchronous, EventAware.Batching
   {
+    private final ThreadLocal<Boolean> trimAfterBatch = new ThreadLocal<>();
+
+    @Override
+    public void beforeBatch() {
+      trimAfterBatch.set(FALSE);
+    }
+
     @AllowConcurrentEvents
     @Subscribe
     public void on(final FlushEvent event) {
@@ -277,7 +289,21 @@ public class BrowseEventHandler
     @AllowConcurrentEvents
     @Subscribe
     public void on(final PurgeEvent event) {
-      maybeTrimRepositories();
+      if (trimAfterBatch.get() != null) {
+        trimAfterBatch.set(TRUE);
+      }
+      else {
+        maybeTrimRepositories();
+      }
+    }
+
+    @Override
+    public void afterBatch() {
+      boolean trim = TRUE.equals(trimAfterBatch.get());
+      trimAfterBatch.remove();
+      if (trim) {
+        maybeTrimRepositories();
+      }
     }
   }
 
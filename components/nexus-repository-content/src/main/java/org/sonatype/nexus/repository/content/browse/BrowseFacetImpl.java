@@ -49,6 +49,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
 import static java.util.Map.Entry;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_CLUSTERED_ENABLED_NAMED;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 import static org.sonatype.nexus.scheduling.CancelableHelper.checkCancellation;
@@ -79,6 +80,8 @@ public class BrowseFacetImpl
 
   private final int pageSize;
 
+  private final int folderCacheSize;
+
   private String format;
 
   private BrowseNodeGenerator browseNodeGenerator;
@@ -90,12 +93,16 @@ public class BrowseFacetImpl
       final Map<String, FormatStoreManager> formatStoreManagersByFormat,
       final Map<String, BrowseNodeGenerator> browseNodeGeneratorsByFormat,
       final PackageUrlService packageUrlService,
-      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize)
+      @Named("${nexus.browse.rebuild.pageSize:-1000}") final int pageSize,
+      @Named("${nexus.browse.folderCache.size:-10000}") final int folderCacheSize,
+      @Named(DATASTORE_CLUSTERED_ENABLED_NAMED) final boolean clustered)
   {
     this.formatStoreManagersByFormat = checkNotNull(formatStoreManagersByFormat);
     this.browseNodeGeneratorsByFormat = checkNotNull(browseNodeGeneratorsByFormat);
     this.packageUrlService = checkNotNull(packageUrlService);
     this.pageSize = max(pageSize, 1);
+    // other nodes trim browse nodes without invalidating the folders known to this node
+    this.folderCacheSize = clustered ? 0 : folderCacheSize;
   }
 
   @Override
@@ -110,7 +117,7 @@ public class BrowseFacetImpl
         lookupFormatStoreManager(format).formatStore(storeName, BrowseNodeDAO.class);
 
     browseNodeGenerator = lookupBrowseNodeGenerator(format);
-    browseNodeManager = new BrowseNodeManager(browseNodeStore, repositoryId);
+    browseNodeManager = new BrowseNodeManager(browseNodeStore, repositoryId, folderCacheSize);
   }
 
   @Guarded(by = STARTED)
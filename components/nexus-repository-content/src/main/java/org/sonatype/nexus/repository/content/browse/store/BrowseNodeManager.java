@@ -12,8 +12,12 @@
  */
 package org.sonatype.nexus.repository.content.browse.store;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -27,15 +31,30 @@ import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.transaction.Transactional;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import org.apache.commons.lang3.StringUtils;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 
 /**
  * Manages browse nodes for a specific repository.
  *
+ * Remembers the ids of recently merged folder nodes so that new nodes only need to merge the part of their path
+ * that is not already known to exist. Folders are keyed by their display path, which mirrors how nodes are merged
+ * (by parent and display name), and also remember the request path they were merged with; a folder whose request
+ * path would be rewritten by a merge is merged again. The cache is invalidated whenever nodes are trimmed or deleted,
+ * which waits for nodes being created with the help of the cache so they cannot end up under a removed folder. Nodes
+ * created while a trim or delete is under way don't wait for it, they merge every folder of their path instead.
+ *
+ * The cache only knows about removals made through this manager, so it must not be used when other nodes may remove
+ * browse nodes of the same repository, such as in a clustered deployment.
+ *
  * @since 3.26
  */
 public class BrowseNodeManager
@@ -45,9 +64,27 @@ public class BrowseNodeManager
 
   private final int repositoryId;
 
+  @Nullable
+  private final Cache<List<String>, Folder> folders;
+
+  // fair, so that waiting removals turn new creations away from the cache instead of waiting for them to stop
+  private final ReadWriteLock removalLock = new ReentrantReadWriteLock(true);
+
   public BrowseNodeManager(final BrowseNodeStore<BrowseNodeDAO> browseNodeStore, final int repositoryId) {
+    this(browseNodeStore, repositoryId, 0);
+  }
+
+  /**
+   * @since 3.70
+   */
+  public BrowseNodeManager(
+      final BrowseNodeStore<BrowseNodeDAO> browseNodeStore,
+      final int repositoryId,
+      final int folderCacheSize)
+  {
     this.browseNodeStore = checkNotNull(browseNodeStore);
     this.repositoryId = repositoryId;
+    this.folders = folderCacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(folderCacheSize).build() : null;
   }
 
   /**
@@ -86,15 +123,73 @@ public class BrowseNodeManager
    * Creates browse nodes for the path, applying a final step to the last node.
    */
   public void createBrowseNodes(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
-    Transactional.operation.withStore(browseNodeStore).run(() -> doCreateBrowseNodes(paths, finalStep));
+    // cached folders must not be removed until the nodes created under them are committed
+    Lock lock = folders != null ? tryLockForCache() : null;
+    if (lock == null) {
+      Transactional.operation.withStore(browseNodeStore).run(
+          () -> doCreateBrowseNodes(paths, finalStep, false, new HashMap<>()));
+      return;
+    }
+
+    try {
+      Map<List<String>, Folder> mergedFolders = new HashMap<>();
+      Transactional.operation.withStore(browseNodeStore).run(
+          () -> doCreateBrowseNodes(paths, finalStep, true, mergedFolders));
+
+      // only remember folders once they've been committed
+      folders.putAll(mergedFolders);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Returns the held read lock when the cache can be used, or {@code null} when nodes are being removed.
+   */
+  @Nullable
+  private Lock tryLockForCache() {
+    Lock lock = removalLock.readLock();
+    try {
+      // unlike tryLock(), this honours the fair ordering so that removals waiting for the lock aren't starved
+      return lock.tryLock(0, SECONDS) ? lock : null;
+    }
+    catch (InterruptedException e) { // NOSONAR: carry on without the cache, leaving the interrupt to the caller
+      Thread.currentThread().interrupt();
+      return null;
+    }
   }
 
   /**
    * Creates browse nodes for the path (runs in a single transaction).
+   *
+   * @param useCache whether to skip merging folders already known to exist
+   * @param mergedFolders collects the folders merged by this call
    */
-  protected void doCreateBrowseNodes(final List<BrowsePath> paths, final Consumer<BrowseNodeData> finalStep) {
+  protected void doCreateBrowseNodes(
+      final List<BrowsePath> paths,
+      final Consumer<BrowseNodeData> finalStep,
+      final boolean useCache,
+      final Map<List<String>, Folder> mergedFolders)
+  {
+    List<String> displayPath = paths.stream().map(BrowsePath::getDisplayName).collect(Collectors.toList());
+
     Long parentId = null;
-    for (int i = 0; i < paths.size(); i++) {
+    int start = 0;
+    if (useCache) {
+      // skip the known folders from the top that a merge would leave as they are; the last node always gets merged
+      // so it can be updated
+      for (int i = 0; i < paths.size() - 1; i++) {
+        Folder folder = folders.getIfPresent(displayPath.subList(0, i + 1));
+        if (folder == null || folder.wouldBeRewrittenBy(paths.get(i).getRequestPath())) {
+          break;
+        }
+        parentId = folder.nodeId;
+        start = i + 1;
+      }
+    }
+
+    for (int i = start; i < paths.size(); i++) {
       BrowseNodeData node = new BrowseNodeData();
       node.setRepositoryId(repositoryId);
       node.setRequestPath(paths.get(i).getRequestPath());
@@ -123,6 +218,10 @@ public class BrowseNodeManager
         return;
       }
       parentId = node.nodeId;
+      if (i < paths.size() - 1) {
+        mergedFolders.put(ImmutableList.copyOf(displayPath.subList(0, i + 1)),
+            new Folder(parentId, paths.get(i).getRequestPath()));
+      }
     }
   }
 
@@ -130,13 +229,63 @@ public class BrowseNodeManager
    * Trims any dangling browse nodes from the repository.
    */
   public void trimBrowseNodes() {
-    browseNodeStore.trimBrowseNodes(repositoryId);
+    removeBrowseNodes(() -> browseNodeStore.trimBrowseNodes(repositoryId));
   }
 
   /**
    * Deletes all browse nodes associated with the repository.
    */
   public void deleteBrowseNodes() {
-    browseNodeStore.deleteBrowseNodes(repositoryId);
+    removeBrowseNodes(() -> browseNodeStore.deleteBrowseNodes(repositoryId));
+  }
+
+  /**
+   * Removes browse nodes while making sure no cached folder ids outlive the nodes they refer to.
+   *
+   * This waits for nodes being created with the help of the cache, but nodes created during the removal don't use the
+   * cache so they don't wait for it in turn.
+   */
+  private void removeBrowseNodes(final Runnable removal) {
+    if (folders == null) {
+      removal.run();
+      return;
+    }
+
+    Lock lock = removalLock.writeLock();
+    lock.lock();
+    try {
+      folders.invalidateAll();
+      removal.run();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @VisibleForTesting
+  long cachedFolderCount() {
+    return folders != null ? folders.size() : 0;
+  }
+
+  /**
+   * A folder node known to exist, with the request path it was merged with.
+   */
+  protected static final class Folder
+  {
+    private final long nodeId;
+
+    private final String requestPath;
+
+    Folder(final long nodeId, final String requestPath) {
+      this.nodeId = nodeId;
+      this.requestPath = requestPath;
+    }
+
+    /**
+     * Merging folders with a request path ending in '/' rewrites the request path of the existing folder.
+     */
+    boolean wouldBeRewrittenBy(final String requestPath) {
+      return requestPath.endsWith("/") && !requestPath.equals(this.requestPath);
+    }
   }
 }
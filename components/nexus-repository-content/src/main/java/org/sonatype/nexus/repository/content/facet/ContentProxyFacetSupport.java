@@ -29,6 +29,22 @@ import org.sonatype.nexus.repository.view.Context;
 public abstract class ContentProxyFacetSupport
     extends ProxyFacetSupport
 {
+  /**
+   * Content stores manage their own transactions, so content can be stored away from the request thread.
+   */
+  @Override
+  protected boolean isStreamThroughSupported() {
+    return true;
+  }
+
+  /**
+   * Content stores manage their own transactions, so stale content can be revalidated away from the request thread.
+   */
+  @Override
+  protected boolean isRevalidationSupported() {
+    return true;
+  }
+
   @Override
   protected void indicateVerified(
       final Context context,
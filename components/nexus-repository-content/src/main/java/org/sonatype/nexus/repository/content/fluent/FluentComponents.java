@@ -24,6 +24,7 @@ import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.ComponentSet;
 import org.sonatype.nexus.repository.content.SqlGenerator;
 import org.sonatype.nexus.repository.content.SqlQueryParameters;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 import org.sonatype.nexus.repository.content.store.ComponentSetData;
 
 /**
@@ -80,6 +81,38 @@ public interface FluentComponents
    */
   Continuation<FluentComponent> bySet(final ComponentSet componentSet, final int limit, final String continuationToken);
 
+  /**
+   * Query components whose assets meet the given criteria, which are evaluated by the content store.
+   *
+   * @since 3.70
+   */
+  Continuation<FluentComponent> byCriteria(ComponentCriteria criteria, int limit, @Nullable String continuationToken);
+
+  /**
+   * Query components whose assets meet the given criteria, fetching their assets at the same time.
+   *
+   * @since 3.70
+   */
+  Continuation<FluentComponent> byCriteriaEager(
+      ComponentCriteria criteria,
+      int limit,
+      @Nullable String continuationToken);
+
+  /**
+   * Browse components in the repository, fetching their assets and asset blobs in the same query.
+   *
+   * @since 3.70
+   */
+  Continuation<FluentComponent> browseWithAssetBlobs(int limit, @Nullable String continuationToken);
+
+  /**
+   * Find the components in the repository with the given external ids, fetching their assets and asset blobs in the
+   * same query. Ids of components that no longer exist are ignored.
+   *
+   * @since 3.70
+   */
+  Collection<FluentComponent> findWithAssetBlobs(Collection<EntityId> externalIds);
+
   /**
    * Select components using the provided query generator and parameters.
    *
@@ -37,6 +37,7 @@ import org.sonatype.nexus.repository.content.fluent.FluentContinuation;
 import org.sonatype.nexus.repository.content.fluent.FluentQuery;
 import org.sonatype.nexus.repository.content.fluent.constraints.FluentQueryConstraint;
 import org.sonatype.nexus.repository.content.fluent.constraints.GroupRepositoryConstraint;
+import org.sonatype.nexus.repository.content.store.ComponentCriteria;
 import org.sonatype.nexus.repository.content.store.ComponentData;
 import org.sonatype.nexus.repository.content.store.ComponentSetData;
 import org.sonatype.nexus.repository.content.store.ComponentStore;
@@ -199,6 +200,43 @@ public class FluentComponentsImpl
         componentSet, limit, continuationToken), this::with);
   }
 
+  @Override
+  public Continuation<FluentComponent> byCriteria(
+      final ComponentCriteria criteria,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return new FluentContinuation<>(componentStore.browseComponentsByCriteria(facet.contentRepositoryId(),
+        criteria, limit, continuationToken), this::with);
+  }
+
+  @Override
+  public Continuation<FluentComponent> byCriteriaEager(
+      final ComponentCriteria criteria,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return new FluentContinuation<>(componentStore.browseComponentsByCriteriaEager(facet.contentRepositoryId(),
+        criteria, limit, continuationToken), componentData -> with(componentData, componentData.getAssets()));
+  }
+
+  @Override
+  public Continuation<FluentComponent> browseWithAssetBlobs(final int limit, @Nullable final String continuationToken) {
+    return new FluentContinuation<>(componentStore.browseComponentsWithAssetBlobs(facet.contentRepositoryId(),
+        limit, continuationToken), componentData -> with(componentData, componentData.getAssets()));
+  }
+
+  @Override
+  public Collection<FluentComponent> findWithAssetBlobs(final Collection<EntityId> externalIds) {
+    List<Integer> componentIds = externalIds.stream()
+        .map(InternalIds::toInternalId)
+        .collect(Collectors.toList());
+
+    return componentStore.findComponentsWithAssetBlobs(facet.contentRepositoryId(), componentIds).stream()
+        .map(componentData -> with(componentData, componentData.getAssets()))
+        .collect(Collectors.toList());
+  }
+
   @Override
   public Continuation<FluentComponent> selectComponents(final SqlGenerator<? extends SqlQueryParameters> generator, final SqlQueryParameters params) {
     return new FluentContinuation<>(componentStore.selectComponents(generator, params), this::with);
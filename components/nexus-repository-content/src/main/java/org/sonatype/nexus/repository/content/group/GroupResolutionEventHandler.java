@@ -0,0 +1,74 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.group;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.app.FeatureFlag;
+import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.event.asset.AssetCreatedEvent;
+import org.sonatype.nexus.repository.content.event.asset.AssetDeletedEvent;
+import org.sonatype.nexus.repository.content.event.asset.AssetEvent;
+import org.sonatype.nexus.repository.group.GroupMemberResolutionCache;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED;
+
+/**
+ * Keeps the {@link GroupMemberResolutionCache} in step with content: whenever an asset appears in or disappears from
+ * a repository, the remembered resolution of its path is forgotten in every group containing that repository.
+ *
+ * Handled synchronously so the next group request after the change already probes the members again.
+ *
+ * @since 3.70
+ */
+@FeatureFlag(name = DATASTORE_ENABLED)
+@Named
+@Singleton
+public class GroupResolutionEventHandler
+    extends ComponentSupport
+    implements EventAware
+{
+  private final GroupMemberResolutionCache resolutionCache;
+
+  @Inject
+  public GroupResolutionEventHandler(final GroupMemberResolutionCache resolutionCache) {
+    this.resolutionCache = checkNotNull(resolutionCache);
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AssetCreatedEvent event) {
+    invalidate(event);
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AssetDeletedEvent event) {
+    invalidate(event);
+  }
+
+  private void invalidate(final AssetEvent event) {
+    if (resolutionCache.isEnabled()) {
+      event.getRepository().map(Repository::getName).ifPresent(
+          repositoryName -> resolutionCache.invalidateMember(repositoryName, event.getAsset().path()));
+    }
+  }
+}
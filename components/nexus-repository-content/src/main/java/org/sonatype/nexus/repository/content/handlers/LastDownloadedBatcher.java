@@ -0,0 +1,264 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.FeatureFlag;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.common.time.UTC;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
+import org.sonatype.nexus.repository.content.facet.ContentFacetStores;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.store.AssetStore;
+import org.sonatype.nexus.repository.content.store.WrappedContent;
+import org.sonatype.nexus.scheduling.PeriodicJobService;
+import org.sonatype.nexus.scheduling.PeriodicJobService.PeriodicJob;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Comparator.naturalOrder;
+import static java.util.stream.Collectors.toList;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+import static org.sonatype.nexus.repository.content.store.InternalIds.internalAssetId;
+
+/**
+ * Write-behind coalescer for asset last downloaded times.
+ *
+ * Downloads are recorded in a bounded concurrent map keyed by content store, format and asset id, so repeated
+ * downloads of the same asset between flushes collapse into a single update. A scheduled task periodically drains
+ * the map and updates each format's assets in batches with a single statement per page. Any remaining updates are
+ * flushed when the service is stopped.
+ *
+ * When the map is full new downloads are dropped; their assets still look stale so a later download will retry.
+ *
+ * @since 3.70
+ */
+@FeatureFlag(name = DATASTORE_ENABLED)
+@ManagedLifecycle(phase = SERVICES)
+@Named
+@Singleton
+public class LastDownloadedBatcher
+    extends LifecycleSupport
+{
+  private static final String BATCHER_KEY_PREFIX = "nexus.content.lastDownloaded.writeBehind.";
+
+  private static final String ENABLED_KEY = BATCHER_KEY_PREFIX + "enabled";
+
+  private static final String FLUSH_ON_SECONDS_KEY = BATCHER_KEY_PREFIX + "flushOnSeconds";
+
+  private static final String BATCH_SIZE_KEY = BATCHER_KEY_PREFIX + "batchSize";
+
+  private static final String MAX_PENDING_KEY = BATCHER_KEY_PREFIX + "maxPending";
+
+  private static final String METRIC_PREFIX = "nexus.content.lastDownloaded.writeBehind.";
+
+  private final PeriodicJobService periodicJobService;
+
+  private final boolean enabled;
+
+  private final int flushOnSeconds;
+
+  private final int batchSize;
+
+  private final int maxPending;
+
+  private final Map<String, PendingDownload> pendingDownloads = new ConcurrentHashMap<>();
+
+  private final Object flushMutex = new Object();
+
+  private final Timer flushTimer;
+
+  private final Counter droppedCounter;
+
+  private final Counter flushedCounter;
+
+  private PeriodicJob flushTask;
+
+  private volatile boolean accepting;
+
+  @Inject
+  public LastDownloadedBatcher(
+      final PeriodicJobService periodicJobService,
+      final MetricRegistry metricRegistry,
+      @Named("${" + ENABLED_KEY + ":-false}") final boolean enabled,
+      @Named("${" + FLUSH_ON_SECONDS_KEY + ":-5}") final int flushOnSeconds,
+      @Named("${" + BATCH_SIZE_KEY + ":-500}") final int batchSize,
+      @Named("${" + MAX_PENDING_KEY + ":-100000}") final int maxPending)
+  {
+    this.periodicJobService = checkNotNull(periodicJobService);
+    this.enabled = enabled;
+    checkArgument(flushOnSeconds > 0, FLUSH_ON_SECONDS_KEY + " must be positive");
+    this.flushOnSeconds = flushOnSeconds;
+    checkArgument(batchSize > 0, BATCH_SIZE_KEY + " must be positive");
+    this.batchSize = batchSize;
+    checkArgument(maxPending > 0, MAX_PENDING_KEY + " must be positive");
+    this.maxPending = maxPending;
+
+    checkNotNull(metricRegistry);
+    metricRegistry.gauge(METRIC_PREFIX + "queueDepth", () -> (Gauge<Integer>) pendingDownloads::size);
+    this.flushTimer = metricRegistry.timer(METRIC_PREFIX + "flush");
+    this.droppedCounter = metricRegistry.counter(METRIC_PREFIX + "dropped");
+    this.flushedCounter = metricRegistry.counter(METRIC_PREFIX + "flushed");
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled) {
+      periodicJobService.startUsing();
+      flushTask = periodicJobService.schedule(this::flush, flushOnSeconds);
+      accepting = true;
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (enabled) {
+      accepting = false;
+      flushTask.cancel();
+      periodicJobService.stopUsing();
+    }
+    // guarantee anything recorded before shutdown reaches the database
+    flush();
+  }
+
+  /**
+   * Records that the given asset was downloaded, to be written on the next flush.
+   *
+   * @return {@code true} if the download was handled (recorded or dropped); {@code false} if write-behind is disabled
+   * or the asset cannot be batched, in which case the caller should update the asset directly
+   */
+  public boolean markAsDownloaded(final FluentAsset asset) {
+    if (!accepting) {
+      return false;
+    }
+
+    ContentFacet contentFacet = asset.repository().optionalFacet(ContentFacet.class).orElse(null);
+    if (!(contentFacet instanceof ContentFacetSupport)) {
+      return false;
+    }
+
+    ContentFacetStores stores = ((ContentFacetSupport) contentFacet).stores();
+    String key = requestKey(stores.contentStoreName, asset);
+    PendingDownload download = new PendingDownload(stores.assetStore, unwrap(asset), UTC.now());
+
+    // existing entries can always be refreshed, new entries are limited to keep memory bounded
+    if (pendingDownloads.replace(key, download) == null) {
+      if (pendingDownloads.size() >= maxPending) {
+        droppedCounter.inc();
+        log.debug("Dropped last downloaded update for {}; {} updates already pending", asset.path(), maxPending);
+      }
+      else {
+        pendingDownloads.put(key, download);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Drains all pending downloads and writes them to the database in batches.
+   */
+  @VisibleForTesting
+  void flush() {
+    if (pendingDownloads.isEmpty()) {
+      return;
+    }
+
+    // only allow one thread to remove entries at a time while still allowing other threads to add entries
+    synchronized (flushMutex) {
+      try (Timer.Context ignored = flushTimer.time()) {
+        Map<AssetStore<?>, List<PendingDownload>> downloadsByStore = new HashMap<>();
+        for (Entry<String, PendingDownload> entry : pendingDownloads.entrySet()) {
+          // only take the entry if it wasn't refreshed in the meantime; a refreshed entry waits for the next flush
+          if (pendingDownloads.remove(entry.getKey(), entry.getValue())) {
+            PendingDownload download = entry.getValue();
+            downloadsByStore.computeIfAbsent(download.assetStore, store -> new ArrayList<>()).add(download);
+          }
+        }
+        downloadsByStore.forEach((assetStore, downloads) ->
+            Lists.partition(downloads, batchSize).forEach(page -> flushPage(assetStore, page)));
+      }
+    }
+  }
+
+  @VisibleForTesting
+  int pendingCount() {
+    return pendingDownloads.size();
+  }
+
+  private void flushPage(final AssetStore<?> assetStore, final List<PendingDownload> page) {
+    // downloads in the same page are at most one flush period apart so record the latest time for all of them
+    OffsetDateTime lastDownloaded = page.stream().map(download -> download.downloaded).max(naturalOrder()).get();
+    List<Asset> assets = page.stream().map(download -> download.asset).collect(toList());
+    try {
+      assetStore.markAsDownloaded(assets, lastDownloaded);
+      flushedCounter.inc(page.size());
+    }
+    catch (RuntimeException e) {
+      droppedCounter.inc(page.size());
+      if (log.isDebugEnabled()) {
+        log.warn("Failed to update last downloaded time of {} assets", page.size(), e);
+      }
+      else {
+        log.warn("Failed to update last downloaded time of {} assets - {}", page.size(), e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * Binds the content store and format with the asset id to get a unique request key.
+   */
+  private static String requestKey(final String contentStoreName, final FluentAsset asset) {
+    return contentStoreName + '/' + asset.repository().getFormat().getValue() + ':' + internalAssetId(asset);
+  }
+
+  private static Asset unwrap(final Asset asset) {
+    return asset instanceof WrappedContent<?> ? (Asset) ((WrappedContent<?>) asset).unwrap() : asset;
+  }
+
+  private static class PendingDownload
+  {
+    private final AssetStore<?> assetStore;
+
+    private final Asset asset;
+
+    private final OffsetDateTime downloaded;
+
+    PendingDownload(final AssetStore<?> assetStore, final Asset asset, final OffsetDateTime downloaded) {
+      this.assetStore = assetStore;
+      this.asset = asset;
+      this.downloaded = downloaded;
+    }
+  }
+}
@@ -48,9 +48,15 @@ public class LastDownloadedHandler
 {
   private final GlobalRepositorySettings globalSettings;
 
+  private final LastDownloadedBatcher lastDownloadedBatcher;
+
   @Inject
-  public LastDownloadedHandler(final GlobalRepositorySettings globalSettings) {
+  public LastDownloadedHandler(
+      final GlobalRepositorySettings globalSettings,
+      final LastDownloadedBatcher lastDownloadedBatcher)
+  {
     this.globalSettings = checkNotNull(globalSettings);
+    this.lastDownloadedBatcher = checkNotNull(lastDownloadedBatcher);
   }
 
   @Override
@@ -77,7 +83,10 @@ public class LastDownloadedHandler
   protected void maybeUpdateLastDownloaded(@Nullable final Asset asset) {
     if (asset != null && !isNextUpdateInFuture(asset.lastDownloaded())) {
       if (asset instanceof FluentAsset) {
-        ((FluentAsset) asset).markAsDownloaded();
+        FluentAsset fluentAsset = (FluentAsset) asset;
+        if (!lastDownloadedBatcher.markAsDownloaded(fluentAsset)) {
+          fluentAsset.markAsDownloaded();
+        }
       }
       else {
         log.debug("Cannot mark read-only asset {} as downloaded", asset.path());
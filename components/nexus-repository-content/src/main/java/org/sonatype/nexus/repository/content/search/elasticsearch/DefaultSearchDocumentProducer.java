@@ -13,14 +13,14 @@
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
 import java.io.IOException;
+import java.io.StringWriter;
 import java.io.UncheckedIOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
 
@@ -35,8 +35,9 @@ import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.search.normalize.VersionNumberExpander;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -56,9 +57,21 @@ public class DefaultSearchDocumentProducer
     extends ComponentSupport
     implements SearchDocumentProducer
 {
+  private static final String CONTENT = "content";
+
   private static final DateTimeFormatter DATE_TIME_FORMATTER = ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
 
-  private static final ObjectWriter WRITER = new ObjectMapper().writerWithDefaultPrettyPrinter();
+  private static final JsonFactory JSON_FACTORY = new ObjectMapper().getFactory();
+
+  private static final int INITIAL_BUFFER_SIZE = 4 * 1024;
+
+  private static final int MAX_POOLED_BUFFER_SIZE = 256 * 1024;
+
+  /**
+   * Per-thread buffer that documents are written into, avoiding a fresh allocation for every component indexed.
+   */
+  private static final ThreadLocal<StringWriter> BUFFERS =
+      ThreadLocal.withInitial(() -> new StringWriter(INITIAL_BUFFER_SIZE));
 
   private final Set<SearchDocumentExtension> documentExtensions;
 
@@ -72,59 +85,131 @@ public class DefaultSearchDocumentProducer
     checkNotNull(component);
     checkNotNull(commonFields);
 
-    Map<String, Object> componentDoc = new HashMap<>();
-    componentDoc.put(GROUP, component.namespace());
-    componentDoc.put(NAME, component.name());
-    componentDoc.put(VERSION, component.version());
-    componentDoc.put(ATTRIBUTES, component.attributes().backing());
+    // extension and common fields take precedence over the component fields of the same name
+    Map<String, Object> extraFields = new LinkedHashMap<>();
+    for (SearchDocumentExtension extension : documentExtensions) {
+      extraFields.putAll(extension.getFields(component));
+    }
+    extraFields.putAll(commonFields);
+
+    StringWriter buffer = BUFFERS.get();
+    buffer.getBuffer().setLength(0);
+    try {
+      try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+        writeDocument(generator, component, extraFields);
+      }
+      return buffer.toString();
+    }
+    catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    finally {
+      if (buffer.getBuffer().capacity() > MAX_POOLED_BUFFER_SIZE) {
+        BUFFERS.remove(); // don't hold onto the space needed by unusually large documents
+      }
+    }
+  }
+
+  /**
+   * Streams the search document for the component, its assets, and the given extra fields.
+   */
+  private void writeDocument(
+      final JsonGenerator generator,
+      final FluentComponent component,
+      final Map<String, Object> extraFields) throws IOException
+  {
+    Set<String> overridden = extraFields.keySet();
 
-    componentDoc.put(NORMALIZED_VERSION, getNormalizedVersion(component));
-    componentDoc.put(IS_PRERELEASE_KEY, isPrerelease(component));
+    generator.writeStartObject();
+    if (!overridden.contains(GROUP)) {
+      generator.writeStringField(GROUP, component.namespace());
+    }
+    if (!overridden.contains(NAME)) {
+      generator.writeStringField(NAME, component.name());
+    }
+    if (!overridden.contains(VERSION)) {
+      generator.writeStringField(VERSION, component.version());
+    }
+    if (!overridden.contains(ATTRIBUTES)) {
+      generator.writeObjectField(ATTRIBUTES, component.attributes().backing());
+    }
+    if (!overridden.contains(NORMALIZED_VERSION)) {
+      generator.writeStringField(NORMALIZED_VERSION, getNormalizedVersion(component));
+    }
+    if (!overridden.contains(IS_PRERELEASE_KEY)) {
+      generator.writeBooleanField(IS_PRERELEASE_KEY, isPrerelease(component));
+    }
 
     Collection<FluentAsset> assets = component.assets();
 
-    lastBlobUpdated(assets).ifPresent(dateTime -> componentDoc.put(LAST_BLOB_UPDATED_KEY, format(dateTime)));
-    lastDownloaded(assets).ifPresent(dateTime -> componentDoc.put(LAST_DOWNLOADED_KEY, format(dateTime)));
-
-    List<Map<String, Object>> assetDocs = new ArrayList<>();
-    for (Asset asset : assets) {
-      Map<String, Object> assetDoc = new HashMap<>();
-      assetDoc.put(ID, toExternalId(internalAssetId(asset)).getValue());
-      assetDoc.put(NAME, asset.path());
-      Map<String, Object> attributes = new HashMap<>(asset.attributes().backing());
-      assetDoc.put(CONTENT_TYPE, "");
-      asset.blob().ifPresent(blob -> {
-        assetDoc.put(CONTENT_TYPE, blob.contentType());
-        assetDoc.put(UPLOADER, blob.createdBy().orElse(null));
-        assetDoc.put(UPLOADER_IP, blob.createdByIp().orElse(null));
-        assetDoc.put(FILE_SIZE, blob.blobSize());
-        asset.lastDownloaded().ifPresent(dateTime -> assetDoc.put(LAST_DOWNLOADED_KEY, format(dateTime)));
-        attributes.put("checksum", blob.checksums());
-
-        // Not ideal, but demonstrates why strongly typed objects would be better than Maps of attributes.
-        Map<String, Object> content = new HashMap<>();
-        content.put("last_modified", blob.blobCreated().toInstant().toEpochMilli());
-        attributes.put("content", content);
-      });
-      assetDoc.put(ATTRIBUTES, attributes);
-      assetDocs.add(assetDoc);
-    }
-    if (!assetDocs.isEmpty()) {
-      componentDoc.put(ASSETS, assetDocs);
+    if (!overridden.contains(LAST_BLOB_UPDATED_KEY)) {
+      Optional<OffsetDateTime> lastBlobUpdated = lastBlobUpdated(assets);
+      if (lastBlobUpdated.isPresent()) {
+        generator.writeStringField(LAST_BLOB_UPDATED_KEY, format(lastBlobUpdated.get()));
+      }
+    }
+    if (!overridden.contains(LAST_DOWNLOADED_KEY)) {
+      Optional<OffsetDateTime> lastDownloaded = lastDownloaded(assets);
+      if (lastDownloaded.isPresent()) {
+        generator.writeStringField(LAST_DOWNLOADED_KEY, format(lastDownloaded.get()));
+      }
     }
 
-    for (SearchDocumentExtension extension : documentExtensions) {
-      componentDoc.putAll(extension.getFields(component));
+    if (!assets.isEmpty() && !overridden.contains(ASSETS)) {
+      generator.writeArrayFieldStart(ASSETS);
+      for (Asset asset : assets) {
+        writeAsset(generator, asset);
+      }
+      generator.writeEndArray();
     }
 
-    componentDoc.putAll(commonFields);
+    for (Entry<String, Object> field : extraFields.entrySet()) {
+      generator.writeObjectField(field.getKey(), field.getValue());
+    }
+    generator.writeEndObject();
+  }
 
-    try {
-      return WRITER.writeValueAsString(componentDoc);
+  /**
+   * Streams the nested search document for an asset.
+   */
+  private static void writeAsset(final JsonGenerator generator, final Asset asset) throws IOException {
+    AssetBlob blob = asset.blob().orElse(null);
+
+    generator.writeStartObject();
+    generator.writeStringField(ID, toExternalId(internalAssetId(asset)).getValue());
+    generator.writeStringField(NAME, asset.path());
+    if (blob != null) {
+      generator.writeStringField(CONTENT_TYPE, blob.contentType());
+      generator.writeStringField(UPLOADER, blob.createdBy().orElse(null));
+      generator.writeStringField(UPLOADER_IP, blob.createdByIp().orElse(null));
+      generator.writeNumberField(FILE_SIZE, blob.blobSize());
+      Optional<OffsetDateTime> lastDownloaded = asset.lastDownloaded();
+      if (lastDownloaded.isPresent()) {
+        generator.writeStringField(LAST_DOWNLOADED_KEY, format(lastDownloaded.get()));
+      }
     }
-    catch (IOException e) {
-      throw new UncheckedIOException(e);
+    else {
+      generator.writeStringField(CONTENT_TYPE, "");
     }
+
+    generator.writeObjectFieldStart(ATTRIBUTES);
+    for (Entry<String, Object> attribute : asset.attributes().backing().entrySet()) {
+      String key = attribute.getKey();
+      if (blob == null || !(CHECKSUM.equals(key) || CONTENT.equals(key))) {
+        generator.writeObjectField(key, attribute.getValue());
+      }
+    }
+    if (blob != null) {
+      generator.writeObjectField(CHECKSUM, blob.checksums());
+
+      // Not ideal, but demonstrates why strongly typed objects would be better than Maps of attributes.
+      generator.writeObjectFieldStart(CONTENT);
+      generator.writeNumberField("last_modified", blob.blobCreated().toInstant().toEpochMilli());
+      generator.writeEndObject();
+    }
+    generator.writeEndObject();
+
+    generator.writeEndObject();
   }
 
   /**
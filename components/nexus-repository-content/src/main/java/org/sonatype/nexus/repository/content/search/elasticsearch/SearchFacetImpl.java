@@ -13,9 +13,12 @@
 package org.sonatype.nexus.repository.content.search.elasticsearch;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 import javax.inject.Inject;
@@ -33,13 +36,17 @@ import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.content.fluent.FluentComponents;
 import org.sonatype.nexus.repository.content.search.SearchFacet;
 import org.sonatype.nexus.repository.search.index.ElasticSearchIndexService;
+import org.sonatype.nexus.repository.search.index.ShadowIndex;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
-import com.google.common.base.Stopwatch;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static java.lang.Math.max;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 import static org.sonatype.nexus.repository.content.store.InternalIds.internalComponentId;
 import static org.sonatype.nexus.repository.content.store.InternalIds.toExternalId;
@@ -57,6 +64,8 @@ public class SearchFacetImpl
     extends FacetSupport
     implements SearchFacet
 {
+  private static final long FETCHER_SHUTDOWN_TIMEOUT_SECONDS = 10;
+
   private final ElasticSearchIndexService elasticSearchIndexService;
 
   private final Map<String, SearchDocumentProducer> searchDocumentProducersByFormat;
@@ -65,6 +74,8 @@ public class SearchFacetImpl
 
   private final boolean bulkProcessing;
 
+  private final boolean shadowRebuild;
+
   private SearchDocumentProducer searchDocumentProducer;
 
   private Map<String, Object> repositoryFields;
@@ -73,12 +84,14 @@ public class SearchFacetImpl
   public SearchFacetImpl(final ElasticSearchIndexService elasticSearchIndexService,
                          final Map<String, SearchDocumentProducer> searchDocumentProducersByFormat,
                          @Named("${nexus.elasticsearch.reindex.pageSize:-1000}") final int pageSize,
-                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing)
+                         @Named("${nexus.elasticsearch.bulkProcessing:-true}") final boolean bulkProcessing,
+                         @Named("${nexus.elasticsearch.reindex.shadow:-true}") final boolean shadowRebuild)
   {
     this.elasticSearchIndexService = checkNotNull(elasticSearchIndexService);
     this.searchDocumentProducersByFormat = checkNotNull(searchDocumentProducersByFormat);
     this.pageSize = max(pageSize, 1);
     this.bulkProcessing = bulkProcessing;
+    this.shadowRebuild = shadowRebuild;
   }
 
   @Override
@@ -104,16 +117,12 @@ public class SearchFacetImpl
   @Guarded(by = STARTED)
   @Override
   public void index(final Collection<EntityId> componentIds) {
-    FluentComponents lookup = facet(ContentFacet.class).components();
-
-    Stream<FluentComponent> components = componentIds.stream()
-        .map(lookup::find)
-        .filter(Optional::isPresent)
-        .map(Optional::get);
+    // fetch components with their assets and blobs up-front rather than one-by-one while producing documents
+    Collection<FluentComponent> components = facet(ContentFacet.class).components().findWithAssetBlobs(componentIds);
 
     Repository repository = getRepository();
     if (bulkProcessing) {
-      elasticSearchIndexService.bulkPut(repository, components::iterator, this::identifier, this::document);
+      elasticSearchIndexService.bulkPut(repository, components, this::identifier, this::document);
     }
     else {
       components.forEach(c -> elasticSearchIndexService.put(repository, identifier(c), document(c)));
@@ -139,48 +148,111 @@ public class SearchFacetImpl
   @Guarded(by = STARTED)
   @Override
   public void rebuildIndex() {
-    log.info("Rebuilding index of repository {}", getRepository().getName());
-
-    elasticSearchIndexService.rebuildIndex(getRepository()); // clears out old documents
+    String repositoryName = getRepository().getName();
+    log.info("Rebuilding index of repository {}", repositoryName);
+
+    if (shadowRebuild) {
+      // build the new index alongside the old, which keeps serving searches until it is replaced
+      ShadowIndex shadowIndex = elasticSearchIndexService.startShadowRebuild(getRepository());
+      try {
+        rebuildComponentIndex(shadowIndex::bulkPut);
+        shadowIndex.commit();
+      }
+      catch (Exception e) {
+        log.error("Unable to rebuild search index for repository {}, keeping the existing index", repositoryName, e);
+      }
+      finally {
+        shadowIndex.abort(); // no-op once committed
+      }
+    }
+    else {
+      elasticSearchIndexService.rebuildIndex(getRepository()); // clears out old documents
+      try {
+        rebuildComponentIndex(
+            (page, identifierProducer, documentProducer) -> elasticSearchIndexService.bulkPut(getRepository(), page,
+                identifierProducer, documentProducer));
+      }
+      catch (Exception e) {
+        log.error("Unable to rebuild search index for repository {}", repositoryName, e);
+      }
+    }
+  }
 
-    rebuildComponentIndex();
+  /**
+   * Destination for the search documents of a rebuild.
+   */
+  @FunctionalInterface
+  private interface Indexer
+  {
+    List<Future<Void>> bulkPut(
+        Iterable<FluentComponent> page,
+        Function<FluentComponent, String> identifierProducer,
+        Function<FluentComponent, String> documentProducer);
   }
 
   /**
    * Re-submit search documents for every component in the repository for indexing.
+   *
+   * The next page of components is fetched while documents for the current page are produced and submitted, which in
+   * turn overlaps with the bulk requests for earlier pages.
    */
-  private void rebuildComponentIndex() {
+  private void rebuildComponentIndex(final Indexer indexer) throws Exception {
     String repositoryName = getRepository().getName();
-    try {
-      FluentComponents components = getRepository().facet(ContentFacet.class).components();
-
-      long total = components.count();
-      if (total > 0) {
-        ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, 60);
-        Stopwatch sw = Stopwatch.createStarted();
+    FluentComponents components = getRepository().facet(ContentFacet.class).components();
 
+    long total = components.count();
+    if (total > 0) {
+      ExecutorService fetcher = newSingleThreadExecutor(new NexusThreadFactory("search-rebuild", repositoryName));
+      try (ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(log, 60)) {
         long processed = 0;
 
-        Continuation<FluentComponent> page = components.browse(pageSize, null);
+        Continuation<FluentComponent> page = components.browseWithAssetBlobs(pageSize, null);
         while (!page.isEmpty()) {
+          String token = page.nextContinuationToken();
+          Future<Continuation<FluentComponent>> nextPage = fetcher.submit(
+              () -> components.browseWithAssetBlobs(pageSize, token));
 
-          elasticSearchIndexService.bulkPut(getRepository(), page, this::identifier, this::document);
+          indexer.bulkPut(page, this::identifier, this::document);
           processed += page.size();
 
-          long elapsed = sw.elapsed(TimeUnit.MILLISECONDS);
-          progressLogger.info("Indexed {} / {} {} components in {} ms",
-              processed, total, repositoryName, elapsed);
+          progressLogger.info("Indexed {} / {} {} components in {} ({} components/s, {} remaining)",
+              processed, total, repositoryName, progressLogger.getElapsed(), progressLogger.getRate(processed),
+              progressLogger.getRemaining(processed, total));
 
           checkCancellation();
 
-          page = components.browse(pageSize, page.nextContinuationToken());
+          page = await(nextPage);
         }
+      }
+      finally {
+        shutdown(fetcher);
+      }
+    }
+  }
 
-        progressLogger.flush(); // ensure the final progress message is flushed
+  /**
+   * Lets any page still being fetched complete, so the connection it holds is released cleanly, before giving up on it.
+   */
+  private void shutdown(final ExecutorService fetcher) {
+    fetcher.shutdown();
+    try {
+      if (!fetcher.awaitTermination(FETCHER_SHUTDOWN_TIMEOUT_SECONDS, SECONDS)) {
+        log.warn("Timed out waiting for search rebuild of {} to fetch its last page", getRepository().getName());
+        fetcher.shutdownNow();
       }
     }
-    catch (Exception e) {
-      log.error("Unable to rebuild search index for repository {}", repositoryName, e);
+    catch (InterruptedException e) { // NOSONAR: interrupt is restored
+      Thread.currentThread().interrupt();
+      fetcher.shutdownNow();
+    }
+  }
+
+  private static <T> T await(final Future<T> future) throws InterruptedException {
+    try {
+      return future.get();
+    }
+    catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
     }
   }
 
@@ -262,6 +262,17 @@ public interface AssetDAO
    */
   void markAsDownloaded(Asset asset);
 
+  /**
+   * Updates the last downloaded time of the given assets in the content data store.
+   *
+   * @param assetIds the assets to update
+   * @param lastDownloaded the last downloaded time to record
+   * @return the number of updated assets
+   *
+   * @since 3.70
+   */
+  int markAssetsAsDownloaded(@Param("assetIds") int[] assetIds, @Param("lastDownloaded") OffsetDateTime lastDownloaded);
+
   /**
    * Deletes an asset from the content data store.
    *
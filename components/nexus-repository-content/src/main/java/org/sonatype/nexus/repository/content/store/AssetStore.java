@@ -375,6 +375,28 @@ public class AssetStore<T extends AssetDAO>
     postCommitEvent(() -> new AssetDownloadedEvent(asset));
   }
 
+  /**
+   * Updates the last downloaded time of the given assets in the content data store using a single statement.
+   *
+   * @param assets the assets to update
+   * @param lastDownloaded the last downloaded time to record
+   * @return the number of updated assets
+   *
+   * @since 3.70
+   */
+  @Transactional
+  public int markAsDownloaded(final Collection<Asset> assets, final OffsetDateTime lastDownloaded) {
+    if (assets.isEmpty()) {
+      return 0;
+    }
+
+    int[] assetIds = assets.stream().mapToInt(InternalIds::internalAssetId).toArray();
+    int count = dao().markAssetsAsDownloaded(assetIds, lastDownloaded);
+
+    assets.forEach(asset -> postCommitEvent(() -> new AssetDownloadedEvent(asset)));
+    return count;
+  }
+
   /**
    * Deletes an asset from the content data store.
    *
@@ -0,0 +1,110 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.store;
+
+import java.time.OffsetDateTime;
+
+import javax.annotation.Nullable;
+
+/**
+ * Criteria about a component's assets which the content store can evaluate when browsing components.
+ *
+ * @since 3.70
+ */
+public class ComponentCriteria
+{
+  @Nullable
+  private OffsetDateTime lastDownloadedBefore;
+
+  @Nullable
+  private OffsetDateTime lastBlobCreatedBefore;
+
+  @Nullable
+  private String assetPathPrefix;
+
+  /**
+   * The latest time any asset was downloaded, or had its blob created when it was never downloaded.
+   */
+  @Nullable
+  public OffsetDateTime getLastDownloadedBefore() {
+    return lastDownloadedBefore;
+  }
+
+  /**
+   * Only match components whose assets were all last downloaded, or created if never downloaded, before this time.
+   */
+  public ComponentCriteria lastDownloadedBefore(@Nullable final OffsetDateTime time) {
+    this.lastDownloadedBefore = time;
+    return this;
+  }
+
+  @Nullable
+  public OffsetDateTime getLastBlobCreatedBefore() {
+    return lastBlobCreatedBefore;
+  }
+
+  /**
+   * Only match components whose asset blobs were all created before this time.
+   */
+  public ComponentCriteria lastBlobCreatedBefore(@Nullable final OffsetDateTime time) {
+    this.lastBlobCreatedBefore = time;
+    return this;
+  }
+
+  @Nullable
+  public String getAssetPathPrefix() {
+    return assetPathPrefix;
+  }
+
+  /**
+   * Only match components with at least one asset whose path starts with this prefix.
+   */
+  public ComponentCriteria assetPathPrefix(@Nullable final String prefix) {
+    this.assetPathPrefix = prefix;
+    return this;
+  }
+
+  /**
+   * The asset path prefix as a pattern for {@code LIKE ... ESCAPE '\'}.
+   */
+  @Nullable
+  public String getAssetPathPattern() {
+    if (assetPathPrefix == null) {
+      return null;
+    }
+    StringBuilder pattern = new StringBuilder(assetPathPrefix.length() + 1);
+    for (char c : assetPathPrefix.toCharArray()) {
+      if (c == '%' || c == '_' || c == '\\') {
+        pattern.append('\\');
+      }
+      pattern.append(c);
+    }
+    return pattern.append('%').toString();
+  }
+
+  /**
+   * Whether there are no criteria, so every component matches.
+   */
+  public boolean isEmpty() {
+    return lastDownloadedBefore == null && lastBlobCreatedBefore == null && assetPathPrefix == null;
+  }
+
+  @Override
+  public String toString() {
+    return "ComponentCriteria{" +
+        "lastDownloadedBefore=" + lastDownloadedBefore +
+        ", lastBlobCreatedBefore=" + lastBlobCreatedBefore +
+        ", assetPathPrefix='" + assetPathPrefix + '\'' +
+        '}';
+  }
+}
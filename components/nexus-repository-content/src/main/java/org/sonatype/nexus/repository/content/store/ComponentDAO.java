@@ -137,6 +137,54 @@ public interface ComponentDAO
       @Param("limit") int limit,
       @Nullable @Param("continuationToken") String continuationToken);
 
+  /**
+   * Browse components in the given repository whose assets meet the given criteria, in a paged fashion.
+   *
+   * @param repositoryId      the repository to browse
+   * @param criteria          the criteria components must meet
+   * @param limit             maximum number of components to return
+   * @param continuationToken optional token to continue from a previous request
+   * @return collection of components and the next continuation token
+   * @see Continuation#nextContinuationToken()
+   *
+   * @since 3.70
+   */
+  Continuation<Component> browseComponentsByCriteria(
+      @Param("repositoryId") int repositoryId,
+      @Param("criteria") ComponentCriteria criteria,
+      @Param("limit") int limit,
+      @Nullable @Param("continuationToken") String continuationToken);
+
+  /**
+   * Browse components in the given repository whose assets meet the given criteria, along with their assets.
+   *
+   * @since 3.70
+   */
+  Continuation<ComponentData> browseComponentsByCriteriaEager(
+      @Param("repositoryId") int repositoryId,
+      @Param("criteria") ComponentCriteria criteria,
+      @Param("limit") int limit,
+      @Nullable @Param("continuationToken") String continuationToken);
+
+  /**
+   * Browse components in the given repository along with their assets and asset blobs, in a single query per page.
+   *
+   * @since 3.70
+   */
+  Continuation<ComponentData> browseComponentsWithAssetBlobs(
+      @Param("repositoryId") int repositoryId,
+      @Param("limit") int limit,
+      @Nullable @Param("continuationToken") String continuationToken);
+
+  /**
+   * Find the given components in the repository along with their assets and asset blobs, in a single query.
+   *
+   * @since 3.70
+   */
+  Collection<ComponentData> findComponentsWithAssetBlobs(
+      @Param("repositoryId") int repositoryId,
+      @Param("componentIds") Collection<Integer> componentIds);
+
   /**
    * Select components using the provided query generator and parameters.
    *
@@ -195,6 +195,73 @@ public class ComponentStore<T extends ComponentDAO>
         componentSet.namespace(), componentSet.name(), limit, continuationToken);
   }
 
+  /**
+   * Browse components in the given repository whose assets meet the given criteria, in a paged fashion.
+   *
+   * @param repositoryId      the repository to browse
+   * @param criteria          the criteria components must meet
+   * @param limit             maximum number of components to return
+   * @param continuationToken optional token to continue from a previous request
+   * @return collection of components and the next continuation token
+   * @see Continuation#nextContinuationToken()
+   *
+   * @since 3.70
+   */
+  @Transactional
+  public Continuation<Component> browseComponentsByCriteria(
+      final int repositoryId,
+      final ComponentCriteria criteria,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return dao().browseComponentsByCriteria(repositoryId, criteria, limit, continuationToken);
+  }
+
+  /**
+   * Browse components in the given repository whose assets meet the given criteria, along with their assets.
+   *
+   * @since 3.70
+   */
+  @Transactional
+  public Continuation<ComponentData> browseComponentsByCriteriaEager(
+      final int repositoryId,
+      final ComponentCriteria criteria,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return dao().browseComponentsByCriteriaEager(repositoryId, criteria, limit, continuationToken);
+  }
+
+  /**
+   * Browse components in the given repository along with their assets and asset blobs, in a single query per page.
+   *
+   * @since 3.70
+   */
+  @Transactional
+  public Continuation<ComponentData> browseComponentsWithAssetBlobs(
+      final int repositoryId,
+      final int limit,
+      @Nullable final String continuationToken)
+  {
+    return dao().browseComponentsWithAssetBlobs(repositoryId, limit, continuationToken);
+  }
+
+  /**
+   * Find the given components in the repository along with their assets and asset blobs, in a single query.
+   *
+   * @since 3.70
+   */
+  @Transactional
+  public Collection<ComponentData> findComponentsWithAssetBlobs(
+      final int repositoryId,
+      final Collection<Integer> componentIds)
+  {
+    if (componentIds.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return dao().findComponentsWithAssetBlobs(repositoryId, componentIds);
+  }
+
   /**
    * Select components using the provided query generator and parameters.
    *
@@ -13,10 +13,14 @@
 package org.sonatype.nexus.repository.content.browse;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.common.cooperation2.datastore.DefaultCooperation2Factory;
+import org.sonatype.nexus.common.event.EventAware;
 import org.sonatype.nexus.common.event.EventManager;
+import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.event.asset.AssetCreatedEvent;
 import org.sonatype.nexus.repository.content.event.asset.AssetDeletedEvent;
 import org.sonatype.nexus.repository.content.event.asset.AssetPurgedEvent;
@@ -25,12 +29,18 @@ import org.sonatype.nexus.repository.content.event.component.ComponentDeletedEve
 import org.sonatype.nexus.repository.content.event.component.ComponentPurgedEvent;
 import org.sonatype.nexus.scheduling.PeriodicJobService;
 
+import com.google.common.eventbus.EventBus;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
 
 public class BrowseEventHandlerTest
     extends TestSupport
@@ -41,6 +51,12 @@ public class BrowseEventHandlerTest
   @Mock
   private EventManager eventManager;
 
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private BrowseFacet browseFacet;
+
   private BrowseEventHandler underTest;
 
   @Before
@@ -97,4 +113,46 @@ public class BrowseEventHandlerTest
     underTest.on(event);
     verifyNoInteractions(event);
   }
+
+  @Test
+  public void purgesOfABatchTrimOnceAfterTheBatch() {
+    EventBus receiverBus = new EventBus();
+    Object receiver = registeredReceiver();
+    receiverBus.register(receiver);
+
+    ((EventAware.Batching) receiver).beforeBatch();
+    postedPurgeEvents(2).forEach(receiverBus::post);
+    verify(browseFacet, never()).trimBrowseNodes();
+
+    ((EventAware.Batching) receiver).afterBatch();
+    verify(browseFacet).trimBrowseNodes();
+  }
+
+  @Test
+  public void purgesOutsideABatchTrimStraightAway() {
+    EventBus receiverBus = new EventBus();
+    receiverBus.register(registeredReceiver());
+
+    postedPurgeEvents(1).forEach(receiverBus::post);
+    verify(browseFacet).trimBrowseNodes();
+  }
+
+  private Object registeredReceiver() {
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(eventManager).register(captor.capture());
+    return captor.getValue();
+  }
+
+  private List<Object> postedPurgeEvents(final int deletes) {
+    when(repository.getName()).thenReturn("maven-releases");
+    when(repository.optionalFacet(BrowseFacet.class)).thenReturn(Optional.of(browseFacet));
+    AssetDeletedEvent event = mock(AssetDeletedEvent.class);
+    when(event.getRepository()).thenReturn(Optional.of(repository));
+    for (int i = 0; i < deletes; i++) {
+      underTest.on(event);
+    }
+    ArgumentCaptor<Object> captor = ArgumentCaptor.forClass(Object.class);
+    verify(eventManager, times(deletes)).post(captor.capture());
+    return captor.getAllValues();
+  }
 }
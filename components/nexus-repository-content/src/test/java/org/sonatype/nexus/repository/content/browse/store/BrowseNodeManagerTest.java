@@ -0,0 +1,261 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.browse.store;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.sonatype.nexus.datastore.api.DataSession;
+import org.sonatype.nexus.repository.browse.node.BrowseNode;
+import org.sonatype.nexus.repository.browse.node.BrowsePath;
+import org.sonatype.nexus.repository.content.browse.store.example.TestBrowseNodeDAO;
+import org.sonatype.nexus.repository.content.store.ContentRepositoryDAO;
+import org.sonatype.nexus.repository.content.store.ExampleContentTestSupport;
+import org.sonatype.nexus.repository.content.store.example.TestContentRepositoryDAO;
+import org.sonatype.nexus.transaction.Transactional;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.util.concurrent.Uninterruptibles.awaitUninterruptibly;
+import static java.util.Arrays.asList;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.sonatype.nexus.datastore.api.DataStoreManager.DEFAULT_DATASTORE_NAME;
+
+/**
+ * Test {@link BrowseNodeManager}.
+ */
+public class BrowseNodeManagerTest
+    extends ExampleContentTestSupport
+{
+  private int repositoryId;
+
+  private BrowseNodeStore<BrowseNodeDAO> browseNodeStore;
+
+  private final ExecutorService executor = newFixedThreadPool(2);
+
+  public BrowseNodeManagerTest() {
+    super(TestBrowseNodeDAO.class);
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  @Before
+  public void setup() {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ContentRepositoryDAO dao = session.access(TestContentRepositoryDAO.class);
+      dao.createContentRepository(randomContentRepository());
+      session.getTransaction().commit();
+    }
+    repositoryId = 1;
+
+    browseNodeStore = spy(new BrowseNodeStore(sessionRule, DEFAULT_DATASTORE_NAME, TestBrowseNodeDAO.class));
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void knownFoldersAreNotMergedAgain() {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+    verify(browseNodeStore, times(3)).mergeBrowseNode(any());
+    assertThat(underTest.cachedFolderCount(), is(2L));
+
+    clearInvocations(browseNodeStore);
+
+    underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {});
+    verify(browseNodeStore, times(1)).mergeBrowseNode(any());
+
+    clearInvocations(browseNodeStore);
+
+    underTest.createBrowseNodes(paths("org", "other", "three.jar"), node -> {});
+    verify(browseNodeStore, times(2)).mergeBrowseNode(any());
+
+    assertThat(listing("org"), containsInAnyOrder("example", "other"));
+    assertThat(listing("org", "example"), containsInAnyOrder("one.jar", "two.jar"));
+    assertThat(listing("org", "other"), contains("three.jar"));
+  }
+
+  @Test
+  public void everyFolderIsMergedWithoutCache() {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId);
+
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+    underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {});
+
+    verify(browseNodeStore, times(6)).mergeBrowseNode(any());
+    assertThat(underTest.cachedFolderCount(), is(0L));
+    assertThat(listing("org", "example"), containsInAnyOrder("one.jar", "two.jar"));
+  }
+
+  @Test
+  public void trimmingInvalidatesKnownFolders() {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+
+    // nodes without a component or asset are dangling and will be trimmed
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+    Transactional.operation.withStore(browseNodeStore).run(underTest::trimBrowseNodes);
+
+    assertThat(underTest.cachedFolderCount(), is(0L));
+    assertThat(listing(), is(empty()));
+
+    underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {});
+
+    assertThat(listing("org", "example"), contains("two.jar"));
+  }
+
+  @Test
+  public void deletingInvalidatesKnownFolders() {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+    Transactional.operation.withStore(browseNodeStore).run(underTest::deleteBrowseNodes);
+
+    assertThat(underTest.cachedFolderCount(), is(0L));
+
+    underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {});
+
+    assertThat(listing("org", "example"), contains("two.jar"));
+  }
+
+  @Test
+  public void trimmingWaitsForNodesBeingCreatedUnderKnownFolders() throws Exception {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+
+    CountDownLatch creating = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    Future<?> create = executor.submit(() -> underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {
+      creating.countDown();
+      awaitUninterruptibly(release);
+    }));
+    assertThat(creating.await(5, SECONDS), is(true));
+
+    Future<?> trim = executor.submit(
+        () -> Transactional.operation.withStore(browseNodeStore).run(underTest::trimBrowseNodes));
+    try {
+      trim.get(500, MILLISECONDS);
+      fail("Expected trimming to wait for the nodes being created");
+    }
+    catch (TimeoutException expected) {
+      // trimming is blocked until the new node is committed
+    }
+
+    release.countDown();
+    create.get(5, SECONDS);
+    trim.get(5, SECONDS);
+
+    // the new node is dangling as well, so it was trimmed along with its folders rather than left orphaned
+    assertThat(listing(), is(empty()));
+    assertThat(underTest.cachedFolderCount(), is(0L));
+  }
+
+  @Test
+  public void creatingDuringTrimDoesNotWaitForIt() throws Exception {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+
+    CountDownLatch trimming = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    doAnswer(invocation -> {
+      trimming.countDown();
+      awaitUninterruptibly(release);
+      return invocation.callRealMethod();
+    }).when(browseNodeStore).trimBrowseNodes(repositoryId);
+
+    Future<?> trim = executor.submit(
+        () -> Transactional.operation.withStore(browseNodeStore).run(underTest::trimBrowseNodes));
+    assertThat(trimming.await(5, SECONDS), is(true));
+    clearInvocations(browseNodeStore);
+
+    try {
+      // merges every folder rather than trusting folders the trim may be removing
+      executor.submit(() -> underTest.createBrowseNodes(paths("org", "example", "two.jar"), node -> {}))
+          .get(5, SECONDS);
+      verify(browseNodeStore, times(3)).mergeBrowseNode(any());
+      assertThat(underTest.cachedFolderCount(), is(0L));
+    }
+    finally {
+      release.countDown();
+    }
+    trim.get(5, SECONDS);
+  }
+
+  @Test
+  public void knownFoldersAreMergedAgainWhenTheirRequestPathChanges() {
+    BrowseNodeManager underTest = new BrowseNodeManager(browseNodeStore, repositoryId, 100);
+    underTest.createBrowseNodes(paths("org", "example", "one.jar"), node -> {});
+    clearInvocations(browseNodeStore);
+
+    underTest.createBrowseNodes(asList(new BrowsePath("org", "/org/"), new BrowsePath("example", "/org/renamed/"),
+        new BrowsePath("two.jar", "/org/renamed/two.jar")), node -> {});
+
+    verify(browseNodeStore, times(2)).mergeBrowseNode(any());
+    assertThat(requestPaths(nodes("org")), contains("/org/renamed/"));
+
+    // the rewritten request path is remembered in turn
+    clearInvocations(browseNodeStore);
+    underTest.createBrowseNodes(asList(new BrowsePath("org", "/org/"), new BrowsePath("example", "/org/renamed/"),
+        new BrowsePath("three.jar", "/org/renamed/three.jar")), node -> {});
+
+    verify(browseNodeStore, times(1)).mergeBrowseNode(any());
+  }
+
+  private static List<BrowsePath> paths(final String... names) {
+    StringBuilder requestPath = new StringBuilder("/");
+    return asList(names).stream().map(name -> {
+      requestPath.append(name);
+      if (!name.endsWith(".jar")) {
+        requestPath.append('/');
+      }
+      return new BrowsePath(name, requestPath.toString());
+    }).collect(Collectors.toList());
+  }
+
+  private List<String> listing(final String... displayPath) {
+    return nodes(displayPath).stream().map(BrowseNode::getName).collect(Collectors.toList());
+  }
+
+  private static List<String> requestPaths(final List<BrowseNode> nodes) {
+    return nodes.stream().map(BrowseNode::getPath).collect(Collectors.toList());
+  }
+
+  private List<BrowseNode> nodes(final String... displayPath) {
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      return session.access(TestBrowseNodeDAO.class)
+          .getByDisplayPath(repositoryId, asList(displayPath), 0, null, null);
+    }
+  }
+}
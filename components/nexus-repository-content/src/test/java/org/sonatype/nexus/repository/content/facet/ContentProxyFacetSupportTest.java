@@ -0,0 +1,213 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.facet;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ByteSize;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
+import org.sonatype.nexus.common.cooperation2.datastore.DefaultCooperation2Factory;
+import org.sonatype.nexus.common.event.EventManager;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.config.Configuration;
+import org.sonatype.nexus.repository.config.ConfigurationFacet;
+import org.sonatype.nexus.repository.httpclient.HttpClientFacet;
+import org.sonatype.nexus.repository.proxy.ProxyFacetSupport.ProxyConfig;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Parameters;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
+
+import com.google.common.io.ByteStreams;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests large remote content is streamed to clients by {@link ContentProxyFacetSupport} while it is stored.
+ */
+public class ContentProxyFacetSupportTest
+    extends TestSupport
+{
+  private static final byte[] BYTES = new byte[4096];
+
+  static {
+    Arrays.fill(BYTES, (byte) 'x');
+  }
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Format format;
+
+  @Mock
+  private ConfigurationFacet configurationFacet;
+
+  @Mock
+  private HttpClientFacet httpClientFacet;
+
+  @Mock
+  private EventManager eventManager;
+
+  @Mock
+  private Context context;
+
+  @Mock
+  private Request request;
+
+  private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+  private final CountDownLatch storing = new CountDownLatch(1);
+
+  private TestProxyFacet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    ProxyConfig config = new ProxyConfig();
+    config.remoteUrl = new URI("http://example.com");
+
+    when(repository.getName()).thenReturn("test-proxy");
+    when(repository.getFormat()).thenReturn(format);
+    when(format.getValue()).thenReturn("raw");
+    when(repository.getConfiguration()).thenReturn(mock(Configuration.class));
+    when(repository.facet(ConfigurationFacet.class)).thenReturn(configurationFacet);
+    when(repository.facet(HttpClientFacet.class)).thenReturn(httpClientFacet);
+    when(configurationFacet.readSection(any(Configuration.class), anyString(), eq(ProxyConfig.class)))
+        .thenReturn(config);
+
+    when(context.getRepository()).thenReturn(repository);
+    when(context.getRequest()).thenReturn(request);
+    when(context.getAttributes()).thenReturn(new AttributesMap());
+    when(request.getPath()).thenReturn("/large.bin");
+    when(request.getParameters()).thenReturn(new Parameters());
+
+    // downloads are streamed on a thread running as the current subject
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+
+    underTest = new TestProxyFacet();
+    underTest.installDependencies(eventManager);
+    underTest.attach(repository);
+    underTest.init();
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void largeContentIsStreamedAndStored() throws Exception {
+    underTest.remote = remote(BYTES.length);
+
+    Content content = underTest.get(context);
+
+    try (InputStream in = content.openInputStream()) {
+      assertThat(ByteStreams.toByteArray(in), is(BYTES));
+    }
+    assertThat(storing.await(5, SECONDS), is(true));
+    assertThat(stored.get(), is(BYTES));
+  }
+
+  @Test
+  public void truncatedContentAbortsResponseAndIsNotStored() throws Exception {
+    underTest.remote = remote(BYTES.length / 2);
+
+    Content content = underTest.get(context);
+
+    try (InputStream in = content.openInputStream()) {
+      ByteStreams.toByteArray(in);
+      fail("Expected the response to be aborted");
+    }
+    catch (IOException e) {
+      log("Aborted: {}", e.toString());
+    }
+    assertThat(stored.get(), nullValue());
+  }
+
+  /**
+   * Remote content advertising the full size, which provides the given number of bytes.
+   */
+  private static Content remote(final int provided) {
+    return new Content(new StreamPayload(() -> new ByteArrayInputStream(BYTES, 0, provided), BYTES.length, null));
+  }
+
+  private class TestProxyFacet
+      extends ContentProxyFacetSupport
+  {
+    private Content remote;
+
+    TestProxyFacet() {
+      DefaultCooperation2Factory cooperationFactory = new DefaultCooperation2Factory();
+      configureCooperation(cooperationFactory, cooperationFactory, false, false, false, Duration.ofSeconds(0),
+          Duration.ofSeconds(60), 10);
+      configureStreamThrough(true, ByteSize.parse("1kb"));
+    }
+
+    @Nullable
+    @Override
+    protected Content fetch(final Context context, final Content stale) {
+      return remote;
+    }
+
+    @Nullable
+    @Override
+    protected Content getCachedContent(final Context context) {
+      return null;
+    }
+
+    @Override
+    protected Content store(final Context context, final Content content) throws IOException {
+      try (InputStream in = content.openInputStream()) {
+        stored.set(ByteStreams.toByteArray(in));
+      }
+      storing.countDown();
+      return new Content(new BytesPayload(stored.get(), null));
+    }
+
+    @Override
+    protected String getUrl(@Nonnull final Context context) {
+      return "large.bin";
+    }
+  }
+}
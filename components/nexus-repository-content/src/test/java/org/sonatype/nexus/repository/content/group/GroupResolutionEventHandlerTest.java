@@ -0,0 +1,88 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.group;
+
+import java.util.Optional;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.event.asset.AssetCreatedEvent;
+import org.sonatype.nexus.repository.content.event.asset.AssetDeletedEvent;
+import org.sonatype.nexus.repository.group.GroupMemberResolutionCache;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class GroupResolutionEventHandlerTest
+    extends TestSupport
+{
+  @Mock
+  private GroupMemberResolutionCache resolutionCache;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Asset asset;
+
+  private GroupResolutionEventHandler underTest;
+
+  @Before
+  public void setup() {
+    when(resolutionCache.isEnabled()).thenReturn(true);
+    when(repository.getName()).thenReturn("hosted");
+    when(asset.path()).thenReturn("/foo/bar.jar");
+
+    underTest = new GroupResolutionEventHandler(resolutionCache);
+  }
+
+  @Test
+  public void createdAssetInvalidatesContainingGroups() {
+    AssetCreatedEvent event = mock(AssetCreatedEvent.class);
+    when(event.getRepository()).thenReturn(Optional.of(repository));
+    when(event.getAsset()).thenReturn(asset);
+
+    underTest.on(event);
+
+    verify(resolutionCache).invalidateMember("hosted", "/foo/bar.jar");
+  }
+
+  @Test
+  public void deletedAssetInvalidatesContainingGroups() {
+    AssetDeletedEvent event = mock(AssetDeletedEvent.class);
+    when(event.getRepository()).thenReturn(Optional.of(repository));
+    when(event.getAsset()).thenReturn(asset);
+
+    underTest.on(event);
+
+    verify(resolutionCache).invalidateMember("hosted", "/foo/bar.jar");
+  }
+
+  @Test
+  public void nothingToDoWhenCacheIsDisabled() {
+    when(resolutionCache.isEnabled()).thenReturn(false);
+    AssetCreatedEvent event = mock(AssetCreatedEvent.class);
+
+    underTest.on(event);
+
+    verify(resolutionCache, never()).invalidateMember(any(), any());
+  }
+}
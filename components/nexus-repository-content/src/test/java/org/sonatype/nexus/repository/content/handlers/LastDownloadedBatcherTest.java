@@ -0,0 +1,223 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.content.handlers;
+
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.facet.ContentFacetStores;
+import org.sonatype.nexus.repository.content.facet.ContentFacetSupport;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.fluent.internal.FluentAssetImpl;
+import org.sonatype.nexus.repository.content.store.AssetData;
+import org.sonatype.nexus.repository.content.store.AssetStore;
+import org.sonatype.nexus.repository.content.store.FormatStoreManager;
+import org.sonatype.nexus.scheduling.PeriodicJobService;
+import org.sonatype.nexus.scheduling.PeriodicJobService.PeriodicJob;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LastDownloadedBatcherTest
+    extends TestSupport
+{
+  private static final String QUEUE_DEPTH = "nexus.content.lastDownloaded.writeBehind.queueDepth";
+
+  private static final String DROPPED = "nexus.content.lastDownloaded.writeBehind.dropped";
+
+  @Mock
+  private PeriodicJobService periodicJobService;
+
+  @Mock
+  private PeriodicJob periodicJob;
+
+  @Mock
+  private BlobStoreManager blobStoreManager;
+
+  @Mock
+  private FormatStoreManager formatStoreManager;
+
+  @Mock
+  private AssetStore<?> assetStore;
+
+  @Mock
+  private ContentFacetSupport contentFacet;
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private Format format;
+
+  private MetricRegistry metricRegistry;
+
+  @Before
+  public void setup() {
+    doReturn(assetStore).when(formatStoreManager).assetStore("nexus");
+    ContentFacetStores stores = new ContentFacetStores(blobStoreManager, "default", formatStoreManager, "nexus");
+
+    when(contentFacet.stores()).thenReturn(stores);
+    when(repository.optionalFacet(ContentFacet.class)).thenReturn(Optional.of(contentFacet));
+    when(repository.getFormat()).thenReturn(format);
+    when(format.getValue()).thenReturn("test");
+    when(periodicJobService.schedule(any(), anyInt())).thenReturn(periodicJob);
+
+    metricRegistry = new MetricRegistry();
+  }
+
+  @Test
+  public void disabledBatcherDefersToCaller() throws Exception {
+    LastDownloadedBatcher underTest = batcher(false, 10, 10);
+    underTest.start();
+
+    assertThat(underTest.markAsDownloaded(asset(1)), is(false));
+
+    verify(periodicJobService, never()).schedule(any(), anyInt());
+  }
+
+  @Test
+  public void batcherIsInactiveUntilStarted() {
+    LastDownloadedBatcher underTest = batcher(true, 10, 10);
+
+    assertThat(underTest.markAsDownloaded(asset(1)), is(false));
+  }
+
+  @Test
+  public void repeatedDownloadsAreCoalesced() throws Exception {
+    LastDownloadedBatcher underTest = batcher(true, 10, 10);
+    underTest.start();
+
+    FluentAsset asset = asset(1);
+    assertThat(underTest.markAsDownloaded(asset), is(true));
+    assertThat(underTest.markAsDownloaded(asset), is(true));
+    assertThat(underTest.markAsDownloaded(asset(2)), is(true));
+
+    assertThat(underTest.pendingCount(), is(2));
+    assertThat((Integer) metricRegistry.getGauges().get(QUEUE_DEPTH).getValue(), is(2));
+
+    underTest.flush();
+
+    ArgumentCaptor<Collection<Asset>> captor = assetCaptor();
+    verify(assetStore).markAsDownloaded(captor.capture(), any(OffsetDateTime.class));
+    assertThat(paths(captor.getValue()), containsInAnyOrder("/asset/1", "/asset/2"));
+    assertThat(underTest.pendingCount(), is(0));
+  }
+
+  @Test
+  public void flushWritesInBatches() throws Exception {
+    LastDownloadedBatcher underTest = batcher(true, 2, 10);
+    underTest.start();
+
+    for (int i = 1; i <= 5; i++) {
+      underTest.markAsDownloaded(asset(i));
+    }
+
+    underTest.flush();
+
+    verify(assetStore, times(3)).markAsDownloaded(any(), any(OffsetDateTime.class));
+  }
+
+  @Test
+  public void newDownloadsAreDroppedWhenFull() throws Exception {
+    LastDownloadedBatcher underTest = batcher(true, 10, 2);
+    underTest.start();
+
+    underTest.markAsDownloaded(asset(1));
+    underTest.markAsDownloaded(asset(2));
+    assertThat(underTest.markAsDownloaded(asset(3)), is(true));
+    // refreshing an existing entry is still allowed
+    underTest.markAsDownloaded(asset(1));
+
+    assertThat(underTest.pendingCount(), is(2));
+    assertThat(metricRegistry.counter(DROPPED).getCount(), is(1L));
+  }
+
+  @Test
+  public void failedFlushIsCountedAsDropped() throws Exception {
+    LastDownloadedBatcher underTest = batcher(true, 10, 10);
+    underTest.start();
+
+    doThrow(new RuntimeException("database unavailable")).when(assetStore).markAsDownloaded(any(), any());
+
+    underTest.markAsDownloaded(asset(1));
+    underTest.markAsDownloaded(asset(2));
+    underTest.flush();
+
+    assertThat(underTest.pendingCount(), is(0));
+    assertThat(metricRegistry.counter(DROPPED).getCount(), is(2L));
+  }
+
+  @Test
+  public void pendingDownloadsAreFlushedOnStop() throws Exception {
+    LastDownloadedBatcher underTest = batcher(true, 10, 10);
+    underTest.start();
+
+    underTest.markAsDownloaded(asset(1));
+    underTest.stop();
+
+    ArgumentCaptor<Collection<Asset>> captor = assetCaptor();
+    verify(periodicJob).cancel();
+    verify(assetStore).markAsDownloaded(captor.capture(), any(OffsetDateTime.class));
+    assertThat(paths(captor.getValue()), contains("/asset/1"));
+  }
+
+  private LastDownloadedBatcher batcher(final boolean enabled, final int batchSize, final int maxPending) {
+    return new LastDownloadedBatcher(periodicJobService, metricRegistry, enabled, 5, batchSize, maxPending);
+  }
+
+  private FluentAsset asset(final int assetId) {
+    when(contentFacet.repository()).thenReturn(repository);
+    return new FluentAssetImpl(contentFacet, assetData(assetId));
+  }
+
+  private static List<String> paths(final Collection<Asset> assets) {
+    return assets.stream().map(Asset::path).collect(toList());
+  }
+
+  private static AssetData assetData(final int assetId) {
+    AssetData assetData = new AssetData();
+    assetData.setAssetId(assetId);
+    assetData.setPath("/asset/" + assetId);
+    return assetData;
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ArgumentCaptor<Collection<Asset>> assetCaptor() {
+    return (ArgumentCaptor) ArgumentCaptor.forClass(Collection.class);
+  }
+}
@@ -70,6 +70,9 @@ public class LastDownloadedHandlerTest
   @Mock
   private GlobalRepositorySettings globalSettings;
 
+  @Mock
+  private LastDownloadedBatcher lastDownloadedBatcher;
+
   private AttributesMap attributes;
 
   private LastDownloadedHandler underTest;
@@ -78,7 +81,7 @@ public class LastDownloadedHandlerTest
   public void setup() throws Exception {
     configureHappyPath();
 
-    underTest = new LastDownloadedHandler(globalSettings);
+    underTest = new LastDownloadedHandler(globalSettings, lastDownloadedBatcher);
   }
 
   @Test
@@ -112,6 +115,18 @@ public class LastDownloadedHandlerTest
     assertThat(handledResponse, is(equalTo(response)));
   }
 
+  @Test
+  public void shouldDeferToBatcherWhenItAcceptsTheDownload() throws Exception {
+    when(lastDownloadedBatcher.markAsDownloaded(asset)).thenReturn(true);
+
+    Response handledResponse = underTest.handle(context);
+
+    verify(lastDownloadedBatcher).markAsDownloaded(asset);
+    verify(asset, never()).markAsDownloaded();
+
+    assertThat(handledResponse, is(equalTo(response)));
+  }
+
   @Test
   public void shouldNotMarkAssetAsDownloadedOnFailure() throws Exception {
     when(response.getStatus()).thenReturn(new Status(false, 500));
@@ -121,6 +121,69 @@ public class DefaultSearchDocumentProducerTest
     verify(searchDocumentExtension).getFields(any(FluentComponent.class));
   }
 
+  @Test
+  public void testAssetBlobFields() throws IOException {
+    OffsetDateTime created = OffsetDateTime.now();
+
+    FluentAsset asset = mockAsset(NAME, 1);
+    asset.attributes().set("checksum", "stale");
+    asset.attributes().set("custom", "value");
+    AssetBlob blob = mockBlob(created);
+    when(blob.contentType()).thenReturn("text/plain");
+    when(blob.createdBy()).thenReturn(Optional.of("admin"));
+    when(blob.createdByIp()).thenReturn(empty());
+    when(blob.blobSize()).thenReturn(42L);
+    when(blob.checksums()).thenReturn(ImmutableMap.of("sha1", "abc"));
+    when(asset.blob()).thenReturn(Optional.of(blob));
+    when(component.assets()).thenReturn(ImmutableList.of(asset));
+
+    JsonNode json = mapper.readTree(underTest.getDocument(component, commonFields));
+
+    assertThat(json.get(SearchConstants.LAST_BLOB_UPDATED_KEY).isTextual(), is(true));
+
+    JsonNode jsonAsset = json.get(SearchConstants.ASSETS).get(0);
+    assertValue(jsonAsset, SearchConstants.CONTENT_TYPE, "text/plain");
+    assertValue(jsonAsset, SearchConstants.UPLOADER, "admin");
+    assertThat(jsonAsset.get(SearchConstants.UPLOADER_IP).isNull(), is(true));
+    assertThat(jsonAsset.get(SearchConstants.FILE_SIZE).asLong(), is(42L));
+
+    JsonNode jsonAttributes = jsonAsset.get(SearchConstants.ATTRIBUTES);
+    assertValue(jsonAttributes, "custom", "value");
+    assertValue(jsonAttributes.get("checksum"), "sha1", "abc");
+    assertThat(jsonAttributes.get("content").get("last_modified").asLong(), is(created.toInstant().toEpochMilli()));
+  }
+
+  @Test
+  public void testExtraFieldsOverrideComponentFields() throws IOException {
+    when(searchDocumentExtension.getFields(component)).thenReturn(ImmutableMap.of(SearchConstants.VERSION, "4.5.6"));
+
+    String result = underTest.getDocument(component,
+        ImmutableMap.of(SearchConstants.NAME, "common-name", SearchConstants.FORMAT, "format-id"));
+
+    // duplicate keys would be kept in the raw document, so check the raw text as well as the parsed fields
+    assertThat(result.split("\"" + SearchConstants.NAME + "\"", -1).length, is(2));
+    assertThat(result.split("\"" + SearchConstants.VERSION + "\"", -1).length, is(2));
+
+    JsonNode json = mapper.readTree(result);
+    assertValue(json, SearchConstants.NAME, "common-name");
+    assertValue(json, SearchConstants.VERSION, "4.5.6");
+    assertValue(json, SearchConstants.GROUP, GROUP);
+  }
+
+  @Test
+  public void testBufferIsResetBetweenDocuments() throws IOException {
+    FluentAsset asset = mockAsset("a/very/long/path/to/an/asset/that/should/not/leak/into/the/next/document", 1);
+    when(component.assets()).thenReturn(ImmutableList.of(asset));
+    underTest.getDocument(component, commonFields);
+
+    when(component.assets()).thenReturn(ImmutableList.of());
+    String result = underTest.getDocument(component, commonFields);
+
+    JsonNode json = mapper.readTree(result);
+    assertThat(json.get(SearchConstants.ASSETS), equalTo(null));
+    assertThat(result.contains("should/not/leak"), is(false));
+  }
+
   @Test
   public void testMissingVersion() throws IOException {
 
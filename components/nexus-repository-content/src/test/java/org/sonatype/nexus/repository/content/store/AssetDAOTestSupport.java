@@ -952,6 +952,32 @@ public class AssetDAOTestSupport
     }
   }
 
+  public void testMarkAssetsAsDownloaded() {
+    AssetData asset1 = randomAsset(repositoryId);
+    AssetData asset2 = randomAsset(repositoryId);
+    AssetData asset3 = randomAsset(repositoryId);
+    asset2.setPath(asset1.path() + "/2");
+    asset3.setPath(asset1.path() + "/3");
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      AssetDAO dao = session.access(TestAssetDAO.class);
+
+      dao.createAsset(asset1, entityVersionEnabled);
+      dao.createAsset(asset2, entityVersionEnabled);
+      dao.createAsset(asset3, entityVersionEnabled);
+
+      OffsetDateTime dateTime = OffsetDateTime.now(ZoneOffset.UTC).minusDays(1);
+      int updated = dao.markAssetsAsDownloaded(new int[]{asset1.assetId, asset3.assetId}, dateTime);
+
+      assertThat(updated, is(2));
+      assertThat(dao.readAsset(asset1.assetId).get().lastDownloaded().map(t -> t.truncatedTo(ChronoUnit.SECONDS)),
+          is(Optional.of(dateTime.truncatedTo(ChronoUnit.SECONDS))));
+      assertThat(dao.readAsset(asset2.assetId).get().lastDownloaded().isPresent(), is(false));
+      assertThat(dao.readAsset(asset3.assetId).get().lastDownloaded().map(t -> t.truncatedTo(ChronoUnit.SECONDS)),
+          is(Optional.of(dateTime.truncatedTo(ChronoUnit.SECONDS))));
+    }
+  }
+
   public void testLastUpdated() {
     AssetData asset1 = randomAsset(repositoryId);
     ComponentData componentData = randomComponent(repositoryId);
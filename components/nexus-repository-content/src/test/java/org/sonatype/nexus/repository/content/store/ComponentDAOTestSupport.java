@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.content.store;
 
 import java.time.OffsetDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -27,8 +28,10 @@ import org.sonatype.nexus.common.entity.Continuation;
 import org.sonatype.nexus.common.time.UTC;
 import org.sonatype.nexus.datastore.api.DataSession;
 import org.sonatype.nexus.datastore.api.DuplicateKeyException;
+import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.Component;
 import org.sonatype.nexus.repository.content.ComponentSet;
+import org.sonatype.nexus.repository.content.store.example.TestAssetBlobDAO;
 import org.sonatype.nexus.repository.content.store.example.TestAssetDAO;
 import org.sonatype.nexus.repository.content.store.example.TestComponentDAO;
 import org.sonatype.nexus.repository.content.store.example.TestContentRepositoryDAO;
@@ -497,6 +500,132 @@ public class ComponentDAOTestSupport
     }
   }
 
+  public void testBrowseComponentsByCriteria() {
+    ComponentData component1 = randomComponent(repositoryId);
+    ComponentData component2 = randomComponent(repositoryId);
+    ComponentData component3 = randomComponent(repositoryId);
+    component2.setVersion(component1.version() + ".2"); // make sure versions are different
+    component3.setVersion(component1.version() + ".3");
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+      dao.createComponent(component1, entityVersionEnabled);
+      dao.createComponent(component2, entityVersionEnabled);
+      dao.createComponent(component3, entityVersionEnabled);
+      session.getTransaction().commit();
+    }
+
+    AssetData asset1 = randomAsset(repositoryId);
+    asset1.setPath("/recent/asset1");
+    asset1.setComponent(component1);
+    asset1.setLastDownloaded(UTC.now().minusDays(1));
+
+    AssetData asset2 = randomAsset(repositoryId);
+    asset2.setPath("/old/asset2");
+    asset2.setComponent(component2);
+    asset2.setLastDownloaded(UTC.now().minusDays(10));
+
+    AssetData asset3 = randomAsset(repositoryId);
+    asset3.setPath("/old/asset3");
+    asset3.setComponent(component2);
+    asset3.setLastDownloaded(UTC.now().minusDays(8));
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      AssetDAO dao = session.access(TestAssetDAO.class);
+      dao.createAsset(asset1, entityVersionEnabled);
+      dao.createAsset(asset2, entityVersionEnabled);
+      dao.createAsset(asset3, entityVersionEnabled);
+      session.getTransaction().commit();
+    }
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+
+      // component3 has no assets, so it never matches asset criteria
+      ComponentCriteria notDownloaded = new ComponentCriteria().lastDownloadedBefore(UTC.now().minusDays(5));
+      assertThat(dao.browseComponentsByCriteria(repositoryId, notDownloaded, 10, null),
+          contains(sameCoordinates(component2)));
+
+      ComponentCriteria notDownloadedLately = new ComponentCriteria().lastDownloadedBefore(UTC.now().minusDays(9));
+      assertThat(dao.browseComponentsByCriteria(repositoryId, notDownloadedLately, 10, null), emptyIterable());
+
+      ComponentCriteria underRecent = new ComponentCriteria().assetPathPrefix("/recent/");
+      assertThat(dao.browseComponentsByCriteria(repositoryId, underRecent, 10, null),
+          contains(sameCoordinates(component1)));
+
+      ComponentCriteria wildcard = new ComponentCriteria().assetPathPrefix("/old_");
+      assertThat(dao.browseComponentsByCriteria(repositoryId, wildcard, 10, null), emptyIterable());
+
+      Continuation<ComponentData> eager = dao.browseComponentsByCriteriaEager(repositoryId,
+          new ComponentCriteria().assetPathPrefix("/old/").lastDownloadedBefore(UTC.now()), 10, null);
+      assertThat(eager, hasSize(1));
+      assertThat(eager.iterator().next().getAssets(), hasSize(2));
+
+      assertThat(dao.browseComponentsByCriteria(repositoryId, new ComponentCriteria(), 10, null), hasSize(3));
+    }
+  }
+
+  public void testBrowseComponentsWithAssetBlobs() {
+    ComponentData component1 = randomComponent(repositoryId);
+    ComponentData component2 = randomComponent(repositoryId);
+    component2.setVersion(component1.version() + ".2"); // make sure versions are different
+
+    AssetData asset1 = randomAsset(repositoryId);
+    asset1.setPath("/component1/asset1");
+    asset1.setComponent(component1);
+
+    AssetData asset2 = randomAsset(repositoryId);
+    asset2.setPath("/component1/asset2");
+    asset2.setComponent(component1);
+
+    AssetBlobData assetBlob1 = randomAssetBlob();
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+      dao.createComponent(component1, entityVersionEnabled);
+      dao.createComponent(component2, entityVersionEnabled);
+
+      AssetDAO assetDao = session.access(TestAssetDAO.class);
+      assetDao.createAsset(asset1, entityVersionEnabled);
+      assetDao.createAsset(asset2, entityVersionEnabled);
+
+      session.access(TestAssetBlobDAO.class).createAssetBlob(assetBlob1);
+      asset1.setAssetBlob(assetBlob1);
+      assetDao.updateAssetBlobLink(asset1, entityVersionEnabled);
+      session.getTransaction().commit();
+    }
+
+    try (DataSession<?> session = sessionRule.openSession(DEFAULT_DATASTORE_NAME)) {
+      ComponentDAO dao = session.access(TestComponentDAO.class);
+
+      Continuation<ComponentData> page = dao.browseComponentsWithAssetBlobs(repositoryId, 1, null);
+      assertThat(page, contains(sameCoordinates(component1)));
+
+      ComponentData eager1 = page.iterator().next();
+      assertThat(eager1.getAssets(), hasSize(2));
+      assertThat(eager1.attributes().backing(), equalTo(component1.attributes().backing()));
+
+      Asset eagerAsset1 = eager1.getAssets().get(0);
+      assertThat(eagerAsset1.path(), is(asset1.path()));
+      assertThat(eagerAsset1.attributes().backing(), equalTo(asset1.attributes().backing()));
+      assertTrue(eagerAsset1.blob().isPresent());
+      assertThat(eagerAsset1.blob().get().blobRef(), is(assetBlob1.blobRef()));
+      assertThat(eagerAsset1.blob().get().checksums(), equalTo(assetBlob1.checksums()));
+      assertFalse(eager1.getAssets().get(1).blob().isPresent());
+
+      page = dao.browseComponentsWithAssetBlobs(repositoryId, 1, page.nextContinuationToken());
+      assertThat(page, contains(sameCoordinates(component2)));
+      assertThat(page.iterator().next().getAssets(), emptyIterable());
+
+      assertThat(dao.browseComponentsWithAssetBlobs(repositoryId, 1, page.nextContinuationToken()), emptyIterable());
+
+      Collection<ComponentData> found = dao.findComponentsWithAssetBlobs(repositoryId,
+          Arrays.asList(component2.componentId, component1.componentId, Integer.MAX_VALUE));
+      assertThat(found, contains(sameCoordinates(component1), sameCoordinates(component2)));
+      assertThat(found.iterator().next().getAssets(), hasSize(2));
+    }
+  }
+
   public void testRoundTrip() {
     ComponentData component1 = randomComponent(repositoryId);
     ComponentData component2 = randomComponent(repositoryId);
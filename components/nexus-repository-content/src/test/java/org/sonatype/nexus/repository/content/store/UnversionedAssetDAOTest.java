@@ -96,6 +96,11 @@ public class UnversionedAssetDAOTest
     super.testSetLastDownloaded();
   }
 
+  @Test
+  public void testMarkAssetsAsDownloaded() {
+    super.testMarkAssetsAsDownloaded();
+  }
+
   @Test
   public void testLastUpdated() {
     super.testLastUpdated();
@@ -99,6 +99,11 @@ public class VersionedAssetDAOTest
     super.testSetLastDownloaded();
   }
 
+  @Test
+  public void testMarkAssetsAsDownloaded() {
+    super.testMarkAssetsAsDownloaded();
+  }
+
   @Test
   public void testLastUpdated() {
     super.testLastUpdated();
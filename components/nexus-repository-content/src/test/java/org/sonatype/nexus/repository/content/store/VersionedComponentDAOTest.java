@@ -51,6 +51,16 @@ public class VersionedComponentDAOTest
     super.testPurgeOperation();
   }
 
+  @Test
+  public void testBrowseComponentsByCriteria() {
+    super.testBrowseComponentsByCriteria();
+  }
+
+  @Test
+  public void testBrowseComponentsWithAssetBlobs() {
+    super.testBrowseComponentsWithAssetBlobs();
+  }
+
   @Test
   public void testRoundTrip() {
     super.testRoundTrip();
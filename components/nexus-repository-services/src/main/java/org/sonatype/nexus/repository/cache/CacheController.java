@@ -79,6 +79,23 @@ public class CacheController
     return false;
   }
 
+  /**
+   * Returns {@code true} if passed in cache info is stale only by age, and expired no more than the given number of
+   * seconds ago. Content invalidated explicitly or by cache token is never within the window.
+   *
+   * @since 3.70
+   */
+  public boolean isWithinStaleWindow(final CacheInfo cacheInfo, final long staleSeconds) {
+    if (cacheInfo.isInvalidated() || contentMaxAgeSeconds < 0) {
+      return false;
+    }
+    if (cacheToken != null && !cacheToken.equals(cacheInfo.getCacheToken())) {
+      return false;
+    }
+    return !cacheInfo.getLastVerified().isBefore(new DateTime().minusSeconds(contentMaxAgeSeconds).minusSeconds(
+        (int) Math.min(staleSeconds, Integer.MAX_VALUE)));
+  }
+
   @VisibleForTesting
   public int getContentMaxAgeSeconds() {
     return contentMaxAgeSeconds;
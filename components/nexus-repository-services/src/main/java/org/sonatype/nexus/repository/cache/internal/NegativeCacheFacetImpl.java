@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.cache.internal;
 
 import java.util.concurrent.TimeUnit;
 
+import javax.annotation.Nullable;
 import javax.cache.Cache;
 import javax.cache.Cache.Entry;
 import javax.cache.expiry.CreatedExpiryPolicy;
@@ -23,6 +24,7 @@ import javax.inject.Named;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.sonatype.goodies.common.ByteSize;
 import org.sonatype.goodies.common.Time;
 import org.sonatype.nexus.cache.CacheHelper;
 import org.sonatype.nexus.common.stateguard.Guarded;
@@ -34,14 +36,21 @@ import org.sonatype.nexus.repository.config.ConfigurationFacet;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 
 /**
  * Default {@link NegativeCacheFacet} implementation.
  *
+ * Cached paths are also kept in a bounded {@link NegativeCachePathIndex} so that {@link #invalidateSubset} only visits
+ * the affected paths; when the index is incomplete the whole cache is scanned, and the index rebuilt, as before.
+ *
  * @since 3.0
  */
 @Named
@@ -49,8 +58,22 @@ public class NegativeCacheFacetImpl
     extends FacetSupport
     implements NegativeCacheFacet
 {
+  private static final String INDEX_KEY_PREFIX = "nexus.negativeCache.index.";
+
+  private static final String INDEX_MAX_ENTRIES_KEY = INDEX_KEY_PREFIX + "maxEntries";
+
+  private static final String INDEX_MAX_MEMORY_KEY = INDEX_KEY_PREFIX + "maxMemory";
+
+  private static final String METRIC_PREFIX = "nexus.negativeCache.";
+
   private final CacheHelper cacheHelper;
 
+  private final MetricRegistry metricRegistry;
+
+  private final int indexMaxEntries;
+
+  private final long indexMaxBytes;
+
   @VisibleForTesting
   static final String CONFIG_KEY = "negativeCache";
 
@@ -80,9 +103,24 @@ public class NegativeCacheFacetImpl
 
   private Cache<NegativeCacheKey, Status> cache;
 
+  @Nullable
+  private NegativeCachePathIndex pathIndex;
+
+  private Counter scanCounter;
+
   @Inject
-  public NegativeCacheFacetImpl(final CacheHelper cacheHelper) {
+  public NegativeCacheFacetImpl(
+      final CacheHelper cacheHelper,
+      final MetricRegistry metricRegistry,
+      @Named("${" + INDEX_MAX_ENTRIES_KEY + ":-100000}") final int indexMaxEntries,
+      @Named("${" + INDEX_MAX_MEMORY_KEY + ":-16mb}") final ByteSize indexMaxMemory)
+  {
     this.cacheHelper = checkNotNull(cacheHelper);
+    this.metricRegistry = checkNotNull(metricRegistry);
+    checkArgument(indexMaxEntries > 0, INDEX_MAX_ENTRIES_KEY + " must be positive");
+    this.indexMaxEntries = indexMaxEntries;
+    checkArgument(indexMaxMemory.toBytes() > 0, INDEX_MAX_MEMORY_KEY + " must be positive");
+    this.indexMaxBytes = indexMaxMemory.toBytes();
   }
 
   @Override
@@ -124,6 +162,23 @@ public class NegativeCacheFacetImpl
     }
   }
 
+  @Override
+  protected void doStart() throws Exception {
+    String prefix = metricPrefix();
+    metricRegistry.gauge(prefix + "indexedEntries",
+        () -> (Gauge<Integer>) () -> pathIndex != null ? pathIndex.size() : 0);
+    metricRegistry.gauge(prefix + "indexedBytes",
+        () -> (Gauge<Long>) () -> pathIndex != null ? pathIndex.estimatedBytes() : 0L);
+    metricRegistry.gauge(prefix + "indexComplete",
+        () -> (Gauge<Boolean>) () -> pathIndex == null || pathIndex.isComplete());
+    scanCounter = metricRegistry.counter(prefix + "fullScans");
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    metricRegistry.removeMatching((name, metric) -> name.startsWith(metricPrefix()));
+  }
+
   @Override
   protected void doDelete() throws Exception {
     maybeDestroyCache();
@@ -133,6 +188,7 @@ public class NegativeCacheFacetImpl
   @Override
   protected void doDestroy() throws Exception {
     cache = null;
+    pathIndex = null;
     config = null;
   }
 
@@ -141,6 +197,8 @@ public class NegativeCacheFacetImpl
       log.debug("Creating negative-cache for: {}", getRepository());
       cache = cacheHelper.maybeCreateCache(getCacheName(), NegativeCacheKey.class, Status.class,
           CreatedExpiryPolicy.factoryOf(new Duration(TimeUnit.MINUTES, config.timeToLive)));
+      pathIndex = new NegativeCachePathIndex(indexMaxEntries, indexMaxBytes,
+          TimeUnit.MINUTES.toMillis(config.timeToLive));
       log.debug("Created negative-cache: {}", cache);
     }
   }
@@ -149,6 +207,7 @@ public class NegativeCacheFacetImpl
     log.debug("Destroying negative-cache for: {}", getRepository());
     cacheHelper.maybeDestroyCache(getCacheName());
     cache = null;
+    pathIndex = null;
   }
 
   @Override
@@ -169,6 +228,10 @@ public class NegativeCacheFacetImpl
     if (cache != null) {
       log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
       cache.put(key, status);
+      NegativeCachePathIndex index = pathIndex;
+      if (index != null && key instanceof PathNegativeCacheKey) {
+        index.add(((PathNegativeCacheKey) key).getPath(), System.currentTimeMillis());
+      }
     }
   }
 
@@ -179,17 +242,51 @@ public class NegativeCacheFacetImpl
     if (cache != null && cache.remove(key)) {
       log.debug("Removing {} from negative-cache of {}", key, getRepository());
     }
+    NegativeCachePathIndex index = pathIndex;
+    if (index != null && key instanceof PathNegativeCacheKey) {
+      index.remove(((PathNegativeCacheKey) key).getPath());
+    }
   }
 
   @Override
   public void invalidateSubset(final NegativeCacheKey key) {
     if (cache != null) {
       invalidate(key);
-      for (final Entry<NegativeCacheKey, Status> entry : cache) {
-        if (!key.equals(entry.getKey()) && key.isParentOf(entry.getKey())) {
-          invalidate(entry.getKey());
+      NegativeCachePathIndex index = pathIndex;
+      if (index != null && index.isComplete() && key instanceof PathNegativeCacheKey) {
+        PathNegativeCacheKey parent = (PathNegativeCacheKey) key;
+        if (parent.getPath().endsWith("/")) {
+          for (String path : index.removeUnder(parent.getPath())) {
+            invalidate(new PathNegativeCacheKey(path));
+          }
         }
       }
+      else {
+        invalidateSubsetByScan(key, index);
+      }
+    }
+  }
+
+  /**
+   * Scans the whole cache for children of the key, rebuilding the path index from the remaining entries.
+   */
+  private void invalidateSubsetByScan(final NegativeCacheKey key, @Nullable final NegativeCachePathIndex index) {
+    if (scanCounter != null) {
+      scanCounter.inc();
+    }
+    if (index != null) {
+      index.clear();
+    }
+    long now = System.currentTimeMillis();
+    for (final Entry<NegativeCacheKey, Status> entry : cache) {
+      NegativeCacheKey child = entry.getKey();
+      if (!key.equals(child) && key.isParentOf(child)) {
+        invalidate(child);
+      }
+      else if (index != null && child instanceof PathNegativeCacheKey) {
+        // actual cache time is unknown, so treat the entry as fresh; this only delays its pruning
+        index.add(((PathNegativeCacheKey) child).getPath(), now);
+      }
     }
   }
 
@@ -200,6 +297,10 @@ public class NegativeCacheFacetImpl
       log.debug("Removing all from negative-cache of {}", getRepository());
       cache.removeAll();
     }
+    NegativeCachePathIndex index = pathIndex;
+    if (index != null) {
+      index.clear();
+    }
   }
 
   @Override
@@ -210,4 +311,14 @@ public class NegativeCacheFacetImpl
   public String getCacheName() {
     return getRepository().getName() + "#negative-cache";
   }
+
+  private String metricPrefix() {
+    return METRIC_PREFIX + getRepository().getName() + ".";
+  }
+
+  @VisibleForTesting
+  @Nullable
+  NegativeCachePathIndex getPathIndex() {
+    return pathIndex;
+  }
 }
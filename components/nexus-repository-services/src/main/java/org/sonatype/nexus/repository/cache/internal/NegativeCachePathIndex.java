@@ -0,0 +1,152 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.cache.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Sorted index of the paths held in a negative cache, so that all paths under a prefix can be found by visiting just
+ * that range instead of scanning the whole cache.
+ *
+ * The index is bounded by entry count and by an estimate of the memory it holds. Paths are indexed with the time they
+ * were cached; once a bound is reached paths older than the cache time-to-live are pruned, as the cache will have
+ * expired them already. If the index is still full it stops tracking new paths and reports itself incomplete, in which
+ * case callers must fall back to scanning the cache until the index is {@link #clear() cleared} or rebuilt.
+ *
+ * @since 3.70
+ */
+class NegativeCachePathIndex
+{
+  /**
+   * Rough per-entry overhead in bytes of a skip-list node, its index levels and the boxed timestamp.
+   */
+  private static final int ENTRY_OVERHEAD = 80;
+
+  private final ConcurrentNavigableMap<String, Long> paths = new ConcurrentSkipListMap<>();
+
+  private final int maxEntries;
+
+  private final long maxBytes;
+
+  private final long timeToLiveMillis;
+
+  private final AtomicInteger entries = new AtomicInteger();
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private volatile boolean complete = true;
+
+  NegativeCachePathIndex(final int maxEntries, final long maxBytes, final long timeToLiveMillis) {
+    checkArgument(maxEntries > 0);
+    checkArgument(maxBytes > 0);
+    this.maxEntries = maxEntries;
+    this.maxBytes = maxBytes;
+    this.timeToLiveMillis = timeToLiveMillis;
+  }
+
+  /**
+   * Whether every path in the cache is known to the index.
+   */
+  boolean isComplete() {
+    return complete;
+  }
+
+  int size() {
+    return entries.get();
+  }
+
+  long estimatedBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * Records that the path was cached at the given time.
+   */
+  void add(final String path, final long now) {
+    if (!complete) {
+      return;
+    }
+    if (!paths.containsKey(path) && isFull(path)) {
+      prune(now - timeToLiveMillis);
+      if (isFull(path)) {
+        complete = false;
+        return;
+      }
+    }
+    if (paths.put(path, now) == null) {
+      entries.incrementAndGet();
+      bytes.addAndGet(weigh(path));
+    }
+  }
+
+  void remove(final String path) {
+    if (paths.remove(path) != null) {
+      entries.decrementAndGet();
+      bytes.addAndGet(-weigh(path));
+    }
+  }
+
+  /**
+   * Removes and returns all indexed paths that start with the prefix, other than the prefix itself.
+   */
+  List<String> removeUnder(final String prefix) {
+    List<String> removed = new ArrayList<>();
+    Iterator<String> itr = paths.tailMap(prefix, false).keySet().iterator();
+    while (itr.hasNext()) {
+      String path = itr.next();
+      if (!path.startsWith(prefix)) {
+        break;
+      }
+      removed.add(path);
+    }
+    removed.forEach(this::remove);
+    return removed;
+  }
+
+  /**
+   * Forgets all paths and starts tracking afresh.
+   */
+  void clear() {
+    paths.clear();
+    entries.set(0);
+    bytes.set(0);
+    complete = true;
+  }
+
+  private boolean isFull(final String path) {
+    return entries.get() >= maxEntries || bytes.get() + weigh(path) > maxBytes;
+  }
+
+  private void prune(final long expiredBefore) {
+    for (Entry<String, Long> entry : paths.entrySet()) {
+      // leave paths that were cached again since we looked at them
+      if (entry.getValue() < expiredBefore && paths.remove(entry.getKey(), entry.getValue())) {
+        entries.decrementAndGet();
+        bytes.addAndGet(-weigh(entry.getKey()));
+      }
+    }
+  }
+
+  private static long weigh(final String path) {
+    return ENTRY_OVERHEAD + 2L * path.length();
+  }
+}
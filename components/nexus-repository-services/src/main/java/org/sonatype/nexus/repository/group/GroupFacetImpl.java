@@ -87,6 +87,9 @@ public class GroupFacetImpl
 
   protected CacheController cacheController;
 
+  @Nullable
+  private GroupMemberResolutionCache resolutionCache;
+
   @Inject
   public GroupFacetImpl(final RepositoryManager repositoryManager,
                         final ConstraintViolationFactory constraintViolationFactory,
@@ -99,6 +102,16 @@ public class GroupFacetImpl
     this.repositoryCacheInvalidationService = checkNotNull(repositoryCacheInvalidationService);
   }
 
+  /**
+   * Lets group cache invalidation also forget remembered member resolutions, see {@link GroupMemberResolutionCache}.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setResolutionCache(final GroupMemberResolutionCache resolutionCache) {
+    this.resolutionCache = checkNotNull(resolutionCache);
+  }
+
   @Override
   protected void doValidate(final Configuration configuration) throws Exception {
     facet(ConfigurationFacet.class).validateSection(configuration, CONFIG_KEY, Config.class);
@@ -153,11 +166,13 @@ public class GroupFacetImpl
     // check whether any members or their ordering have changed
     if (!Iterables.elementsEqual(config.memberNames, previousMemberNames)) {
       cacheController.invalidateCache();
+      invalidateResolutionCache();
     }
   }
 
   @Override
   protected void doDestroy() throws Exception {
+    invalidateResolutionCache();
     config = null;
   }
 
@@ -237,11 +252,18 @@ public class GroupFacetImpl
   public void invalidateGroupCaches() {
     log.info("Invalidating group caches of {}", getRepository().getName());
     cacheController.invalidateCache();
+    invalidateResolutionCache();
     for (Repository repository : members()) {
       repositoryCacheInvalidationService.processCachesInvalidation(repository);
     }
   }
 
+  private void invalidateResolutionCache() {
+    if (resolutionCache != null) {
+      resolutionCache.invalidate(getRepository().getName());
+    }
+  }
+
   @Override
   public boolean isStale(@Nullable final Content content) {
     if (content == null) {
@@ -12,19 +12,32 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
 import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Handler;
+import org.sonatype.nexus.repository.view.Headers;
+import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.ViewFacet;
@@ -33,9 +46,11 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.unmodifiableSet;
 import static org.sonatype.nexus.repository.http.HttpMethods.GET;
 import static org.sonatype.nexus.repository.http.HttpMethods.HEAD;
+import static org.sonatype.nexus.repository.http.HttpStatus.NOT_FOUND;
 import static org.sonatype.nexus.repository.proxy.ProxyFacetSupport.BYPASS_HTTP_ERRORS_HEADER_NAME;
 import static org.sonatype.nexus.repository.proxy.ProxyFacetSupport.BYPASS_HTTP_ERRORS_HEADER_VALUE;
 
@@ -57,24 +72,31 @@ public class GroupHandler
   public static final String INSUFFICIENT_LICENSE =
       "Deploying to groups is a PRO-licensed feature. See https://links.sonatype.com/product-nexus-repository";
 
+  /**
+   * Marks a {@link MemberDispatch} whose response is no longer required.
+   */
+  private static final Object ABANDONED = new Object();
+
   /**
    * Request-context state container for set of repositories already dispatched to.
+   *
+   * Thread-safe, as nested groups may share it across parallel member dispatches.
    */
   @VisibleForTesting
   public static class DispatchedRepositories
   {
     private final Set<String> dispatched = Sets.newLinkedHashSet();
 
-    public void add(final Repository repository) {
+    public synchronized void add(final Repository repository) {
       dispatched.add(repository.getName());
     }
 
-    public boolean contains(final Repository repository) {
+    public synchronized boolean contains(final Repository repository) {
       return dispatched.contains(repository.getName());
     }
 
     @Override
-    public String toString() {
+    public synchronized String toString() {
       return dispatched.toString();
     }
 
@@ -83,11 +105,37 @@ public class GroupHandler
      *
      * @return Unmodifiable {@link Set} of Dispatched repository names.
      */
-    public Set<String> getDispatched() {
-      return unmodifiableSet(dispatched);
+    public synchronized Set<String> getDispatched() {
+      return unmodifiableSet(Sets.newLinkedHashSet(dispatched));
     }
   }
 
+  @Nullable
+  private GroupMemberDispatcher memberDispatcher;
+
+  @Nullable
+  private GroupMemberResolutionCache resolutionCache;
+
+  /**
+   * Enables optional parallel dispatch to members, see {@link GroupMemberDispatcher}.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setMemberDispatcher(final GroupMemberDispatcher memberDispatcher) {
+    this.memberDispatcher = checkNotNull(memberDispatcher);
+  }
+
+  /**
+   * Enables optional caching of which member serves a path, see {@link GroupMemberResolutionCache}.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setResolutionCache(final GroupMemberResolutionCache resolutionCache) {
+    this.resolutionCache = checkNotNull(resolutionCache);
+  }
+
   @Nonnull
   @Override
   public Response handle(@Nonnull final Context context) throws Exception {
@@ -125,7 +173,24 @@ public class GroupHandler
                               @Nonnull final DispatchedRepositories dispatched)
       throws Exception
   {
+    GroupMemberResolutionCache.Lookup lookup = resolutionLookup(context, members, dispatched);
+    if (lookup != null) {
+      Response response = getFirstResolved(context, members, dispatched, lookup);
+      if (response != null) {
+        return response;
+      }
+      // a remembered member that no longer serves the path was already dispatched to, so don't remember this attempt
+      if (members.stream().anyMatch(dispatched::contains)) {
+        lookup = null;
+      }
+    }
+
+    if (isParallelDispatch()) {
+      return getFirstInParallel(context, members, dispatched, lookup);
+    }
+
     final Request request = context.getRequest();
+    boolean allNotFound = true;
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
       // track repositories we have dispatched to, prevent circular dispatch for nested groups
@@ -139,8 +204,12 @@ public class GroupHandler
       final Response response = view.dispatch(request, context);
       log.trace("Member {} response {}", member, response.getStatus());
       if (isValidResponse(response)) {
+        if (allNotFound) {
+          rememberResolution(members, lookup, member, response);
+        }
         return response;
       }
+      allNotFound &= isNotFound(response);
     }
     return notFoundResponse(context);
   }
@@ -174,6 +243,10 @@ public class GroupHandler
                                                        @Nonnull final DispatchedRepositories dispatched)
       throws Exception
   {
+    if (isParallelDispatch()) {
+      return getAllInParallel(request, context, members, dispatched);
+    }
+
     final LinkedHashMap<Repository, Response> responses = Maps.newLinkedHashMap();
     for (Repository member : members) {
       log.trace("Trying member: {}", member);
@@ -194,6 +267,329 @@ public class GroupHandler
   }
 
 
+  private boolean isParallelDispatch() {
+    return memberDispatcher != null && memberDispatcher.isEnabled();
+  }
+
+  /**
+   * Parallel form of {@link #getFirst}: the current member is dispatched first and, while it has not answered within
+   * the hedge delay, further members are dispatched speculatively. Responses are still considered in member order so
+   * the highest priority valid response wins; all other dispatches are cancelled and their payloads released.
+   */
+  private Response getFirstInParallel(
+      final Context context,
+      final List<Repository> members,
+      final DispatchedRepositories dispatched,
+      @Nullable final GroupMemberResolutionCache.Lookup lookup) throws Exception
+  {
+    final Request request = context.getRequest();
+    final List<Repository> candidates = undispatched(members, dispatched);
+    final long hedgeDelayMillis = memberDispatcher.getHedgeDelay().toMillis();
+    final int hedgeCount = memberDispatcher.getHedgeCount();
+
+    final List<MemberDispatch> launched = new ArrayList<>();
+    MemberDispatch winner = null;
+    boolean allNotFound = true;
+    try {
+      for (int i = 0; i < candidates.size(); i++) {
+        if (launched.size() <= i) {
+          launched.add(launch(request, context, candidates.get(i), dispatched, true));
+        }
+        MemberDispatch current = launched.get(i);
+
+        Response response = null;
+        while (response == null) {
+          boolean canHedge = launched.size() < candidates.size() && launched.size() - i - 1 < hedgeCount;
+          if (!canHedge) {
+            response = current.get();
+          }
+          else {
+            try {
+              response = current.get(hedgeDelayMillis);
+            }
+            catch (TimeoutException e) { // NOSONAR: member is slow, speculatively try the next one
+              MemberDispatch hedge = launch(request, context, candidates.get(launched.size()), dispatched, false);
+              if (hedge != null) {
+                launched.add(hedge);
+              }
+            }
+          }
+        }
+
+        log.trace("Member {} response {}", current.member, response.getStatus());
+        if (isValidResponse(response)) {
+          winner = current;
+          if (allNotFound) {
+            rememberResolution(members, lookup, current.member, response);
+          }
+          return response;
+        }
+        allNotFound &= isNotFound(response);
+      }
+      return notFoundResponse(context);
+    }
+    finally {
+      for (MemberDispatch dispatch : launched) {
+        if (dispatch != winner) {
+          dispatch.abandon();
+        }
+      }
+    }
+  }
+
+  /**
+   * Parallel form of {@link #getAll}: all members are dispatched at once on the bounded executor.
+   */
+  private LinkedHashMap<Repository, Response> getAllInParallel(
+      final Request request,
+      final Context context,
+      final Iterable<Repository> members,
+      final DispatchedRepositories dispatched) throws Exception
+  {
+    final List<MemberDispatch> launched = new ArrayList<>();
+    boolean success = false;
+    try {
+      for (Repository member : undispatched(members, dispatched)) {
+        launched.add(launch(request, context, member, dispatched, true));
+      }
+      final LinkedHashMap<Repository, Response> responses = Maps.newLinkedHashMap();
+      for (MemberDispatch dispatch : launched) {
+        Response response = dispatch.get();
+        log.trace("Member {} response {}", dispatch.member, response.getStatus());
+        responses.put(dispatch.member, response);
+      }
+      success = true;
+      return responses;
+    }
+    finally {
+      if (!success) {
+        launched.forEach(MemberDispatch::abandon);
+      }
+    }
+  }
+
+  /**
+   * Starts a resolution cache lookup of the request path, or returns {@code null} if the resolution of this request
+   * should not be cached: the cache is disabled, the request has parameters that members may act on, or some members
+   * were already dispatched to by an enclosing group so this request does not see every member.
+   */
+  @Nullable
+  private GroupMemberResolutionCache.Lookup resolutionLookup(
+      final Context context,
+      final List<Repository> members,
+      final DispatchedRepositories dispatched)
+  {
+    if (resolutionCache == null || !resolutionCache.isEnabled() || context.getRepository() == null) {
+      return null;
+    }
+    final Request request = context.getRequest();
+    if (request.getPath() == null || !request.getParameters().isEmpty()) {
+      return null;
+    }
+    for (Repository member : members) {
+      if (dispatched.contains(member)) {
+        return null;
+      }
+    }
+    return resolutionCache.lookup(context.getRepository(), request.getPath());
+  }
+
+  /**
+   * Answers the request from the remembered resolution of its path, if any. Returns {@code null} when there is no
+   * usable resolution, including when the remembered member no longer serves the path.
+   */
+  @Nullable
+  private Response getFirstResolved(
+      final Context context,
+      final List<Repository> members,
+      final DispatchedRepositories dispatched,
+      final GroupMemberResolutionCache.Lookup lookup) throws Exception
+  {
+    final Repository group = context.getRepository();
+    final GroupMemberResolutionCache.Resolution resolution = resolutionCache.get(lookup, members);
+    if (resolution == null) {
+      return null;
+    }
+
+    for (int i = 0; i < members.size(); i++) {
+      final Repository member = members.get(i);
+      if (member.getName().equals(resolution.getMemberName())) {
+        log.trace("Resolved {} to member {} of {}", lookup.getPath(), member, group);
+        dispatched.add(member);
+        final Response response = member.facet(ViewFacet.class).dispatch(context.getRequest(), context);
+        log.trace("Member {} response {}", member, response.getStatus());
+        if (isValidResponse(response)) {
+          // keep nested groups from visiting the members we skipped, as if we'd probed them in order
+          members.subList(0, i).forEach(dispatched::add);
+          if (!response.getStatus().isSuccessful()) {
+            resolutionCache.invalidate(lookup);
+          }
+          return response;
+        }
+        break;
+      }
+    }
+
+    resolutionCache.invalidate(lookup);
+    return null;
+  }
+
+  private void rememberResolution(
+      final List<Repository> members,
+      @Nullable final GroupMemberResolutionCache.Lookup lookup,
+      final Repository member,
+      final Response response)
+  {
+    // only remember members that actually served content, not error responses they asked us to pass through
+    if (lookup != null && response.getStatus().isSuccessful()) {
+      resolutionCache.put(lookup, members, member);
+    }
+  }
+
+  private static boolean isNotFound(final Response response) {
+    return response.getStatus().getCode() == NOT_FOUND;
+  }
+
+  private List<Repository> undispatched(final Iterable<Repository> members, final DispatchedRepositories dispatched) {
+    List<Repository> candidates = new ArrayList<>();
+    for (Repository member : members) {
+      // track repositories we have dispatched to, prevent circular dispatch for nested groups
+      if (dispatched.contains(member)) {
+        log.trace("Skipping already dispatched member: {}", member);
+      }
+      else if (!candidates.contains(member)) {
+        candidates.add(member);
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * Dispatches the request to the member on the bounded executor. Required dispatches fall back to the calling thread
+   * when the executor is saturated, speculative dispatches return {@code null} instead.
+   */
+  @Nullable
+  private MemberDispatch launch(
+      final Request request,
+      final Context context,
+      final Repository member,
+      final DispatchedRepositories dispatched,
+      final boolean required)
+  {
+    log.trace("Trying member: {}", member);
+    final MemberDispatch dispatch = new MemberDispatch(member);
+    // each member gets its own copy of the request as formats may modify headers and attributes while dispatching
+    final Request memberRequest = copyOf(request);
+    final Callable<Response> task =
+        () -> dispatch.complete(member.facet(ViewFacet.class).dispatch(memberRequest, context));
+
+    Future<Response> future;
+    if (required) {
+      dispatched.add(member);
+      future = memberDispatcher.submit(task);
+    }
+    else {
+      // only mark speculative dispatches once we know the executor accepted them
+      future = memberDispatcher.trySubmit(task);
+      if (future == null) {
+        return null;
+      }
+      dispatched.add(member);
+    }
+    dispatch.future = future;
+    return dispatch;
+  }
+
+  private static Request copyOf(final Request request) {
+    AttributesMap attributes = new AttributesMap();
+    request.getAttributes().backing().forEach(attributes::set);
+
+    Headers headers = new Headers();
+    request.getHeaders().names().forEach(name -> headers.set(name, request.getHeaders().getAll(name)));
+
+    return new Request.Builder().copy(request).attributes(attributes).headers(headers).build();
+  }
+
+  /**
+   * Tracks a single member dispatch so that it can be abandoned once a response is no longer required.
+   *
+   * The response and the abandonment race to be recorded first; whichever comes second releases the response, so it
+   * is released exactly once however the dispatch and its abandonment interleave.
+   */
+  @VisibleForTesting
+  class MemberDispatch
+  {
+    private final Repository member;
+
+    /**
+     * The response, once the member has completed, or {@link GroupHandler#ABANDONED}.
+     */
+    private final AtomicReference<Object> state = new AtomicReference<>();
+
+    volatile Future<Response> future;
+
+    MemberDispatch(final Repository member) {
+      this.member = member;
+    }
+
+    Response complete(final Response response) {
+      if (!state.compareAndSet(null, response)) {
+        release(response);
+      }
+      return response;
+    }
+
+    Response get() throws Exception {
+      try {
+        return future.get();
+      }
+      catch (ExecutionException e) {
+        throw unwrap(e);
+      }
+    }
+
+    Response get(final long timeoutMillis) throws Exception {
+      try {
+        return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+      }
+      catch (ExecutionException e) {
+        throw unwrap(e);
+      }
+    }
+
+    /**
+     * Cancels the dispatch without interrupting it, as interrupts can corrupt in-progress blob writes; any response
+     * that has arrived, or arrives later, has its payload released.
+     */
+    void abandon() {
+      future.cancel(false);
+      Object previous = state.getAndSet(ABANDONED);
+      if (previous instanceof Response) {
+        release((Response) previous);
+      }
+    }
+
+    private void release(final Response response) {
+      Payload payload = response.getPayload();
+      if (payload != null) {
+        try {
+          payload.close();
+        }
+        catch (IOException e) {
+          log.debug("Failed to release response from member {}", member, e);
+        }
+      }
+    }
+
+    private Exception unwrap(final ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      return cause instanceof Exception ? (Exception) cause : e;
+    }
+  }
+
   /**
    * Returns standard 404 with no message. Override for format specific messaging.
    */
@@ -0,0 +1,185 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.lifecycle.LifecycleSupport;
+import org.sonatype.nexus.common.app.ManagedLifecycle;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.app.ManagedLifecycle.Phase.SERVICES;
+
+/**
+ * Bounded executor used by {@link GroupHandler} to dispatch requests to group members in parallel.
+ *
+ * Parallel dispatch is opt-in. When enabled, {@link GroupHandler#getAll} fans out to all members at once and
+ * {@link GroupHandler#getFirst} speculatively dispatches up to {@code hedgeCount} further members whenever the
+ * current member has not answered within {@code hedgeDelay}.
+ *
+ * The executor never queues: once all threads are busy, required dispatches run on the calling thread and
+ * speculative dispatches are simply skipped, so a saturated pool degrades to the sequential behaviour.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+@ManagedLifecycle(phase = SERVICES)
+public class GroupMemberDispatcher
+    extends LifecycleSupport
+{
+  private static final String KEY_PREFIX = "nexus.group.parallelDispatch.";
+
+  private static final String ENABLED_KEY = KEY_PREFIX + "enabled";
+
+  private static final String THREADS_KEY = KEY_PREFIX + "threads";
+
+  private static final String HEDGE_DELAY_KEY = KEY_PREFIX + "hedgeDelay";
+
+  private static final String HEDGE_COUNT_KEY = KEY_PREFIX + "hedgeCount";
+
+  private final boolean enabled;
+
+  private final int threads;
+
+  private final Duration hedgeDelay;
+
+  private final int hedgeCount;
+
+  private ExecutorService executor;
+
+  @Inject
+  public GroupMemberDispatcher(
+      @Named("${" + ENABLED_KEY + ":-false}") final boolean enabled,
+      @Named("${" + THREADS_KEY + ":-50}") final int threads,
+      @Named("${" + HEDGE_DELAY_KEY + ":-500ms}") final Duration hedgeDelay,
+      @Named("${" + HEDGE_COUNT_KEY + ":-1}") final int hedgeCount)
+  {
+    this(enabled, threads, hedgeDelay, hedgeCount, null);
+  }
+
+  @VisibleForTesting
+  GroupMemberDispatcher(
+      final boolean enabled,
+      final int threads,
+      final Duration hedgeDelay,
+      final int hedgeCount,
+      @Nullable final ExecutorService executor)
+  {
+    this.enabled = enabled;
+    checkArgument(threads > 0, THREADS_KEY + " must be positive");
+    this.threads = threads;
+    this.hedgeDelay = checkNotNull(hedgeDelay);
+    checkArgument(!hedgeDelay.isNegative(), HEDGE_DELAY_KEY + " must not be negative");
+    checkArgument(hedgeCount >= 0, HEDGE_COUNT_KEY + " must not be negative");
+    this.hedgeCount = hedgeCount;
+    this.executor = executor;
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    if (enabled && executor == null) {
+      executor = NexusExecutorService.forCurrentSubject(new ThreadPoolExecutor(
+          0,
+          threads,
+          60L,
+          TimeUnit.SECONDS,
+          new SynchronousQueue<>(),
+          new NexusThreadFactory("group-dispatch", "group-dispatch")));
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Whether group members should be dispatched to in parallel.
+   */
+  public boolean isEnabled() {
+    return enabled && executor != null;
+  }
+
+  /**
+   * How long to wait for a member before speculatively dispatching to the next one.
+   */
+  public Duration getHedgeDelay() {
+    return hedgeDelay;
+  }
+
+  /**
+   * Maximum number of speculative dispatches in flight ahead of the member currently being waited on.
+   */
+  public int getHedgeCount() {
+    return hedgeCount;
+  }
+
+  /**
+   * Submits a dispatch that must happen; runs it on the calling thread if the executor is saturated.
+   */
+  public <T> Future<T> submit(final Callable<T> task) {
+    Future<T> future = trySubmit(task);
+    if (future != null) {
+      return future;
+    }
+
+    log.trace("Group dispatch executor saturated, dispatching on calling thread");
+    CompletableFuture<T> inline = new CompletableFuture<>();
+    try {
+      inline.complete(task.call());
+    }
+    catch (Exception e) { // NOSONAR: surfaced to the caller via the future
+      inline.completeExceptionally(e);
+    }
+    return inline;
+  }
+
+  /**
+   * Submits a speculative dispatch; returns {@code null} if the executor is saturated or unavailable.
+   */
+  @Nullable
+  public <T> Future<T> trySubmit(final Callable<T> task) {
+    ExecutorService currentExecutor = executor;
+    if (currentExecutor == null) {
+      return null;
+    }
+    try {
+      return currentExecutor.submit(task);
+    }
+    catch (RejectedExecutionException e) {
+      return null;
+    }
+  }
+}
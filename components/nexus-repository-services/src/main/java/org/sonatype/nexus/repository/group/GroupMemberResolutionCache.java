@@ -0,0 +1,317 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ByteSize;
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.sonatype.nexus.common.app.FeatureFlags.DATASTORE_ENABLED_NAMED;
+
+/**
+ * Remembers which member of a group served a given path, so that {@link GroupHandler} can dispatch straight to that
+ * member on subsequent requests instead of probing every member in order.
+ *
+ * Resolutions are only remembered when every member ahead of the serving member answered 404, which keeps the result
+ * identical to probing in order. Each resolution also records the member list it was resolved against so changes to
+ * the group membership or ordering are never served from the cache. Paths no member has are not remembered, so each
+ * member's negative cache settings keep deciding how long a missing path stays missing.
+ *
+ * The cache is opt-in and bounded both by entry count and by an estimate of the memory held by its entries. Entries
+ * expire after {@code timeToLive} and are invalidated when the group caches are invalidated or when an asset is
+ * created or deleted at the same path in any member. A resolution is dropped if such an invalidation happened while
+ * the lookup that found it was under way. Asset events only reach the cache with the datastore, so the cache stays
+ * disabled on OrientDB.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+public class GroupMemberResolutionCache
+    extends ComponentSupport
+{
+  private static final String KEY_PREFIX = "nexus.group.resolutionCache.";
+
+  private static final String ENABLED_KEY = KEY_PREFIX + "enabled";
+
+  private static final String MAX_SIZE_KEY = KEY_PREFIX + "maxSize";
+
+  private static final String MAX_MEMORY_KEY = KEY_PREFIX + "maxMemory";
+
+  private static final String TIME_TO_LIVE_KEY = KEY_PREFIX + "timeToLive";
+
+  /**
+   * Rough per-entry overhead in bytes: key, resolution, member list and cache node.
+   */
+  private static final int ENTRY_OVERHEAD = 160;
+
+  /**
+   * Number of counters that paths are spread over to detect invalidations racing with lookups.
+   */
+  private static final int PATH_GENERATIONS = 1024;
+
+  private final RepositoryManager repositoryManager;
+
+  private final boolean enabled;
+
+  private final Cache<Key, Resolution> cache;
+
+  /**
+   * Bumped whenever all resolutions of a group are invalidated.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  /**
+   * Bumped whenever the resolutions of a path are invalidated, indexed by the hash of the path.
+   */
+  private final AtomicLongArray pathGenerations = new AtomicLongArray(PATH_GENERATIONS);
+
+  @Inject
+  public GroupMemberResolutionCache(
+      final RepositoryManager repositoryManager,
+      final MetricRegistry metricRegistry,
+      @Named(DATASTORE_ENABLED_NAMED) final boolean datastoreEnabled,
+      @Named("${" + ENABLED_KEY + ":-false}") final boolean enabled,
+      @Named("${" + MAX_SIZE_KEY + ":-100000}") final int maxSize,
+      @Named("${" + MAX_MEMORY_KEY + ":-32mb}") final ByteSize maxMemory,
+      @Named("${" + TIME_TO_LIVE_KEY + ":-5m}") final Duration timeToLive)
+  {
+    this.repositoryManager = checkNotNull(repositoryManager);
+    if (enabled && !datastoreEnabled) {
+      log.warn("{} is only supported with the datastore, group member resolutions will not be cached", ENABLED_KEY);
+    }
+    this.enabled = enabled && datastoreEnabled;
+    checkArgument(maxSize > 0, MAX_SIZE_KEY + " must be positive");
+    checkArgument(maxMemory.toBytes() > 0, MAX_MEMORY_KEY + " must be positive");
+    checkArgument(!timeToLive.isNegative() && !timeToLive.isZero(), TIME_TO_LIVE_KEY + " must be positive");
+
+    // entries weigh their estimated size in bytes, but never less than an equal share of the memory bound,
+    // so limiting the total weight to the memory bound also limits the number of entries to maxSize
+    long maxWeight = maxMemory.toBytes();
+    long minEntryWeight = Math.max(1, maxWeight / maxSize);
+
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxWeight)
+        .<Key, Resolution>weigher((key, resolution) ->
+            (int) Math.min(Integer.MAX_VALUE, Math.max(minEntryWeight, key.estimateSize() + resolution.estimateSize())))
+        .expireAfterWrite(timeToLive.toMillis(), MILLISECONDS)
+        .recordStats()
+        .build();
+
+    checkNotNull(metricRegistry);
+    metricRegistry.gauge(KEY_PREFIX + "hitRatio", () -> (Gauge<Double>) () -> cache.stats().hitRate());
+    metricRegistry.gauge(KEY_PREFIX + "hits", () -> (Gauge<Long>) () -> cache.stats().hitCount());
+    metricRegistry.gauge(KEY_PREFIX + "misses", () -> (Gauge<Long>) () -> cache.stats().missCount());
+    metricRegistry.gauge(KEY_PREFIX + "evictions", () -> (Gauge<Long>) () -> cache.stats().evictionCount());
+    metricRegistry.gauge(KEY_PREFIX + "size", () -> (Gauge<Long>) cache::size);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Starts a lookup of the path within the group. Resolutions found by the lookup can only be remembered through it,
+   * and only if the path was not invalidated since the lookup started.
+   */
+  public Lookup lookup(final Repository group, final String path) {
+    Key key = new Key(group.getName(), path);
+    return new Lookup(key, stamp(key));
+  }
+
+  /**
+   * Returns the remembered resolution of the path within the group, if it was resolved against the same members.
+   */
+  @Nullable
+  public Resolution get(final Lookup lookup, final List<Repository> members) {
+    Resolution resolution = cache.getIfPresent(lookup.key);
+    if (resolution != null && !resolution.memberNames.equals(names(members))) {
+      cache.invalidate(lookup.key);
+      return null;
+    }
+    return resolution;
+  }
+
+  /**
+   * Remembers that the path was served by the given member, unless it was invalidated since the lookup started.
+   */
+  public void put(final Lookup lookup, final List<Repository> members, final Repository member) {
+    if (enabled) {
+      Resolution resolution = new Resolution(names(members), member.getName());
+      cache.put(lookup.key, resolution);
+      // invalidations bump the stamp before removing entries, so either they remove this entry or we see the bump
+      if (stamp(lookup.key) != lookup.stamp) {
+        cache.asMap().remove(lookup.key, resolution);
+      }
+    }
+  }
+
+  /**
+   * Forgets the resolution of the path within the group.
+   */
+  public void invalidate(final Lookup lookup) {
+    pathGenerations.incrementAndGet(pathGeneration(lookup.key.path));
+    cache.invalidate(lookup.key);
+  }
+
+  /**
+   * Forgets all resolutions of the group.
+   */
+  public void invalidate(final String groupName) {
+    generation.incrementAndGet();
+    if (cache.size() > 0) {
+      cache.asMap().keySet().removeIf(key -> key.groupName.equals(groupName));
+    }
+  }
+
+  /**
+   * Forgets the resolution of the path in every group containing the given member, directly or through nested groups.
+   * Called when content appears or disappears at that path in the member.
+   */
+  public void invalidateMember(final String memberName, final String path) {
+    pathGenerations.incrementAndGet(pathGeneration(normalize(path)));
+    if (cache.size() > 0) {
+      for (String groupName : repositoryManager.findContainingGroups(memberName)) {
+        cache.invalidate(new Key(groupName, path));
+      }
+    }
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * Both counters only ever increase, so their sum changes whenever either of them does.
+   */
+  private long stamp(final Key key) {
+    return generation.get() + pathGenerations.get(pathGeneration(key.path));
+  }
+
+  private static int pathGeneration(final String normalizedPath) {
+    return Math.floorMod(normalizedPath.hashCode(), PATH_GENERATIONS);
+  }
+
+  private static List<String> names(final List<Repository> members) {
+    return members.stream().map(Repository::getName).collect(toList());
+  }
+
+  /**
+   * Asset paths and request paths differ by a leading slash in some formats, so keys ignore it.
+   */
+  private static String normalize(final String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  private static final class Key
+  {
+    private final String groupName;
+
+    private final String path;
+
+    Key(final String groupName, final String path) {
+      this.groupName = checkNotNull(groupName);
+      this.path = normalize(checkNotNull(path));
+    }
+
+    long estimateSize() {
+      return 2L * (groupName.length() + path.length());
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key that = (Key) o;
+      return groupName.equals(that.groupName) && path.equals(that.path);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(groupName, path);
+    }
+  }
+
+  /**
+   * A lookup of a path within a group, remembering when it started.
+   */
+  public static final class Lookup
+  {
+    private final Key key;
+
+    private final long stamp;
+
+    private Lookup(final Key key, final long stamp) {
+      this.key = key;
+      this.stamp = stamp;
+    }
+
+    public String getPath() {
+      return key.path;
+    }
+  }
+
+  /**
+   * The member a path resolved to within a group.
+   */
+  public static final class Resolution
+  {
+    private final List<String> memberNames;
+
+    private final String memberName;
+
+    Resolution(final List<String> memberNames, final String memberName) {
+      this.memberNames = memberNames;
+      this.memberName = memberName;
+    }
+
+    /**
+     * Name of the member that served the path.
+     */
+    public String getMemberName() {
+      return memberName;
+    }
+
+    long estimateSize() {
+      // member names are shared with the repository configuration, only count the list itself
+      return ENTRY_OVERHEAD + 8L * memberNames.size();
+    }
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.function.Function;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Digest of the etags of member content, used to tell whether merged group content has to be rebuilt. Merged content
+ * stored along with the digest of its members can be reused for as long as the members return the same etags.
+ *
+ * @since 3.70
+ */
+public final class MemberEtagDigest
+{
+  private static final HashFunction DIGESTER = Hashing.sha256();
+
+  private MemberEtagDigest() {
+    // no instances
+  }
+
+  /**
+   * Computes the sha256 of the etags of the members' content, in member order. Returns empty when any etag is missing,
+   * as the digest can't tell whether that member changed.
+   */
+  public static <T> Optional<String> digest(final Iterable<T> contents, final Function<T, Optional<String>> etag) {
+    Hasher hasher = DIGESTER.newHasher();
+    for (T content : contents) {
+      Optional<String> optEtag = etag.apply(content);
+      if (!optEtag.isPresent()) {
+        return Optional.empty();
+      }
+      hasher.putString(optEtag.get(), StandardCharsets.UTF_8);
+    }
+    return Optional.of(hasher.hash().toString());
+  }
+}
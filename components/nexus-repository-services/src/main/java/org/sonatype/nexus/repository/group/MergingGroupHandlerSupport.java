@@ -13,14 +13,12 @@
 package org.sonatype.nexus.repository.group;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BinaryOperator;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -41,9 +39,6 @@ import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Response;
 
 import com.google.common.collect.Iterables;
-import com.google.common.hash.HashFunction;
-import com.google.common.hash.Hasher;
-import com.google.common.hash.Hashing;
 import com.google.common.net.HttpHeaders;
 import org.joda.time.format.ISODateTimeFormat;
 
@@ -71,8 +66,6 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public abstract class MergingGroupHandlerSupport
     extends GroupHandler
 {
-  private final HashFunction etagDigester = Hashing.sha256();
-
   private Cooperation2 cooperation;
 
   protected void configureCooperation(
@@ -184,24 +177,11 @@ public abstract class MergingGroupHandlerSupport
    * whether any members have changed their responses which allows us to avoid recomputing the values.
    */
   private Optional<String> computeEtag(final Collection<Response> successfulResponses) {
-    Hasher etagDigest = etagDigester.newHasher();
-
-    // If we're missing one etag the overall result isn't valid as we can't compute it
-    AtomicBoolean valid = new AtomicBoolean(true);
-
-    successfulResponses.stream()
-        .map(Response::getPayload)
-        .map(MergingGroupHandlerSupport::etag)
-        .peek(optEtag -> valid.compareAndSet(true, optEtag.isPresent()))
-        .filter(Optional::isPresent)
-        .map(Optional::get)
-        .forEach(etag -> etagDigest.putString(etag, StandardCharsets.UTF_8));
-
-    if (valid.get()) {
-      return Optional.of(etagDigest.hash().toString());
+    Optional<String> digest = MemberEtagDigest.digest(successfulResponses, response -> etag(response.getPayload()));
+    if (!digest.isPresent()) {
+      log.warn("Missing etag on response from member repository when computing metadata");
     }
-    log.warn("Missing etag on response from member repository when computing metadata");
-    return Optional.empty();
+    return digest;
   }
 
   /*
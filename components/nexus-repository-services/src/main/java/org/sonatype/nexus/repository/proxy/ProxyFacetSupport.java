@@ -20,12 +20,23 @@ import java.time.Duration;
 import java.util.Arrays;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
 
+import org.sonatype.goodies.common.ByteSize;
 import org.sonatype.nexus.common.cooperation2.Cooperation2;
 import org.sonatype.nexus.common.cooperation2.Cooperation2Factory;
 import org.sonatype.nexus.common.io.Cooperation;
@@ -47,9 +58,13 @@ import org.sonatype.nexus.repository.replication.PullReplicationSupport;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.payloads.HttpEntityPayload;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 import org.sonatype.nexus.transaction.RetryDeniedException;
 import org.sonatype.nexus.validation.constraint.Url;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
@@ -112,6 +127,15 @@ public abstract class ProxyFacetSupport
     @NotNull
     public Integer metadataMaxAge = (int) Duration.ofHours(24).toMinutes();
 
+    /**
+     * Stale-while-revalidate minutes, 0 to always revalidate stale content before serving it. Ignored by facets which
+     * do not support revalidating in the background.
+     *
+     * @since 3.70
+     */
+    @Min(0)
+    public Integer staleWhileRevalidate = 0;
+
     /**
      * Content max-age.
      */
@@ -128,6 +152,15 @@ public abstract class ProxyFacetSupport
       return Duration.ofMinutes(metadataMaxAge);
     }
 
+    /**
+     * How long past its max-age stale content may still be served while it is revalidated in the background.
+     *
+     * @since 3.70
+     */
+    public Duration getStaleWhileRevalidate() {
+      return Duration.ofMinutes(staleWhileRevalidate != null ? staleWhileRevalidate : 0);
+    }
+
     /**
      * The remote URI of the proxy repository.
      */
@@ -141,6 +174,7 @@ public abstract class ProxyFacetSupport
       return getClass().getSimpleName() + "{" +
           "remoteUrl=" + remoteUrl +
           ", contentMaxAge=" + contentMaxAge +
+          ", staleWhileRevalidate=" + staleWhileRevalidate +
           '}';
     }
   }
@@ -159,6 +193,30 @@ public abstract class ProxyFacetSupport
 
   private Cooperation2 proxyCooperation;
 
+  private boolean streamThroughEnabled;
+
+  private long streamThroughThreshold;
+
+  private ExecutorService streamThroughExecutor;
+
+  private final ConcurrentMap<String, StreamThroughDownload> streamThroughDownloads = new ConcurrentHashMap<>();
+
+  private MetricRegistry metricRegistry;
+
+  private int revalidationThreads;
+
+  private int revalidationQueueSize;
+
+  private ExecutorService revalidationExecutor;
+
+  private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+
+  private final Counter staleHits = new Counter();
+
+  private final Counter backgroundRefreshes = new Counter();
+
+  private final Counter refreshFailures = new Counter();
+
   @Override
   public ProxyRepositoryConfiguration getConfiguration() {
     return config;
@@ -210,6 +268,67 @@ public abstract class ProxyFacetSupport
         .threadsPerKey(threadsPerKey);
   }
 
+  /**
+   * Configures streaming of large remote content to clients while it is being stored.
+   *
+   * @param streamThroughEnabled should large content be served as it arrives rather than once it is stored
+   * @param streamThroughThreshold content of at least this size is streamed; smaller or unknown sizes are stored first
+   * @since 3.70
+   */
+  @Inject
+  protected void configureStreamThrough(
+      @Named("${nexus.proxy.streamThrough.enabled:-false}") final boolean streamThroughEnabled,
+      @Named("${nexus.proxy.streamThrough.threshold:-10mb}") final ByteSize streamThroughThreshold)
+  {
+    this.streamThroughEnabled = streamThroughEnabled;
+    this.streamThroughThreshold = streamThroughThreshold.toBytes();
+  }
+
+  /**
+   * Configures background revalidation of stale content served under the repository's stale-while-revalidate window.
+   *
+   * @param revalidationThreads   limits the concurrent background revalidations of this proxy; 0 disables them
+   * @param revalidationQueueSize limits the revalidations waiting for a thread; stale content is revalidated in the
+   *                              request once this is full
+   * @since 3.70
+   */
+  @Inject
+  protected void configureRevalidation(
+      final MetricRegistry metricRegistry,
+      @Named("${nexus.proxy.revalidation.threads:-4}") final int revalidationThreads,
+      @Named("${nexus.proxy.revalidation.queueSize:-1000}") final int revalidationQueueSize)
+  {
+    this.metricRegistry = checkNotNull(metricRegistry);
+    this.revalidationThreads = revalidationThreads;
+    this.revalidationQueueSize = revalidationQueueSize;
+  }
+
+  /**
+   * Whether content can be stored on a background thread, outside of the request. Facets which store content in a
+   * transaction bound to the request thread must leave this disabled.
+   *
+   * @since 3.70
+   */
+  protected boolean isStreamThroughSupported() {
+    return false;
+  }
+
+  /**
+   * Whether stale content can be revalidated on a background thread, outside of the request. Facets which store content
+   * in a transaction bound to the request thread must leave this disabled, their stale content is always revalidated in
+   * the request.
+   *
+   * @since 3.70
+   */
+  protected boolean isRevalidationSupported() {
+    return false;
+  }
+
+  @VisibleForTesting
+  void buildRevalidation(@Nullable final ExecutorService executor) {
+    this.revalidationExecutor = executor;
+  }
+
   @VisibleForTesting
   void buildCooperation() {
     buildCooperation(getRepository());
@@ -278,11 +397,56 @@ public abstract class ProxyFacetSupport
 
       optionalFacet(NegativeCacheFacet.class).ifPresent((nfc) -> nfc.invalidate());
     }
+
+    if (streamThroughEnabled && isStreamThroughSupported()) {
+      streamThroughExecutor = NexusExecutorService.forCurrentSubject(Executors.newCachedThreadPool(
+          new NexusThreadFactory("proxy-stream-through", getRepository().getName())));
+    }
+
+    // only proxies configured with a stale-while-revalidate window need threads to revalidate in the background
+    if (revalidationThreads > 0 && isRevalidationSupported() && config != null &&
+        config.getStaleWhileRevalidate().getSeconds() > 0) {
+      ThreadPoolExecutor executor = new ThreadPoolExecutor(
+          revalidationThreads,
+          revalidationThreads,
+          60L,
+          TimeUnit.SECONDS,
+          new LinkedBlockingQueue<>(Math.max(1, revalidationQueueSize)),
+          new NexusThreadFactory("proxy-revalidation", getRepository().getName()));
+      executor.allowCoreThreadTimeOut(true);
+      revalidationExecutor = NexusExecutorService.forCurrentSubject(executor);
+    }
+
+    if (metricRegistry != null) {
+      String prefix = metricPrefix();
+      metricRegistry.counter(prefix + "staleHits", () -> staleHits);
+      metricRegistry.counter(prefix + "backgroundRefreshes", () -> backgroundRefreshes);
+      metricRegistry.counter(prefix + "refreshFailures", () -> refreshFailures);
+    }
   }
 
   @Override
   protected void doStop() throws Exception {
     httpClient = null;
+
+    if (streamThroughExecutor != null) {
+      streamThroughExecutor.shutdownNow();
+      streamThroughExecutor = null;
+    }
+
+    if (revalidationExecutor != null) {
+      revalidationExecutor.shutdown();
+      revalidationExecutor = null;
+    }
+
+    if (metricRegistry != null) {
+      String prefix = metricPrefix();
+      metricRegistry.removeMatching((name, metric) -> name.startsWith(prefix));
+    }
+  }
+
+  private String metricPrefix() {
+    return "nexus.proxy." + getRepository().getName() + ".";
   }
 
   @Override
@@ -305,9 +469,64 @@ public abstract class ProxyFacetSupport
     if (remoteFetchSkipMarker) {
       return content;
     }
+    if (isServableWhileRevalidating(context, content) && revalidateInBackground(context, content)) {
+      staleHits.inc();
+      return content;
+    }
     return get(context, content);
   }
 
+  /**
+   * Whether the stale content is still inside the repository's stale-while-revalidate window.
+   */
+  private boolean isServableWhileRevalidating(final Context context, @Nullable final Content content) {
+    if (content == null || revalidationExecutor == null || config == null || !isRevalidationSupported()) {
+      return false;
+    }
+    long window = config.getStaleWhileRevalidate().getSeconds();
+    CacheInfo cacheInfo = content.getAttributes().get(CacheInfo.class);
+    return window > 0 && cacheInfo != null && getCacheController(context).isWithinStaleWindow(cacheInfo, window);
+  }
+
+  /**
+   * Schedules a refresh of the stale content, unless one is already underway for the same request.
+   *
+   * @return {@code false} if the refresh could not be scheduled and must happen in the request instead
+   */
+  private boolean revalidateInBackground(final Context context, final Content staleContent) {
+    String key = getRequestKey(context);
+    if (!revalidating.add(key)) {
+      return true;
+    }
+    try {
+      ExecutorService executor = revalidationExecutor;
+      if (executor == null) {
+        throw new RejectedExecutionException("Stopped");
+      }
+      executor.execute(() -> {
+        try {
+          proxyCooperation.on(() -> download(context, staleContent)).cooperate(key);
+          backgroundRefreshes.inc();
+        }
+        catch (Exception e) {
+          refreshFailures.inc();
+          log.warn("Failed to revalidate {} in {}, will retry on the next request: {}", key,
+              getRepository().getName(), e.getMessage(), log.isDebugEnabled() ? e : null);
+        }
+        finally {
+          revalidating.remove(key);
+        }
+      });
+      return true;
+    }
+    catch (RejectedExecutionException e) {
+      revalidating.remove(key);
+      log.debug("Too many revalidations pending for {}, revalidating {} in the request", getRepository().getName(),
+          key);
+      return false;
+    }
+  }
+
   private boolean isRemoteFetchSkipMarkerEnabled(final Context context) {
     Object marker = context.getAttributes()
         .get(PROXY_REMOTE_FETCH_SKIP_MARKER);
@@ -318,6 +537,11 @@ public abstract class ProxyFacetSupport
    * Attempt to retrieve from the remote using proxy co-operation
    */
   protected Content get(final Context context, @Nullable final Content staleContent) throws IOException {
+    StreamThroughDownload inFlight = streamThroughDownloads.get(getRequestKey(context));
+    if (inFlight != null && !inFlight.isFailed()) {
+      // still being fetched, read along with the other clients rather than fetching it again
+      return inFlight.content();
+    }
     return proxyCooperation.on(() -> doGet(context, staleContent))
         .checkFunction(() -> {
           Content latestContent = maybeGetCachedContent(context);
@@ -344,6 +568,26 @@ public abstract class ProxyFacetSupport
    * @since 3.4
    */
   protected Content doGet(final Context context, @Nullable final Content staleContent) throws IOException {
+    try {
+      return download(context, staleContent);
+    }
+    catch (ProxyServiceException e) {
+      logContentOrThrow(staleContent, context, e.getHttpResponse().getStatusLine(), e);
+    }
+    catch (IOException e) {
+      logContentOrThrow(staleContent, context, null, e); // note this also takes care of RemoteBlockedIOException
+    }
+    catch (UncheckedIOException e) {
+      logContentOrThrow(staleContent, context, null,
+          e.getCause()); // "special" path (for now) for npm and similar peculiar formats
+    }
+    return staleContent;
+  }
+
+  /**
+   * Fetches the content from the remote and stores it, returning the stale content if that is still up-to-date.
+   */
+  private Content download(final Context context, @Nullable final Content staleContent) throws IOException {
     Content remote = null, content = staleContent;
 
     boolean nested = isDownloading();
@@ -352,23 +596,16 @@ public abstract class ProxyFacetSupport
         downloading.set(TRUE);
       }
       remote = fetch(context, content);
-      if (remote != null) {
-        content = store(context, remote);
-        if (remote.equals(content)) {
-          // remote wasn't stored; make reusable copy for cooperation
-          content = new TempContent(remote);
-        }
+      if (remote != null && !nested && isStreamThrough(remote)) {
+        Content fetched = remote;
+        remote = null; // owned by the download from here on
+        content = streamThrough(context, fetched);
+      }
+      else if (remote != null) {
+        Content stored = store(context, remote);
+        // if remote wasn't stored make a reusable copy for cooperation
+        content = remote.equals(stored) ? new TempContent(remote) : stored;
       }
-    }
-    catch (ProxyServiceException e) {
-      logContentOrThrow(content, context, e.getHttpResponse().getStatusLine(), e);
-    }
-    catch (IOException e) {
-      logContentOrThrow(content, context, null, e); // note this also takes care of RemoteBlockedIOException
-    }
-    catch (UncheckedIOException e) {
-      logContentOrThrow(content, context, null,
-          e.getCause()); // "special" path (for now) for npm and similar peculiar formats
     }
     finally {
       if (!nested) {
@@ -381,6 +618,48 @@ public abstract class ProxyFacetSupport
     return content;
   }
 
+  private boolean isStreamThrough(final Content remote) {
+    return streamThroughExecutor != null && remote.getSize() >= streamThroughThreshold;
+  }
+
+  /**
+   * Serves the remote content as it arrives, storing it on a background thread once it has been fetched in full.
+   */
+  private Content streamThrough(final Context context, final Content remote) throws IOException {
+    String key = getRequestKey(context);
+    StreamThroughDownload download;
+    try {
+      download = new StreamThroughDownload(getRepository().getName() + " " + key, remote);
+    }
+    catch (IOException e) {
+      Closeables.close(remote, true);
+      throw e;
+    }
+    streamThroughDownloads.put(key, download);
+    try {
+      ExecutorService executor = streamThroughExecutor;
+      if (executor == null) {
+        throw new RejectedExecutionException("Stopped");
+      }
+      executor.submit(() -> {
+        downloading.set(TRUE);
+        try {
+          download.run(spooled -> store(context, spooled));
+        }
+        finally {
+          streamThroughDownloads.remove(key, download);
+          downloading.remove();
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      streamThroughDownloads.remove(key, download);
+      download.abandon();
+      throw new IOException("Unable to stream " + key + " from " + getRepository().getName(), e);
+    }
+    return download.content();
+  }
+
   /**
    * Path + query parameters provide a unique enough request key for known formats. If a format needs to add more
    * context then they should customize this method.
@@ -0,0 +1,362 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.collect.AttributesMap;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.google.common.hash.HashCode;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.sonatype.nexus.repository.view.Content.CONTENT_HASH_CODES_MAP;
+import static org.sonatype.nexus.repository.view.Content.T_CONTENT_HASH_CODES_MAP;
+
+/**
+ * Remote content that is served to clients while it is still being fetched.
+ *
+ * The remote content is spooled to a temporary file by a single fetch, and every client reads the file as it grows,
+ * waiting for more content where needed. Only once all of the content has arrived, matching the advertised size and any
+ * hash codes the remote content carries in {@link Content#CONTENT_HASH_CODES_MAP}, is it handed over to be stored. If
+ * the fetch fails, clients still reading get an {@link IOException} so their responses are aborted rather than cut
+ * short. The file is deleted once the fetch is done and no client is reading it; clients opening the content after
+ * that read the stored content instead.
+ *
+ * @since 3.70
+ */
+class StreamThroughDownload
+    extends ComponentSupport
+{
+  /**
+   * Stores the fully spooled content.
+   */
+  @FunctionalInterface
+  interface Storage
+  {
+    @Nullable
+    Content store(Content content) throws IOException;
+  }
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final String description;
+
+  private final Content remote;
+
+  private final long size;
+
+  @Nullable
+  private final String contentType;
+
+  private final AttributesMap attributes;
+
+  private final Path file;
+
+  private final Payload payload = new SpoolPayload();
+
+  // state below is guarded by this
+
+  private long spooled;
+
+  private boolean complete;
+
+  private IOException failure;
+
+  private int readers;
+
+  private boolean released;
+
+  private boolean deleted;
+
+  private Content stored;
+
+  StreamThroughDownload(final String description, final Content remote) throws IOException {
+    this.description = checkNotNull(description);
+    this.remote = checkNotNull(remote);
+    this.size = remote.getSize();
+    this.contentType = remote.getContentType();
+    this.attributes = remote.getAttributes();
+    this.file = Files.createTempFile("proxy-stream-through-", ".tmp");
+  }
+
+  /**
+   * Content for one client, reading the content as it arrives.
+   */
+  Content content() {
+    Content content = new Content(payload);
+    attributes.backing().forEach(content.getAttributes()::set);
+    return content;
+  }
+
+  synchronized boolean isFailed() {
+    return failure != null;
+  }
+
+  /**
+   * Fetches the remote content to the temporary file and then stores it. Expected to be run once, on its own thread.
+   */
+  void run(final Storage storage) {
+    try {
+      try {
+        spool();
+      }
+      catch (IOException | RuntimeException e) {
+        log.warn("Failed to fetch {} while streaming it to clients", description, e);
+        fail(e instanceof IOException ? (IOException) e : new IOException(e));
+        return;
+      }
+      store(storage);
+    }
+    finally {
+      release();
+    }
+  }
+
+  /**
+   * Gives up on a download that was never {@link #run}, releasing the remote content.
+   */
+  void abandon() {
+    try {
+      remote.close();
+    }
+    catch (IOException e) {
+      log.debug("Unable to close {}", description, e);
+    }
+    fail(new IOException("Abandoned fetch of " + description));
+    release();
+  }
+
+  private void spool() throws IOException {
+    Map<HashAlgorithm, HashCode> expectedHashes = attributes.get(CONTENT_HASH_CODES_MAP, T_CONTENT_HASH_CODES_MAP);
+    Map<HashAlgorithm, HashCode> actualHashes = null;
+    try (Content source = remote;
+         InputStream in = hashing(source.openInputStream(), expectedHashes);
+         FileChannel out = FileChannel.open(file, WRITE)) {
+      byte[] buffer = new byte[BUFFER_SIZE];
+      int n;
+      while ((n = in.read(buffer)) >= 0) {
+        ByteBuffer chunk = ByteBuffer.wrap(buffer, 0, n);
+        while (chunk.hasRemaining()) {
+          out.write(chunk);
+        }
+        advance(n);
+      }
+      if (in instanceof MultiHashingInputStream) {
+        actualHashes = ((MultiHashingInputStream) in).hashes();
+      }
+    }
+    synchronized (this) {
+      if (size != Payload.UNKNOWN_SIZE && spooled != size) {
+        throw new IOException("Expected " + size + " bytes but received " + spooled);
+      }
+      if (actualHashes != null) {
+        checkHashes(expectedHashes, actualHashes);
+      }
+      complete = true;
+      notifyAll();
+    }
+  }
+
+  private static InputStream hashing(
+      final InputStream in,
+      @Nullable final Map<HashAlgorithm, HashCode> expectedHashes)
+  {
+    return expectedHashes == null || expectedHashes.isEmpty()
+        ? in
+        : new MultiHashingInputStream(expectedHashes.keySet(), in);
+  }
+
+  private static void checkHashes(
+      final Map<HashAlgorithm, HashCode> expectedHashes,
+      final Map<HashAlgorithm, HashCode> actualHashes) throws IOException
+  {
+    for (Entry<HashAlgorithm, HashCode> expected : expectedHashes.entrySet()) {
+      HashCode actual = actualHashes.get(expected.getKey());
+      if (!expected.getValue().equals(actual)) {
+        throw new IOException("Expected " + expected.getKey().name() + " " + expected.getValue() + " but received " +
+            actual);
+      }
+    }
+  }
+
+  private synchronized void advance(final int n) {
+    spooled += n;
+    notifyAll();
+  }
+
+  private synchronized void fail(final IOException e) {
+    failure = e;
+    notifyAll();
+  }
+
+  private void store(final Storage storage) {
+    try {
+      Content spooledContent = content();
+      Content result = storage.store(spooledContent);
+      if (result != null && result != spooledContent) {
+        synchronized (this) {
+          stored = result;
+        }
+      }
+    }
+    catch (Exception e) {
+      // clients were served the content in full, it will be fetched again on the next request
+      log.warn("Failed to store {} after streaming it to clients", description, e);
+    }
+  }
+
+  private synchronized void release() {
+    released = true;
+    maybeDelete();
+  }
+
+  private void maybeDelete() {
+    if (released && readers == 0 && !deleted) {
+      deleted = true;
+      try {
+        Files.deleteIfExists(file);
+      }
+      catch (IOException e) {
+        log.warn("Unable to delete {}", file, e);
+      }
+    }
+  }
+
+  /**
+   * Blocks until content beyond the position has arrived, returning how much can be read, or 0 at the end.
+   */
+  private synchronized long awaitContent(final long position) throws IOException {
+    try {
+      while (failure == null && !complete && spooled <= position) {
+        wait();
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for " + description);
+    }
+    if (failure != null) {
+      throw new IOException("Failed to fetch " + description, failure);
+    }
+    return spooled - position;
+  }
+
+  private class SpoolPayload
+      implements Payload
+  {
+    @Override
+    public InputStream openInputStream() throws IOException {
+      synchronized (StreamThroughDownload.this) {
+        if (deleted) {
+          if (stored != null) {
+            return stored.openInputStream();
+          }
+          throw new IOException("Content is no longer available for " + description);
+        }
+        readers++;
+      }
+      try {
+        return new SpoolInputStream(FileChannel.open(file, READ));
+      }
+      catch (IOException | RuntimeException e) {
+        closeReader();
+        throw e;
+      }
+    }
+
+    @Override
+    public long getSize() {
+      return size;
+    }
+
+    @Nullable
+    @Override
+    public String getContentType() {
+      return contentType;
+    }
+  }
+
+  private void closeReader() {
+    synchronized (this) {
+      readers--;
+      maybeDelete();
+    }
+  }
+
+  private class SpoolInputStream
+      extends InputStream
+  {
+    private final FileChannel channel;
+
+    private long position;
+
+    private boolean closed;
+
+    SpoolInputStream(final FileChannel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] single = new byte[1];
+      int n = read(single, 0, 1);
+      return n < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      long available = awaitContent(position);
+      if (available <= 0) {
+        return -1;
+      }
+      int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, available)), position);
+      if (n > 0) {
+        position += n;
+      }
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (!closed) {
+        closed = true;
+        try {
+          channel.close();
+        }
+        finally {
+          closeReader();
+        }
+      }
+    }
+  }
+}
@@ -56,6 +56,9 @@ public class RoutingRuleCache
   private final LoadingCache<EntityId, Optional<RoutingRule>> routingRuleCache =
       CacheBuilder.newBuilder().build(new RoutingRuleCacheLoader());
 
+  private final LoadingCache<EntityId, Optional<RoutingRuleMatcher>> routingRuleMatcherCache =
+      CacheBuilder.newBuilder().build(new RoutingRuleMatcherCacheLoader());
+
   private final RoutingRuleStore routingRuleStore;
 
   @Inject
@@ -97,6 +100,32 @@ public class RoutingRuleCache
     }
   }
 
+  /**
+   * Retrieves the precompiled matcher of the routing rule assigned to a repository or null if one is not assigned.
+   *
+   * @since 3.70
+   */
+  @Nullable
+  public RoutingRuleMatcher getRoutingRuleMatcher(final Repository repository) {
+    try {
+      return repositoryAssignedCache.get(repository).map(this::getRoutingRuleMatcher).orElse(null);
+    }
+    catch (ExecutionException e) {
+      log.error("An error occurred retrieving the routing rule for repository: {}", repository.getName(), e);
+      return null;
+    }
+  }
+
+  private RoutingRuleMatcher getRoutingRuleMatcher(final EntityId id) {
+    try {
+      return routingRuleMatcherCache.get(id).orElse(null);
+    }
+    catch (ExecutionException e) {
+      log.error("An error occurred retrieving the routing rule id {}", id, e);
+      return null;
+    }
+  }
+
   private RoutingRule getRoutingRule(final EntityId id) {
     try {
       return routingRuleCache.get(id).orElse(null);
@@ -123,6 +152,7 @@ public class RoutingRuleCache
   @Subscribe
   public void handle(final RoutingRuleInvalidatedEvent event) {
     routingRuleCache.invalidate(event.getRoutingRuleId());
+    routingRuleMatcherCache.invalidate(event.getRoutingRuleId());
   }
 
   private static class RepositoryMappingCacheLoader
@@ -142,4 +172,13 @@ public class RoutingRuleCache
       return Optional.ofNullable(routingRuleStore.getById(key.getValue()));
     }
   }
+
+  private class RoutingRuleMatcherCacheLoader
+      extends CacheLoader<EntityId, Optional<RoutingRuleMatcher>>
+  {
+    @Override
+    public Optional<RoutingRuleMatcher> load(final EntityId key) throws Exception {
+      return Optional.ofNullable(getRoutingRule(key)).map(RoutingRuleMatcher::new);
+    }
+  }
 }
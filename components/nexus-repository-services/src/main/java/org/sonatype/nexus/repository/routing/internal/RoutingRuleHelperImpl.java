@@ -68,13 +68,13 @@ public class RoutingRuleHelperImpl
 
   @Override
   public boolean isAllowed(final Repository repository, final String path) {
-    RoutingRule routingRule = routingRuleCache.getRoutingRule(repository);
+    RoutingRuleMatcher routingRuleMatcher = routingRuleCache.getRoutingRuleMatcher(repository);
 
-    if (routingRule == null) {
+    if (routingRuleMatcher == null) {
       return true;
     }
 
-    return isAllowed(routingRule, path);
+    return routingRuleMatcher.isAllowed(path);
   }
 
   public boolean isAllowed(final RoutingRule routingRule, final String path) {
@@ -83,8 +83,7 @@ public class RoutingRuleHelperImpl
 
   @Override
   public boolean isAllowed(final RoutingMode mode, final List<String> matchers, final String path) {
-    boolean matches = matchers.stream().anyMatch(path::matches);
-    return (!matches && mode == RoutingMode.BLOCK) || (matches && mode == RoutingMode.ALLOW);
+    return new RoutingRuleMatcher(mode, matchers).isAllowed(path);
   }
 
   @Override
@@ -0,0 +1,95 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.routing.internal;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.sonatype.nexus.repository.routing.RoutingMode;
+import org.sonatype.nexus.repository.routing.RoutingRule;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Precompiled form of a {@link RoutingRule} so that requests don't recompile its regular expressions.
+ *
+ * Matchers are combined into a single alternation which is evaluated in one pass. Matchers that use back-references
+ * depend on their own group numbering, so when any are present each matcher is compiled and evaluated separately.
+ *
+ * @since 3.70
+ */
+public class RoutingRuleMatcher
+{
+  /**
+   * Numbered or named back-references, which would refer to the wrong group once matchers are combined.
+   */
+  private static final Pattern BACK_REFERENCE = Pattern.compile("(?<!\\\\)(?:\\\\\\\\)*\\\\(?:[1-9]|k<)");
+
+  private final RoutingMode mode;
+
+  private final Pattern combined;
+
+  private final List<Pattern> patterns;
+
+  public RoutingRuleMatcher(final RoutingRule routingRule) {
+    this(routingRule.mode(), routingRule.matchers());
+  }
+
+  public RoutingRuleMatcher(final RoutingMode mode, final List<String> matchers) {
+    this.mode = checkNotNull(mode);
+    checkNotNull(matchers);
+
+    Pattern combinedPattern = null;
+    if (!matchers.isEmpty() && matchers.stream().noneMatch(matcher -> BACK_REFERENCE.matcher(matcher).find())) {
+      try {
+        combinedPattern = Pattern.compile(matchers.stream().collect(joining(")|(?:", "(?:", ")")));
+      }
+      catch (PatternSyntaxException e) { // NOSONAR: compile separately below so the failing matcher is reported
+        combinedPattern = null;
+      }
+    }
+
+    this.combined = combinedPattern;
+    this.patterns = combinedPattern != null ? null : matchers.stream().map(Pattern::compile).collect(toList());
+  }
+
+  public RoutingMode getMode() {
+    return mode;
+  }
+
+  /**
+   * Whether any of the matchers matches the entire path, as {@link String#matches} would.
+   */
+  public boolean matches(final String path) {
+    if (combined != null) {
+      return combined.matcher(path).matches();
+    }
+    for (Pattern pattern : patterns) {
+      if (pattern.matcher(path).matches()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the rule allows requests for the path.
+   */
+  public boolean isAllowed(final String path) {
+    boolean matches = matches(path);
+    return (!matches && mode == RoutingMode.BLOCK) || (matches && mode == RoutingMode.ALLOW);
+  }
+}
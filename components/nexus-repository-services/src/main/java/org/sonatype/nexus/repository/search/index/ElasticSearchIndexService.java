@@ -44,6 +44,15 @@ public interface ElasticSearchIndexService
    */
   void rebuildIndex(Repository repository);
 
+  /**
+   * Starts building a new index for the repository alongside its current index. Searches keep using the current index
+   * until the new one is {@link ShadowIndex#commit() committed}; updates made meanwhile are applied to both.
+   *
+   * @throws IllegalStateException if the repository has no index, or is already being rebuilt
+   * @since 3.70
+   */
+  ShadowIndex startShadowRebuild(Repository repository);
+
   /**
    * Check search index exists for specific repository
    */
@@ -23,8 +23,11 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadLocalRandom;
@@ -55,22 +58,30 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.io.Resources;
 import org.elasticsearch.action.ActionListener;
-import org.elasticsearch.action.admin.indices.stats.IndexStats;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.stats.CommonStats;
 import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.action.delete.DeleteRequest;
 import org.elasticsearch.action.delete.DeleteResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.index.IndexResponse;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.IndicesAdminClient;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.collect.ImmutableOpenMap;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.indices.IndexAlreadyExistsException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
 import static java.util.Collections.unmodifiableMap;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static java.util.stream.Collectors.toList;
@@ -106,8 +117,17 @@ public class ElasticSearchIndexServiceImpl
 
   private final AtomicLong updateCount = new AtomicLong();
 
+  private static final char SHADOW_INDEX_SEPARATOR = '-';
+
   private final ConcurrentMap<String, String> repositoryIndexNames = Maps.newConcurrentMap();
 
+  private final ConcurrentMap<String, String> shadowIndexNames = Maps.newConcurrentMap();
+
+  /**
+   * Identifiers of documents deleted while an index is being rebuilt, by the name of the rebuilt index.
+   */
+  private final ConcurrentMap<String, Set<String>> shadowIndexDeletes = Maps.newConcurrentMap();
+
   private Map<Integer, Entry<BulkProcessor, ExecutorService>> bulkProcessorToExecutors;
 
   /**
@@ -176,9 +196,15 @@ public class ElasticSearchIndexServiceImpl
     final String safeIndexName = indexNamingPolicy.indexName(repository);
     log.debug("Creating index for {}", repository);
     createIndex(repository, safeIndexName);
+    deleteOrphanedShadowIndexes(repository, safeIndexName);
   }
 
   private void createIndex(final Repository repository, final String indexName) {
+    createPhysicalIndex(repository, indexName);
+    repositoryIndexNames.put(repository.getName(), indexName);
+  }
+
+  private void createPhysicalIndex(final Repository repository, final String indexName) {
     // TODO we should calculate the checksum of index settings and compare it with a value stored in index _meta tags
     // in case that they not match (settings changed) we should drop the index, recreate it and re-index all components
     IndicesAdminClient indices = indicesAdminClient();
@@ -216,7 +242,6 @@ public class ElasticSearchIndexServiceImpl
         throw new UncheckedIOException(e);
       }
     }
-    repositoryIndexNames.put(repository.getName(), indexName);
   }
 
   @Override
@@ -227,6 +252,11 @@ public class ElasticSearchIndexServiceImpl
       log.debug("Removing index of {}", repository);
       deleteIndex(indexName);
     }
+    String shadowIndexName = shadowIndexNames.remove(repository.getName());
+    if (shadowIndexName != null) {
+      shadowIndexDeletes.remove(shadowIndexName);
+      deleteIndex(shadowIndexName);
+    }
   }
 
   private void deleteIndex(final String indexName) {
@@ -234,11 +264,31 @@ public class ElasticSearchIndexServiceImpl
     flushBulkProcessors();
 
     IndicesAdminClient indices = indicesAdminClient();
-    if (indices.prepareExists(indexName).execute().actionGet().isExists()) {
+    List<String> aliasedIndexes = aliasedIndexes(indexName);
+    if (!aliasedIndexes.isEmpty()) {
+      // the repository has been rebuilt before, its index name is an alias of the rebuilt index
+      indices.prepareDelete(aliasedIndexes.toArray(new String[0])).execute().actionGet();
+    }
+    else if (indices.prepareExists(indexName).execute().actionGet().isExists()) {
       indices.prepareDelete(indexName).execute().actionGet();
     }
   }
 
+  /**
+   * Returns the physical indexes the alias refers to, empty if there is no such alias.
+   */
+  private List<String> aliasedIndexes(final String alias) {
+    ImmutableOpenMap<String, List<AliasMetaData>> aliases =
+        indicesAdminClient().prepareGetAliases(alias).execute().actionGet().getAliases();
+    List<String> indexes = new ArrayList<>();
+    aliases.keysIt().forEachRemaining(index -> {
+      if (!aliases.get(index).isEmpty()) {
+        indexes.add(index);
+      }
+    });
+    return indexes;
+  }
+
   @Override
   public void rebuildIndex(final Repository repository) {
     checkNotNull(repository);
@@ -246,8 +296,231 @@ public class ElasticSearchIndexServiceImpl
     if (indexName != null) {
       log.debug("Rebuilding index for {}", repository);
       deleteIndex(indexName);
-      createIndex(repository, indexName);
+      // the current index may have been rebuilt into under another name, searches use the name given by the policy
+      createIndex(repository, indexNamingPolicy.indexName(repository));
+    }
+  }
+
+  @Override
+  public ShadowIndex startShadowRebuild(final Repository repository) {
+    checkNotNull(repository);
+    String repositoryName = repository.getName();
+    checkState(repositoryIndexNames.containsKey(repositoryName), "Repository %s has no index", repositoryName);
+
+    String shadowIndexName =
+        indexNamingPolicy.indexName(repository) + SHADOW_INDEX_SEPARATOR + System.currentTimeMillis();
+    // start recording deletes before any can be sent to the rebuilt index
+    Set<String> deletes = ConcurrentHashMap.newKeySet();
+    boolean started = shadowIndexDeletes.putIfAbsent(shadowIndexName, deletes) == null;
+    if (started && shadowIndexNames.putIfAbsent(repositoryName, shadowIndexName) != null) {
+      shadowIndexDeletes.remove(shadowIndexName, deletes);
+      started = false;
+    }
+    checkState(started, "Index of repository %s is already being rebuilt", repositoryName);
+    try {
+      log.debug("Creating index {} to rebuild {}", shadowIndexName, repository);
+      createPhysicalIndex(repository, shadowIndexName);
+    }
+    catch (RuntimeException e) {
+      shadowIndexNames.remove(repositoryName, shadowIndexName);
+      shadowIndexDeletes.remove(shadowIndexName, deletes);
+      throw e;
+    }
+    return new ShadowIndexImpl(repository, shadowIndexName);
+  }
+
+  /**
+   * Switches the repository over to its rebuilt index.
+   *
+   * Searches address the index by the name from the {@link IndexNamingPolicy}, which after the first rebuild becomes an
+   * alias that is moved atomically from one rebuilt index to the next. Updates address the rebuilt index directly.
+   */
+  private void commitShadowIndex(final Repository repository, final String shadowIndexName) {
+    String repositoryName = repository.getName();
+    String indexName = repositoryIndexNames.get(repositoryName);
+    if (indexName == null) {
+      abortShadowIndex(repository, shadowIndexName); // repository index was deleted meanwhile
+      return;
+    }
+
+    // the rebuild may have put documents that were deleted after it read them, so delete those again once its puts
+    // have landed; deletes from now on reach the rebuilt index directly and no rebuild puts can follow them
+    awaitBulkProcessors();
+    deleteAgain(shadowIndexName);
+
+    String name = indexNamingPolicy.indexName(repository);
+    IndicesAdminClient indices = indicesAdminClient();
+    indices.prepareRefresh(shadowIndexName).execute().actionGet();
+
+    List<String> previousIndexes = aliasedIndexes(name);
+    if (previousIndexes.isEmpty()) {
+      commitFirstShadowIndex(repository, indexName, shadowIndexName, name);
+    }
+    else {
+      // move the alias before anything else, if that fails the repository carries on with its current index
+      IndicesAliasesRequestBuilder aliases = indices.prepareAliases().addAlias(shadowIndexName, name);
+      previousIndexes.forEach(index -> aliases.removeAlias(index, name));
+      try {
+        aliases.execute().actionGet();
+      }
+      catch (RuntimeException e) {
+        log.error("Failed to switch search index of {} to rebuilt index {}, keeping index {}", repositoryName,
+            shadowIndexName, indexName, e);
+        abortShadowIndex(repository, shadowIndexName);
+        throw e;
+      }
+      switchIndex(repositoryName, indexName, shadowIndexName);
+
+      // let updates queued against the previous index land before it goes, so they can't resurrect it
+      awaitBulkProcessors();
+      indices.prepareDelete(previousIndexes.toArray(new String[0])).execute().actionGet();
+    }
+    log.info("Switched {} to rebuilt index {}", repositoryName, shadowIndexName);
+  }
+
+  /**
+   * The first rebuild of a repository has to delete its original index before the name of that index can become an
+   * alias of the rebuilt index, as Elasticsearch cannot do both in one request. Searches fail in between.
+   */
+  private void commitFirstShadowIndex(
+      final Repository repository,
+      final String indexName,
+      final String shadowIndexName,
+      final String name)
+  {
+    String repositoryName = repository.getName();
+    IndicesAdminClient indices = indicesAdminClient();
+
+    // send updates to the rebuilt index alone, and let those queued land, so they can't resurrect the original index
+    switchIndex(repositoryName, indexName, shadowIndexName);
+    awaitBulkProcessors();
+
+    boolean deleted = false;
+    try {
+      if (indices.prepareExists(name).execute().actionGet().isExists()) {
+        indices.prepareDelete(name).execute().actionGet();
+      }
+      deleted = true;
+      indices.prepareAliases().addAlias(shadowIndexName, name).execute().actionGet();
+    }
+    catch (RuntimeException e) {
+      if (deleted) {
+        log.error("Failed to make {} an alias of rebuilt index {}, searches of {} will fail until it is rebuilt again",
+            name, shadowIndexName, repositoryName, e);
+      }
+      else {
+        log.error("Failed to replace search index {} of {} with rebuilt index {}, keeping index {}; changes made " +
+            "while switching may be missing from searches until it is rebuilt again", name, repositoryName,
+            shadowIndexName, name, e);
+        repositoryIndexNames.replace(repositoryName, shadowIndexName, indexName);
+        deleteIndex(shadowIndexName);
+      }
+      throw e;
+    }
+  }
+
+  /**
+   * Sends updates of the repository to its rebuilt index alone.
+   */
+  private void switchIndex(final String repositoryName, final String indexName, final String shadowIndexName) {
+    repositoryIndexNames.replace(repositoryName, indexName, shadowIndexName);
+    shadowIndexNames.remove(repositoryName, shadowIndexName);
+    shadowIndexDeletes.remove(shadowIndexName);
+  }
+
+  /**
+   * Deletes the documents recorded as deleted during the rebuild from the rebuilt index.
+   */
+  private void deleteAgain(final String shadowIndexName) {
+    Set<String> deleted = shadowIndexDeletes.get(shadowIndexName);
+    if (deleted == null || deleted.isEmpty()) {
+      return;
+    }
+    log.debug("Deleting {} documents deleted during the rebuild from index {}", deleted.size(), shadowIndexName);
+    for (List<String> chunk : Iterables.partition(deleted, 1000)) {
+      BulkRequestBuilder bulk = client.get().prepareBulk();
+      chunk.forEach(id -> bulk.add(client.get().prepareDelete(shadowIndexName, TYPE, id)));
+      BulkResponse response = bulk.execute().actionGet();
+      if (response.hasFailures()) {
+        log.warn("Failed to delete documents deleted during the rebuild from index {}: {}", shadowIndexName,
+            response.buildFailureMessage());
+      }
+    }
+  }
+
+  /**
+   * Remembers that the document was deleted from the index, if that index is being rebuilt.
+   */
+  private void recordDelete(final String indexName, final String identifier) {
+    Set<String> deleted = shadowIndexDeletes.get(indexName);
+    if (deleted != null) {
+      deleted.add(identifier);
+    }
+  }
+
+  /**
+   * Drops indexes left over by rebuilds that were interrupted, or failed, before their index became the alias.
+   */
+  private void deleteOrphanedShadowIndexes(final Repository repository, final String name) {
+    IndicesAdminClient indices = indicesAdminClient();
+    String[] candidates = indices.prepareGetIndex()
+        .setIndices(name + SHADOW_INDEX_SEPARATOR + '*')
+        .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+        .execute()
+        .actionGet()
+        .getIndices();
+    if (candidates == null || candidates.length == 0) {
+      return;
     }
+
+    List<String> inUse = new ArrayList<>(aliasedIndexes(name));
+    inUse.add(shadowIndexNames.get(repository.getName()));
+    for (String index : candidates) {
+      String suffix = index.substring(name.length() + 1);
+      if (!inUse.contains(index) && !suffix.isEmpty() && suffix.chars().allMatch(Character::isDigit)) {
+        log.warn("Dropping index {} left over by an unfinished rebuild of {}", index, repository);
+        indices.prepareDelete(index).execute().actionGet();
+      }
+    }
+  }
+
+  private void abortShadowIndex(final Repository repository, final String shadowIndexName) {
+    log.debug("Dropping index {} rebuilt for {}", shadowIndexName, repository);
+    shadowIndexNames.remove(repository.getName(), shadowIndexName);
+    shadowIndexDeletes.remove(shadowIndexName);
+    deleteIndex(shadowIndexName);
+  }
+
+  private void awaitBulkProcessors() {
+    try {
+      for (Future<Void> flush : flushBulkProcessors()) {
+        flush.get();
+      }
+      waitFor(() -> !isUpdateInFlight());
+    }
+    catch (InterruptedException e) { // NOSONAR: rethrown as cancellation
+      Thread.currentThread().interrupt();
+      checkCancellation();
+    }
+    catch (ExecutionException e) {
+      log.warn("Problem flushing index requests", e);
+    }
+  }
+
+  /**
+   * Returns the names of the indexes that updates of the repository go to; these are its current index and any index
+   * it is being rebuilt into.
+   */
+  private List<String> updatedIndexNames(final String repositoryName) {
+    String indexName = repositoryIndexNames.get(repositoryName);
+    if (indexName == null) {
+      return emptyList();
+    }
+    String shadowIndexName = shadowIndexNames.get(repositoryName);
+    if (shadowIndexName == null || shadowIndexName.equals(indexName)) {
+      return singletonList(indexName);
+    }
+    return asList(indexName, shadowIndexName);
   }
 
   @Override
@@ -265,10 +538,11 @@ public class ElasticSearchIndexServiceImpl
     checkNotNull(repository);
     String indexName = indexNamingPolicy.indexName(repository);
 
-    IndexStats indexStats = indicesAdminClient().prepareStats(indexName).get().getIndex(indexName);
+    // totalled across indexes as the name may be an alias of a rebuilt index
+    CommonStats indexStats = indicesAdminClient().prepareStats(indexName).get().getTotal();
     long count = 0;
-    if (indexStats != null) {
-      count = indexStats.getTotal().getDocs().getCount();
+    if (indexStats != null && indexStats.getDocs() != null) {
+      count = indexStats.getDocs().getCount();
     }
 
     boolean isEmpty = count == 0;
@@ -281,10 +555,12 @@ public class ElasticSearchIndexServiceImpl
     checkNotNull(repository);
     checkNotNull(identifier);
     checkNotNull(json);
-    String indexName = repositoryIndexNames.get(repository.getName());
-    if (indexName == null) {
-      return;
+    for (String indexName : updatedIndexNames(repository.getName())) {
+      put(indexName, repository, identifier, json);
     }
+  }
+
+  private void put(final String indexName, final Repository repository, final String identifier, final String json) {
     updateCount.getAndIncrement();
     log.debug("Adding to index document {} from {}: {}", identifier, repository, json);
     client.get().prepareIndex(indexName, TYPE, identifier).setSource(json).execute(
@@ -310,11 +586,19 @@ public class ElasticSearchIndexServiceImpl
   {
     checkNotNull(repository);
     checkNotNull(components);
-    String indexName = repositoryIndexNames.get(repository.getName());
-    if (indexName == null) {
+    List<String> indexNames = updatedIndexNames(repository.getName());
+    if (indexNames.isEmpty()) {
       return emptyList();
     }
+    return bulkPut(indexNames, repository, components, identifierProducer, jsonDocumentProducer);
+  }
 
+  private <T> List<Future<Void>> bulkPut(final List<String> indexNames,
+                                         final Repository repository,
+                                         final Iterable<T> components,
+                                         final Function<T, String> identifierProducer,
+                                         final Function<T, String> jsonDocumentProducer)
+  {
     final Entry<BulkProcessor, ExecutorService> bulkProcessorToExecutorPair = pickABulkProcessor();
     final BulkProcessor bulkProcessor = bulkProcessorToExecutorPair.getKey();
     final ExecutorService executorService = bulkProcessorToExecutorPair.getValue();
@@ -329,8 +613,10 @@ public class ElasticSearchIndexServiceImpl
         updateCount.getAndIncrement();
 
         log.debug("Bulk adding to index document {} from {}: {}", identifier, repository, json);
-        futures.add(executorService.submit(
-            new BulkProcessorUpdater<>(bulkProcessor, createIndexRequest(indexName, identifier, json))));
+        for (String indexName : indexNames) {
+          futures.add(executorService.submit(
+              new BulkProcessorUpdater<>(bulkProcessor, createIndexRequest(indexName, identifier, json))));
+        }
       }
     });
 
@@ -403,11 +689,14 @@ public class ElasticSearchIndexServiceImpl
   public void delete(final Repository repository, final String identifier) {
     checkNotNull(repository);
     checkNotNull(identifier);
-    String indexName = repositoryIndexNames.get(repository.getName());
-    if (indexName == null) {
-      return;
+    for (String indexName : updatedIndexNames(repository.getName())) {
+      delete(indexName, repository, identifier);
     }
+  }
+
+  private void delete(final String indexName, final Repository repository, final String identifier) {
     log.debug("Removing from index document {} from {}", identifier, repository);
+    recordDelete(indexName, identifier);
     client.get().prepareDelete(indexName, TYPE, identifier).execute(new ActionListener<DeleteResponse>() {
       @Override
       public void onResponse(final DeleteResponse deleteResponse) {
@@ -430,15 +719,18 @@ public class ElasticSearchIndexServiceImpl
     final BulkProcessor bulkProcessor = bulkProcessorToExecutorPair.getKey();
     final ExecutorService executorService = bulkProcessorToExecutorPair.getValue();
     if (repository != null) {
-      String indexName = repositoryIndexNames.get(repository.getName());
-      if (indexName == null) {
+      List<String> indexNames = updatedIndexNames(repository.getName());
+      if (indexNames.isEmpty()) {
         return; // index has gone, nothing to delete
       }
 
       identifiers.forEach(id -> {
         log.debug("Bulk removing from index document {} from {}", id, repository);
-        final DeleteRequest deleteRequest = client.get().prepareDelete(indexName, TYPE, id).request();
-        executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, deleteRequest));  //NOSONAR
+        for (String indexName : indexNames) {
+          recordDelete(indexName, id);
+          final DeleteRequest deleteRequest = client.get().prepareDelete(indexName, TYPE, id).request();
+          executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, deleteRequest));  //NOSONAR
+        }
       });
     }
     else {
@@ -452,12 +744,13 @@ public class ElasticSearchIndexServiceImpl
             .prepareSearch("_all")
             .setFetchSource(false)
             .setQuery(idsQuery(TYPE).ids(chunk))
-            .setSize(chunk.size())
+            .setSize(shadowIndexNames.isEmpty() ? chunk.size() : 2 * chunk.size()) // rebuilds index twice
             .execute()
             .actionGet();
 
         toDelete.getHits().forEach(hit -> {
           log.debug("Bulk removing from index document {} from {}", hit.getId(), hit.index());
+          recordDelete(hit.index(), hit.getId());
           final DeleteRequest request = client.get().prepareDelete(hit.index(), TYPE, hit.getId()).request();
           executorService.submit(new BulkProcessorUpdater<>(bulkProcessor, request)); //NOSONAR
         });
@@ -578,4 +871,49 @@ public class ElasticSearchIndexServiceImpl
   private IndicesAdminClient indicesAdminClient() {
     return client.get().admin().indices();
   }
+
+  private class ShadowIndexImpl
+      implements ShadowIndex
+  {
+    private final Repository repository;
+
+    private final String indexName;
+
+    private boolean done;
+
+    ShadowIndexImpl(final Repository repository, final String indexName) {
+      this.repository = repository;
+      this.indexName = indexName;
+    }
+
+    @Override
+    public String getIndexName() {
+      return indexName;
+    }
+
+    @Override
+    public <T> List<Future<Void>> bulkPut(final Iterable<T> components,
+                                          final Function<T, String> identifierProducer,
+                                          final Function<T, String> jsonDocumentProducer)
+    {
+      checkState(!done, "Rebuild of %s has finished", repository.getName());
+      return ElasticSearchIndexServiceImpl.this.bulkPut(singletonList(indexName), repository, components,
+          identifierProducer, jsonDocumentProducer);
+    }
+
+    @Override
+    public synchronized void commit() {
+      checkState(!done, "Rebuild of %s has finished", repository.getName());
+      done = true;
+      commitShadowIndex(repository, indexName);
+    }
+
+    @Override
+    public synchronized void abort() {
+      if (!done) {
+        done = true;
+        abortShadowIndex(repository, indexName);
+      }
+    }
+  }
 }
@@ -0,0 +1,49 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.index;
+
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * New search index being built for a repository alongside its current index, which keeps serving searches until the
+ * new index is {@link #commit() committed}.
+ *
+ * @see ElasticSearchIndexService#startShadowRebuild
+ * @since 3.70
+ */
+public interface ShadowIndex
+{
+  /**
+   * Name of the physical index being built.
+   */
+  String getIndexName();
+
+  /**
+   * Bulk adds documents to the new index only, as {@link ElasticSearchIndexService#bulkPut} does for current indexes.
+   */
+  <T> List<Future<Void>> bulkPut(Iterable<T> components,
+                                 Function<T, String> identifierProducer,
+                                 Function<T, String> jsonDocumentProducer);
+
+  /**
+   * Switches the repository over to the new index and drops the old one.
+   */
+  void commit();
+
+  /**
+   * Drops the new index, leaving the repository on its current index. Does nothing once committed.
+   */
+  void abort();
+}
@@ -35,7 +35,7 @@ import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.search.index.IndexNamingPolicy;
 import org.sonatype.nexus.repository.search.index.SearchIndexFacet;
 import org.sonatype.nexus.repository.search.query.SearchSubjectHelper.SubjectRegistration;
-import org.sonatype.nexus.repository.search.selector.ContentAuthPluginScriptFactory;
+import org.sonatype.nexus.repository.search.selector.ContentAuthFilterFactory;
 import org.sonatype.nexus.repository.security.RepositoryViewPermission;
 import org.sonatype.nexus.security.SecurityHelper;
 
@@ -66,7 +66,7 @@ import org.elasticsearch.search.sort.SortBuilder;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.joining;
-import static org.elasticsearch.index.query.QueryBuilders.scriptQuery;
+import static java.util.stream.Collectors.toList;
 import static org.sonatype.nexus.repository.search.index.SearchConstants.TYPE;
 import static org.sonatype.nexus.repository.search.query.RepositoryQueryBuilder.repositoryQuery;
 import static org.sonatype.nexus.security.BreadActions.BROWSE;
@@ -95,6 +95,8 @@ public class ElasticSearchQueryServiceImpl
 
   private final IndexNamingPolicy indexNamingPolicy;
 
+  private final ContentAuthFilterFactory contentAuthFilterFactory;
+
   private final boolean profile;
 
   private static final int MAX_ELASTIC_RESPONSE_SIZE = 10000;
@@ -105,6 +107,7 @@ public class ElasticSearchQueryServiceImpl
    * @param securityHelper the securityHelper
    * @param searchSubjectHelper the searchSubjectHelper
    * @param indexNamingPolicy the index naming policy
+   * @param contentAuthFilterFactory the factory of filters limiting hits to readable content
    * @param profile whether or not to profile elasticsearch queries (default: false)
    */
   @Inject
@@ -113,6 +116,7 @@ public class ElasticSearchQueryServiceImpl
                                        final SecurityHelper securityHelper,
                                        final SearchSubjectHelper searchSubjectHelper,
                                        final IndexNamingPolicy indexNamingPolicy,
+                                       final ContentAuthFilterFactory contentAuthFilterFactory,
                                        @Named("${nexus.elasticsearch.profile:-false}") final boolean profile)
   {
     this.client = checkNotNull(client);
@@ -120,6 +124,7 @@ public class ElasticSearchQueryServiceImpl
     this.securityHelper = checkNotNull(securityHelper);
     this.searchSubjectHelper = checkNotNull(searchSubjectHelper);
     this.indexNamingPolicy = checkNotNull(indexNamingPolicy);
+    this.contentAuthFilterFactory = checkNotNull(contentAuthFilterFactory);
     this.profile = profile;
   }
 
@@ -130,12 +135,12 @@ public class ElasticSearchQueryServiceImpl
     }
 
     RepositoryQueryBuilder repoQuery = repositoryQuery(query);
-    final String[] searchableIndexes = getSearchableIndexes(repoQuery);
-    if (searchableIndexes.length == 0) {
+    final List<Repository> searchableRepositories = getSearchableRepositories(repoQuery);
+    if (searchableRepositories.isEmpty()) {
       return emptyList();
     }
 
-    return () -> new SearchHitIterator(query, searchableIndexes, repoQuery.skipContentSelectors);
+    return () -> new SearchHitIterator(query, searchableRepositories, repoQuery.skipContentSelectors);
   }
 
   @Override
@@ -145,17 +150,18 @@ public class ElasticSearchQueryServiceImpl
     }
 
     RepositoryQueryBuilder repoQuery = repositoryQuery(query);
-    final String[] searchableIndexes = getSearchableIndexes(repoQuery);
-    if (searchableIndexes.length == 0) {
+    final List<Repository> searchableRepositories = getSearchableRepositories(repoQuery);
+    if (searchableRepositories.isEmpty()) {
       return EMPTY_SEARCH_RESPONSE;
     }
+    final String[] searchableIndexes = indexNames(searchableRepositories);
 
     if (repoQuery.skipContentSelectors) {
       return executeSearch(repoQuery, searchableIndexes, from, size, null);
     }
 
     try (SubjectRegistration registration = searchSubjectHelper.register(securityHelper.subject())) {
-      QueryBuilder selectorFilter = scriptQuery(ContentAuthPluginScriptFactory.newScript(registration.getId()));
+      QueryBuilder selectorFilter = contentAuthFilterFactory.newFilter(searchableRepositories, registration.getId());
       return executeSearch(repoQuery, searchableIndexes, from, size, selectorFilter);
     }
   }
@@ -169,17 +175,18 @@ public class ElasticSearchQueryServiceImpl
     checkNotNull(aggregations);
 
     RepositoryQueryBuilder repoQuery = repositoryQuery(query);
-    final String[] searchableIndexes = getSearchableIndexes(repoQuery);
-    if (searchableIndexes.length == 0) {
+    final List<Repository> searchableRepositories = getSearchableRepositories(repoQuery);
+    if (searchableRepositories.isEmpty()) {
       return EMPTY_SEARCH_RESPONSE;
     }
+    final String[] searchableIndexes = indexNames(searchableRepositories);
 
     if (repoQuery.skipContentSelectors) {
       return executeSearch(repoQuery, searchableIndexes, aggregations, null);
     }
 
     try (SubjectRegistration registration = searchSubjectHelper.register(securityHelper.subject())) {
-      QueryBuilder selectorFilter = scriptQuery(ContentAuthPluginScriptFactory.newScript(registration.getId()));
+      QueryBuilder selectorFilter = contentAuthFilterFactory.newFilter(searchableRepositories, registration.getId());
       return executeSearch(repoQuery, searchableIndexes, aggregations, selectorFilter);
     }
   }
@@ -266,12 +273,12 @@ public class ElasticSearchQueryServiceImpl
     }
 
     RepositoryQueryBuilder repoQuery = repositoryQuery(query);
-    final String[] searchableIndexes = getSearchableIndexes(repoQuery);
-    if (searchableIndexes.length == 0) {
+    final List<Repository> searchableRepositories = getSearchableRepositories(repoQuery);
+    if (searchableRepositories.isEmpty()) {
       return 0;
     }
 
-    SearchRequestBuilder searchRequestBuilder = client.get().prepareSearch(searchableIndexes)
+    SearchRequestBuilder searchRequestBuilder = client.get().prepareSearch(indexNames(searchableRepositories))
         .setTypes(TYPE)
         .setQuery(repoQuery)
         .setFrom(0)
@@ -282,8 +289,10 @@ public class ElasticSearchQueryServiceImpl
     }
 
     try (SubjectRegistration registration = searchSubjectHelper.register(securityHelper.subject())) {
-      QueryBuilder selectorFilter = scriptQuery(ContentAuthPluginScriptFactory.newScript(registration.getId()));
-      searchRequestBuilder.setPostFilter(selectorFilter);
+      QueryBuilder selectorFilter = contentAuthFilterFactory.newFilter(searchableRepositories, registration.getId());
+      if (selectorFilter != null) {
+        searchRequestBuilder.setPostFilter(selectorFilter);
+      }
       return searchRequestBuilder.execute().actionGet().getHits().totalHits();
     }
   }
@@ -315,6 +324,16 @@ public class ElasticSearchQueryServiceImpl
 
   @VisibleForTesting
   String[] getSearchableIndexes(final RepositoryQueryBuilder repoQuery) {
+    return indexNames(getSearchableRepositories(repoQuery));
+  }
+
+  private String[] indexNames(final List<Repository> repositories) {
+    return repositories.stream()
+        .map(indexNamingPolicy::indexName)
+        .toArray(String[]::new);
+  }
+
+  private List<Repository> getSearchableRepositories(final RepositoryQueryBuilder repoQuery) {
     Stream<Repository> repositories = StreamSupport
         .stream(repositoryManager.browse().spliterator(), false)
         .filter(ElasticSearchQueryServiceImpl::repoOnlineAndHasSearchIndexFacet);
@@ -330,9 +349,7 @@ public class ElasticSearchQueryServiceImpl
           .filter(r -> securityHelper.allPermitted(new RepositoryViewPermission(r, BROWSE)));
     }
 
-    return repositories
-        .map(indexNamingPolicy::indexName)
-        .toArray(String[]::new);
+    return repositories.collect(toList());
   }
 
   private static boolean repoOnlineAndHasSearchIndexFacet(final Repository repo) {
@@ -367,7 +384,7 @@ public class ElasticSearchQueryServiceImpl
   {
     private final QueryBuilder query;
 
-    private final String[] searchableIndexes;
+    private final List<Repository> searchableRepositories;
 
     private final boolean skipPermissionCheck;
 
@@ -378,11 +395,11 @@ public class ElasticSearchQueryServiceImpl
     private boolean noMoreHits = false;
 
     SearchHitIterator(final QueryBuilder query,
-                      final String[] searchableIndexes, // NOSONAR
+                      final List<Repository> searchableRepositories,
                       final boolean skipPermissionCheck)
     {
       this.query = query;
-      this.searchableIndexes = searchableIndexes;
+      this.searchableRepositories = searchableRepositories;
       this.skipPermissionCheck = skipPermissionCheck;
     }
 
@@ -392,7 +409,7 @@ public class ElasticSearchQueryServiceImpl
         return false;
       }
       if (response == null) {
-        SearchRequestBuilder builder = client.get().prepareSearch(searchableIndexes)
+        SearchRequestBuilder builder = client.get().prepareSearch(indexNames(searchableRepositories))
             .setTypes(TYPE)
             .setQuery(query)
             .setScroll(new TimeValue(1, TimeUnit.MINUTES))
@@ -400,8 +417,11 @@ public class ElasticSearchQueryServiceImpl
             .setProfile(profile);
         if (!skipPermissionCheck) {
           try (SubjectRegistration registration = searchSubjectHelper.register(securityHelper.subject())) {
-            QueryBuilder selectorFilter = scriptQuery(ContentAuthPluginScriptFactory.newScript(registration.getId()));
-            builder.setPostFilter(selectorFilter);
+            QueryBuilder selectorFilter =
+                contentAuthFilterFactory.newFilter(searchableRepositories, registration.getId());
+            if (selectorFilter != null) {
+              builder.setPostFilter(selectorFilter);
+            }
             response = builder.execute().actionGet();
           }
         }
@@ -0,0 +1,222 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.selector;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.search.selector.CselToQuery.SelectorQuery;
+import org.sonatype.nexus.repository.security.RepositoryContentSelectorPermission;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.selector.SelectorConfiguration;
+import org.sonatype.nexus.selector.SelectorEvaluationException;
+import org.sonatype.nexus.selector.SelectorManager;
+
+import org.apache.shiro.authz.Permission;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Collections.singletonList;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.existsQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.scriptQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.REPOSITORY_NAME;
+import static org.sonatype.nexus.repository.search.selector.CselToQuery.ASSET_NAME;
+import static org.sonatype.nexus.security.BreadActions.READ;
+
+/**
+ * Builds the filter that limits search hits to content the current user can read.
+ *
+ * Hits from repositories the user can read in full are accepted as-is, while content selectors granting access to the
+ * rest are translated into native queries. The {@link ContentAuthPluginScript} is only used to check the hits of
+ * selectors that cannot be translated exactly, instead of every hit in the searched indexes.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+public class ContentAuthFilterFactory
+    extends ComponentSupport
+{
+  private final RepositoryManager repositoryManager;
+
+  private final SecurityHelper securityHelper;
+
+  private final SelectorManager selectorManager;
+
+  private final boolean translateSelectors;
+
+  private final CselToQuery cselToQuery = new CselToQuery();
+
+  @Inject
+  public ContentAuthFilterFactory(
+      final RepositoryManager repositoryManager,
+      final SecurityHelper securityHelper,
+      final SelectorManager selectorManager,
+      @Named("${nexus.elasticsearch.contentAuth.translateSelectors:-true}") final boolean translateSelectors)
+  {
+    this.repositoryManager = checkNotNull(repositoryManager);
+    this.securityHelper = checkNotNull(securityHelper);
+    this.selectorManager = checkNotNull(selectorManager);
+    this.translateSelectors = translateSelectors;
+  }
+
+  /**
+   * Returns the filter for hits from the given repositories.
+   *
+   * @param repositories the repositories being searched
+   * @param subjectId    registration of the current subject, for use by the script
+   * @return the filter to apply; {@code null} if the current user can read everything in these repositories
+   */
+  @Nullable
+  public QueryBuilder newFilter(final Collection<Repository> repositories, final String subjectId) {
+    QueryBuilder script = scriptQuery(ContentAuthPluginScriptFactory.newScript(subjectId));
+    if (!translateSelectors) {
+      return script;
+    }
+
+    // permissions granted via a containing group also apply to the member
+    Map<Repository, Set<String>> repositoryNames = new LinkedHashMap<>();
+    Set<String> formats = new HashSet<>();
+    for (Repository repository : repositories) {
+      Set<String> names = new HashSet<>(repositoryManager.findContainingGroups(repository.getName()));
+      names.add(repository.getName());
+      repositoryNames.put(repository, names);
+      formats.add(repository.getFormat().getValue());
+    }
+
+    List<SelectorConfiguration> selectors = null;
+    Map<String, Optional<SelectorQuery>> translated = new HashMap<>();
+
+    BoolQueryBuilder filter = boolQuery().minimumNumberShouldMatch(1);
+    boolean restricted = false;
+    for (Map.Entry<Repository, Set<String>> entry : repositoryNames.entrySet()) {
+      String repositoryName = entry.getKey().getName();
+      String format = entry.getKey().getFormat().getValue();
+      Set<String> names = entry.getValue();
+
+      if (isViewPermitted(names, format)) {
+        filter.should(termQuery(REPOSITORY_NAME, repositoryName));
+        continue;
+      }
+
+      restricted = true;
+      if (selectors == null) {
+        Set<String> allNames = new HashSet<>();
+        repositoryNames.values().forEach(allNames::addAll);
+        selectors = selectorManager.browseActive(allNames, formats);
+      }
+
+      QueryBuilder selectorFilter = selectorFilter(names, format, selectors, translated, script);
+      if (selectorFilter != null) {
+        // the script rejects components without assets, so the translated queries must too
+        filter.should(boolQuery()
+            .must(termQuery(REPOSITORY_NAME, repositoryName))
+            .must(existsQuery(ASSET_NAME))
+            .must(selectorFilter));
+      }
+    }
+
+    if (!restricted) {
+      return null;
+    }
+    return filter.hasClauses() ? filter : boolQuery().mustNot(matchAllQuery());
+  }
+
+  /**
+   * Returns the filter for the content selectors granting access to a repository; {@code null} if there are none.
+   */
+  @Nullable
+  private QueryBuilder selectorFilter(
+      final Set<String> repositoryNames,
+      final String format,
+      final List<SelectorConfiguration> selectors,
+      final Map<String, Optional<SelectorQuery>> translated,
+      final QueryBuilder script)
+  {
+    BoolQueryBuilder exact = boolQuery().minimumNumberShouldMatch(1);
+    BoolQueryBuilder candidates = boolQuery().minimumNumberShouldMatch(1);
+    boolean checkAll = false;
+
+    for (SelectorConfiguration selector : selectors) {
+      if (!isContentPermitted(repositoryNames, format, selector)) {
+        continue;
+      }
+      Optional<SelectorQuery> query = translated.computeIfAbsent(selector.getName(), name -> translate(selector));
+      if (!query.isPresent()) {
+        checkAll = true;
+      }
+      else if (query.get().isExact()) {
+        exact.should(query.get().getQuery());
+      }
+      else {
+        candidates.should(query.get().getQuery());
+      }
+    }
+
+    if (checkAll) {
+      exact.should(script);
+    }
+    else if (candidates.hasClauses()) {
+      exact.should(boolQuery().must(candidates).must(script));
+    }
+    return exact.hasClauses() ? exact : null;
+  }
+
+  private Optional<SelectorQuery> translate(final SelectorConfiguration selector) {
+    SelectorQuery query = new SelectorQuery();
+    try {
+      selectorManager.toSql(selector, query, cselToQuery);
+      return Optional.of(query);
+    }
+    catch (SelectorEvaluationException e) {
+      log.debug("Content selector {} will be checked by script: {}", selector.getName(), e.getMessage(),
+          log.isTraceEnabled() ? e : null);
+      return Optional.empty();
+    }
+  }
+
+  private boolean isViewPermitted(final Set<String> repositoryNames, final String format) {
+    return securityHelper.anyPermitted(repositoryNames.stream()
+        .map(name -> new RepositoryViewPermission(format, name, READ))
+        .toArray(Permission[]::new));
+  }
+
+  private boolean isContentPermitted(
+      final Set<String> repositoryNames,
+      final String format,
+      final SelectorConfiguration selector)
+  {
+    return securityHelper.anyPermitted(repositoryNames.stream()
+        .map(name -> new RepositoryContentSelectorPermission(selector.getName(), format, name, singletonList(READ)))
+        .toArray(Permission[]::new));
+  }
+}
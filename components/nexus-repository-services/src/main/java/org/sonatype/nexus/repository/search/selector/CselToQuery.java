@@ -0,0 +1,246 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.selector;
+
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.selector.CselToSql;
+import org.sonatype.nexus.selector.ParserVisitorSupport;
+
+import org.apache.commons.jexl3.parser.ASTAndNode;
+import org.apache.commons.jexl3.parser.ASTEQNode;
+import org.apache.commons.jexl3.parser.ASTERNode;
+import org.apache.commons.jexl3.parser.ASTIdentifier;
+import org.apache.commons.jexl3.parser.ASTJexlScript;
+import org.apache.commons.jexl3.parser.ASTNENode;
+import org.apache.commons.jexl3.parser.ASTOrNode;
+import org.apache.commons.jexl3.parser.ASTReferenceExpression;
+import org.apache.commons.jexl3.parser.ASTSWNode;
+import org.apache.commons.jexl3.parser.ASTStringLiteral;
+import org.apache.commons.jexl3.parser.JexlNode;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
+import static org.elasticsearch.index.query.QueryBuilders.regexpQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.sonatype.nexus.repository.search.index.SearchConstants.FORMAT;
+
+/**
+ * Walks the script, transforming CSEL expressions into Elasticsearch queries over the fields of search documents.
+ *
+ * Search documents hold the paths of every asset in the component under {@value #ASSET_NAME}, while the
+ * {@link ContentAuthPluginScript} only checks the path of the first asset. Queries that involve {@code path} can
+ * therefore match more components than the selector does, and are marked as inexact so the script can check the
+ * candidates they match. Expressions using other variables or negating a path cannot be represented safely and are
+ * rejected.
+ *
+ * @since 3.70
+ */
+class CselToQuery
+    extends ParserVisitorSupport
+    implements CselToSql<CselToQuery.SelectorQuery>
+{
+  static final String ASSET_NAME = "assets.name";
+
+  private static final String PATH = "path";
+
+  /**
+   * Java regular expressions that only use syntax with the same meaning in Lucene regular expressions.
+   */
+  private static final Pattern PORTABLE_REGEX = Pattern.compile("([\\w/.*+?|()\\[\\]^-]|\\\\[^\\w])*");
+
+  /**
+   * Accumulates the query translated from a selector.
+   */
+  static class SelectorQuery
+  {
+    private QueryBuilder query;
+
+    private boolean exact = true;
+
+    /**
+     * Returns the translated query; {@code null} if nothing has been translated yet.
+     */
+    @Nullable
+    QueryBuilder getQuery() {
+      return query;
+    }
+
+    /**
+     * Returns {@code true} if the query matches exactly the same components as the selector, otherwise the query may
+     * match more components and each of these must still be checked against the selector.
+     */
+    boolean isExact() {
+      return exact;
+    }
+  }
+
+  @Override
+  public void transformCselToSql(final ASTJexlScript script, final SelectorQuery builder) {
+    if (script.jjtGetNumChildren() != 1) {
+      throw new UnsupportedOperationException("Expected a single expression");
+    }
+    builder.query = (QueryBuilder) script.jjtGetChild(0).jjtAccept(this, builder);
+  }
+
+  @Override
+  protected Object doVisit(final JexlNode node, final Object data) {
+    throw new UnsupportedOperationException("Unexpected node " + node.getClass().getSimpleName());
+  }
+
+  /**
+   * Transform `a || b` into a query matching either
+   */
+  @Override
+  protected Object visit(final ASTOrNode node, final Object data) {
+    BoolQueryBuilder query = boolQuery().minimumNumberShouldMatch(1);
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      query.should((QueryBuilder) node.jjtGetChild(i).jjtAccept(this, data));
+    }
+    return query;
+  }
+
+  /**
+   * Transform `a && b` into a query matching both
+   */
+  @Override
+  protected Object visit(final ASTAndNode node, final Object data) {
+    BoolQueryBuilder query = boolQuery();
+    for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+      query.must((QueryBuilder) node.jjtGetChild(i).jjtAccept(this, data));
+    }
+    return query;
+  }
+
+  /**
+   * Apply `( expression )`
+   */
+  @Override
+  protected Object visit(final ASTReferenceExpression node, final Object data) {
+    if (node.jjtGetNumChildren() != 1) {
+      throw new UnsupportedOperationException("Unexpected grouping");
+    }
+    return node.jjtGetChild(0).jjtAccept(this, data);
+  }
+
+  /**
+   * Transform `a == "something"` into a term query
+   */
+  @Override
+  protected Object visit(final ASTEQNode node, final Object data) {
+    String field = field(node, (SelectorQuery) data);
+    return termQuery(field, literal(node));
+  }
+
+  /**
+   * Transform `format != "something"` into a negated term query
+   */
+  @Override
+  protected Object visit(final ASTNENode node, final Object data) {
+    String field = field(node, (SelectorQuery) data);
+    if (!FORMAT.equals(field)) {
+      // a component with any other asset path would be excluded, even if its first asset is selected
+      throw new UnsupportedOperationException("Cannot negate " + field);
+    }
+    return boolQuery().mustNot(termQuery(field, literal(node)));
+  }
+
+  /**
+   * Transform `a =^ "something"` into a prefix query
+   */
+  @Override
+  protected Object visit(final ASTSWNode node, final Object data) {
+    String field = field(node, (SelectorQuery) data);
+    return prefixQuery(field, literal(node));
+  }
+
+  /**
+   * Transform `a =~ "something"` into a regexp query, or a query matching every candidate when the expression uses
+   * syntax which Lucene interprets differently. Either way the selector must check the candidates.
+   */
+  @Override
+  protected Object visit(final ASTERNode node, final Object data) {
+    String field = field(node, (SelectorQuery) data);
+    ((SelectorQuery) data).exact = false;
+
+    String pattern = literal(node);
+    if (pattern.startsWith("^")) {
+      pattern = pattern.substring(1);
+    }
+    if (pattern.endsWith("$") && !pattern.endsWith("\\$")) {
+      pattern = pattern.substring(0, pattern.length() - 1);
+    }
+    if (PORTABLE_REGEX.matcher(pattern).matches() && !pattern.contains("(?") && !hasAnchor(pattern)) {
+      return regexpQuery(field, pattern);
+    }
+    return matchAllQuery();
+  }
+
+  /**
+   * Checks for anchors, such as in {@code a|^b}, which Lucene would match as literal characters. A caret negating a
+   * character class, or escaped, is not an anchor.
+   */
+  private static boolean hasAnchor(final String pattern) {
+    boolean classStart = false;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c == '\\') {
+        i++;
+      }
+      else if (c == '$' || (c == '^' && !classStart)) {
+        return true;
+      }
+      classStart = c == '[';
+    }
+    return false;
+  }
+
+  /**
+   * Returns the search document field of the variable in the given comparison.
+   */
+  private static String field(final JexlNode node, final SelectorQuery selectorQuery) {
+    JexlNode left = node.jjtGetChild(LEFT);
+    JexlNode right = node.jjtGetChild(RIGHT);
+    JexlNode variable = left instanceof ASTStringLiteral ? right : left;
+    if (!(variable instanceof ASTIdentifier)) {
+      throw new UnsupportedOperationException("Expected identifier");
+    }
+    String name = ((ASTIdentifier) variable).getName();
+    if (FORMAT.equals(name)) {
+      return FORMAT;
+    }
+    if (PATH.equals(name)) {
+      selectorQuery.exact = false;
+      return ASSET_NAME;
+    }
+    throw new UnsupportedOperationException("Unsupported variable " + name);
+  }
+
+  /**
+   * Returns the string literal in the given comparison.
+   */
+  private static String literal(final JexlNode node) {
+    JexlNode left = node.jjtGetChild(LEFT);
+    JexlNode right = node.jjtGetChild(RIGHT);
+    JexlNode literal = left instanceof ASTStringLiteral ? left : right;
+    if (!(literal instanceof ASTStringLiteral)) {
+      throw new UnsupportedOperationException("Expected string literal");
+    }
+    return ((ASTStringLiteral) literal).getLiteral();
+  }
+}
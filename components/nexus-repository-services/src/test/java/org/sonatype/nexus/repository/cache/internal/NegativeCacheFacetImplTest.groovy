@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.cache.internal
 import javax.cache.Cache
 import javax.cache.configuration.MutableConfiguration
 
+import org.sonatype.goodies.common.ByteSize
 import org.sonatype.goodies.testsupport.TestSupport
 import org.sonatype.nexus.cache.CacheHelper
 import org.sonatype.nexus.common.event.EventManager
@@ -24,6 +25,7 @@ import org.sonatype.nexus.repository.config.ConfigurationFacet
 import org.sonatype.nexus.repository.http.HttpStatus
 import org.sonatype.nexus.repository.view.Status
 
+import com.codahale.metrics.MetricRegistry
 import org.junit.Before
 import org.junit.Test
 import org.mockito.ArgumentCaptor
@@ -55,12 +57,15 @@ class NegativeCacheFacetImplTest
 
   private NegativeCacheFacetImpl.Config config
 
+  private MetricRegistry metricRegistry
+
   @Before
   void setUp() {
     cacheHelper = mock(CacheHelper)
     cache = mock(Cache)
     when(cacheHelper.maybeCreateCache(any(), any(), any(), any())).thenReturn(cache)
-    underTest = new NegativeCacheFacetImpl(cacheHelper)
+    metricRegistry = new MetricRegistry()
+    underTest = new NegativeCacheFacetImpl(cacheHelper, metricRegistry, 100, ByteSize.parse('1mb'))
     underTest.installDependencies(mock(EventManager))
     key = mock(NegativeCacheKey)
     status = Status.failure(HttpStatus.NOT_FOUND, '404')
@@ -292,6 +297,76 @@ class NegativeCacheFacetImplTest
     verify(cache).remove(key2)
   }
 
+  /**
+   * Given:
+   * - configuration present
+   * - enabled = true
+   * - cached path entries
+   * Then:
+   * - invalidate subset of a folder removes only the paths under it, without scanning the cache
+   */
+  @Test
+  void 'invalidate subset of folder uses path index'() {
+    config.enabled = true
+    underTest.attach(repository)
+    underTest.init()
+    underTest.start()
+    underTest.put(new PathNegativeCacheKey('/a/b/1'), status)
+    underTest.put(new PathNegativeCacheKey('/a/b/2'), status)
+    underTest.put(new PathNegativeCacheKey('/a/bc'), status)
+    underTest.put(new PathNegativeCacheKey('/a/c/1'), status)
+    assert metricRegistry.gauges['nexus.negativeCache.test.indexedEntries'].value == 4
+
+    underTest.invalidateSubset(new PathNegativeCacheKey('/a/b/'))
+
+    verify(cache).remove(new PathNegativeCacheKey('/a/b/'))
+    verify(cache).remove(new PathNegativeCacheKey('/a/b/1'))
+    verify(cache).remove(new PathNegativeCacheKey('/a/b/2'))
+    verify(cache, never()).remove(new PathNegativeCacheKey('/a/bc'))
+    verify(cache, never()).remove(new PathNegativeCacheKey('/a/c/1'))
+    verify(cache, never()).iterator()
+    assert underTest.pathIndex.size() == 2
+    assert metricRegistry.counter('nexus.negativeCache.test.fullScans').count == 0
+  }
+
+  /**
+   * Given:
+   * - configuration present
+   * - enabled = true
+   * - more cached paths than the index can hold
+   * Then:
+   * - invalidate subset falls back to scanning the cache and rebuilds the index from the remaining entries
+   */
+  @Test
+  void 'invalidate subset scans cache and rebuilds index when index is full'() {
+    underTest = new NegativeCacheFacetImpl(cacheHelper, metricRegistry, 2, ByteSize.parse('1mb'))
+    underTest.installDependencies(mock(EventManager))
+    config.enabled = true
+    underTest.attach(repository)
+    underTest.init()
+    underTest.start()
+    def child = new PathNegativeCacheKey('/a/1')
+    def other = new PathNegativeCacheKey('/b/1')
+    underTest.put(child, status)
+    underTest.put(other, status)
+    underTest.put(new PathNegativeCacheKey('/c/1'), status)
+    assert !underTest.pathIndex.complete
+
+    Cache.Entry<NegativeCacheKey, Status> entry1 = mock(Cache.Entry)
+    Cache.Entry<NegativeCacheKey, Status> entry2 = mock(Cache.Entry)
+    when(entry1.key).thenReturn(child)
+    when(entry2.key).thenReturn(other)
+    mockIterable(cache, entry1, entry2)
+
+    underTest.invalidateSubset(new PathNegativeCacheKey('/a/'))
+
+    verify(cache).remove(child)
+    verify(cache, never()).remove(other)
+    assert underTest.pathIndex.complete
+    assert underTest.pathIndex.size() == 1
+    assert metricRegistry.counter('nexus.negativeCache.test.fullScans').count == 1
+  }
+
   static void mockIterable(Cache<?,?> iterable, Object... values) {
     Iterator<?> mockIterator = mock(Iterator)
     when(iterable.iterator()).thenReturn(mockIterator)
@@ -48,6 +48,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.group.GroupFacetImpl.CONFIG_KEY;
 
@@ -167,6 +168,22 @@ public class GroupFacetImplTest
     assertThat(underTest.isStale(content), is(false));
   }
 
+  @Test
+  public void invalidateGroupCachesForgetsMemberResolutions() throws Exception {
+    GroupMemberResolutionCache resolutionCache = mock(GroupMemberResolutionCache.class);
+    underTest.setResolutionCache(resolutionCache);
+
+    Config config = new Config();
+    config.memberNames = ImmutableSet.of();
+    Configuration configuration = mock(Configuration.class);
+    when(configurationFacet.readSection(configuration, CONFIG_KEY, Config.class)).thenReturn(config);
+    underTest.doConfigure(configuration);
+
+    underTest.invalidateGroupCaches();
+
+    verify(resolutionCache).invalidate("repositoryUnderTest");
+  }
+
   private ConstraintViolationFactory makeConstraintViolationFactory() {
     ConstraintViolationFactory constraintViolationFactory = mock(ConstraintViolationFactory.class);
     doReturn(mock(ConstraintViolation.class))
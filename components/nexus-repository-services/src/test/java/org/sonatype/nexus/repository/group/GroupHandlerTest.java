@@ -12,24 +12,43 @@
  */
 package org.sonatype.nexus.repository.group;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
 
+import org.sonatype.goodies.common.ByteSize;
 import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.group.GroupHandler.DispatchedRepositories;
+import org.sonatype.nexus.repository.group.GroupHandler.MemberDispatch;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Parameters;
+import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.ViewFacet;
 
+import com.codahale.metrics.MetricRegistry;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -63,6 +82,17 @@ public class GroupHandlerTest
   @Mock
   private ViewFacet viewFacet2;
 
+  @Mock
+  private Repository proxy3;
+
+  @Mock
+  private ViewFacet viewFacet3;
+
+  @Mock
+  private Payload payload;
+
+  private ExecutorService executor;
+
   private GroupHandler underTest;
 
   @Before
@@ -74,6 +104,15 @@ public class GroupHandlerTest
     when(proxy1.facet(ViewFacet.class)).thenReturn(viewFacet1);
     when(proxy2.getName()).thenReturn("Proxy 2");
     when(proxy2.facet(ViewFacet.class)).thenReturn(viewFacet2);
+    when(proxy3.getName()).thenReturn("Proxy 3");
+    when(proxy3.facet(ViewFacet.class)).thenReturn(viewFacet3);
+  }
+
+  @After
+  public void tearDown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
   }
 
   @Test
@@ -152,6 +191,196 @@ public class GroupHandlerTest
     verify(viewFacet2, times(0)).dispatch(request, context);
   }
 
+  @Test
+  public void parallelGetFirstPrefersMemberOrderOverSpeed() throws Exception {
+    enableParallelDispatch(Duration.ofMillis(10), 2);
+
+    Response ok1 = ok();
+    Response ok2 = ok(payload);
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      Thread.sleep(200);
+      return ok1;
+    });
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(ok2);
+
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), new DispatchedRepositories()), is(ok1));
+
+    // the faster, lower priority member was hedged and its response released
+    verify(viewFacet2).dispatch(any(Request.class), any(Context.class));
+    verify(payload, timeout(1000)).close();
+  }
+
+  @Test
+  public void responseCompletedAsDispatchIsAbandonedIsReleasedOnce() throws Exception {
+    MemberDispatch dispatch = underTest.new MemberDispatch(proxy1);
+    CountDownLatch completed = new CountDownLatch(1);
+    CountDownLatch abandoned = new CountDownLatch(1);
+    FutureTask<Response> task = new FutureTask<>(() -> {
+      Response response = dispatch.complete(ok(payload));
+      // the response has been handed over, but the task is still running so cancelling it succeeds
+      completed.countDown();
+      abandoned.await();
+      return response;
+    });
+    dispatch.future = task;
+    executor = Executors.newSingleThreadExecutor();
+    executor.execute(task);
+
+    assertThat(completed.await(5, SECONDS), is(true));
+    dispatch.abandon();
+    abandoned.countDown();
+
+    assertThat(task.isCancelled(), is(true));
+    verify(payload, timeout(1000)).close();
+    verify(payload, times(1)).close();
+  }
+
+  @Test
+  public void responseCompletedAfterDispatchIsAbandonedIsReleasedOnce() throws Exception {
+    MemberDispatch dispatch = underTest.new MemberDispatch(proxy1);
+    dispatch.future = new FutureTask<>(() -> null);
+
+    dispatch.abandon();
+    dispatch.complete(ok(payload));
+
+    verify(payload, times(1)).close();
+  }
+
+  @Test
+  public void parallelGetFirstFallsThroughToNextValidMember() throws Exception {
+    enableParallelDispatch(Duration.ofMillis(10), 1);
+
+    Response ok3 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenReturn(notFound());
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(forbidden());
+    when(viewFacet3.dispatch(any(Request.class), any(Context.class))).thenReturn(ok3);
+
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2, proxy3), new DispatchedRepositories()), is(ok3));
+  }
+
+  @Test
+  public void parallelGetFirstDoesNotHedgeFastMembers() throws Exception {
+    enableParallelDispatch(Duration.ofSeconds(10), 1);
+
+    Response ok1 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenReturn(ok1);
+
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), dispatched), is(ok1));
+
+    verify(viewFacet2, never()).dispatch(any(Request.class), any(Context.class));
+    assertThat(dispatched.getDispatched(), contains("Proxy 1"));
+  }
+
+  @Test
+  public void parallelGetAllKeepsMemberOrder() throws Exception {
+    enableParallelDispatch(Duration.ofMillis(10), 1);
+
+    Response response1 = notFound();
+    Response response2 = ok();
+    when(viewFacet1.dispatch(any(Request.class), any(Context.class))).thenAnswer(invocation -> {
+      Thread.sleep(100);
+      return response1;
+    });
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(response2);
+
+    LinkedHashMap<Repository, Response> responses =
+        underTest.getAll(context, asList(proxy1, proxy2), new DispatchedRepositories());
+
+    assertThat(responses.keySet(), contains(proxy1, proxy2));
+    assertThat(responses.get(proxy1), is(response1));
+    assertThat(responses.get(proxy2), is(response2));
+  }
+
+  @Test
+  public void parallelGetAllSkipsDispatchedMembers() throws Exception {
+    enableParallelDispatch(Duration.ofMillis(10), 1);
+
+    when(viewFacet2.dispatch(any(Request.class), any(Context.class))).thenReturn(ok());
+
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    dispatched.add(proxy1);
+
+    assertThat(underTest.getAll(context, asList(proxy1, proxy2), dispatched).keySet(), contains(proxy2));
+    verify(viewFacet1, never()).dispatch(any(Request.class), any(Context.class));
+  }
+
+  @Test
+  public void resolvedPathIsDispatchedStraightToServingMember() throws Exception {
+    enableResolutionCache();
+
+    Response ok2 = ok();
+    setupDispatch(notFound(), ok2);
+
+    assertGetFirst(ok2);
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    assertThat(underTest.getFirst(context, asList(proxy1, proxy2), dispatched), is(ok2));
+
+    verify(viewFacet1, times(1)).dispatch(request, context);
+    verify(viewFacet2, times(2)).dispatch(request, context);
+    assertThat(dispatched.getDispatched(), contains("Proxy 2", "Proxy 1"));
+  }
+
+  @Test
+  public void notFoundIsNotRemembered() throws Exception {
+    enableResolutionCache();
+
+    setupDispatch(notFound(), notFound());
+
+    assertGetFirstNotFound(asList(proxy1, proxy2));
+    assertGetFirstNotFound(asList(proxy1, proxy2));
+
+    // members keep applying their own negative cache settings
+    verify(viewFacet1, times(2)).dispatch(request, context);
+    verify(viewFacet2, times(2)).dispatch(request, context);
+  }
+
+  @Test
+  public void resolutionIsNotRememberedWhenEarlierMemberFailed() throws Exception {
+    enableResolutionCache();
+
+    Response ok2 = ok();
+    setupDispatch(serviceUnavailable(), ok2);
+
+    assertGetFirst(ok2);
+    assertGetFirst(ok2);
+
+    verify(viewFacet1, times(2)).dispatch(request, context);
+  }
+
+  @Test
+  public void resolutionFallsBackWhenServingMemberNoLongerHasPath() throws Exception {
+    enableResolutionCache();
+
+    Response ok2 = ok();
+    setupDispatch(notFound(), ok2);
+    assertGetFirst(ok2);
+
+    Response ok1 = ok();
+    setupDispatch(ok1, notFound());
+    assertGetFirst(ok1);
+  }
+
+  private void enableResolutionCache() {
+    Repository group = mock(Repository.class);
+    when(group.getName()).thenReturn("group");
+    when(context.getRepository()).thenReturn(group);
+    when(request.getPath()).thenReturn("/some/path");
+    when(request.getParameters()).thenReturn(new Parameters());
+
+    underTest.setResolutionCache(new GroupMemberResolutionCache(mock(RepositoryManager.class), new MetricRegistry(),
+        true, true, 100, ByteSize.parse("1mb"), Duration.ofMinutes(5)));
+  }
+
+  private void enableParallelDispatch(final Duration hedgeDelay, final int hedgeCount) throws Exception {
+    executor = Executors.newCachedThreadPool();
+    GroupMemberDispatcher dispatcher = new GroupMemberDispatcher(true, 10, hedgeDelay, hedgeCount, executor);
+    dispatcher.start();
+    underTest.setMemberDispatcher(dispatcher);
+
+    when(context.getRequest()).thenReturn(new Request.Builder().action("GET").path("/some/path").build());
+  }
+
   private void setupDispatch(final Response response1, final Response response2) throws Exception {
     when(viewFacet1.dispatch(request, context)).thenReturn(response1);
     when(viewFacet2.dispatch(request, context)).thenReturn(response2);
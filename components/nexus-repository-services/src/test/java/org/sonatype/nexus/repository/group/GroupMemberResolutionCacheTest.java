@@ -0,0 +1,203 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.time.Duration;
+import java.util.List;
+
+import org.sonatype.goodies.common.ByteSize;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.group.GroupMemberResolutionCache.Lookup;
+import org.sonatype.nexus.repository.group.GroupMemberResolutionCache.Resolution;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class GroupMemberResolutionCacheTest
+    extends TestSupport
+{
+  private static final String HIT_RATIO = "nexus.group.resolutionCache.hitRatio";
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private Repository group;
+
+  @Mock
+  private Repository hosted;
+
+  @Mock
+  private Repository proxy;
+
+  private MetricRegistry metricRegistry;
+
+  private List<Repository> members;
+
+  private GroupMemberResolutionCache underTest;
+
+  @Before
+  public void setup() {
+    when(group.getName()).thenReturn("group");
+    when(hosted.getName()).thenReturn("hosted");
+    when(proxy.getName()).thenReturn("proxy");
+    members = asList(hosted, proxy);
+
+    metricRegistry = new MetricRegistry();
+    underTest = cache(100, ByteSize.parse("1mb"));
+  }
+
+  @Test
+  public void remembersServingMember() {
+    assertThat(get(group, "/foo"), nullValue());
+
+    put(group, "/foo", proxy);
+
+    Resolution resolution = get(group, "/foo");
+    assertThat(resolution.getMemberName(), is("proxy"));
+    assertThat((Double) metricRegistry.getGauges().get(HIT_RATIO).getValue(), is(0.5));
+  }
+
+  @Test
+  public void resolutionIsIgnoredWhenMembersChange() {
+    put(group, "/foo", proxy);
+
+    assertThat(underTest.get(underTest.lookup(group, "/foo"), asList(proxy, hosted)), nullValue());
+    assertThat(get(group, "/foo"), nullValue());
+  }
+
+  @Test
+  public void resolutionIsDroppedWhenPathWasInvalidatedDuringLookup() {
+    when(repositoryManager.findContainingGroups("hosted")).thenReturn(singletonList("group"));
+
+    Lookup lookup = underTest.lookup(group, "/foo");
+    underTest.invalidateMember("hosted", "foo");
+    underTest.put(lookup, members, proxy);
+
+    assertThat(get(group, "/foo"), nullValue());
+
+    // lookups started after the invalidation are remembered again
+    put(group, "/foo", proxy);
+    assertThat(get(group, "/foo"), notNullValue());
+  }
+
+  @Test
+  public void resolutionIsDroppedWhenGroupWasInvalidatedDuringLookup() {
+    Lookup lookup = underTest.lookup(group, "/foo");
+    underTest.invalidate("group");
+    underTest.put(lookup, members, proxy);
+
+    assertThat(get(group, "/foo"), nullValue());
+  }
+
+  @Test
+  public void invalidatingGroupForgetsAllItsPaths() {
+    Repository otherGroup = mock(Repository.class);
+    when(otherGroup.getName()).thenReturn("other");
+
+    put(group, "/foo", proxy);
+    put(group, "/bar", hosted);
+    put(otherGroup, "/foo", proxy);
+
+    underTest.invalidate("group");
+
+    assertThat(get(group, "/foo"), nullValue());
+    assertThat(get(group, "/bar"), nullValue());
+    assertThat(get(otherGroup, "/foo"), notNullValue());
+  }
+
+  @Test
+  public void invalidatingMemberPathForgetsItInContainingGroups() {
+    when(repositoryManager.findContainingGroups("hosted")).thenReturn(singletonList("group"));
+
+    put(group, "/foo", proxy);
+    put(group, "/bar", proxy);
+
+    // asset paths may lack the leading slash of the request path
+    underTest.invalidateMember("hosted", "foo");
+
+    assertThat(get(group, "/foo"), nullValue());
+    assertThat(get(group, "/bar"), notNullValue());
+  }
+
+  @Test
+  public void sizeIsBounded() {
+    underTest = cache(10, ByteSize.parse("1mb"));
+
+    for (int i = 0; i < 100; i++) {
+      put(group, "/path/" + i, proxy);
+    }
+
+    assertThat(underTest.size(), lessThanOrEqualTo(10L));
+  }
+
+  @Test
+  public void memoryIsBounded() {
+    underTest = cache(1000, ByteSize.parse("4kb"));
+
+    for (int i = 0; i < 100; i++) {
+      put(group, "/path/" + i, proxy);
+    }
+
+    // each entry weighs at least its fixed overhead, so only a handful fit
+    assertThat(underTest.size(), lessThanOrEqualTo(4096L / 160));
+  }
+
+  @Test
+  public void disabledCacheRemembersNothing() {
+    underTest = new GroupMemberResolutionCache(repositoryManager, new MetricRegistry(), true, false, 100,
+        ByteSize.parse("1mb"), Duration.ofMinutes(5));
+
+    put(group, "/foo", proxy);
+
+    assertThat(get(group, "/foo"), nullValue());
+  }
+
+  @Test
+  public void cacheIsDisabledWithoutDatastore() {
+    underTest = new GroupMemberResolutionCache(repositoryManager, new MetricRegistry(), false, true, 100,
+        ByteSize.parse("1mb"), Duration.ofMinutes(5));
+
+    put(group, "/foo", proxy);
+
+    assertThat(underTest.isEnabled(), is(false));
+    assertThat(get(group, "/foo"), nullValue());
+  }
+
+  private GroupMemberResolutionCache cache(final int maxSize, final ByteSize maxMemory) {
+    return new GroupMemberResolutionCache(repositoryManager, metricRegistry, true, true, maxSize, maxMemory,
+        Duration.ofMinutes(5));
+  }
+
+  private Resolution get(final Repository group, final String path) {
+    return underTest.get(underTest.lookup(group, path), members);
+  }
+
+  private void put(final Repository group, final String path, final Repository member) {
+    underTest.put(underTest.lookup(group, path), members, member);
+  }
+}
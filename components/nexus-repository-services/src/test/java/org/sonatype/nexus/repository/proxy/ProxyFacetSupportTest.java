@@ -15,6 +15,8 @@ package org.sonatype.nexus.repository.proxy;
 import java.io.IOException;
 import java.net.URI;
 import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -53,6 +55,7 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.Spy;
 
+import static com.google.common.util.concurrent.MoreExecutors.newDirectExecutorService;
 import static java.util.Collections.singletonMap;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
@@ -510,4 +513,100 @@ public class ProxyFacetSupportTest
         underTest.normalizeURLPath(URI.create("https://remoteserver/com/foo/thisisaspace"))
     );
   }
+
+  @Test
+  public void staleContentIsServedWhileRevalidating() throws Exception {
+    configureStaleWhileRevalidate(60);
+    enableRevalidation(newDirectExecutorService());
+    when(cacheController.isStale(cacheInfo)).thenReturn(true);
+    when(cacheController.isWithinStaleWindow(cacheInfo, 3600)).thenReturn(true);
+    doReturn(content).when(underTest).getCachedContent(cachedContext);
+    doReturn(reFetchedContent).when(underTest).fetch(cachedContext, content);
+    doReturn(storedContent).when(underTest).store(cachedContext, reFetchedContent);
+
+    Content foundContent = underTest.get(cachedContext);
+
+    assertThat(foundContent, is(content));
+    verify(underTest).store(cachedContext, reFetchedContent);
+  }
+
+  @Test
+  public void revalidationIsDeduplicated() throws Exception {
+    configureStaleWhileRevalidate(60);
+    ExecutorService executor = mock(ExecutorService.class);
+    enableRevalidation(executor);
+    when(cacheController.isStale(cacheInfo)).thenReturn(true);
+    when(cacheController.isWithinStaleWindow(cacheInfo, 3600)).thenReturn(true);
+    doReturn(content).when(underTest).getCachedContent(cachedContext);
+
+    assertThat(underTest.get(cachedContext), is(content));
+    assertThat(underTest.get(cachedContext), is(content));
+
+    verify(executor, times(1)).execute(any(Runnable.class));
+    verify(underTest, never()).fetch(any(), any(), any());
+  }
+
+  @Test
+  public void contentPastStaleWindowIsRevalidatedInRequest() throws Exception {
+    configureStaleWhileRevalidate(60);
+    ExecutorService executor = mock(ExecutorService.class);
+    enableRevalidation(executor);
+    when(cacheController.isStale(cacheInfo)).thenReturn(true);
+    when(cacheController.isWithinStaleWindow(cacheInfo, 3600)).thenReturn(false);
+    doReturn(content).when(underTest).getCachedContent(cachedContext);
+    doReturn(reFetchedContent).when(underTest).fetch(cachedContext, content);
+    doReturn(storedContent).when(underTest).store(cachedContext, reFetchedContent);
+
+    assertThat(underTest.get(cachedContext), is(storedContent));
+    verify(executor, never()).execute(any(Runnable.class));
+  }
+
+  @Test
+  public void contentIsRevalidatedInRequestWhenQueueIsFull() throws Exception {
+    configureStaleWhileRevalidate(60);
+    ExecutorService executor = mock(ExecutorService.class);
+    doThrow(new RejectedExecutionException()).when(executor).execute(any(Runnable.class));
+    enableRevalidation(executor);
+    when(cacheController.isStale(cacheInfo)).thenReturn(true);
+    when(cacheController.isWithinStaleWindow(cacheInfo, 3600)).thenReturn(true);
+    doReturn(content).when(underTest).getCachedContent(cachedContext);
+    doReturn(reFetchedContent).when(underTest).fetch(cachedContext, content);
+    doReturn(storedContent).when(underTest).store(cachedContext, reFetchedContent);
+
+    assertThat(underTest.get(cachedContext), is(storedContent));
+  }
+
+  @Test
+  public void staleContentIsRevalidatedInRequestWithoutBackgroundSupport() throws Exception {
+    // facets storing content in a transaction bound to the request thread, such as orient ones, don't override this
+    configureStaleWhileRevalidate(60);
+    ExecutorService executor = mock(ExecutorService.class);
+    underTest.buildRevalidation(executor);
+    when(cacheController.isStale(cacheInfo)).thenReturn(true);
+    when(cacheController.isWithinStaleWindow(cacheInfo, 3600)).thenReturn(true);
+    doReturn(content).when(underTest).getCachedContent(cachedContext);
+    doReturn(reFetchedContent).when(underTest).fetch(cachedContext, content);
+    doReturn(storedContent).when(underTest).store(cachedContext, reFetchedContent);
+
+    assertThat(underTest.get(cachedContext), is(storedContent));
+    verify(executor, never()).execute(any(Runnable.class));
+  }
+
+  private void enableRevalidation(final ExecutorService executor) {
+    doReturn(true).when(underTest).isRevalidationSupported();
+    underTest.buildRevalidation(executor);
+  }
+
+  private void configureStaleWhileRevalidate(final int minutes) throws Exception {
+    ConfigurationFacet configurationFacet = mock(ConfigurationFacet.class);
+    ProxyFacetSupport.ProxyConfig config = new ProxyFacetSupport.ProxyConfig();
+    config.remoteUrl = new URI("http://example.com");
+    config.staleWhileRevalidate = minutes;
+    when(repository.facet(ConfigurationFacet.class)).thenReturn(configurationFacet);
+    when(configurationFacet.readSection(any(Configuration.class), anyString(), eq(ProxyFacetSupport.ProxyConfig.class)))
+        .thenReturn(config);
+
+    underTest.doConfigure(mock(Configuration.class));
+    underTest.cacheControllerHolder = cacheControllerHolder;
+  }
 }
@@ -0,0 +1,204 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.io.InputStreamSupplier;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.fail;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA1;
+import static org.sonatype.nexus.repository.view.Content.CONTENT_HASH_CODES_MAP;
+
+public class StreamThroughDownloadTest
+    extends TestSupport
+{
+  private static final byte[] BYTES = "0123456789".getBytes(UTF_8);
+
+  private final AtomicReference<byte[]> stored = new AtomicReference<>();
+
+  @Test
+  public void readersReceiveContentBeforeFetchCompletes() throws Exception {
+    PipedOutputStream upstream = new PipedOutputStream();
+    PipedInputStream pipe = new PipedInputStream(upstream);
+    StreamThroughDownload underTest = new StreamThroughDownload("test", remote(() -> pipe, BYTES.length));
+
+    Thread fetch = new Thread(() -> underTest.run(this::store));
+    fetch.start();
+
+    try (InputStream in = underTest.content().openInputStream()) {
+      upstream.write(BYTES, 0, 4);
+      upstream.flush();
+
+      byte[] head = new byte[4];
+      ByteStreams.readFully(in, head);
+      assertThat(new String(head, UTF_8), is("0123"));
+      assertThat(stored.get(), nullValue());
+
+      upstream.write(BYTES, 4, BYTES.length - 4);
+      upstream.close();
+
+      assertThat(new String(ByteStreams.toByteArray(in), UTF_8), is("456789"));
+    }
+
+    fetch.join();
+    assertThat(stored.get(), is(BYTES));
+  }
+
+  @Test
+  public void upstreamFailureAbortsReaders() throws Exception {
+    InputStream failing = new InputStream()
+    {
+      private int count;
+
+      @Override
+      public int read() throws IOException {
+        if (count++ < 4) {
+          return 'x';
+        }
+        throw new IOException("Connection reset");
+      }
+    };
+    StreamThroughDownload underTest = new StreamThroughDownload("test", remote(() -> failing, BYTES.length));
+
+    try (InputStream in = underTest.content().openInputStream()) {
+      underTest.run(this::store);
+
+      assertThat(underTest.isFailed(), is(true));
+      ByteStreams.toByteArray(in);
+      fail("Expected the response to be aborted");
+    }
+    catch (IOException e) {
+      log("Aborted: {}", e.toString());
+    }
+    assertThat(stored.get(), nullValue());
+  }
+
+  @Test
+  public void truncatedContentIsNotStored() throws Exception {
+    StreamThroughDownload underTest = new StreamThroughDownload("test",
+        remote(() -> new ByteArrayInputStream(BYTES, 0, 5), BYTES.length));
+
+    try (InputStream in = underTest.content().openInputStream()) {
+      underTest.run(this::store);
+
+      assertThat(underTest.isFailed(), is(true));
+      ByteStreams.toByteArray(in);
+      fail("Expected the response to be aborted");
+    }
+    catch (IOException e) {
+      log("Aborted: {}", e.toString());
+    }
+    assertThat(stored.get(), nullValue());
+  }
+
+  @Test
+  public void contentNotMatchingExpectedHashIsNotStored() throws Exception {
+    Content remote = remote(() -> new ByteArrayInputStream(BYTES), BYTES.length);
+    remote.getAttributes().set(CONTENT_HASH_CODES_MAP,
+        ImmutableMap.of(SHA1, SHA1.function().hashString("9876543210", UTF_8)));
+    StreamThroughDownload underTest = new StreamThroughDownload("test", remote);
+
+    try (InputStream in = underTest.content().openInputStream()) {
+      underTest.run(this::store);
+
+      assertThat(underTest.isFailed(), is(true));
+      ByteStreams.toByteArray(in);
+      fail("Expected the response to be aborted");
+    }
+    catch (IOException e) {
+      log("Aborted: {}", e.toString());
+    }
+    assertThat(stored.get(), nullValue());
+  }
+
+  @Test
+  public void contentMatchingExpectedHashIsStored() throws Exception {
+    Content remote = remote(() -> new ByteArrayInputStream(BYTES), BYTES.length);
+    remote.getAttributes().set(CONTENT_HASH_CODES_MAP, ImmutableMap.of(SHA1, SHA1.function().hashBytes(BYTES)));
+    StreamThroughDownload underTest = new StreamThroughDownload("test", remote);
+
+    try (InputStream in = underTest.content().openInputStream()) {
+      underTest.run(this::store);
+
+      assertThat(underTest.isFailed(), is(false));
+      assertThat(ByteStreams.toByteArray(in), is(BYTES));
+    }
+    assertThat(stored.get(), is(BYTES));
+  }
+
+  @Test
+  public void latecomersReadStoredContent() throws Exception {
+    StreamThroughDownload underTest = new StreamThroughDownload("test",
+        remote(() -> new ByteArrayInputStream(BYTES), BYTES.length));
+    Content content = underTest.content();
+
+    underTest.run(spooled -> {
+      store(spooled);
+      return new Content(new BytesPayload(stored.get(), "text/plain"));
+    });
+
+    // the spooled file has been released so this is served from the stored content
+    try (InputStream in = content.openInputStream()) {
+      assertThat(ByteStreams.toByteArray(in), is(BYTES));
+    }
+  }
+
+  @Test
+  public void spoolIsReleasedOnceReadersAreDone() throws Exception {
+    StreamThroughDownload underTest = new StreamThroughDownload("test",
+        remote(() -> new ByteArrayInputStream(BYTES), BYTES.length));
+    Content content = underTest.content();
+
+    try (InputStream in = content.openInputStream()) {
+      underTest.run(this::store);
+      assertThat(ByteStreams.toByteArray(in), is(BYTES));
+    }
+
+    try {
+      content.openInputStream().close();
+      fail("Expected the spooled content to be released");
+    }
+    catch (IOException e) {
+      log("Released: {}", e.toString());
+    }
+  }
+
+  private Content store(final Content content) throws IOException {
+    try (InputStream in = content.openInputStream()) {
+      stored.set(ByteStreams.toByteArray(in));
+    }
+    return content;
+  }
+
+  private static Content remote(final InputStreamSupplier stream, final long size) {
+    return new Content(new StreamPayload(stream, size, "text/plain"));
+  }
+}
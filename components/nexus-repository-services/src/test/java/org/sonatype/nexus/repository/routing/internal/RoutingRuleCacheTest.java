@@ -22,6 +22,7 @@ import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.manager.RepositoryDeletedEvent;
 import org.sonatype.nexus.repository.manager.RepositoryUpdatedEvent;
 import org.sonatype.nexus.repository.routing.OrientRoutingRule;
+import org.sonatype.nexus.repository.routing.RoutingMode;
 import org.sonatype.nexus.repository.routing.RoutingRule;
 import org.sonatype.nexus.repository.routing.RoutingRuleStore;
 import org.sonatype.nexus.repository.routing.internal.orient.OrientRoutingRuleDeletedEvent;
@@ -31,7 +32,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import static java.util.Collections.singletonList;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -129,6 +132,35 @@ public class RoutingRuleCacheTest
     verify(store, times(2)).getById("rule-a");
   }
 
+  @Test
+  public void matcherIsOnlyRebuiltOnRuleInvalidation() throws Exception {
+    OrientRoutingRule rule = mockRule("rule-a");
+    when(rule.mode()).thenReturn(RoutingMode.BLOCK);
+    when(rule.matchers()).thenReturn(singletonList(".*secret.*"));
+    Repository repository = createRepository("repo-a", "rule-a");
+
+    RoutingRuleMatcher matcher = routingRuleCache.getRoutingRuleMatcher(repository);
+    assertThat(matcher.isAllowed("/some/secret/path"), is(false));
+    assertThat(routingRuleCache.getRoutingRuleMatcher(repository), sameInstance(matcher));
+
+    // repository changes don't affect the compiled rule
+    routingRuleCache.handle(new RepositoryUpdatedEvent(repository, null));
+    assertThat(routingRuleCache.getRoutingRuleMatcher(repository), sameInstance(matcher));
+
+    when(rule.matchers()).thenReturn(singletonList(".*other.*"));
+    routingRuleCache.handle(new OrientRoutingRuleUpdatedEvent(rule.getEntityMetadata()));
+
+    RoutingRuleMatcher rebuilt = routingRuleCache.getRoutingRuleMatcher(repository);
+    assertThat(rebuilt.isAllowed("/some/secret/path"), is(true));
+    assertThat(rebuilt.isAllowed("/some/other/path"), is(false));
+  }
+
+  @Test
+  public void testGetRoutingRuleMatcher_notAssigned() throws Exception {
+    Repository repository = createRepository("null-id", null);
+    assertNull(routingRuleCache.getRoutingRuleMatcher(repository));
+  }
+
   @Test
   public void testGetRoutingRule_bogusConfig() throws Exception {
     Repository repository = createRepository("missing-val", "");
@@ -0,0 +1,73 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.routing.internal;
+
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.sonatype.nexus.repository.routing.RoutingMode.ALLOW;
+import static org.sonatype.nexus.repository.routing.RoutingMode.BLOCK;
+
+public class RoutingRuleMatcherTest
+    extends TestSupport
+{
+  private static final List<String> PATHS = asList(
+      "/com/sonatype/internal/secrets",
+      "/org/apache/tomcat/catalina",
+      "/com/foobar/",
+      "/COM/Example/artifact.jar",
+      "/aa/bb/aa",
+      "/aa/bb/cc",
+      "",
+      "/");
+
+  @Test
+  public void matchesLikeStringMatches() {
+    assertSameAsStringMatches(asList("^/com/sonatype/.*", ".*foobar.*"));
+    assertSameAsStringMatches(asList(".*foobar.*", "^/org/apache/.*"));
+    assertSameAsStringMatches(asList("/com/.*", "/org"));
+    assertSameAsStringMatches(asList("(?i)/com/example/.*", "/org/.*"));
+    assertSameAsStringMatches(asList("/org/.*", "(?i)/com/example/.*", "/com/sonatype/.*"));
+    assertSameAsStringMatches(asList("/(aa)/bb/\\1", "/com/.*"));
+    assertSameAsStringMatches(asList("/(?<first>aa)/bb/\\k<first>"));
+    assertSameAsStringMatches(asList("a|/org/.*", "/com/foobar/"));
+    assertSameAsStringMatches(asList(".*"));
+    assertSameAsStringMatches(asList(""));
+    assertSameAsStringMatches(emptyList());
+  }
+
+  @Test
+  public void appliesRoutingMode() {
+    List<String> matchers = asList("^/com/sonatype/.*", ".*foobar.*");
+
+    assertThat(new RoutingRuleMatcher(BLOCK, matchers).isAllowed("/org/apache/tomcat/catalina"), is(true));
+    assertThat(new RoutingRuleMatcher(BLOCK, matchers).isAllowed("/com/foobar/"), is(false));
+    assertThat(new RoutingRuleMatcher(ALLOW, matchers).isAllowed("/org/apache/tomcat/catalina"), is(false));
+    assertThat(new RoutingRuleMatcher(ALLOW, matchers).isAllowed("/com/foobar/"), is(true));
+  }
+
+  private static void assertSameAsStringMatches(final List<String> matchers) {
+    RoutingRuleMatcher underTest = new RoutingRuleMatcher(BLOCK, matchers);
+    for (String path : PATHS) {
+      assertThat(matchers + " against " + path, underTest.matches(path),
+          is(matchers.stream().anyMatch(path::matches)));
+    }
+  }
+}
@@ -28,6 +28,7 @@ import org.sonatype.nexus.repository.config.Configuration
 import org.sonatype.nexus.repository.manager.RepositoryManager
 import org.sonatype.nexus.repository.search.query.ElasticSearchQueryServiceImpl
 import org.sonatype.nexus.repository.search.query.SearchSubjectHelper
+import org.sonatype.nexus.repository.search.selector.ContentAuthFilterFactory
 import org.sonatype.nexus.security.SecurityHelper
 
 import com.google.common.collect.ContiguousSet
@@ -94,6 +95,9 @@ class ElasticSearchIndexServiceImplIT
   @Mock
   SearchSubjectHelper searchSubjectHelper
 
+  @Mock
+  ContentAuthFilterFactory contentAuthFilterFactory
+
   @Mock
   EventManager eventManager
 
@@ -125,7 +129,8 @@ class ElasticSearchIndexServiceImplIT
         indexNamingPolicy, ImmutableList.of(), eventManager, 1000, 1, 0, CALM_TIMEOUT, 1)
 
     searchQueryService = new ElasticSearchQueryServiceImpl(clientProvider,
-        repositoryManager, securityHelper, searchSubjectHelper, indexNamingPolicy, false)
+        repositoryManager, securityHelper, searchSubjectHelper, indexNamingPolicy, contentAuthFilterFactory,
+        false)
 
     when(repositoryConfig.isOnline()).thenReturn(true)
     when(testFormat.getValue()).thenReturn('test-format')
@@ -28,6 +28,7 @@ import org.sonatype.nexus.repository.manager.RepositoryManager
 import org.sonatype.nexus.repository.manager.internal.RepositoryImpl
 import org.sonatype.nexus.repository.search.query.ElasticSearchQueryServiceImpl
 import org.sonatype.nexus.repository.search.query.SearchSubjectHelper
+import org.sonatype.nexus.repository.search.selector.ContentAuthFilterFactory
 import org.sonatype.nexus.repository.types.HostedType
 import org.sonatype.nexus.scheduling.CancelableHelper
 import org.sonatype.nexus.scheduling.TaskInterruptedException
@@ -37,13 +38,25 @@ import com.google.common.base.Function
 import com.google.common.collect.BiMap
 import com.google.common.collect.HashBiMap
 import org.elasticsearch.action.ListenableActionFuture
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequestBuilder
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesResponse
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequestBuilder
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse
+import org.elasticsearch.action.admin.indices.get.GetIndexRequestBuilder
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequestBuilder
 import org.elasticsearch.action.bulk.BulkProcessor
+import org.elasticsearch.action.bulk.BulkRequestBuilder
+import org.elasticsearch.action.bulk.BulkResponse
+import org.elasticsearch.action.delete.DeleteRequestBuilder
 import org.elasticsearch.action.index.IndexRequestBuilder
 import org.elasticsearch.client.AdminClient
 import org.elasticsearch.client.Client
 import org.elasticsearch.client.IndicesAdminClient
+import org.elasticsearch.cluster.metadata.AliasMetaData
+import org.elasticsearch.common.collect.ImmutableOpenMap
 import org.elasticsearch.common.settings.Settings
 import org.junit.After
 import org.junit.Before
@@ -53,7 +66,13 @@ import org.mockito.Mock
 
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.contains
+import static org.hamcrest.Matchers.empty
+import static org.hamcrest.Matchers.is
 import static org.junit.Assert.fail
+import static org.mockito.ArgumentMatchers.any
+import static org.mockito.ArgumentMatchers.anyString
+import static org.mockito.Mockito.RETURNS_MOCKS
+import static org.mockito.Mockito.RETURNS_SELF
 import static org.mockito.Mockito.eq
 import static org.mockito.Mockito.mock
 import static org.mockito.Mockito.never
@@ -99,6 +118,9 @@ class ElasticSearchIndexServiceImplTest
   @Mock
   SearchSubjectHelper searchSubjectHelper
 
+  @Mock
+  ContentAuthFilterFactory contentAuthFilterFactory
+
   @Mock
   List<IndexSettingsContributor> indexSettingsContributors
 
@@ -118,6 +140,19 @@ class ElasticSearchIndexServiceImplTest
 
   ElasticSearchQueryServiceImpl searchQueryService
 
+  /**
+   * Aliases known to the mocked cluster, mapped to the indexes they refer to.
+   */
+  Map<String, List<String>> aliases = [:]
+
+  List<String> indexes = []
+
+  List<String> adminRequests = []
+
+  boolean failAliases
+
+  List<String> undeletable = []
+
   @Before
   public void setup() {
     CancelableHelper.set(cancelled)
@@ -132,10 +167,13 @@ class ElasticSearchIndexServiceImplTest
         indexNamingPolicy, indexSettingsContributors, eventManager, 1000, 0, 0, 3000, 1)
 
     searchQueryService = new ElasticSearchQueryServiceImpl(clientProvider,
-      repositoryManager, securityHelper, searchSubjectHelper, indexNamingPolicy, false)
+      repositoryManager, securityHelper, searchSubjectHelper, indexNamingPolicy, contentAuthFilterFactory,
+      false)
 
     searchIndexService.bulkProcessorToExecutors = new HashMap<>()
     searchIndexService.bulkProcessorToExecutors.put(0, new SimpleImmutableEntry<>(bulkProcessor, executorService))
+
+    mockAdminRequests()
   }
 
   @After
@@ -227,6 +265,167 @@ class ElasticSearchIndexServiceImplTest
     verify(bulkProcessor, never()).flush()
   }
 
+  @Test
+  void testUpdatesDuringShadowRebuildGoToBothIndexes() {
+    Repository repository = repository('test-repo')
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+
+    List<String> indexNames = []
+    IndexRequestBuilder builder = mock(IndexRequestBuilder.class)
+    when(client.prepareIndex(anyString(), eq(TYPE), eq('id'))).thenAnswer({ invocation ->
+      indexNames << invocation.getArgument(0)
+      builder
+    })
+    when(builder.setSource('{}')).thenReturn(builder)
+    when(builder.request()).thenReturn(mock(org.elasticsearch.action.index.IndexRequest.class))
+
+    searchIndexService.bulkPut(repository, ['id'], { it }, { '{}' }).forEach({ it.get() })
+    assertThat(indexNames, contains(SHA1.function().hashUnencodedChars('test-repo').toString(),
+        shadowIndex.indexName))
+
+    indexNames.clear()
+    shadowIndex.bulkPut(['id'], { it }, { '{}' }).forEach({ it.get() })
+    assertThat(indexNames, contains(shadowIndex.indexName))
+  }
+
+  @Test(expected = IllegalStateException)
+  void testOnlyOneShadowRebuildAtATime() {
+    Repository repository = repository('test-repo')
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    searchIndexService.startShadowRebuild(repository)
+    searchIndexService.startShadowRebuild(repository)
+  }
+
+  @Test
+  void testFirstShadowRebuildReplacesIndexWithAlias() {
+    Repository repository = repository('test-repo')
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+    shadowIndex.commit()
+
+    assertThat(adminRequests, contains("refresh ${shadowIndex.indexName}".toString(), "delete [${name}]".toString(),
+        "alias ${shadowIndex.indexName} as ${name}".toString()))
+    assertThat(updatedIndexNames(repository), contains(shadowIndex.indexName))
+  }
+
+  @Test
+  void testSubsequentShadowRebuildSwitchesAliasBeforeDeletingPreviousIndex() {
+    Repository repository = repository('test-repo')
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    aliases[name] = ["${name}-1".toString()]
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+    shadowIndex.commit()
+
+    assertThat(adminRequests, contains("refresh ${shadowIndex.indexName}".toString(),
+        "alias ${shadowIndex.indexName} as ${name}, unalias ${name}-1 as ${name}".toString(),
+        "delete [${name}-1]".toString()))
+    assertThat(updatedIndexNames(repository), contains(shadowIndex.indexName))
+  }
+
+  @Test
+  void testFailedAliasSwitchKeepsPreviousIndex() {
+    Repository repository = repository('test-repo')
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    aliases[name] = ["${name}-1".toString()]
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+    failAliases = true
+    try {
+      shadowIndex.commit()
+      fail('Expected exception')
+    }
+    catch (IllegalStateException expected) {
+    }
+
+    assertThat(adminRequests.last(), is("delete [${shadowIndex.indexName}]".toString()))
+    assertThat(updatedIndexNames(repository), contains(name))
+  }
+
+  @Test
+  void testFailedFirstShadowRebuildRestoresIndex() {
+    Repository repository = repository('test-repo')
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+    undeletable << name
+    try {
+      shadowIndex.commit()
+      fail('Expected exception')
+    }
+    catch (IllegalStateException expected) {
+    }
+
+    assertThat(adminRequests.findAll { it.startsWith('delete') }, contains("delete [${shadowIndex.indexName}]".toString()))
+    assertThat(updatedIndexNames(repository), contains(name))
+  }
+
+  @Test
+  void testDeletesDuringShadowRebuildAreDeletedAgainBeforeSwitching() {
+    Repository repository = repository('test-repo')
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+    mockDocumentRequests()
+
+    ShadowIndex shadowIndex = searchIndexService.startShadowRebuild(repository)
+    // deleted after the rebuild read it, so the rebuild may still put it into the new index
+    searchIndexService.bulkDelete(repository, ['gone'])
+    shadowIndex.commit()
+
+    assertThat(adminRequests, contains("bulk delete ${shadowIndex.indexName}/gone".toString(),
+        "refresh ${shadowIndex.indexName}".toString(), "delete [${name}]".toString(),
+        "alias ${shadowIndex.indexName} as ${name}".toString()))
+  }
+
+  @Test
+  void testDeletesAfterShadowRebuildAreNotDeletedAgain() {
+    Repository repository = repository('test-repo')
+    captureRepoNameArg()
+    searchIndexService.createIndex(repository)
+    mockDocumentRequests()
+
+    searchIndexService.bulkDelete(repository, ['gone'])
+    searchIndexService.startShadowRebuild(repository).commit()
+
+    assertThat(adminRequests.findAll { it.startsWith('bulk') }, is(empty()))
+  }
+
+  @Test
+  void testCreateIndexDropsOrphanedShadowIndexes() {
+    String name = SHA1.function().hashUnencodedChars('test-repo').toString()
+    aliases[name] = ["${name}-1".toString()]
+    indexes = ["${name}-1".toString(), "${name}-2".toString(), "${name}-other".toString()]
+    captureRepoNameArg()
+
+    searchIndexService.createIndex(repository('test-repo'))
+
+    assertThat(adminRequests, contains("delete [${name}-2]".toString()))
+  }
+
+  @Test
+  void testCreateIndexKeepsIndexesWithoutOrphans() {
+    captureRepoNameArg()
+
+    searchIndexService.createIndex(repository('test-repo'))
+
+    assertThat(adminRequests, is(empty()))
+  }
+
   protected Repository repository(String name) {
     Repository repository = new RepositoryImpl(eventManager, new HostedType(), new TestFormat('test'))
     repository.name = name
@@ -238,6 +437,104 @@ class ElasticSearchIndexServiceImplTest
     return repository
   }
 
+  private List<String> updatedIndexNames(final Repository repository) {
+    searchIndexService.updatedIndexNames(repository.name)
+  }
+
+  /**
+   * Mocks the admin requests used to rebuild indexes, recording those which change the cluster.
+   */
+  private void mockAdminRequests() {
+    when(indicesAdminClient.prepareGetAliases(anyString())).thenAnswer({ invocation ->
+      List<String> aliased = aliases.getOrDefault(invocation.getArgument(0), [])
+      ImmutableOpenMap.Builder<String, List<AliasMetaData>> aliasMap = ImmutableOpenMap.builder()
+      aliased.each { aliasMap.fPut(it, [mock(AliasMetaData)]) }
+      GetAliasesResponse response = mock(GetAliasesResponse)
+      when(response.getAliases()).thenReturn(aliasMap.build())
+      GetAliasesRequestBuilder builder = mock(GetAliasesRequestBuilder)
+      when(builder.execute()).thenReturn(future(response))
+      builder
+    })
+
+    GetIndexRequestBuilder getIndex = mock(GetIndexRequestBuilder, RETURNS_SELF)
+    when(indicesAdminClient.prepareGetIndex()).thenReturn(getIndex)
+    when(getIndex.execute()).thenAnswer({
+      GetIndexResponse response = mock(GetIndexResponse)
+      when(response.getIndices()).thenReturn(indexes as String[])
+      future(response)
+    })
+
+    when(indicesAdminClient.prepareRefresh(anyString())).thenAnswer({ invocation ->
+      adminRequests << "refresh ${invocation.getArgument(0)}".toString()
+      RefreshRequestBuilder builder = mock(RefreshRequestBuilder)
+      when(builder.execute()).thenReturn(future(null))
+      builder
+    })
+
+    when(indicesAdminClient.prepareDelete(anyString())).thenAnswer({ invocation ->
+      if (undeletable.contains(invocation.getArgument(0))) {
+        throw new IllegalStateException('unavailable')
+      }
+      adminRequests << "delete ${invocation.arguments.toList()}".toString()
+      DeleteIndexRequestBuilder builder = mock(DeleteIndexRequestBuilder)
+      when(builder.execute()).thenReturn(future(null))
+      builder
+    })
+
+    when(indicesAdminClient.prepareAliases()).thenAnswer({
+      List<String> actions = []
+      IndicesAliasesRequestBuilder builder = mock(IndicesAliasesRequestBuilder)
+      when(builder.addAlias(anyString(), anyString())).thenAnswer({ invocation ->
+        actions << "alias ${invocation.getArgument(0)} as ${invocation.getArgument(1)}".toString()
+        builder
+      })
+      when(builder.removeAlias(anyString(), anyString())).thenAnswer({ invocation ->
+        actions << "unalias ${invocation.getArgument(0)} as ${invocation.getArgument(1)}".toString()
+        builder
+      })
+      when(builder.execute()).thenAnswer({
+        if (failAliases) {
+          throw new IllegalStateException('unavailable')
+        }
+        adminRequests << actions.join(', ')
+        future(null)
+      })
+      builder
+    })
+  }
+
+  /**
+   * Mocks document deletes, recording bulk requests executed directly rather than through the bulk processor.
+   */
+  private void mockDocumentRequests() {
+    Map<DeleteRequestBuilder, String> documents = new IdentityHashMap<>()
+    when(client.prepareDelete(anyString(), eq(TYPE), anyString())).thenAnswer({ invocation ->
+      DeleteRequestBuilder builder = mock(DeleteRequestBuilder, RETURNS_MOCKS)
+      documents[builder] = "${invocation.getArgument(0)}/${invocation.getArgument(2)}".toString()
+      builder
+    })
+
+    when(client.prepareBulk()).thenAnswer({
+      List<String> actions = []
+      BulkRequestBuilder builder = mock(BulkRequestBuilder)
+      when(builder.add((DeleteRequestBuilder) any(DeleteRequestBuilder))).thenAnswer({ invocation ->
+        actions << "delete ${documents[invocation.getArgument(0)]}".toString()
+        builder
+      })
+      when(builder.execute()).thenAnswer({
+        adminRequests << "bulk ${actions.join(', ')}".toString()
+        future(mock(BulkResponse))
+      })
+      builder
+    })
+  }
+
+  private ListenableActionFuture future(final Object response) {
+    ListenableActionFuture future = mock(ListenableActionFuture)
+    when(future.actionGet()).thenReturn(response)
+    future
+  }
+
   private ArgumentCaptor<String> captureRepoNameArg() {
     ArgumentCaptor<String> varArgs = ArgumentCaptor.forClass(String.class)
     when(indicesAdminClient.prepareExists(varArgs.capture())).thenReturn(indicesExistsRequestBuilder)
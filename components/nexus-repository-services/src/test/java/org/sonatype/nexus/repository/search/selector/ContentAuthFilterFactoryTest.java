@@ -0,0 +1,212 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.search.selector.CselToQuery.SelectorQuery;
+import org.sonatype.nexus.repository.security.RepositoryContentSelectorPermission;
+import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.selector.CselToSql;
+import org.sonatype.nexus.selector.JexlEngine;
+import org.sonatype.nexus.selector.SelectorConfiguration;
+import org.sonatype.nexus.selector.SelectorEvaluationException;
+import org.sonatype.nexus.selector.SelectorManager;
+
+import org.apache.shiro.authz.Permission;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.security.BreadActions.READ;
+
+/**
+ * Tests for {@link ContentAuthFilterFactory}.
+ */
+public class ContentAuthFilterFactoryTest
+    extends TestSupport
+{
+  private static final String SUBJECT_ID = "subject-id";
+
+  private static final String SCRIPT = ContentAuthPluginScript.NAME;
+
+  @Mock
+  private RepositoryManager repositoryManager;
+
+  @Mock
+  private SecurityHelper securityHelper;
+
+  @Mock
+  private SelectorManager selectorManager;
+
+  private final List<Permission> granted = new ArrayList<>();
+
+  private final JexlEngine jexlEngine = new JexlEngine();
+
+  private Repository releases;
+
+  private Repository snapshots;
+
+  private ContentAuthFilterFactory underTest;
+
+  @Before
+  public void setup() {
+    releases = repository("releases");
+    snapshots = repository("snapshots");
+
+    when(repositoryManager.findContainingGroups(any())).thenReturn(emptyList());
+    when(securityHelper.anyPermitted(any())).thenAnswer(invocation -> Arrays.stream(invocation.getArguments())
+        .anyMatch(permission -> granted.stream().anyMatch(grant -> grant.implies((Permission) permission))));
+
+    underTest = new ContentAuthFilterFactory(repositoryManager, securityHelper, selectorManager, true);
+  }
+
+  @Test
+  public void noFilterWhenAllRepositoriesAreReadable() {
+    granted.add(new RepositoryViewPermission("maven2", "releases", READ));
+    granted.add(new RepositoryViewPermission("maven2", "snapshots", READ));
+
+    assertThat(underTest.newFilter(Arrays.asList(releases, snapshots), SUBJECT_ID), nullValue());
+  }
+
+  @Test
+  public void nothingMatchesWithoutPermissions() {
+    when(selectorManager.browseActive(anyCollection(), anyCollection())).thenReturn(emptyList());
+
+    QueryBuilder filter = underTest.newFilter(Arrays.asList(releases, snapshots), SUBJECT_ID);
+
+    assertThat(filter.toString(), is(boolQuery().mustNot(matchAllQuery()).toString()));
+  }
+
+  @Test
+  public void readableRepositoryIsAcceptedWithoutScript() {
+    granted.add(new RepositoryViewPermission("maven2", "releases", READ));
+    when(selectorManager.browseActive(anyCollection(), anyCollection())).thenReturn(emptyList());
+
+    String filter = underTest.newFilter(Arrays.asList(releases, snapshots), SUBJECT_ID).toString();
+
+    assertThat(filter, containsString("\"releases\""));
+    assertThat(filter, not(containsString("\"snapshots\"")));
+    assertThat(filter, not(containsString(SCRIPT)));
+  }
+
+  @Test
+  public void permissionViaGroupApplies() {
+    granted.add(new RepositoryViewPermission("maven2", "public", READ));
+    when(repositoryManager.findContainingGroups("releases")).thenReturn(singletonList("public"));
+    when(repositoryManager.findContainingGroups("snapshots")).thenReturn(singletonList("public"));
+
+    assertThat(underTest.newFilter(Arrays.asList(releases, snapshots), SUBJECT_ID), nullValue());
+  }
+
+  @Test
+  public void exactSelectorIsTranslatedWithoutScript() throws Exception {
+    selector("maven-only", "format == \"maven2\"");
+    granted.add(new RepositoryContentSelectorPermission("maven-only", "maven2", "releases", singletonList(READ)));
+
+    String filter = underTest.newFilter(singletonList(releases), SUBJECT_ID).toString();
+
+    assertThat(filter, containsString("\"maven2\""));
+    assertThat(filter, containsString("\"releases\""));
+    assertThat(filter, not(containsString(SCRIPT)));
+  }
+
+  @Test
+  public void pathSelectorCandidatesAreCheckedByScript() throws Exception {
+    selector("org-only", "path =^ \"/org/\"");
+    granted.add(new RepositoryContentSelectorPermission("org-only", "maven2", "releases", singletonList(READ)));
+
+    String filter = underTest.newFilter(singletonList(releases), SUBJECT_ID).toString();
+
+    assertThat(filter, containsString("\"/org/\""));
+    assertThat(filter, containsString(SCRIPT));
+  }
+
+  @Test
+  public void untranslatableSelectorFallsBackToScript() throws Exception {
+    SelectorConfiguration selector = mock(SelectorConfiguration.class);
+    when(selector.getName()).thenReturn("jexl");
+    when(selectorManager.browseActive(anyCollection(), anyCollection())).thenReturn(singletonList(selector));
+    doThrow(new SelectorEvaluationException("not csel"))
+        .when(selectorManager).toSql(eq(selector), any(), any());
+    granted.add(new RepositoryContentSelectorPermission("jexl", "maven2", "releases", singletonList(READ)));
+
+    String filter = underTest.newFilter(Arrays.asList(releases, snapshots), SUBJECT_ID).toString();
+
+    assertThat(filter, containsString(SCRIPT));
+    assertThat(filter, not(containsString("\"snapshots\"")));
+  }
+
+  @Test
+  public void selectorWithoutPermissionIsIgnored() throws Exception {
+    selector("maven-only", "format == \"maven2\"");
+
+    QueryBuilder filter = underTest.newFilter(singletonList(releases), SUBJECT_ID);
+
+    assertThat(filter.toString(), is(boolQuery().mustNot(matchAllQuery()).toString()));
+  }
+
+  @Test
+  public void scriptIsUsedWhenTranslationIsDisabled() {
+    underTest = new ContentAuthFilterFactory(repositoryManager, securityHelper, selectorManager, false);
+    granted.add(new RepositoryViewPermission("maven2", "releases", READ));
+
+    assertThat(underTest.newFilter(singletonList(releases), SUBJECT_ID).toString(), containsString(SCRIPT));
+  }
+
+  private static Repository repository(final String name) {
+    Format format = mock(Format.class);
+    when(format.getValue()).thenReturn("maven2");
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn(name);
+    when(repository.getFormat()).thenReturn(format);
+    return repository;
+  }
+
+  @SuppressWarnings("unchecked")
+  private SelectorConfiguration selector(final String name, final String expression) throws Exception {
+    SelectorConfiguration selector = mock(SelectorConfiguration.class);
+    when(selector.getName()).thenReturn(name);
+    when(selectorManager.browseActive(anyCollection(), anyCollection())).thenReturn(singletonList(selector));
+    doAnswer(invocation -> {
+      ((CselToSql<SelectorQuery>) invocation.getArgument(2))
+          .transformCselToSql(jexlEngine.parseExpression(expression), invocation.getArgument(1));
+      return null;
+    }).when(selectorManager).toSql(eq(selector), any(), any());
+    return selector;
+  }
+}
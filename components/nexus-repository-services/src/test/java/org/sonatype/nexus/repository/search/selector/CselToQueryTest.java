@@ -0,0 +1,116 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search.selector;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.search.selector.CselToQuery.SelectorQuery;
+import org.sonatype.nexus.selector.JexlEngine;
+
+import org.elasticsearch.index.query.QueryBuilder;
+import org.junit.Test;
+
+import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
+import static org.elasticsearch.index.query.QueryBuilders.matchAllQuery;
+import static org.elasticsearch.index.query.QueryBuilders.prefixQuery;
+import static org.elasticsearch.index.query.QueryBuilders.regexpQuery;
+import static org.elasticsearch.index.query.QueryBuilders.termQuery;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+/**
+ * Tests for {@link CselToQuery}.
+ */
+public class CselToQueryTest
+    extends TestSupport
+{
+  private final JexlEngine jexlEngine = new JexlEngine();
+
+  private final CselToQuery underTest = new CselToQuery();
+
+  @Test
+  public void formatComparisonsAreExact() {
+    assertTranslation("format == \"maven2\"", termQuery("format", "maven2"), true);
+    assertTranslation("\"maven2\" == format", termQuery("format", "maven2"), true);
+    assertTranslation("format != \"maven2\"", boolQuery().mustNot(termQuery("format", "maven2")), true);
+    assertTranslation("format =^ \"mav\"", prefixQuery("format", "mav"), true);
+  }
+
+  @Test
+  public void pathComparisonsMatchAnyAsset() {
+    assertTranslation("path == \"/org/foo.jar\"", termQuery("assets.name", "/org/foo.jar"), false);
+    assertTranslation("path =^ \"/org/\"", prefixQuery("assets.name", "/org/"), false);
+  }
+
+  @Test
+  public void operatorsAndGroupingAreTranslated() {
+    assertTranslation("format == \"maven2\" && (path =^ \"/org/\" || path =^ \"/com/\")",
+        boolQuery()
+            .must(termQuery("format", "maven2"))
+            .must(boolQuery().minimumNumberShouldMatch(1)
+                .should(prefixQuery("assets.name", "/org/"))
+                .should(prefixQuery("assets.name", "/com/"))),
+        false);
+  }
+
+  @Test
+  public void portableRegexIsTranslated() {
+    assertTranslation("path =~ \"^/org/.*[.]jar$\"", regexpQuery("assets.name", "/org/.*[.]jar"), false);
+    assertTranslation("format =~ \"maven2|npm\"", regexpQuery("format", "maven2|npm"), false);
+  }
+
+  @Test
+  public void unportableRegexMatchesEveryCandidate() {
+    assertTranslation("path =~ \"/org/\\\\d+/.*\"", matchAllQuery(), false);
+    assertTranslation("path =~ \"(?i)/org/.*\"", matchAllQuery(), false);
+    assertTranslation("path =~ \"/org/.{2}\"", matchAllQuery(), false);
+  }
+
+  @Test
+  public void regexWithInnerAnchorsMatchesEveryCandidate() {
+    assertTranslation("path =~ \"/org/.*|^/com/.*\"", matchAllQuery(), false);
+    assertTranslation("path =~ \"(/org/.*$|/com/.*)\"", matchAllQuery(), false);
+    assertTranslation("path =~ \"^^/org/.*\"", matchAllQuery(), false);
+  }
+
+  @Test
+  public void regexWithNegatedCharacterClassIsTranslated() {
+    assertTranslation("path =~ \"^/org/[^/]+[.]jar$\"", regexpQuery("assets.name", "/org/[^/]+[.]jar"), false);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void negatedPathIsNotTranslated() {
+    translate("path != \"/org/foo.jar\"");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void coordinatesAreNotTranslated() {
+    translate("coordinate.groupId == \"org.foo\"");
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unknownVariablesAreNotTranslated() {
+    translate("version == \"1.0\"");
+  }
+
+  private void assertTranslation(final String expression, final QueryBuilder expected, final boolean exact) {
+    SelectorQuery query = translate(expression);
+    assertThat(query.getQuery().toString(), is(expected.toString()));
+    assertThat(query.isExact(), is(exact));
+  }
+
+  private SelectorQuery translate(final String expression) {
+    SelectorQuery query = new SelectorQuery();
+    underTest.transformCselToSql(jexlEngine.parseExpression(expression), query);
+    return query;
+  }
+}
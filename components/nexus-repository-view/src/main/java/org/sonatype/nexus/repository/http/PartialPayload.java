@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.http;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 
 import javax.annotation.Nullable;
 
@@ -53,6 +54,22 @@ class PartialPayload
     return limit(payloadStream, partialSize);
   }
 
+  @Nullable
+  @Override
+  public FileChannel openFileChannel() throws IOException {
+    FileChannel channel = payload.openFileChannel();
+    if (channel != null) {
+      try {
+        channel.position(channel.position() + rangeToSend.lowerEndpoint());
+      }
+      catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+    }
+    return channel;
+  }
+
   @Override
   public long getSize() {
     return partialSize;
@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.view;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -101,6 +102,12 @@ public class Content
     payload.copy(inputStream, outputStream);
   }
 
+  @Nullable
+  @Override
+  public FileChannel openFileChannel() throws IOException {
+    return payload.openFileChannel();
+  }
+
   public Payload getPayload() {
     return payload;
   }
@@ -0,0 +1,148 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import javax.annotation.Nullable;
+
+import com.google.common.base.CharMatcher;
+import com.google.common.base.Joiner;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Cheap condition that every request path matched by a {@link GuardedMatcher} must satisfy.
+ *
+ * The {@link Router} checks guards before evaluating matchers, so routes which cannot match the request path are
+ * skipped without evaluating their (potentially expensive) matchers. A guard may admit paths its matcher rejects,
+ * but must never reject a path its matcher accepts.
+ *
+ * @since 3.70
+ */
+public final class PathGuard
+{
+  private final Predicate<String> predicate;
+
+  private final String description;
+
+  private PathGuard(final Predicate<String> predicate, final String description) {
+    this.predicate = checkNotNull(predicate);
+    this.description = checkNotNull(description);
+  }
+
+  /**
+   * Returns {@code false} if no matcher guarded by this could match the given path.
+   */
+  public boolean admits(final String path) {
+    return predicate.test(path);
+  }
+
+  /**
+   * Returns the guard of the given matcher, or {@code null} if it may match any path.
+   */
+  @Nullable
+  public static PathGuard of(@Nullable final Matcher matcher) {
+    return matcher instanceof GuardedMatcher ? ((GuardedMatcher) matcher).pathGuard() : null;
+  }
+
+  /**
+   * Admits paths equal to the given literal.
+   */
+  public static PathGuard literal(final String literal, final boolean ignoreCase) {
+    checkNotNull(literal);
+    if (ignoreCase) {
+      return new PathGuard(path -> path.equalsIgnoreCase(literal), "equals-ignore-case=" + literal);
+    }
+    return new PathGuard(path -> path.equals(literal), "equals=" + literal);
+  }
+
+  /**
+   * Admits paths starting with the given prefix.
+   *
+   * @return {@code null} when ignoring case and the prefix is not ASCII, as the case-folding would be unreliable
+   */
+  @Nullable
+  public static PathGuard prefix(final String prefix, final boolean ignoreCase) {
+    checkNotNull(prefix);
+    if (!ignoreCase) {
+      return new PathGuard(path -> path.startsWith(prefix), "starts-with=" + prefix);
+    }
+    if (!CharMatcher.ascii().matchesAllOf(prefix)) {
+      return null;
+    }
+    return new PathGuard(path -> path.regionMatches(true, 0, prefix, 0, prefix.length()),
+        "starts-with-ignore-case=" + prefix);
+  }
+
+  /**
+   * Admits paths ending with the given suffix.
+   *
+   * @return {@code null} when ignoring case and the suffix is not ASCII, as the case-folding would be unreliable
+   */
+  @Nullable
+  public static PathGuard suffix(final String suffix, final boolean ignoreCase) {
+    checkNotNull(suffix);
+    if (!ignoreCase) {
+      return new PathGuard(path -> path.endsWith(suffix), "ends-with=" + suffix);
+    }
+    if (!CharMatcher.ascii().matchesAllOf(suffix)) {
+      return null;
+    }
+    return new PathGuard(path -> path.regionMatches(true, path.length() - suffix.length(), suffix, 0, suffix.length()),
+        "ends-with-ignore-case=" + suffix);
+  }
+
+  /**
+   * Admits paths admitted by every given guard; {@code null} guards are ignored.
+   *
+   * @return {@code null} if none of the guards are present
+   */
+  @Nullable
+  public static PathGuard allOf(final List<PathGuard> guards) {
+    List<PathGuard> present = guards.stream().filter(Objects::nonNull).collect(toList());
+    if (present.isEmpty()) {
+      return null;
+    }
+    if (present.size() == 1) {
+      return present.get(0);
+    }
+    return new PathGuard(path -> present.stream().allMatch(guard -> guard.admits(path)),
+        Joiner.on(" AND ").join(present));
+  }
+
+  /**
+   * Admits paths admitted by any given guard.
+   *
+   * @return {@code null} if any of the guards is missing, as that alternative may match any path
+   */
+  @Nullable
+  public static PathGuard anyOf(final List<PathGuard> guards) {
+    if (guards.isEmpty() || guards.contains(null)) {
+      return null;
+    }
+    if (guards.size() == 1) {
+      return guards.get(0);
+    }
+    return new PathGuard(path -> guards.stream().anyMatch(guard -> guard.admits(path)),
+        Joiner.on(" OR ").join(guards));
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "{" + description + '}';
+  }
+}
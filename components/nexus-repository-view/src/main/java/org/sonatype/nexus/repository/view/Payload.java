@@ -16,6 +16,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import javax.annotation.Nullable;
 
@@ -60,4 +61,16 @@ public interface Payload
   default void copy(final InputStream input, final OutputStream output) throws IOException {
     ByteStreams.copy(input, output);
   }
+
+  /**
+   * Opens a channel to the content when it is held in a local file, so that it can be sent without copying it through
+   * the JVM. The content is the {@link #getSize() size} bytes starting at the channel's current position. Returns
+   * {@code null} when the content is only available via {@link #openInputStream()}; callers must close the channel.
+   *
+   * @since 3.70
+   */
+  @Nullable
+  default FileChannel openFileChannel() throws IOException {
+    return null;
+  }
 }
@@ -23,6 +23,7 @@ import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.recipe.RouterBuilder;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -39,13 +40,18 @@ public class Router
 {
   private final List<Route> routes;
 
+  private final PathGuard[] pathGuards;
+
   private final DefaultRoute defaultRoute;
 
   public static final String LOCAL_ATTRIBUTE_PREFIX = "local.attribute.";
 
   public Router(final List<Route> routes, final DefaultRoute defaultRoute) {
-    this.routes = checkNotNull(routes, "Missing routes");
+    this.routes = ImmutableList.copyOf(checkNotNull(routes, "Missing routes"));
     this.defaultRoute = checkNotNull(defaultRoute, "Missing default route");
+
+    // null entries mark routes whose matchers may match any path
+    this.pathGuards = this.routes.stream().map(route -> PathGuard.of(route.getMatcher())).toArray(PathGuard[]::new);
   }
 
   /**
@@ -139,16 +145,25 @@ public class Router
 
   /**
    * Find the first matching route for the given context.
+   *
+   * Routes whose {@link PathGuard} rejects the request path are skipped without evaluating their matchers.
    */
-  private Route findRoute(final Context context) {
-    for (Route route : routes) {
-      if (route.getMatcher().matches(context)) {
+  @VisibleForTesting
+  Route findRoute(final Context context) {
+    String path = context.getRequest().getPath();
+    for (int i = 0; i < pathGuards.length; i++) {
+      Route route = routes.get(i);
+      if (admits(pathGuards[i], path) && route.getMatcher().matches(context)) {
         return route;
       }
     }
     return defaultRoute;
   }
 
+  private static boolean admits(@Nullable final PathGuard pathGuard, @Nullable final String path) {
+    return pathGuard == null || path == null || pathGuard.admits(path);
+  }
+
   //
   // Builder
   //
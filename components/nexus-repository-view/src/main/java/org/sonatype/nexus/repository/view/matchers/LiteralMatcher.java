@@ -14,7 +14,8 @@ package org.sonatype.nexus.repository.view.matchers;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.repository.view.Context;
-import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.GuardedMatcher;
+import org.sonatype.nexus.repository.view.PathGuard;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -25,7 +26,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class LiteralMatcher
   extends ComponentSupport
-  implements Matcher
+  implements GuardedMatcher
 {
   private final String literal;
 
@@ -53,6 +54,11 @@ public class LiteralMatcher
     }
   }
 
+  @Override
+  public PathGuard pathGuard() {
+    return PathGuard.literal(literal, ignoreCase);
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -12,10 +12,13 @@
  */
 package org.sonatype.nexus.repository.view.matchers;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.common.text.Strings2;
 import org.sonatype.nexus.repository.view.Context;
-import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.GuardedMatcher;
+import org.sonatype.nexus.repository.view.PathGuard;
 
 import com.google.common.annotations.VisibleForTesting;
 
@@ -28,7 +31,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class PrefixMatcher
     extends ComponentSupport
-    implements Matcher
+    implements GuardedMatcher
 {
   private final String prefix;
 
@@ -61,6 +64,12 @@ public class PrefixMatcher
     }
   }
 
+  @Nullable
+  @Override
+  public PathGuard pathGuard() {
+    return PathGuard.prefix(prefix, ignoreCase);
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -14,14 +14,19 @@ package org.sonatype.nexus.repository.view.matchers.logic;
 
 import java.util.List;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.GuardedMatcher;
 import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PathGuard;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.toList;
 
 /**
  * Logical AND matcher.
@@ -32,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class AndMatcher
     extends ComponentSupport
-    implements Matcher
+    implements GuardedMatcher
 {
   private final List<Matcher> matchers;
 
@@ -56,6 +61,12 @@ public class AndMatcher
     return true;
   }
 
+  @Nullable
+  @Override
+  public PathGuard pathGuard() {
+    return PathGuard.allOf(matchers.stream().map(PathGuard::of).collect(toList()));
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
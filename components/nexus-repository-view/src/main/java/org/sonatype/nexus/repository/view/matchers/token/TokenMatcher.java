@@ -12,11 +12,17 @@
  */
 package org.sonatype.nexus.repository.view.matchers.token;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.GuardedMatcher;
 import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.PathGuard;
 import org.sonatype.nexus.repository.view.Request;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -31,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class TokenMatcher
     extends ComponentSupport
-    implements Matcher
+    implements GuardedMatcher
 {
   public interface State
   {
@@ -44,9 +50,12 @@ public class TokenMatcher
 
   private final String pattern;
 
+  private final PathGuard pathGuard;
+
   public TokenMatcher(final String pattern) {
     this.pattern = checkNotNull(pattern);
     this.parser = new TokenParser(pattern);
+    this.pathGuard = literalGuard(new PatternParser(pattern).getTokens());
   }
 
   @Override
@@ -76,4 +85,33 @@ public class TokenMatcher
     });
     return true;
   }
+
+  @Nullable
+  @Override
+  public PathGuard pathGuard() {
+    return pathGuard;
+  }
+
+  /**
+   * Literal tokens are matched verbatim, so a leading or trailing literal must also begin or end the path.
+   */
+  @Nullable
+  private static PathGuard literalGuard(final List<Token> tokens) {
+    if (tokens.isEmpty()) {
+      return null;
+    }
+    Token first = tokens.get(0);
+    Token last = tokens.get(tokens.size() - 1);
+    if (tokens.size() == 1) {
+      return first instanceof LiteralToken ? PathGuard.literal(first.value, false) : null;
+    }
+    List<PathGuard> guards = new ArrayList<>();
+    if (first instanceof LiteralToken) {
+      guards.add(PathGuard.prefix(first.value, false));
+    }
+    if (last instanceof LiteralToken) {
+      guards.add(PathGuard.suffix(last.value, false));
+    }
+    return PathGuard.allOf(guards);
+  }
 }
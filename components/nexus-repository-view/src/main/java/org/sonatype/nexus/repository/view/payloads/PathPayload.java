@@ -16,6 +16,7 @@ import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -46,6 +47,11 @@ public class PathPayload
     return new BufferedInputStream(Files.newInputStream(path, StandardOpenOption.READ));
   }
 
+  @Override
+  public FileChannel openFileChannel() throws IOException {
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
   @Override
   public long getSize() {
     try {
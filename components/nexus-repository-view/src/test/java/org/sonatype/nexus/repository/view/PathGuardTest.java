@@ -0,0 +1,120 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Arrays;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.view.matchers.ActionMatcher;
+import org.sonatype.nexus.repository.view.matchers.PrefixMatcher;
+import org.sonatype.nexus.repository.view.matchers.RegexMatcher;
+import org.sonatype.nexus.repository.view.matchers.SuffixMatcher;
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher;
+
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.and;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.not;
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.or;
+
+public class PathGuardTest
+    extends TestSupport
+{
+  @Test
+  public void testPrefix() {
+    PathGuard guard = PathGuard.prefix("/foo/", false);
+    assertThat(guard.admits("/foo/bar"), is(true));
+    assertThat(guard.admits("/FOO/bar"), is(false));
+    assertThat(guard.admits("/bar"), is(false));
+
+    guard = PathGuard.prefix("/foo/", true);
+    assertThat(guard.admits("/FOO/bar"), is(true));
+    assertThat(guard.admits("/fo"), is(false));
+  }
+
+  @Test
+  public void testSuffix() {
+    PathGuard guard = PathGuard.suffix(".jar", false);
+    assertThat(guard.admits("/foo.jar"), is(true));
+    assertThat(guard.admits("/foo.JAR"), is(false));
+    assertThat(guard.admits("jar"), is(false));
+
+    guard = PathGuard.suffix(".jar", true);
+    assertThat(guard.admits("/foo.JAR"), is(true));
+    assertThat(guard.admits("jar"), is(false));
+  }
+
+  @Test
+  public void testNonAsciiCaseInsensitiveGuardsAreNotCreated() {
+    assertThat(PathGuard.prefix("/\u00e9/", true), is(nullValue()));
+    assertThat(PathGuard.suffix(".\u00e9", true), is(nullValue()));
+    assertThat(PathGuard.prefix("/\u00e9/", false), is(notNullValue()));
+  }
+
+  @Test
+  public void testLiteral() {
+    assertThat(PathGuard.literal("/index.html", false).admits("/index.html"), is(true));
+    assertThat(PathGuard.literal("/index.html", false).admits("/INDEX.html"), is(false));
+    assertThat(PathGuard.literal("/index.html", true).admits("/INDEX.html"), is(true));
+  }
+
+  @Test
+  public void testCombinations() {
+    PathGuard foo = PathGuard.prefix("/foo/", false);
+    PathGuard jar = PathGuard.suffix(".jar", false);
+
+    assertThat(PathGuard.allOf(Arrays.asList(foo, null, jar)).admits("/foo/bar.jar"), is(true));
+    assertThat(PathGuard.allOf(Arrays.asList(foo, null, jar)).admits("/foo/bar.pom"), is(false));
+    assertThat(PathGuard.allOf(Arrays.asList(null, null)), is(nullValue()));
+
+    assertThat(PathGuard.anyOf(Arrays.asList(foo, jar)).admits("/bar.jar"), is(true));
+    assertThat(PathGuard.anyOf(Arrays.asList(foo, jar)).admits("/bar.pom"), is(false));
+    assertThat(PathGuard.anyOf(Arrays.asList(foo, null)), is(nullValue()));
+  }
+
+  @Test
+  public void testTokenMatcherGuard() {
+    PathGuard guard = PathGuard.of(new TokenMatcher("/simple/{name}/{version}/{name}-{version}.tar.gz"));
+    assertThat(guard.admits("/simple/foo/1.0/foo-1.0.tar.gz"), is(true));
+    assertThat(guard.admits("/packages/foo/1.0/foo-1.0.tar.gz"), is(false));
+    assertThat(guard.admits("/simple/foo/1.0/foo-1.0.zip"), is(false));
+
+    guard = PathGuard.of(new TokenMatcher("{path:.+}.json"));
+    assertThat(guard.admits("/foo.json"), is(true));
+    assertThat(guard.admits("/foo.xml"), is(false));
+
+    assertThat(PathGuard.of(new TokenMatcher("/index")).admits("/index/"), is(false));
+    assertThat(PathGuard.of(new TokenMatcher("{path:.+}")), is(nullValue()));
+  }
+
+  @Test
+  public void testLogicMatcherGuards() {
+    Matcher prefix = new PrefixMatcher("/foo/");
+    Matcher suffix = new SuffixMatcher(".jar");
+    Matcher action = new ActionMatcher("GET");
+
+    assertThat(PathGuard.of(and(action, prefix)).admits("/bar/baz.jar"), is(false));
+    assertThat(PathGuard.of(and(prefix, suffix)).admits("/foo/baz.pom"), is(false));
+    assertThat(PathGuard.of(and(action, new RegexMatcher(".*"))), is(nullValue()));
+
+    assertThat(PathGuard.of(or(prefix, suffix)).admits("/bar/baz.jar"), is(true));
+    assertThat(PathGuard.of(or(prefix, suffix)).admits("/bar/baz.pom"), is(false));
+    assertThat(PathGuard.of(or(prefix, action)), is(nullValue()));
+
+    assertThat(PathGuard.of(not(prefix)), is(nullValue()));
+  }
+}
@@ -12,10 +12,12 @@
  */
 package org.sonatype.nexus.repository.view;
 
+import java.util.Arrays;
 import java.util.Collections;
 
 import org.sonatype.goodies.testsupport.TestSupport;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -24,6 +26,11 @@ import org.mockito.Mock;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 import static org.sonatype.nexus.repository.view.Router.LOCAL_ATTRIBUTE_PREFIX;
 
 public class RouterTest
@@ -43,6 +50,15 @@ public class RouterTest
   @Mock
   DefaultRoute defaultRoute;
 
+  @Mock
+  Handler handler;
+
+  @Mock
+  GuardedMatcher guardedMatcher;
+
+  @Mock
+  Matcher opaqueMatcher;
+
 
   @Before
   public void setup() throws Exception {
@@ -58,4 +74,47 @@ public class RouterTest
     assertThat(newContext.getAttributes().get("somekey"), is("somevalue"));
     assertThat(newContext.getAttributes().get(LOCAL_ATTRIBUTE_PREFIX + "anotherkey"), nullValue());
   }
+
+  @Test
+  public void testGuardedRoutesAreSkippedWhenPathCannotMatch() {
+    when(guardedMatcher.pathGuard()).thenReturn(PathGuard.prefix("/guarded/", false));
+    when(guardedMatcher.matches(any())).thenReturn(true);
+    when(opaqueMatcher.matches(any())).thenReturn(true);
+    Route guardedRoute = route(guardedMatcher);
+    Route opaqueRoute = route(opaqueMatcher);
+    underTest = new Router(Arrays.asList(guardedRoute, opaqueRoute), defaultRoute);
+
+    assertThat(underTest.findRoute(context("/other/path")), is(sameInstance(opaqueRoute)));
+    verify(guardedMatcher, never()).matches(any());
+
+    assertThat(underTest.findRoute(context("/guarded/path")), is(sameInstance(guardedRoute)));
+  }
+
+  @Test
+  public void testRoutesAreMatchedInOrder() {
+    when(opaqueMatcher.matches(any())).thenReturn(true);
+    Route opaqueRoute = route(opaqueMatcher);
+    Route tokenRoute = route(new TokenMatcher("/{name}.jar"));
+    underTest = new Router(Arrays.asList(opaqueRoute, tokenRoute), defaultRoute);
+
+    assertThat(underTest.findRoute(context("/example.jar")), is(sameInstance(opaqueRoute)));
+  }
+
+  @Test
+  public void testDefaultRouteWhenNothingMatches() {
+    Route tokenRoute = route(new TokenMatcher("/{name}.jar"));
+    underTest = new Router(Collections.singletonList(tokenRoute), defaultRoute);
+
+    assertThat(underTest.findRoute(context("/example.jar")), is(sameInstance(tokenRoute)));
+    assertThat(underTest.findRoute(context("/example.pom")), is(sameInstance(defaultRoute)));
+  }
+
+  private Route route(final Matcher matcher) {
+    return new Route(matcher, Collections.singletonList(handler));
+  }
+
+  private Context context(final String path) {
+    when(request.getPath()).thenReturn(path);
+    return new Context(repository, request);
+  }
 }
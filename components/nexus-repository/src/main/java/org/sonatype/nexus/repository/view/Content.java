@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.view;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
@@ -125,6 +126,12 @@ public class Content
     payload.copy(inputStream, outputStream);
   }
 
+  @Nullable
+  @Override
+  public FileChannel openFileChannel() throws IOException {
+    return payload.openFileChannel();
+  }
+
   @Nonnull
   public AttributesMap getAttributes() {
     return attributes;
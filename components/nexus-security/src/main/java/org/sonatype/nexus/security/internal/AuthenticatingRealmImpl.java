@@ -69,6 +69,8 @@ public class AuthenticatingRealmImpl
 
   private final boolean orient;
 
+  private final PasswordMatcher passwordMatcher;
+
   @Inject
   public AuthenticatingRealmImpl(
       final SecurityConfigurationManager configuration,
@@ -78,7 +80,7 @@ public class AuthenticatingRealmImpl
     this.configuration = configuration;
     this.passwordService = passwordService;
 
-    PasswordMatcher passwordMatcher = new PasswordMatcher();
+    passwordMatcher = new PasswordMatcher();
     passwordMatcher.setPasswordService(this.passwordService);
     setCredentialsMatcher(passwordMatcher);
     setName(DEFAULT_REALM_NAME);
@@ -86,6 +88,16 @@ public class AuthenticatingRealmImpl
     this.orient = orient;
   }
 
+  /**
+   * Remembers successful password verifications, which are deliberately expensive.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setVerifiedCredentialsCache(final VerifiedCredentialsCache verifiedCredentialsCache) {
+    setCredentialsMatcher(verifiedCredentialsCache.cachingMatcher(passwordMatcher));
+  }
+
   @Override
   protected AuthenticationInfo doGetAuthenticationInfo(final AuthenticationToken token) {
     UsernamePasswordToken upToken = (UsernamePasswordToken) token;
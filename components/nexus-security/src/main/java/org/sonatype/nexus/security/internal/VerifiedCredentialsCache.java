@@ -0,0 +1,275 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.internal;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.event.EventAware;
+import org.sonatype.nexus.security.authc.UserPasswordChanged;
+import org.sonatype.nexus.security.realm.RealmConfigurationChangedEvent;
+import org.sonatype.nexus.security.user.UserDeletedEvent;
+import org.sonatype.nexus.security.user.UserUpdatedEvent;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.io.BaseEncoding;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.AuthenticationToken;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authc.credential.CredentialsMatcher;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * Remembers successful password verifications so that clients sending the same credentials on every request, such as
+ * build tools using HTTP Basic authentication, don't pay for an iterated password hash on each one.
+ *
+ * Entries are keyed by user id and an HMAC of the stored password hash and the presented password, using a random key
+ * that only lives in memory; the presented password itself is never retained. Because the stored hash is part of the
+ * key a changed password never matches an old entry. Only successful verifications are remembered, entries expire
+ * after {@code timeToLive}, and they are dropped when the user is updated or deleted or the realm configuration
+ * changes.
+ *
+ * The cache is opt-in, enable it with {@code nexus.security.verifiedCredentialsCache.enabled}.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+public class VerifiedCredentialsCache
+    extends ComponentSupport
+    implements EventAware
+{
+  private static final String KEY_PREFIX = "nexus.security.verifiedCredentialsCache.";
+
+  private static final String ENABLED_KEY = KEY_PREFIX + "enabled";
+
+  private static final String MAX_SIZE_KEY = KEY_PREFIX + "maxSize";
+
+  private static final String TIME_TO_LIVE_KEY = KEY_PREFIX + "timeToLive";
+
+  private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+  private static final BaseEncoding HEX = BaseEncoding.base16().lowerCase();
+
+  private final boolean enabled;
+
+  private final Cache<Key, Boolean> cache;
+
+  private final Timer verifications;
+
+  private final SecretKeySpec hmacKey;
+
+  private final ThreadLocal<Mac> hmac;
+
+  @Inject
+  public VerifiedCredentialsCache(
+      final MetricRegistry metricRegistry,
+      @Named("${" + ENABLED_KEY + ":-false}") final boolean enabled,
+      @Named("${" + MAX_SIZE_KEY + ":-10000}") final int maxSize,
+      @Named("${" + TIME_TO_LIVE_KEY + ":-5m}") final Duration timeToLive)
+  {
+    this.enabled = enabled;
+    checkArgument(maxSize > 0, MAX_SIZE_KEY + " must be positive");
+    checkArgument(!timeToLive.isNegative() && !timeToLive.isZero(), TIME_TO_LIVE_KEY + " must be positive");
+
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive.toMillis(), MILLISECONDS)
+        .recordStats()
+        .build();
+
+    byte[] secret = new byte[32];
+    new SecureRandom().nextBytes(secret);
+    this.hmacKey = new SecretKeySpec(secret, HMAC_ALGORITHM);
+    this.hmac = ThreadLocal.withInitial(this::newMac);
+
+    checkNotNull(metricRegistry);
+    this.verifications = metricRegistry.timer(KEY_PREFIX + "verifications");
+    metricRegistry.gauge(KEY_PREFIX + "hitRatio", () -> (Gauge<Double>) () -> cache.stats().hitRate());
+    metricRegistry.gauge(KEY_PREFIX + "hits", () -> (Gauge<Long>) () -> cache.stats().hitCount());
+    metricRegistry.gauge(KEY_PREFIX + "misses", () -> (Gauge<Long>) () -> cache.stats().missCount());
+    metricRegistry.gauge(KEY_PREFIX + "size", () -> (Gauge<Long>) cache::size);
+  }
+
+  /**
+   * Returns a matcher that consults this cache before verifying credentials with the given matcher.
+   */
+  public CredentialsMatcher cachingMatcher(final CredentialsMatcher delegate) {
+    checkNotNull(delegate);
+    return (token, info) -> matches(token, info, delegate);
+  }
+
+  @VisibleForTesting
+  boolean matches(final AuthenticationToken token, final AuthenticationInfo info, final CredentialsMatcher delegate) {
+    Key key = enabled ? key(token, info) : null;
+    if (key == null) {
+      return delegate.doCredentialsMatch(token, info);
+    }
+    if (cache.getIfPresent(key) != null) {
+      return true;
+    }
+    boolean matched;
+    try (Timer.Context ignored = verifications.time()) {
+      matched = delegate.doCredentialsMatch(token, info);
+    }
+    if (matched) {
+      cache.put(key, Boolean.TRUE);
+    }
+    return matched;
+  }
+
+  /**
+   * Forgets the verified credentials of the given user.
+   */
+  public void invalidate(final String userId) {
+    if (cache.size() > 0) {
+      cache.asMap().keySet().removeIf(key -> key.userId.equals(userId));
+    }
+  }
+
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final UserUpdatedEvent event) {
+    invalidate(event.getUser().getUserId());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final UserDeletedEvent event) {
+    invalidate(event.getUser().getUserId());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final UserPasswordChanged event) {
+    invalidate(event.getUserId());
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final RealmConfigurationChangedEvent event) {
+    invalidateAll();
+  }
+
+  /**
+   * Returns the cache key for the credentials, or {@code null} if they are not a password checked against a stored
+   * hash and so can't be cached.
+   */
+  private Key key(final AuthenticationToken token, final AuthenticationInfo info) {
+    if (!(token instanceof UsernamePasswordToken) || info.getPrincipals() == null) {
+      return null;
+    }
+    char[] password = ((UsernamePasswordToken) token).getPassword();
+    Object principal = info.getPrincipals().getPrimaryPrincipal();
+    Object stored = info.getCredentials();
+    if (password == null || principal == null) {
+      return null;
+    }
+    if (stored instanceof char[]) {
+      return new Key(principal.toString(), digest(new String((char[]) stored), password));
+    }
+    if (stored instanceof String) {
+      return new Key(principal.toString(), digest((String) stored, password));
+    }
+    return null;
+  }
+
+  private String digest(final String storedHash, final char[] password) {
+    Mac mac = hmac.get();
+    mac.update(storedHash.getBytes(UTF_8));
+    mac.update((byte) 0);
+    ByteBuffer encoded = UTF_8.encode(CharBuffer.wrap(password));
+    try {
+      mac.update(encoded.duplicate());
+      return HEX.encode(mac.doFinal());
+    }
+    finally {
+      // don't leave a copy of the password lying around
+      if (encoded.hasArray()) {
+        Arrays.fill(encoded.array(), (byte) 0);
+      }
+    }
+  }
+
+  private Mac newMac() {
+    try {
+      Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+      mac.init(hmacKey);
+      return mac;
+    }
+    catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static final class Key
+  {
+    private final String userId;
+
+    private final String credentialsHmac;
+
+    private Key(final String userId, final String credentialsHmac) {
+      this.userId = userId;
+      this.credentialsHmac = credentialsHmac;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      Key key = (Key) o;
+      return userId.equals(key.userId) && credentialsHmac.equals(key.credentialsHmac);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(userId, credentialsHmac);
+    }
+  }
+}
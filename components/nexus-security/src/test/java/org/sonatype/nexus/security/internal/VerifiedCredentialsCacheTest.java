@@ -0,0 +1,142 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.security.internal;
+
+import java.time.Duration;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.security.realm.RealmConfigurationChangedEvent;
+import org.sonatype.nexus.security.user.User;
+import org.sonatype.nexus.security.user.UserDeletedEvent;
+import org.sonatype.nexus.security.user.UserUpdatedEvent;
+
+import com.codahale.metrics.MetricRegistry;
+import org.apache.shiro.authc.AuthenticationInfo;
+import org.apache.shiro.authc.SimpleAuthenticationInfo;
+import org.apache.shiro.authc.UsernamePasswordToken;
+import org.apache.shiro.authc.credential.CredentialsMatcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class VerifiedCredentialsCacheTest
+    extends TestSupport
+{
+  private static final String HASH = "$shiro1$SHA-512$1024$salt$hash";
+
+  @Mock
+  private CredentialsMatcher passwordMatcher;
+
+  private VerifiedCredentialsCache underTest;
+
+  private CredentialsMatcher matcher;
+
+  @Before
+  public void setUp() {
+    when(passwordMatcher.doCredentialsMatch(any(), any())).thenReturn(true);
+    underTest = cache(true);
+    matcher = underTest.cachingMatcher(passwordMatcher);
+  }
+
+  @Test
+  public void successfulVerificationIsRemembered() {
+    assertThat(matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH)), is(true));
+    assertThat(matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH)), is(true));
+
+    verify(passwordMatcher, times(1)).doCredentialsMatch(any(), any());
+  }
+
+  @Test
+  public void failedVerificationIsNotRemembered() {
+    when(passwordMatcher.doCredentialsMatch(any(), any())).thenReturn(false);
+
+    assertThat(matcher.doCredentialsMatch(token("alice", "wrong"), info("alice", HASH)), is(false));
+    assertThat(matcher.doCredentialsMatch(token("alice", "wrong"), info("alice", HASH)), is(false));
+
+    verify(passwordMatcher, times(2)).doCredentialsMatch(any(), any());
+    assertThat(underTest.size(), is(0L));
+  }
+
+  @Test
+  public void differentPasswordIsVerified() {
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+    when(passwordMatcher.doCredentialsMatch(any(), any())).thenReturn(false);
+
+    assertThat(matcher.doCredentialsMatch(token("alice", "guess"), info("alice", HASH)), is(false));
+  }
+
+  @Test
+  public void changedStoredPasswordIsVerified() {
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+    when(passwordMatcher.doCredentialsMatch(any(), any())).thenReturn(false);
+
+    assertThat(matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH + "changed")), is(false));
+  }
+
+  @Test
+  public void userEventsForgetTheirUser() {
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+    matcher.doCredentialsMatch(token("bob", "secret"), info("bob", HASH));
+
+    underTest.on(new UserUpdatedEvent(user("alice")));
+    assertThat(underTest.size(), is(1L));
+
+    underTest.on(new UserDeletedEvent(user("bob")));
+    assertThat(underTest.size(), is(0L));
+  }
+
+  @Test
+  public void realmChangesForgetEveryone() {
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+    matcher.doCredentialsMatch(token("bob", "secret"), info("bob", HASH));
+
+    underTest.on(new RealmConfigurationChangedEvent(null));
+
+    assertThat(underTest.size(), is(0L));
+  }
+
+  @Test
+  public void disabledCacheAlwaysVerifies() {
+    matcher = cache(false).cachingMatcher(passwordMatcher);
+
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+    matcher.doCredentialsMatch(token("alice", "secret"), info("alice", HASH));
+
+    verify(passwordMatcher, times(2)).doCredentialsMatch(any(), any());
+  }
+
+  private static VerifiedCredentialsCache cache(final boolean enabled) {
+    return new VerifiedCredentialsCache(new MetricRegistry(), enabled, 100, Duration.ofMinutes(5));
+  }
+
+  private static UsernamePasswordToken token(final String username, final String password) {
+    return new UsernamePasswordToken(username, password);
+  }
+
+  private static AuthenticationInfo info(final String userId, final String hash) {
+    return new SimpleAuthenticationInfo(userId, hash.toCharArray(), "realm");
+  }
+
+  private static User user(final String userId) {
+    User user = new User();
+    user.setUserId(userId);
+    return user;
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.apache.commons.jexl3.parser.ASTAndNode;
+import org.apache.commons.jexl3.parser.ASTEQNode;
+import org.apache.commons.jexl3.parser.ASTERNode;
+import org.apache.commons.jexl3.parser.ASTIdentifier;
+import org.apache.commons.jexl3.parser.ASTJexlScript;
+import org.apache.commons.jexl3.parser.ASTNENode;
+import org.apache.commons.jexl3.parser.ASTOrNode;
+import org.apache.commons.jexl3.parser.ASTReferenceExpression;
+import org.apache.commons.jexl3.parser.ASTSWNode;
+import org.apache.commons.jexl3.parser.ASTStringLiteral;
+import org.apache.commons.jexl3.parser.JexlNode;
+
+/**
+ * CSEL expression lowered to plain Java conditions over its variables, so evaluation skips the JEXL interpreter and
+ * regular expressions are compiled once instead of on every match.
+ *
+ * Only string values are handled here; sources that are missing a variable or supply other types of value should be
+ * evaluated by JEXL, which decides how they compare. Results of expressions that use regular expressions are memoized
+ * per combination of variable values, as the same paths tend to be checked repeatedly while searching and browsing.
+ *
+ * @since 3.70
+ */
+class CompiledCsel
+{
+  private static final int MEMO_SIZE = 1000;
+
+  private final Condition condition;
+
+  private final String[] variables;
+
+  @Nullable
+  private final Cache<List<String>, Boolean> memo;
+
+  private CompiledCsel(final Condition condition, final List<String> variables, final boolean memoize) {
+    this.condition = condition;
+    this.variables = variables.toArray(new String[0]);
+    this.memo = memoize ? CacheBuilder.newBuilder().maximumSize(MEMO_SIZE).build() : null;
+  }
+
+  /**
+   * Compiles the syntax tree of a CSEL expression.
+   *
+   * @return the compiled expression; {@code null} if the expression uses something that cannot be compiled
+   */
+  @Nullable
+  static CompiledCsel compile(final ASTJexlScript script) {
+    if (script.jjtGetNumChildren() != 1) {
+      return null;
+    }
+    Compiler compiler = new Compiler();
+    try {
+      Condition condition = (Condition) script.jjtGetChild(0).jjtAccept(compiler, null);
+      return new CompiledCsel(condition, compiler.variables, compiler.usesRegex);
+    }
+    catch (UnsupportedOperationException | PatternSyntaxException e) {
+      compiler.log.debug("Cannot compile CSEL expression, it will be interpreted", e);
+      return null;
+    }
+  }
+
+  /**
+   * Evaluates the expression against the source.
+   *
+   * @return the result; {@code null} if the source has values this evaluator does not handle
+   */
+  @Nullable
+  Boolean evaluate(final VariableSource source) {
+    Set<String> names = source.getVariableSet();
+    String[] values = new String[variables.length];
+    for (int i = 0; i < variables.length; i++) {
+      if (!names.contains(variables[i])) {
+        return null;
+      }
+      Object value = source.get(variables[i]).orElse(null);
+      if (value != null && !(value instanceof String)) {
+        return null;
+      }
+      values[i] = (String) value;
+    }
+
+    if (memo == null) {
+      return condition.test(values);
+    }
+    List<String> key = Arrays.asList(values);
+    Boolean result = memo.getIfPresent(key);
+    if (result == null) {
+      result = condition.test(values);
+      memo.put(key, result);
+    }
+    return result;
+  }
+
+  @FunctionalInterface
+  private interface Condition
+  {
+    boolean test(String[] values);
+  }
+
+  /**
+   * Lowers the syntax tree to {@link Condition}s, following JEXL semantics for string operands: equality holds when
+   * both sides are {@code null}, while matches and starts-with never hold for a {@code null} value.
+   */
+  private static class Compiler
+      extends ParserVisitorSupport
+  {
+    private final List<String> variables = new ArrayList<>();
+
+    private boolean usesRegex;
+
+    @Override
+    protected Object doVisit(final JexlNode node, final Object data) {
+      throw new UnsupportedOperationException("Unexpected node " + node.getClass().getSimpleName());
+    }
+
+    @Override
+    protected Object visit(final ASTOrNode node, final Object data) {
+      Condition[] conditions = children(node);
+      return (Condition) values -> {
+        for (Condition condition : conditions) {
+          if (condition.test(values)) {
+            return true;
+          }
+        }
+        return false;
+      };
+    }
+
+    @Override
+    protected Object visit(final ASTAndNode node, final Object data) {
+      Condition[] conditions = children(node);
+      return (Condition) values -> {
+        for (Condition condition : conditions) {
+          if (!condition.test(values)) {
+            return false;
+          }
+        }
+        return true;
+      };
+    }
+
+    @Override
+    protected Object visit(final ASTReferenceExpression node, final Object data) {
+      if (node.jjtGetNumChildren() != 1) {
+        throw new UnsupportedOperationException("Unexpected grouping");
+      }
+      return node.jjtGetChild(0).jjtAccept(this, data);
+    }
+
+    @Override
+    protected Object visit(final ASTEQNode node, final Object data) {
+      return equality(node, true);
+    }
+
+    @Override
+    protected Object visit(final ASTNENode node, final Object data) {
+      return equality(node, false);
+    }
+
+    @Override
+    protected Object visit(final ASTERNode node, final Object data) {
+      int index = variableIndex(node.jjtGetChild(LEFT));
+      Pattern pattern = Pattern.compile(literal(node.jjtGetChild(RIGHT)));
+      usesRegex = true;
+      return (Condition) values -> values[index] != null && pattern.matcher(values[index]).matches();
+    }
+
+    @Override
+    protected Object visit(final ASTSWNode node, final Object data) {
+      int index = variableIndex(node.jjtGetChild(LEFT));
+      String prefix = literal(node.jjtGetChild(RIGHT));
+      return (Condition) values -> values[index] != null && values[index].startsWith(prefix);
+    }
+
+    private Condition equality(final JexlNode node, final boolean expected) {
+      JexlNode left = node.jjtGetChild(LEFT);
+      JexlNode right = node.jjtGetChild(RIGHT);
+      boolean variableOnLeft = left instanceof ASTIdentifier;
+      int index = variableIndex(variableOnLeft ? left : right);
+      String value = literal(variableOnLeft ? right : left);
+      return values -> value.equals(values[index]) == expected;
+    }
+
+    private Condition[] children(final JexlNode node) {
+      Condition[] conditions = new Condition[node.jjtGetNumChildren()];
+      for (int i = 0; i < conditions.length; i++) {
+        conditions[i] = (Condition) node.jjtGetChild(i).jjtAccept(this, null);
+      }
+      return conditions;
+    }
+
+    private int variableIndex(final JexlNode node) {
+      if (!(node instanceof ASTIdentifier)) {
+        throw new UnsupportedOperationException("Expected identifier");
+      }
+      String name = ((ASTIdentifier) node).getName();
+      int index = variables.indexOf(name);
+      if (index < 0) {
+        variables.add(name);
+        index = variables.size() - 1;
+      }
+      return index;
+    }
+
+    private static String literal(final JexlNode node) {
+      if (!(node instanceof ASTStringLiteral)) {
+        throw new UnsupportedOperationException("Expected string literal");
+      }
+      return ((ASTStringLiteral) node).getLiteral();
+    }
+  }
+}
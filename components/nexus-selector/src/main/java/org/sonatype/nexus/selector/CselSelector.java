@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.selector;
 
+import javax.annotation.Nullable;
+
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
@@ -26,10 +28,22 @@ public class CselSelector
 
   private final CselToSql cselToSql;
 
+  @Nullable
+  private final CompiledCsel compiled;
+
   public CselSelector(final CselToSql cselToSql, final JexlExpression expression) {
     super(expression);
     this.cselToSql = checkNotNull(cselToSql);
+    this.compiled = CompiledCsel.compile(expression.getSyntaxTree());
+  }
 
+  /**
+   * Evaluates the compiled form of the expression, falling back to JEXL for anything it does not handle.
+   */
+  @Override
+  public boolean evaluate(final VariableSource source) {
+    Boolean result = compiled != null ? compiled.evaluate(source) : null;
+    return result != null ? result : super.evaluate(source);
   }
 
   @Override
@@ -0,0 +1,96 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.selector;
+
+import java.util.List;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+
+public class CselSelectorTest
+    extends TestSupport
+{
+  private static final List<String> EXPRESSIONS = asList(
+      "format == 'maven2'",
+      "'maven2' == format",
+      "format != 'maven2'",
+      "path =~ '/org/apache/.*'",
+      "path =~ '.*\\\\.jar'",
+      "path =^ '/org/'",
+      "path =^ 'org/'",
+      "format == 'maven2' and path =^ '/org/apache/'",
+      "format == 'maven2' && (path =~ '.*\\\\.pom' || path =~ '.*\\\\.jar')",
+      "format == 'npm' or path =^ '/com/' or path == '/'",
+      "(format == 'maven2' || format == 'npm') && !(path =^ '/org/')",
+      "path =~ '/(org|com)/.*' and path != '/org/apache/maven/foo/bar/moo.jar'");
+
+  private static final List<String> PATHS = asList(
+      "/org/apache/maven/foo/bar/moo.jar",
+      "/org/apache/maven/foo/bar/moo.pom",
+      "/com/example/thing.jar",
+      "org/apache/no-leading-slash.jar",
+      "/",
+      "");
+
+  private static final List<String> FORMATS = asList("maven2", "npm", "raw");
+
+  private final JexlEngine engine = new JexlEngine();
+
+  @Mock
+  private CselToSql cselToSql;
+
+  @Test
+  public void compiledEvaluationMatchesJexl() {
+    for (boolean trimLeadingSlash : asList(true, false)) {
+      for (String expression : EXPRESSIONS) {
+        CselSelector underTest = new CselSelector(cselToSql, engine.buildExpression(expression, trimLeadingSlash));
+        JexlSelector reference = new JexlSelector(engine.buildExpression(expression, trimLeadingSlash));
+        for (String format : FORMATS) {
+          for (String path : PATHS) {
+            VariableSource source = source(format, path);
+            // evaluate twice to also cover memoized results
+            for (int i = 0; i < 2; i++) {
+              assertThat(expression + " with format " + format + " and path " + path,
+                  underTest.evaluate(source), is(reference.evaluate(source)));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void nonStringValuesAreLeftToJexl() {
+    CselSelector underTest = new CselSelector(cselToSql, engine.buildExpression("path == '1'", false));
+
+    // JEXL coerces the literal to a number when comparing it with a number
+    VariableSource source = new VariableSourceBuilder()
+        .addResolver(new ConstantVariableResolver(1, "path"))
+        .build();
+
+    assertThat(underTest.evaluate(source), is(true));
+  }
+
+  private static VariableSource source(final String format, final String path) {
+    return new VariableSourceBuilder()
+        .addResolver(new ConstantVariableResolver(format, "format"))
+        .addResolver(new ConstantVariableResolver(path, "path"))
+        .build();
+  }
+}
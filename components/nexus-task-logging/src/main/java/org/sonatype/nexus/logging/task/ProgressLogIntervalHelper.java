@@ -57,6 +57,29 @@ public class ProgressLogIntervalHelper
     return formatDuration(elapsed.elapsed().getSeconds());
   }
 
+  /**
+   * Get the average number of items processed per second so far
+   *
+   * @since 3.70
+   */
+  public long getRate(final long processed) {
+    long elapsedMillis = elapsed.elapsed().toMillis();
+    return elapsedMillis > 0 ? processed * 1000 / elapsedMillis : processed;
+  }
+
+  /**
+   * Get the estimated time to process the remaining items at the rate so far as a string so it can be included in logs
+   *
+   * @since 3.70
+   */
+  public String getRemaining(final long processed, final long total) {
+    if (processed <= 0) {
+      return "unknown";
+    }
+    long elapsedMillis = elapsed.elapsed().toMillis();
+    return formatDuration(Math.max(total - processed, 0) * elapsedMillis / processed / 1000);
+  }
+
   private String formatDuration(final long durationSeconds) {
     StringBuilder builder = new StringBuilder();
     long seconds = durationSeconds;
@@ -77,4 +77,33 @@ public class ProgressLogIntervalHelperTest
     Whitebox.setInternalState(progressLogger, "elapsed", elapsedStopwatch);
     assertEquals(expected, progressLogger.getElapsed());
   }
+
+  @Test
+  @Parameters({
+      "0, 100, 60, unknown",
+      "50, 100, 60, 1m 0s",
+      "25, 100, 60, 3m 0s",
+      "100, 100, 60, 0s",
+      "120, 100, 60, 0s",
+  })
+  public void getRemainingTest(long processed, long total, long seconds, String expected) {
+    Logger logger = mock(Logger.class);
+    Stopwatch elapsedStopwatch = mock(Stopwatch.class);
+    when(elapsedStopwatch.elapsed()).thenReturn(Duration.ofSeconds(seconds));
+
+    ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(logger, 1);
+    Whitebox.setInternalState(progressLogger, "elapsed", elapsedStopwatch);
+    assertEquals(expected, progressLogger.getRemaining(processed, total));
+  }
+
+  @Test
+  public void getRateTest() {
+    Logger logger = mock(Logger.class);
+    Stopwatch elapsedStopwatch = mock(Stopwatch.class);
+    when(elapsedStopwatch.elapsed()).thenReturn(Duration.ofSeconds(4));
+
+    ProgressLogIntervalHelper progressLogger = new ProgressLogIntervalHelper(logger, 1);
+    Whitebox.setInternalState(progressLogger, "elapsed", elapsedStopwatch);
+    assertEquals(250, progressLogger.getRate(1000));
+  }
 }
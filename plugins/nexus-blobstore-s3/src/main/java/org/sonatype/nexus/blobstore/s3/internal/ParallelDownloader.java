@@ -0,0 +1,297 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ByteSize;
+import org.sonatype.nexus.common.stateguard.StateGuardLifecycleSupport;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.min;
+import static java.lang.String.format;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static org.sonatype.nexus.blobstore.s3.internal.S3BlobStore.METRIC_NAME;
+
+/**
+ * Downloads large objects as concurrent ranged GETs, reassembling the chunks in order into a single stream so that
+ * reads are not limited by the throughput of a single connection.
+ *
+ * Each download keeps a bounded number of chunks in flight ahead of the reader. Buffered chunks across all downloads
+ * are capped by {@code maxBufferSize}; when that budget is used up a download streams its next chunk directly from S3
+ * instead of waiting for buffer space.
+ *
+ * @since 3.70
+ */
+@Singleton
+@Named
+public class ParallelDownloader
+    extends StateGuardLifecycleSupport
+{
+  private final boolean enabled;
+
+  private final long threshold;
+
+  private final int chunkSize;
+
+  private final int readAhead;
+
+  private final Semaphore bufferPermits;
+
+  @Nullable
+  private final ExecutorService executorService;
+
+  private final Timer chunkTimer;
+
+  private final Meter downloadedBytes;
+
+  @Inject
+  public ParallelDownloader(
+      @Named("${nexus.s3.parallelDownload.enabled:-false}") final boolean enabled,
+      @Named("${nexus.s3.parallelDownload.threshold:-50mb}") final ByteSize threshold,
+      @Named("${nexus.s3.parallelDownload.chunksize:-5242880}") final int chunkSize,
+      @Named("${nexus.s3.parallelDownload.parallelism:-0}") final int nThreads,
+      @Named("${nexus.s3.parallelDownload.readAhead:-4}") final int readAhead,
+      @Named("${nexus.s3.parallelDownload.maxBufferSize:-256mb}") final ByteSize maxBufferSize)
+  {
+    checkArgument(chunkSize > 0, "Must use a positive chunkSize");
+    checkArgument(nThreads >= 0, "Must use a non-negative parallelism");
+    checkArgument(readAhead > 0, "Must use a positive readAhead");
+    checkArgument(maxBufferSize.toBytes() >= chunkSize, "maxBufferSize must hold at least one chunk");
+
+    this.enabled = enabled;
+    this.threshold = threshold.toBytes();
+    this.chunkSize = chunkSize;
+    this.readAhead = readAhead;
+    this.bufferPermits = new Semaphore((int) min(Integer.MAX_VALUE, maxBufferSize.toBytes() / chunkSize));
+
+    if (enabled) {
+      int parallelism = nThreads > 0 ? nThreads : Runtime.getRuntime().availableProcessors();
+      this.executorService = newFixedThreadPool(parallelism, new NexusThreadFactory("s3-parallel", "downloadThreads"));
+    }
+    else {
+      this.executorService = null;
+    }
+
+    MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    this.chunkTimer = registry.timer(MetricRegistry.name(S3BlobStore.class, METRIC_NAME, "parallelDownloadChunk"));
+    this.downloadedBytes = registry.meter(MetricRegistry.name(S3BlobStore.class, METRIC_NAME, "parallelDownloadBytes"));
+  }
+
+  @Override
+  protected void doStop() {
+    if (executorService != null) {
+      executorService.shutdownNow();
+    }
+  }
+
+  /**
+   * Whether an object of the given size should be downloaded in parallel.
+   */
+  public boolean isParallel(final long size) {
+    return enabled && size >= threshold && size > chunkSize;
+  }
+
+  /**
+   * Opens a stream over the first {@code size} bytes of the object.
+   */
+  public InputStream download(final AmazonS3 s3, final String bucket, final String key, final long size) {
+    checkState(executorService != null, "Parallel download is disabled");
+    return new ParallelInputStream(s3, bucket, key, size);
+  }
+
+  private class ParallelInputStream
+      extends InputStream
+  {
+    private final AmazonS3 s3;
+
+    private final String bucket;
+
+    private final String key;
+
+    private final long size;
+
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private long nextOffset;
+
+    private InputStream current = new ByteArrayInputStream(new byte[0]);
+
+    private boolean currentIsBuffered;
+
+    private boolean closed;
+
+    ParallelInputStream(final AmazonS3 s3, final String bucket, final String key, final long size) {
+      this.s3 = s3;
+      this.bucket = bucket;
+      this.key = key;
+      this.size = size;
+      requestAhead();
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b;
+      while ((b = current.read()) < 0) {
+        if (!advance()) {
+          return -1;
+        }
+      }
+      downloadedBytes.mark();
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      if (len == 0) {
+        return 0;
+      }
+      int n;
+      while ((n = current.read(b, off, len)) < 0) {
+        if (!advance()) {
+          return -1;
+        }
+      }
+      downloadedBytes.mark(n);
+      return n;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return current.available();
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      Future<byte[]> future;
+      while ((future = pending.poll()) != null) {
+        future.cancel(true);
+        bufferPermits.release();
+      }
+      if (current instanceof S3ObjectInputStream) {
+        // skip draining the rest of the range just to reuse the connection
+        ((S3ObjectInputStream) current).abort();
+      }
+      finishCurrent();
+    }
+
+    /**
+     * Moves on to the next chunk, in order, returning {@code false} once the whole object has been read.
+     */
+    private boolean advance() throws IOException {
+      if (closed) {
+        throw new IOException("Stream closed");
+      }
+      finishCurrent();
+
+      // re-arm read-ahead on every chunk, buffer space may have been released since the last one
+      requestAhead();
+      Future<byte[]> next = pending.poll();
+      if (next != null) {
+        current = new ByteArrayInputStream(await(next));
+        currentIsBuffered = true;
+        requestAhead();
+        return true;
+      }
+      if (nextOffset < size) {
+        long start = nextOffset;
+        nextOffset = min(size, start + chunkSize);
+        current = s3.getObject(rangeRequest(start, nextOffset)).getObjectContent();
+        currentIsBuffered = false;
+        requestAhead();
+        return true;
+      }
+      return false;
+    }
+
+    private void finishCurrent() throws IOException {
+      current.close();
+      if (currentIsBuffered) {
+        bufferPermits.release();
+        currentIsBuffered = false;
+      }
+    }
+
+    private void requestAhead() {
+      while (pending.size() < readAhead && nextOffset < size && bufferPermits.tryAcquire()) {
+        long start = nextOffset;
+        long end = min(size, start + chunkSize);
+        nextOffset = end;
+        pending.add(executorService.submit(() -> fetch(start, end)));
+      }
+    }
+
+    private byte[] fetch(final long start, final long end) throws IOException {
+      try (Timer.Context ignored = chunkTimer.time();
+           S3Object object = s3.getObject(rangeRequest(start, end))) {
+        long length = object.getObjectMetadata().getContentLength();
+        if (length != end - start) {
+          throw new IOException(format("Expected %d bytes but range %d-%d of bucket:%s key:%s has %d",
+              end - start, start, end - 1, bucket, key, length));
+        }
+        byte[] data = new byte[(int) length];
+        ByteStreams.readFully(object.getObjectContent(), data);
+        return data;
+      }
+    }
+
+    private byte[] await(final Future<byte[]> future) throws IOException {
+      try {
+        return future.get();
+      }
+      catch (InterruptedException e) {
+        bufferPermits.release();
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted downloading bucket:" + bucket + " key:" + key);
+      }
+      catch (ExecutionException e) {
+        bufferPermits.release();
+        throw new IOException(format("Error downloading blob from bucket:%s key:%s", bucket, key), e.getCause());
+      }
+    }
+
+    private GetObjectRequest rangeRequest(final long start, final long end) {
+      return new GetObjectRequest(bucket, key).withRange(start, end - 1);
+    }
+  }
+}
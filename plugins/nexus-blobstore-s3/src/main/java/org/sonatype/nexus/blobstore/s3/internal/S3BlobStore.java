@@ -59,7 +59,6 @@ import com.amazonaws.services.s3.model.AmazonS3Exception;
 import com.amazonaws.services.s3.model.DeleteObjectsRequest;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.ObjectTagging;
-import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.SetObjectTaggingRequest;
 import com.amazonaws.services.s3.model.Tag;
@@ -181,7 +180,7 @@ public class S3BlobStore
 
   private ExecutorService executorService;
 
-  private static final String METRIC_NAME = "s3Blobstore";
+  static final String METRIC_NAME = "s3Blobstore";
 
   private final Timer existsTimer;
 
@@ -191,6 +190,15 @@ public class S3BlobStore
 
   private RawObjectAccess rawObjectAccess;
 
+  @Nullable
+  private ParallelDownloader parallelDownloader;
+
+  @Nullable
+  private S3LocalCacheFactory localCacheFactory;
+
+  @Nullable
+  private S3LocalCache localCache;
+
   @Inject
   public S3BlobStore(
       final AmazonS3Factory amazonS3Factory,
@@ -224,6 +232,26 @@ public class S3BlobStore
     hardDeleteTimer = registry.timer(MetricRegistry.name(S3BlobStore.class, METRIC_NAME, "hardDelete"));
   }
 
+  /**
+   * Enables downloading large blobs with concurrent ranged requests, when configured.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setParallelDownloader(@Nullable final ParallelDownloader parallelDownloader) {
+    this.parallelDownloader = parallelDownloader;
+  }
+
+  /**
+   * Enables caching blob attributes and content locally, when configured.
+   *
+   * @since 3.70
+   */
+  @Inject
+  public void setLocalCacheFactory(@Nullable final S3LocalCacheFactory localCacheFactory) {
+    this.localCacheFactory = localCacheFactory;
+  }
+
   @Override
   protected void doStart() throws Exception {
     // ensure blobstore is supported
@@ -240,6 +268,9 @@ public class S3BlobStore
       metadata.store();
     }
     liveBlobs = CacheBuilder.newBuilder().weakValues().build(from(S3Blob::new));
+    if (localCacheFactory != null) {
+      localCache = localCacheFactory.create(blobStoreConfiguration.getName());
+    }
     metricsService.setBucket(getConfiguredBucket());
     metricsService.setBucketPrefix(getBucketPrefix());
     metricsService.setS3(s3);
@@ -258,6 +289,10 @@ public class S3BlobStore
   @Override
   protected void doStop() throws Exception {
     liveBlobs = null;
+    if (localCache != null) {
+      localCache.close();
+      localCache = null;
+    }
     if (executorService != null) {
       executorService.shutdown();
       executorService = null;
@@ -362,6 +397,8 @@ public class S3BlobStore
       throw new BlobStoreException(e, blobId);
     }
     finally {
+      // direct path blobs may have replaced earlier content
+      invalidateLocalCache(blobId, true);
       lock.unlock();
     }
   }
@@ -401,6 +438,7 @@ public class S3BlobStore
       throw new BlobStoreException(e, blobId);
     }
     finally {
+      invalidateLocalCache(blobId, false);
       lock.unlock();
     }
   }
@@ -436,11 +474,18 @@ public class S3BlobStore
     Lock lock = blob.lock();
     try {
       if (blob.isStale()) {
-        S3BlobAttributes blobAttributes = new S3BlobAttributes(s3, getConfiguredBucket(), attributePath(blobId));
-        boolean loaded = blobAttributes.load();
-        if (!loaded) {
-          log.warn("Attempt to access non-existent blob {} ({})", blobId, blobAttributes);
-          return null;
+        S3LocalCache cache = localCache;
+        BlobAttributes blobAttributes = cache != null ? cache.getAttributes(blobId) : null;
+        if (blobAttributes == null) {
+          S3BlobAttributes s3BlobAttributes = new S3BlobAttributes(s3, getConfiguredBucket(), attributePath(blobId));
+          if (!s3BlobAttributes.load()) {
+            log.warn("Attempt to access non-existent blob {} ({})", blobId, s3BlobAttributes);
+            return null;
+          }
+          if (cache != null) {
+            cache.putAttributes(blobId, s3BlobAttributes);
+          }
+          blobAttributes = s3BlobAttributes;
         }
 
         if (blobAttributes.isDeleted() && !includeDeleted) {
@@ -526,6 +571,7 @@ public class S3BlobStore
       throw new BlobStoreException(e, blobId);
     }
     finally {
+      invalidateLocalCache(blobId, true);
       lock.unlock();
     }
   }
@@ -580,6 +626,7 @@ public class S3BlobStore
       return blobDeleted;
     }
     finally {
+      invalidateLocalCache(blobId, true);
       lock.unlock();
       liveBlobs.invalidate(blobId);
     }
@@ -718,8 +765,23 @@ public class S3BlobStore
 
     @Override
     protected InputStream doGetInputStream() {
-      S3Object object = s3.getObject(getConfiguredBucket(), contentPath(getId()));
-      return performanceLogger.maybeWrapForPerformanceLogging(object.getObjectContent());
+      BlobMetrics metrics = getMetrics();
+      S3LocalCache cache = localCache;
+      InputStream content = cache != null && metrics != null ? cache.openContent(getId(), metrics) : null;
+      if (content == null) {
+        content = openObjectContent(metrics);
+        if (cache != null && metrics != null) {
+          content = cache.cacheContent(getId(), metrics, content);
+        }
+      }
+      return performanceLogger.maybeWrapForPerformanceLogging(content);
+    }
+
+    private InputStream openObjectContent(@Nullable final BlobMetrics metrics) {
+      if (parallelDownloader != null && metrics != null && parallelDownloader.isParallel(metrics.getContentSize())) {
+        return parallelDownloader.download(s3, getConfiguredBucket(), contentPath(getId()), metrics.getContentSize());
+      }
+      return s3.getObject(getConfiguredBucket(), contentPath(getId())).getObjectContent();
     }
   }
 
@@ -816,6 +878,7 @@ public class S3BlobStore
       S3BlobAttributes s3BlobAttributes = (S3BlobAttributes) getBlobAttributes(blobId);
       s3BlobAttributes.updateFrom(blobAttributes);
       s3BlobAttributes.store();
+      invalidateLocalCache(blobId, false);
     }
     catch (Exception e) {
       log.error("Unable to set BlobAttributes for blob id: {}, exception: {}",
@@ -828,6 +891,7 @@ public class S3BlobStore
   protected void doUndelete(final BlobId blobId, final BlobAttributes attributes) {
     s3.setObjectTagging(untagAsDeleted(contentPath(blobId)));
     s3.setObjectTagging(untagAsDeleted(attributePath(blobId)));
+    invalidateLocalCache(blobId, false);
     metricsService.recordAddition(attributes.getMetrics().getContentSize());
   }
 
@@ -906,6 +970,19 @@ public class S3BlobStore
     metricsService.flush();
   }
 
+  private void invalidateLocalCache(final BlobId blobId, final boolean includeContent) {
+    S3LocalCache cache = localCache;
+    if (cache == null) {
+      return;
+    }
+    if (includeContent) {
+      cache.invalidate(blobId);
+    }
+    else {
+      cache.invalidateAttributes(blobId);
+    }
+  }
+
   private S3BlobAttributes writeBlobAttributes(
       final Map<String, String> headers,
       final String attributePath,
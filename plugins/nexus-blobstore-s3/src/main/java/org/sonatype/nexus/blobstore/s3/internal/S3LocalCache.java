@@ -0,0 +1,360 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.blobstore.api.BlobAttributes;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.common.io.DirectoryHelper;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.lang.Math.min;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.sonatype.nexus.blobstore.s3.internal.S3BlobStore.METRIC_NAME;
+
+/**
+ * Local read-through cache for an {@link S3BlobStore}, holding blob attributes in memory and blob content on disk so
+ * repeated downloads of the same blob don't need to go to S3.
+ *
+ * Content is keyed by {@link BlobId} and only served while its SHA1 and size match the blob's current metrics, so
+ * content replaced elsewhere is never served. Attributes may be served for up to their time-to-live after another node
+ * changed them; the blob store invalidates both on its own changes. Disk usage is bounded by evicting the least
+ * recently used content.
+ *
+ * @since 3.70
+ */
+public class S3LocalCache
+    extends ComponentSupport
+{
+  private final Path directory;
+
+  private final long maxBlobSize;
+
+  private final MetricRegistry registry;
+
+  private final String metricPrefix;
+
+  private final Cache<BlobId, BlobAttributes> attributes;
+
+  private final Cache<BlobId, CachedContent> contents;
+
+  private final LongAdder attributeHits = new LongAdder();
+
+  private final LongAdder attributeMisses = new LongAdder();
+
+  private final LongAdder contentHits = new LongAdder();
+
+  private final LongAdder contentMisses = new LongAdder();
+
+  S3LocalCache(
+      final String blobStoreName,
+      final Path directory,
+      final long maxSize,
+      final long maxBlobSize,
+      final int maxAttributes,
+      final Duration attributesTimeToLive,
+      final MetricRegistry registry) throws IOException
+  {
+    this.directory = checkNotNull(directory);
+    this.maxBlobSize = maxBlobSize;
+    this.registry = checkNotNull(registry);
+
+    // content is only indexed in memory, so anything left from a previous run is unreachable
+    DirectoryHelper.mkdir(directory);
+    DirectoryHelper.empty(directory);
+
+    this.attributes = CacheBuilder.newBuilder()
+        .maximumSize(maxAttributes)
+        .expireAfterWrite(attributesTimeToLive.toMillis(), MILLISECONDS)
+        .build();
+
+    // weigh content in kilobytes so large caches don't overflow the integer weights
+    this.contents = CacheBuilder.newBuilder()
+        .maximumWeight(maxSize / 1024)
+        .weigher((BlobId blobId, CachedContent content) -> (int) min(Integer.MAX_VALUE, content.size / 1024 + 1))
+        .removalListener((RemovalNotification<BlobId, CachedContent> removal) -> deleteQuietly(removal.getValue().file))
+        .build();
+
+    this.metricPrefix = MetricRegistry.name(S3BlobStore.class, METRIC_NAME, "localCache", blobStoreName);
+    register("attributesHitRatio", () -> ratio(attributeHits, attributeMisses));
+    register("contentHitRatio", () -> ratio(contentHits, contentMisses));
+    register("contentHits", contentHits::sum);
+    register("contentMisses", contentMisses::sum);
+    register("contentCount", contents::size);
+  }
+
+  /**
+   * Returns the cached attributes of the blob, if present.
+   */
+  @Nullable
+  public BlobAttributes getAttributes(final BlobId blobId) {
+    BlobAttributes cached = attributes.getIfPresent(blobId);
+    (cached != null ? attributeHits : attributeMisses).increment();
+    return cached;
+  }
+
+  public void putAttributes(final BlobId blobId, final BlobAttributes blobAttributes) {
+    attributes.put(blobId, blobAttributes);
+  }
+
+  public void invalidateAttributes(final BlobId blobId) {
+    attributes.invalidate(blobId);
+  }
+
+  /**
+   * Forgets both the attributes and content of the blob.
+   */
+  public void invalidate(final BlobId blobId) {
+    attributes.invalidate(blobId);
+    contents.invalidate(blobId);
+  }
+
+  /**
+   * Opens the cached content of the blob, if present and matching the given metrics.
+   */
+  @Nullable
+  public InputStream openContent(final BlobId blobId, final BlobMetrics metrics) {
+    CachedContent cached = contents.getIfPresent(blobId);
+    if (cached != null && cached.matches(metrics)) {
+      try {
+        InputStream content = Files.newInputStream(cached.file);
+        contentHits.increment();
+        return content;
+      }
+      catch (IOException e) {
+        log.debug("Unable to open cached content of blob {} at {}", blobId, cached.file, e);
+      }
+    }
+    if (cached != null) {
+      contents.asMap().remove(blobId, cached);
+    }
+    contentMisses.increment();
+    return null;
+  }
+
+  /**
+   * Wraps the content read from S3 so that it is added to the cache once it has been read in full.
+   */
+  public InputStream cacheContent(final BlobId blobId, final BlobMetrics metrics, final InputStream content) {
+    if (metrics.getContentSize() > maxBlobSize || metrics.getSha1Hash() == null) {
+      return content;
+    }
+    try {
+      Path file = Files.createTempFile(directory, "blob-", ".bytes");
+      return new CachingInputStream(content, blobId, metrics, file);
+    }
+    catch (IOException e) {
+      log.debug("Unable to cache content of blob {}", blobId, e);
+      return content;
+    }
+  }
+
+  /**
+   * Drops everything that is cached and unregisters the metrics.
+   */
+  public void close() {
+    registry.removeMatching((name, metric) -> name.startsWith(metricPrefix + '.'));
+    attributes.invalidateAll();
+    contents.invalidateAll();
+    try {
+      DirectoryHelper.deleteIfExists(directory);
+    }
+    catch (IOException e) {
+      log.warn("Unable to delete local cache directory {}", directory, e);
+    }
+  }
+
+  private void register(final String name, final Gauge<?> gauge) {
+    String metricName = MetricRegistry.name(metricPrefix, name);
+    registry.remove(metricName);
+    registry.register(metricName, gauge);
+  }
+
+  private static double ratio(final LongAdder hits, final LongAdder misses) {
+    long hitCount = hits.sum();
+    long total = hitCount + misses.sum();
+    return total == 0 ? 0.0 : (double) hitCount / total;
+  }
+
+  private void deleteQuietly(final Path file) {
+    try {
+      Files.deleteIfExists(file);
+    }
+    catch (IOException e) {
+      log.debug("Unable to delete cached content {}", file, e);
+    }
+  }
+
+  private static class CachedContent
+  {
+    private final Path file;
+
+    private final String sha1;
+
+    private final long size;
+
+    CachedContent(final Path file, final String sha1, final long size) {
+      this.file = file;
+      this.sha1 = sha1;
+      this.size = size;
+    }
+
+    boolean matches(final BlobMetrics metrics) {
+      return size == metrics.getContentSize() && sha1.equals(metrics.getSha1Hash());
+    }
+  }
+
+  /**
+   * Copies content to a file as it is read, adding the file to the cache if the whole blob was read.
+   */
+  private class CachingInputStream
+      extends FilterInputStream
+  {
+    private final BlobId blobId;
+
+    private final BlobMetrics metrics;
+
+    private final Path file;
+
+    @Nullable
+    private OutputStream out;
+
+    private long written;
+
+    CachingInputStream(
+        final InputStream in,
+        final BlobId blobId,
+        final BlobMetrics metrics,
+        final Path file) throws IOException
+    {
+      super(in);
+      this.blobId = blobId;
+      this.metrics = metrics;
+      this.file = file;
+      this.out = Files.newOutputStream(file);
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b < 0) {
+        complete();
+      }
+      else if (out != null) {
+        try {
+          out.write(b);
+          written++;
+        }
+        catch (IOException e) {
+          abandon(e);
+        }
+      }
+      return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+      int n = super.read(b, off, len);
+      if (n < 0) {
+        complete();
+      }
+      else if (n > 0 && out != null) {
+        try {
+          out.write(b, off, n);
+          written += n;
+        }
+        catch (IOException e) {
+          abandon(e);
+        }
+      }
+      return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+      // skipped bytes would be missing from the copy
+      abandon(null);
+      return super.skip(n);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        abandon(null);
+      }
+    }
+
+    private void complete() {
+      if (out == null) {
+        return;
+      }
+      try {
+        out.close();
+        out = null;
+        if (written == metrics.getContentSize()) {
+          contents.put(blobId, new CachedContent(file, metrics.getSha1Hash(), written));
+        }
+        else {
+          log.debug("Not caching blob {}, read {} bytes but expected {}", blobId, written, metrics.getContentSize());
+          deleteQuietly(file);
+        }
+      }
+      catch (IOException e) {
+        abandon(e);
+      }
+    }
+
+    private void abandon(@Nullable final IOException cause) {
+      if (out == null) {
+        return;
+      }
+      if (cause != null) {
+        log.debug("Unable to cache content of blob {}", blobId, cause);
+      }
+      try {
+        out.close();
+      }
+      catch (IOException e) {
+        log.trace("Unable to close cached content {}", file, e);
+      }
+      out = null;
+      deleteQuietly(file);
+    }
+  }
+}
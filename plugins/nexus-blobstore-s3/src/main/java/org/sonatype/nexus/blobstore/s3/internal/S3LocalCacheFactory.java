@@ -0,0 +1,99 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.goodies.common.ByteSize;
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+
+import com.codahale.metrics.SharedMetricRegistries;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Creates the {@link S3LocalCache} of each {@link S3BlobStore}, when enabled.
+ *
+ * @since 3.70
+ */
+@Named
+@Singleton
+public class S3LocalCacheFactory
+    extends ComponentSupport
+{
+  private static final String KEY_PREFIX = "nexus.s3.localCache.";
+
+  private static final String MAX_SIZE_KEY = KEY_PREFIX + "maxSize";
+
+  private static final String MAX_ATTRIBUTES_KEY = KEY_PREFIX + "maxAttributes";
+
+  private final Path directory;
+
+  private final boolean enabled;
+
+  private final long maxSize;
+
+  private final long maxBlobSize;
+
+  private final int maxAttributes;
+
+  private final Duration attributesTimeToLive;
+
+  @Inject
+  public S3LocalCacheFactory(
+      final ApplicationDirectories applicationDirectories,
+      @Named("${" + KEY_PREFIX + "enabled:-false}") final boolean enabled,
+      @Named("${" + MAX_SIZE_KEY + ":-10gb}") final ByteSize maxSize,
+      @Named("${" + KEY_PREFIX + "maxBlobSize:-100mb}") final ByteSize maxBlobSize,
+      @Named("${" + MAX_ATTRIBUTES_KEY + ":-100000}") final int maxAttributes,
+      @Named("${" + KEY_PREFIX + "attributesTimeToLive:-5m}") final Duration attributesTimeToLive)
+  {
+    checkArgument(maxSize.toBytes() > 0, MAX_SIZE_KEY + " must be positive");
+    checkArgument(maxAttributes > 0, MAX_ATTRIBUTES_KEY + " must be positive");
+    this.directory = checkNotNull(applicationDirectories).getTemporaryDirectory().toPath().resolve("s3-cache");
+    this.enabled = enabled;
+    this.maxSize = maxSize.toBytes();
+    this.maxBlobSize = maxBlobSize.toBytes();
+    this.maxAttributes = maxAttributes;
+    this.attributesTimeToLive = checkNotNull(attributesTimeToLive);
+  }
+
+  /**
+   * Creates the local cache for the named blob store.
+   *
+   * @return the cache; {@code null} if caching is disabled or the cache could not be created
+   */
+  @Nullable
+  public S3LocalCache create(final String blobStoreName) {
+    if (!enabled) {
+      return null;
+    }
+    try {
+      return new S3LocalCache(blobStoreName, directory.resolve(blobStoreName), maxSize, maxBlobSize, maxAttributes,
+          attributesTimeToLive, SharedMetricRegistries.getOrCreate("nexus"));
+    }
+    catch (IOException e) {
+      log.warn("Unable to create local cache for blob store {}, continuing without it", blobStoreName, e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal
+
+import org.sonatype.goodies.common.ByteSize
+
+import com.amazonaws.SdkClientException
+import com.amazonaws.services.s3.AmazonS3
+import com.amazonaws.services.s3.model.GetObjectRequest
+import com.amazonaws.services.s3.model.S3Object
+import com.amazonaws.services.s3.model.S3ObjectInputStream
+import com.google.common.io.ByteStreams
+import org.apache.http.client.methods.HttpGet
+import spock.lang.Specification
+
+/**
+ * {@link ParallelDownloader} tests.
+ */
+class ParallelDownloaderTest
+    extends Specification
+{
+  byte[] data = (0..<1050).collect { it as byte } as byte[]
+
+  AmazonS3 s3 = Mock()
+
+  def 'only objects above the threshold are downloaded in parallel'() {
+    given: 'A parallel downloader'
+      ParallelDownloader downloader = downloader(true, 100, 1000)
+
+    expect: 'the threshold and chunk size to be respected'
+      !downloader.isParallel(99)
+      !downloader.isParallel(100)
+      downloader.isParallel(101)
+      !downloader(false, 100, 1000).isParallel(1000)
+  }
+
+  def 'chunks are reassembled in order'() {
+    given: 'A parallel downloader'
+      ParallelDownloader downloader = downloader(true, 100, 1000)
+
+    when: 'the object is downloaded'
+      def content = downloader.download(s3, 'bucket', 'key', data.length).withCloseable { ByteStreams.toByteArray(it) }
+
+    then: 'every chunk is requested by range and the content is intact'
+      11 * s3.getObject(_ as GetObjectRequest) >> { GetObjectRequest request -> range(request) }
+      content == data
+  }
+
+  def 'chunks are streamed directly while the buffer budget is used up and prefetched again once it is freed'() {
+    given: 'A parallel downloader that can only buffer one chunk, held by another download'
+      ParallelDownloader downloader = downloader(true, 100, 100)
+      Thread reader = Thread.currentThread()
+      List<Long> prefetched = Collections.synchronizedList([])
+      s3.getObject(_ as GetObjectRequest) >> { GetObjectRequest request ->
+        if (request.key == 'b' && Thread.currentThread() != reader) {
+          prefetched << request.range[0]
+        }
+        range(request)
+      }
+      InputStream other = downloader.download(s3, 'bucket', 'a', data.length)
+
+    when: 'the first chunk is read, the other download releases its buffer and the rest is read'
+      InputStream input = downloader.download(s3, 'bucket', 'b', data.length)
+      int first = input.read()
+      other.close()
+      def rest = input.withCloseable { ByteStreams.toByteArray(it) }
+
+    then: 'the first chunk was streamed directly and read-ahead resumed for the remaining chunks'
+      !prefetched.contains(0L)
+      prefetched.size() > 4
+      ([first as byte] + (rest as List)) as byte[] == data
+  }
+
+  def 'disabled downloader does not download'() {
+    when: 'a download is attempted while disabled'
+      downloader(false, 100, 1000).download(s3, 'bucket', 'key', data.length)
+
+    then: 'it is refused'
+      thrown(IllegalStateException)
+  }
+
+  def 'failed chunks fail the download'() {
+    given: 'A parallel downloader'
+      ParallelDownloader downloader = downloader(true, 100, 1000)
+      s3.getObject(_ as GetObjectRequest) >> { GetObjectRequest request ->
+        if (request.range[0] == 500) {
+          throw new SdkClientException('test')
+        }
+        range(request)
+      }
+
+    when: 'the object is downloaded'
+      downloader.download(s3, 'bucket', 'key', data.length).withCloseable { ByteStreams.toByteArray(it) }
+
+    then: 'the error is reported'
+      IOException e = thrown()
+      e.cause instanceof SdkClientException
+  }
+
+  private static ParallelDownloader downloader(final boolean enabled, final int chunkSize, final long maxBufferSize) {
+    return new ParallelDownloader(enabled, ByteSize.bytes(0), chunkSize, 4, 3, ByteSize.bytes(maxBufferSize))
+  }
+
+  private S3Object range(final GetObjectRequest request) {
+    int start = (int) request.range[0]
+    int length = (int) request.range[1] - start + 1
+    S3Object object = new S3Object()
+    object.objectMetadata.contentLength = length
+    object.objectContent = new S3ObjectInputStream(new ByteArrayInputStream(data, start, length), new HttpGet())
+    return object
+  }
+}
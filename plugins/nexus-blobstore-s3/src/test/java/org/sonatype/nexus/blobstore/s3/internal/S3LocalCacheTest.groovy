@@ -0,0 +1,118 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.s3.internal
+
+import java.nio.file.Files
+import java.nio.file.Path
+import java.time.Duration
+
+import org.sonatype.nexus.blobstore.api.BlobAttributes
+import org.sonatype.nexus.blobstore.api.BlobId
+import org.sonatype.nexus.blobstore.api.BlobMetrics
+
+import com.codahale.metrics.MetricRegistry
+import com.google.common.hash.Hashing
+import org.joda.time.DateTime
+import spock.lang.Specification
+
+/**
+ * {@link S3LocalCache} tests.
+ */
+class S3LocalCacheTest
+    extends Specification
+{
+  static final String HIT_RATIO = 'org.sonatype.nexus.blobstore.s3.internal.S3BlobStore.s3Blobstore.localCache.test.contentHitRatio'
+
+  Path directory = Files.createTempDirectory('s3-cache-test')
+
+  MetricRegistry registry = new MetricRegistry()
+
+  BlobId blobId = new BlobId('test-blob')
+
+  byte[] data = 'some blob content'.bytes
+
+  BlobMetrics metrics = new BlobMetrics(new DateTime(), Hashing.sha1().hashBytes(data).toString(), data.length)
+
+  S3LocalCache underTest = cache(1024 * 1024)
+
+  def cleanup() {
+    underTest.close()
+    directory.toFile().deleteDir()
+  }
+
+  def 'content read in full is served from the cache'() {
+    when: 'the content is read through the cache'
+      def first = underTest.openContent(blobId, metrics)
+      underTest.cacheContent(blobId, metrics, new ByteArrayInputStream(data)).withCloseable { it.bytes }
+
+    then: 'the next read is served locally'
+      first == null
+      underTest.openContent(blobId, metrics).withCloseable { it.bytes } == data
+      registry.gauges[HIT_RATIO].value == 0.5d
+  }
+
+  def 'partially read content is not cached'() {
+    when: 'the content is only partly read'
+      underTest.cacheContent(blobId, metrics, new ByteArrayInputStream(data)).withCloseable { it.read(new byte[4]) }
+
+    then: 'nothing is cached or left on disk'
+      underTest.openContent(blobId, metrics) == null
+      Files.list(underTest.directory).count() == 0
+  }
+
+  def 'content is not served when the blob has changed'() {
+    given: 'cached content'
+      underTest.cacheContent(blobId, metrics, new ByteArrayInputStream(data)).withCloseable { it.bytes }
+
+    when: 'the blob now has different content'
+      def changed = new BlobMetrics(new DateTime(), Hashing.sha1().hashBytes('other'.bytes).toString(), 5)
+
+    then: 'the cached content is dropped'
+      underTest.openContent(blobId, changed) == null
+      underTest.openContent(blobId, metrics) == null
+  }
+
+  def 'invalidation drops attributes and content'() {
+    given: 'cached attributes and content'
+      BlobAttributes attributes = Mock()
+      underTest.putAttributes(blobId, attributes)
+      underTest.cacheContent(blobId, metrics, new ByteArrayInputStream(data)).withCloseable { it.bytes }
+
+    when: 'the blob is invalidated'
+      underTest.invalidate(blobId)
+
+    then: 'nothing is served from the cache'
+      underTest.getAttributes(blobId) == null
+      underTest.openContent(blobId, metrics) == null
+  }
+
+  def 'least recently used content is evicted beyond the size limit'() {
+    given: 'a cache with room for a few small blobs'
+      underTest.close()
+      underTest = cache(8 * 1024)
+
+    when: 'many blobs are cached'
+      (1..20).each {
+        underTest.cacheContent(new BlobId("blob-$it"), metrics, new ByteArrayInputStream(data)).withCloseable { it.bytes }
+      }
+
+    then: 'only the most recent fit'
+      Files.list(underTest.directory).count() <= 8
+      underTest.openContent(new BlobId('blob-20'), metrics) != null
+      underTest.openContent(new BlobId('blob-1'), metrics) == null
+  }
+
+  private S3LocalCache cache(final long maxSize) {
+    return new S3LocalCache('test', directory.resolve('test'), maxSize, 1024, 100, Duration.ofMinutes(5), registry)
+  }
+}
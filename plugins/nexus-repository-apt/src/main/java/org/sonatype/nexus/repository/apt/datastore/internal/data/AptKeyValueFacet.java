@@ -12,6 +12,10 @@
  */
 package org.sonatype.nexus.repository.apt.datastore.internal.data;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Named;
@@ -37,6 +41,14 @@ public class AptKeyValueFacet
 
   private final static String CATEGORY = StringUtils.EMPTY;
 
+  private static final String INDEX_CATEGORY_PREFIX = "index:";
+
+  private static final String STALE_INDEX_CATEGORY = "index-stale";
+
+  private static final String INDEX_STATE_CATEGORY = "index-state";
+
+  private static final String INITIALIZED = "initialized";
+
   @Inject
   public AptKeyValueFacet(
       @Named("${nexus.apt.paging.size:-100}") final int limit
@@ -69,10 +81,23 @@ public class AptKeyValueFacet
   }
 
   /**
-   * Remove all AptDeb metadata.
+   * Get the AptDeb metadata.
+   *
+   * @param assetId     the assetId
+   * @param componentId the componentId
+   * @return the json of the AptDeb metadata, if stored
+   *
+   * @since 3.70
+   */
+  public Optional<String> getPackageMetadata(final int componentId, final int assetId) {
+    return get(CATEGORY, aptKey(componentId, assetId));
+  }
+
+  /**
+   * Remove all AptDeb metadata, along with the package index sections kept for it.
    */
   public void removeAllPackageMetadata() {
-    removeAll(CATEGORY);
+    removeAll();
   }
 
   /**
@@ -81,11 +106,148 @@ public class AptKeyValueFacet
    * @return a stream of value objects representing AptDeb metadata as String
    */
   public Stream<String> browsePackagesMetadata() {
+    return browsePackagesMetadataEntries().map(KeyValue::getValue);
+  }
+
+  /**
+   * Browse AptDeb metadata along with the keys it is stored under.
+   *
+   * @return a stream of key-value objects representing AptDeb metadata
+   *
+   * @since 3.70
+   */
+  public Stream<KeyValue> browsePackagesMetadataEntries() {
+    return Continuations
+        .streamOf((browseLimit, continuationToken) -> browseValues(CATEGORY, browseLimit, continuationToken), limit);
+  }
+
+  /**
+   * Store the package index section of an AptDeb, keeping the sections of each architecture sorted by package name.
+   *
+   * @since 3.70
+   */
+  public void addIndexSection(
+      final String architecture,
+      final String packageName,
+      final int componentId,
+      final int assetId,
+      final String indexSection)
+  {
+    addIndexSection(architecture, packageName, aptKey(componentId, assetId), indexSection);
+  }
+
+  /**
+   * Store the package index section of an AptDeb, keeping the sections of each architecture sorted by package name.
+   *
+   * @param metadataKey the key the AptDeb metadata is stored under, as browsed
+   * @since 3.70
+   */
+  public void addIndexSection(
+      final String architecture,
+      final String packageName,
+      final String metadataKey,
+      final String indexSection)
+  {
+    set(INDEX_CATEGORY_PREFIX + architecture, indexKey(packageName, metadataKey), indexSection);
+  }
+
+  /**
+   * Remove the package index section of an AptDeb.
+   *
+   * @since 3.70
+   */
+  public void removeIndexSection(
+      final String architecture,
+      final String packageName,
+      final int componentId,
+      final int assetId)
+  {
+    remove(INDEX_CATEGORY_PREFIX + architecture, indexKey(packageName, aptKey(componentId, assetId)));
+  }
+
+  /**
+   * Browse the package index sections of an architecture, sorted by package name.
+   *
+   * @since 3.70
+   */
+  public Stream<String> browseIndexSections(final String architecture) {
     return Continuations
-        .streamOf((browseLimit, continuationToken) -> browseValues(CATEGORY, browseLimit, continuationToken), limit)
+        .streamOf((browseLimit, continuationToken) ->
+            browseValues(INDEX_CATEGORY_PREFIX + architecture, browseLimit, continuationToken), limit)
         .map(KeyValue::getValue);
   }
 
+  /**
+   * Lists the architectures with package index sections.
+   *
+   * @since 3.70
+   */
+  public List<String> browseIndexArchitectures() {
+    return browseCategories().stream()
+        .filter(category -> category.startsWith(INDEX_CATEGORY_PREFIX))
+        .map(category -> category.substring(INDEX_CATEGORY_PREFIX.length()))
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Marks the package index of an architecture as needing to be written again.
+   *
+   * @since 3.70
+   */
+  public void markIndexStale(final String architecture) {
+    set(STALE_INDEX_CATEGORY, architecture, StringUtils.EMPTY);
+  }
+
+  /**
+   * Returns the architectures whose package index needs to be written again, clearing their marks.
+   *
+   * @since 3.70
+   */
+  public Set<String> takeStaleIndexes() {
+    Set<String> architectures;
+    try (Stream<KeyValue> stale = Continuations.streamOf(
+        (browseLimit, continuationToken) -> browseValues(STALE_INDEX_CATEGORY, browseLimit, continuationToken),
+        limit)) {
+      architectures = stale.map(KeyValue::getKey).collect(Collectors.toSet());
+    }
+    architectures.forEach(architecture -> remove(STALE_INDEX_CATEGORY, architecture));
+    return architectures;
+  }
+
+  /**
+   * Whether any package index needs to be written again.
+   *
+   * @since 3.70
+   */
+  public boolean hasStaleIndexes() {
+    return countValues(STALE_INDEX_CATEGORY) > 0;
+  }
+
+  /**
+   * Whether package index sections are kept for all of the stored AptDeb metadata.
+   *
+   * @since 3.70
+   */
+  public boolean isIndexInitialized() {
+    return get(INDEX_STATE_CATEGORY, INITIALIZED).isPresent();
+  }
+
+  /**
+   * Records that package index sections are kept for all of the stored AptDeb metadata from now on.
+   *
+   * @since 3.70
+   */
+  public void markIndexInitialized() {
+    set(INDEX_STATE_CATEGORY, INITIALIZED, StringUtils.EMPTY);
+  }
+
+  /*
+   * Creates a key sorting the index sections of packages by name.
+   */
+  private String indexKey(final String packageName, final String metadataKey) {
+    return packageName + '/' + metadataKey;
+  }
+
   /*
    * Creates a key for componentId. This should only be used for storing AptDeb JSON.
    * Other use cases should avoid overlapping this key structure.
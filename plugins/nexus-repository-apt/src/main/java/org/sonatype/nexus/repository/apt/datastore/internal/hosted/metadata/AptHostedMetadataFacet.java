@@ -17,17 +17,26 @@ import java.io.Writer;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.OptionalInt;
 import java.util.Set;
 import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.inject.Inject;
 import javax.inject.Named;
 
@@ -51,11 +60,13 @@ import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.AssetBlob;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.kv.KeyValue;
 import org.sonatype.nexus.repository.content.store.InternalIds;
 import org.sonatype.nexus.repository.content.utils.FormatAttributesUtils;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.payloads.BytesPayload;
 import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
@@ -64,6 +75,7 @@ import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.time.DateFormatUtils;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static org.apache.http.protocol.HttpDateGenerator.PATTERN_RFC1123;
 import static org.sonatype.nexus.common.hash.HashAlgorithm.MD5;
@@ -81,12 +93,21 @@ import static org.sonatype.nexus.repository.apt.internal.ReleaseName.RELEASE_GPG
 
 /**
  * Apt metadata facet. Holds the logic for metadata recalculation.
+ *
+ * In incremental mode the package index section of every package is also kept per architecture, sorted by package
+ * name, and updated as packages are added and removed. Rebuilding the metadata then only writes the package indexes
+ * of the architectures that changed since the last rebuild, reading their sections as they are, and keeps the indexes
+ * of the other architectures. The sections are populated by the first rebuild after incremental mode is enabled, or
+ * after the metadata of the repository has been rebuilt from scratch.
  */
 @Named(AptFormat.NAME)
 @Exposed
 public class AptHostedMetadataFacet
     extends FacetSupport
 {
+  private static final String COMPRESSION_THREADS_KEY = "nexus.apt.metadata.compressionThreads";
+
+  private static final String[] INDEX_EXTENSIONS = {StringUtils.EMPTY, GZ, BZ2};
 
   private final ObjectMapper mapper;
 
@@ -96,6 +117,12 @@ public class AptHostedMetadataFacet
 
   private Cooperation2 cooperation;
 
+  private final int compressionThreads;
+
+  private final boolean incrementalIndexes;
+
+  private ExecutorService compressionExecutor;
+
   @Inject
   public AptHostedMetadataFacet(
       final ObjectMapper mapper,
@@ -104,7 +131,9 @@ public class AptHostedMetadataFacet
       @Named("${nexus.apt.metadata.cooperation.enabled:-true}") final boolean cooperationEnabled,
       @Named("${nexus.apt.metadata.cooperation.majorTimeout:-0s}") final Duration majorTimeout,
       @Named("${nexus.apt.metadata.cooperation.minorTimeout:-30s}") final Duration minorTimeout,
-      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey)
+      @Named("${nexus.apt.metadata.cooperation.threadsPerKey:-100}") final int threadsPerKey,
+      @Named("${" + COMPRESSION_THREADS_KEY + ":-4}") final int compressionThreads,
+      @Named("${nexus.apt.metadata.incremental:-false}") final boolean incrementalIndexes)
   {
     this.mapper = checkNotNull(mapper);
     this.clock = checkNotNull(clock);
@@ -113,6 +142,9 @@ public class AptHostedMetadataFacet
         .majorTimeout(majorTimeout)
         .minorTimeout(minorTimeout)
         .threadsPerKey(threadsPerKey);
+    checkArgument(compressionThreads > 0, COMPRESSION_THREADS_KEY + " must be positive");
+    this.compressionThreads = compressionThreads;
+    this.incrementalIndexes = incrementalIndexes;
   }
 
   @Override
@@ -121,20 +153,69 @@ public class AptHostedMetadataFacet
     this.cooperation = cooperationBuilder.build(getRepository().getName() + ":repomd");
   }
 
+  @Override
+  protected void doStart() throws Exception {
+    super.doStart();
+    ThreadPoolExecutor executor = new ThreadPoolExecutor(
+        compressionThreads,
+        compressionThreads,
+        60L,
+        TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(),
+        new NexusThreadFactory("apt-metadata", getRepository().getName()));
+    // rebuilds are occasional, so don't keep idle threads around between them
+    executor.allowCoreThreadTimeOut(true);
+    compressionExecutor = executor;
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    if (compressionExecutor != null) {
+      compressionExecutor.shutdown();
+      compressionExecutor = null;
+    }
+    super.doStop();
+  }
+
   public void addPackageMetadata(final FluentAsset asset) {
     checkNotNull(asset);
     log.debug("Storing metadata for repository: {} asset: {}", getRepository().getName(), asset.path());
-    componentId(asset).ifPresent(componentId ->
-        data().addPackageMetadata(componentId, InternalIds.internalAssetId(asset), serialize(asset))
-    );
+    componentId(asset).ifPresent(componentId -> {
+      int assetId = InternalIds.internalAssetId(asset);
+      Optional<String> previous = data().getPackageMetadata(componentId, assetId);
+      data().addPackageMetadata(componentId, assetId, serialize(asset));
+      // checked after storing the metadata, so that sections are never missed by the first incremental rebuild
+      if (data().isIndexInitialized()) {
+        previous.map(this::deserialize).ifPresent(metadata -> removeIndexSection(componentId, assetId, metadata));
+        addIndexSection(componentId, assetId, FormatAttributesUtils.getFormatAttributes(asset));
+      }
+    });
   }
 
   public void removePackageMetadata(final FluentAsset asset) {
     checkNotNull(asset);
     log.debug("Removing metadata for repository: {} asset: {}", getRepository().getName(), asset.path());
-    componentId(asset).ifPresent(componentId ->
-        data().removePackageMetadata(componentId, InternalIds.internalAssetId(asset))
-    );
+    componentId(asset).ifPresent(componentId -> {
+      int assetId = InternalIds.internalAssetId(asset);
+      Optional<String> previous = data().getPackageMetadata(componentId, assetId);
+      data().removePackageMetadata(componentId, assetId);
+      if (data().isIndexInitialized()) {
+        previous.map(this::deserialize).ifPresent(metadata -> removeIndexSection(componentId, assetId, metadata));
+      }
+    });
+  }
+
+  private void addIndexSection(final int componentId, final int assetId, final Map<String, Object> metadata) {
+    String architecture = metadata.get(P_ARCHITECTURE).toString();
+    data().addIndexSection(architecture, metadata.get(P_PACKAGE_NAME).toString(), componentId, assetId,
+        metadata.get(P_INDEX_SECTION).toString());
+    data().markIndexStale(architecture);
+  }
+
+  private void removeIndexSection(final int componentId, final int assetId, final Map<String, Object> metadata) {
+    String architecture = metadata.get(P_ARCHITECTURE).toString();
+    data().removeIndexSection(architecture, metadata.get(P_PACKAGE_NAME).toString(), componentId, assetId);
+    data().markIndexStale(architecture);
   }
 
   public void removeInReleaseIndex() {
@@ -163,44 +244,32 @@ public class AptHostedMetadataFacet
     AptContentFacet aptFacet = content();
     AptSigningFacet signingFacet = signing();
 
-    removeMetadataPerArchitecture();
+    // the plain, GZIP and BZ2 package index of each architecture
+    Map<String, List<FluentAsset>> packageIndexes = new TreeMap<>();
+    if (incrementalIndexes && data().isIndexInitialized()) {
+      updateStalePackageIndexes(packageIndexes);
+    }
+    else {
+      rebuildPackageIndexes(changeList, packageIndexes);
+    }
 
     StringBuilder sha256Builder = new StringBuilder();
     StringBuilder md5Builder = new StringBuilder();
-    String releaseFile;
-    try (CompressingTempFileStore store = buildPackageIndexes(changeList)) {
-      for (Map.Entry<String, CompressingTempFileStore.FileMetadata> entry : store.getFiles().entrySet()) {
-        FluentAsset metadataAsset = aptFacet.put(
-            packageIndexName(entry.getKey(), StringUtils.EMPTY),
-            new StreamPayload(entry.getValue().plainSupplier(), entry.getValue().plainSize(), AptMimeTypes.TEXT)
-        );
-        addSignatureItem(md5Builder, MD5, metadataAsset, packageRelativeIndexName(entry.getKey(), StringUtils.EMPTY));
-        addSignatureItem(sha256Builder, SHA256, metadataAsset,
-            packageRelativeIndexName(entry.getKey(), StringUtils.EMPTY));
-
-        FluentAsset gzMetadataAsset = aptFacet.put(
-            packageIndexName(entry.getKey(), GZ),
-            new StreamPayload(entry.getValue().gzSupplier(), entry.getValue().bzSize(), AptMimeTypes.GZIP)
-        );
-        addSignatureItem(md5Builder, MD5, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
-        addSignatureItem(sha256Builder, SHA256, gzMetadataAsset, packageRelativeIndexName(entry.getKey(), GZ));
-
-        FluentAsset bzMetadataAsset = aptFacet.put(
-            packageIndexName(entry.getKey(), BZ2),
-            new StreamPayload(entry.getValue().bzSupplier(), entry.getValue().bzSize(), AptMimeTypes.BZIP)
-        );
-        addSignatureItem(md5Builder, MD5, bzMetadataAsset, packageRelativeIndexName(entry.getKey(), BZ2));
-        addSignatureItem(sha256Builder, SHA256, bzMetadataAsset, packageRelativeIndexName(entry.getKey(), BZ2));
+    for (Map.Entry<String, List<FluentAsset>> entry : packageIndexes.entrySet()) {
+      for (int i = 0; i < INDEX_EXTENSIONS.length; i++) {
+        String relativeName = packageRelativeIndexName(entry.getKey(), INDEX_EXTENSIONS[i]);
+        addSignatureItem(md5Builder, MD5, entry.getValue().get(i), relativeName);
+        addSignatureItem(sha256Builder, SHA256, entry.getValue().get(i), relativeName);
       }
-
-      releaseFile = buildReleaseFile(
-          aptFacet.getDistribution(),
-          store.getFiles().keySet(),
-          md5Builder.toString(),
-          sha256Builder.toString()
-      );
     }
 
+    String releaseFile = buildReleaseFile(
+        aptFacet.getDistribution(),
+        packageIndexes.keySet(),
+        md5Builder.toString(),
+        sha256Builder.toString()
+    );
+
     FluentAsset releaseFileAsset = aptFacet.put(
         releaseIndexName(RELEASE),
         new BytesPayload(releaseFile.getBytes(StandardCharsets.UTF_8), AptMimeTypes.TEXT)
@@ -214,6 +283,11 @@ public class AptHostedMetadataFacet
         new BytesPayload(signingFacet.signExternal(releaseFile), AptMimeTypes.SIGNATURE)
     );
 
+    if (incrementalIndexes && data().hasStaleIndexes()) {
+      // packages changed while rebuilding, make sure the next request rebuilds the metadata again
+      removeInReleaseIndex();
+    }
+
     if (log.isDebugEnabled()) {
       long finishTime = System.currentTimeMillis();
       log.debug("Completed metadata rebuild in {}", finishTime - rebuildStart.toInstant().toEpochMilli());
@@ -222,81 +296,170 @@ public class AptHostedMetadataFacet
     return releaseFileAsset.download();
   }
 
-  private CompressingTempFileStore buildPackageIndexes(final List<AssetChange> changes)
-      throws IOException
+  /**
+   * Writes the package indexes of every architecture from the stored package metadata, populating the package index
+   * sections of each architecture along the way when in incremental mode.
+   */
+  private void rebuildPackageIndexes(
+      final List<AssetChange> changeList,
+      final Map<String, List<FluentAsset>> packageIndexes) throws IOException
   {
-    CompressingTempFileStore result = new CompressingTempFileStore();
-    Map<String, Writer> streams = new HashMap<>();
+    boolean populateSections = incrementalIndexes;
+    if (populateSections) {
+      // marked before reading the metadata, so that packages stored meanwhile add their own sections
+      data().markIndexInitialized();
+      data().takeStaleIndexes();
+    }
+
+    removeMetadataPerArchitecture();
+
+    try (CompressingTempFileStore store = buildPackageIndexes(changeList, populateSections)) {
+      for (Map.Entry<String, CompressingTempFileStore.FileMetadata> entry : store.getFiles().entrySet()) {
+        packageIndexes.put(entry.getKey(), putPackageIndex(entry.getKey(), entry.getValue()));
+      }
+    }
+  }
+
+  /**
+   * Writes the package indexes of the architectures whose packages changed since the last rebuild, keeping those of
+   * the other architectures.
+   */
+  private void updateStalePackageIndexes(final Map<String, List<FluentAsset>> packageIndexes) throws IOException {
+    Set<String> stale = data().takeStaleIndexes();
     boolean ok = false;
     try {
-      Set<String> architectures =
-          changes.stream()
-              .map(change -> getArchitecture(change.getAsset()))
-              .collect(Collectors.toSet());
-
-      final List<Map<String, Object>> packagesInfo = data()
-          .browsePackagesMetadata()
-          .map(this::deserialize)
-          .collect(Collectors.toList());
-
-      packagesInfo.stream().map(x -> x.get(P_ARCHITECTURE).toString())
-          .collect(Collectors.toCollection(() -> architectures));
-
-      Map<String, List<Map<String, Object>>> assetsPerArch = new HashMap<>();
-      for (String architecture : architectures) {
-        List<Map<String, Object>> assets = packagesInfo.stream()
-            .filter(x -> x.get(P_ARCHITECTURE).toString().equals(architecture))
-            .collect(Collectors.toList());
-        assetsPerArch.put(architecture, assets);
+      for (String architecture : data().browseIndexArchitectures()) {
+        if (!stale.contains(architecture)) {
+          Optional<List<FluentAsset>> existing = existingPackageIndex(architecture);
+          if (existing.isPresent()) {
+            packageIndexes.put(architecture, existing.get());
+          }
+          else {
+            stale.add(architecture);
+          }
+        }
       }
 
-      for (List<Map<String, Object>> assets : assetsPerArch.values()) {
-        Optional<AssetChange> removeAssetChange =
-            changes.stream()
-                .filter(change -> change.getAsset().kind().equals(DEB))
-                .filter(change -> change.getAction() == AssetAction.REMOVED)
-                .findAny();
-
-        if (assets.isEmpty() && removeAssetChange.isPresent()) {
-          createEmptyMetadataFile(result, streams, removeAssetChange.get());
+      try (CompressingTempFileStore store = new CompressingTempFileStore(compressionExecutor)) {
+        for (String architecture : new TreeSet<>(stale)) {
+          boolean empty = true;
+          try (Writer writer = store.openOutput(architecture);
+               Stream<String> sections = data().browseIndexSections(architecture)) {
+            Iterator<String> iterator = sections.iterator();
+            while (iterator.hasNext()) {
+              writer.write(iterator.next());
+              writer.write("\n\n");
+              empty = false;
+            }
+          }
+          if (empty) {
+            // the last package of the architecture was removed
+            log.debug("Removing metadata of architecture {} at {}", architecture, getRepository().getName());
+            content().deleteAssetsByPrefix(normalizeAssetPath(mainBinaryPrefix() + architecture + '/'));
+          }
         }
-        else {
-          createMetadataFileWithData(changes, result, streams, assets);
+        for (Map.Entry<String, CompressingTempFileStore.FileMetadata> entry : store.getFiles().entrySet()) {
+          if (entry.getValue().plainSize() > 0) {
+            packageIndexes.put(entry.getKey(), putPackageIndex(entry.getKey(), entry.getValue()));
+          }
         }
       }
       ok = true;
     }
     finally {
-      for (Writer writer : streams.values()) {
-        IOUtils.closeQuietly(writer, null);
+      if (!ok) {
+        stale.forEach(data()::markIndexStale);
       }
+    }
+  }
 
-      if (!ok) {
-        result.close();
+  private List<FluentAsset> putPackageIndex(
+      final String architecture,
+      final CompressingTempFileStore.FileMetadata metadata) throws IOException
+  {
+    AptContentFacet aptFacet = content();
+    return Arrays.asList(
+        aptFacet.put(
+            packageIndexName(architecture, StringUtils.EMPTY),
+            new StreamPayload(metadata.plainSupplier(), metadata.plainSize(), AptMimeTypes.TEXT)),
+        aptFacet.put(
+            packageIndexName(architecture, GZ),
+            new StreamPayload(metadata.gzSupplier(), metadata.gzSize(), AptMimeTypes.GZIP)),
+        aptFacet.put(
+            packageIndexName(architecture, BZ2),
+            new StreamPayload(metadata.bzSupplier(), metadata.bzSize(), AptMimeTypes.BZIP)));
+  }
+
+  private Optional<List<FluentAsset>> existingPackageIndex(final String architecture) {
+    List<FluentAsset> assets = new ArrayList<>();
+    for (String extension : INDEX_EXTENSIONS) {
+      Optional<FluentAsset> asset = content().getAsset(packageIndexName(architecture, extension));
+      if (!asset.isPresent()) {
+        return Optional.empty();
       }
+      assets.add(asset.get());
     }
-    return result;
+    return Optional.of(assets);
   }
 
-  private void createMetadataFileWithData(
+  /**
+   * Writes the package index of every architecture in a single pass over the stored package metadata. Each index is
+   * compressed in the background as it is written, so architectures and their GZIP and BZ2 variants compress in
+   * parallel.
+   */
+  private CompressingTempFileStore buildPackageIndexes(
       final List<AssetChange> changes,
-      final CompressingTempFileStore result,
-      final Map<String, Writer> streams,
-      final List<Map<String, Object>> assets) throws IOException
+      final boolean populateSections) throws IOException
   {
-    // NOTE:  We exclude added assets as well to account for the case where we are replacing an asset
-    Set<String> excludeNames = changes.stream().map(c -> c.getAsset().path()).collect(Collectors.toSet());
-
-    for (Map<String, Object> asset : assets) {
-      final String name = asset.get(P_PACKAGE_NAME).toString();
-      final String arch = asset.get(P_ARCHITECTURE).toString();
-      Writer outWriter = streams.computeIfAbsent(arch, result::openOutput);
-      if (!excludeNames.contains(name)) {
-        final String indexSection = asset.get(P_INDEX_SECTION).toString();
-        outWriter.write(indexSection);
-        outWriter.write("\n\n");
+    CompressingTempFileStore result = new CompressingTempFileStore(compressionExecutor);
+    Map<String, Writer> streams = new HashMap<>();
+    boolean ok = false;
+    try {
+      // NOTE:  We exclude added assets as well to account for the case where we are replacing an asset
+      Set<String> excludeNames = changes.stream().map(c -> c.getAsset().path()).collect(Collectors.toSet());
+
+      try (Stream<KeyValue> packagesMetadata = data().browsePackagesMetadataEntries()) {
+        Iterator<KeyValue> packagesInfo = packagesMetadata.iterator();
+        while (packagesInfo.hasNext()) {
+          KeyValue entry = packagesInfo.next();
+          Map<String, Object> asset = deserialize(entry.getValue());
+          final String name = asset.get(P_PACKAGE_NAME).toString();
+          final String arch = asset.get(P_ARCHITECTURE).toString();
+          final String indexSection = asset.get(P_INDEX_SECTION).toString();
+          Writer outWriter = streams.computeIfAbsent(arch, result::openOutput);
+          if (!excludeNames.contains(name)) {
+            outWriter.write(indexSection);
+            outWriter.write("\n\n");
+          }
+          if (populateSections) {
+            data().addIndexSection(arch, name, entry.getKey(), indexSection);
+          }
+        }
       }
+
+      boolean architectureWithoutPackages = changes.stream()
+          .map(change -> getArchitecture(change.getAsset()))
+          .anyMatch(architecture -> !streams.containsKey(architecture));
+
+      if (architectureWithoutPackages) {
+        changes.stream()
+            .filter(change -> change.getAsset().kind().equals(DEB))
+            .filter(change -> change.getAction() == AssetAction.REMOVED)
+            .findAny()
+            .ifPresent(removeAssetChange -> createEmptyMetadataFile(result, streams, removeAssetChange));
+      }
+      ok = true;
     }
+    finally {
+      for (Writer writer : streams.values()) {
+        IOUtils.closeQuietly(writer, null);
+      }
+
+      if (!ok) {
+        result.close();
+      }
+    }
+    return result;
   }
 
   private String buildReleaseFile(
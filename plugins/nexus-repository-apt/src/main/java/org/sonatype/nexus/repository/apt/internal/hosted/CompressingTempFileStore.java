@@ -12,38 +12,87 @@
  */
 package org.sonatype.nexus.repository.apt.internal.hosted;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.zip.GZIPOutputStream;
 
+import javax.annotation.Nullable;
+
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.nexus.common.io.InputStreamSupplier;
 
 import com.google.common.base.Charsets;
 import com.google.common.collect.Maps;
 import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.CountingOutputStream;
 import org.bouncycastle.util.io.TeeOutputStream;
 
 /**
  * Stores a set of temp files, automatically compressing each into a GZIP, BZ2 and plain format.
  *
+ * All three formats are written in a single pass over the output. When created with an {@link Executor} the GZIP and
+ * BZ2 compression of each output runs on the executor while the output is written, so outputs and their compressed
+ * variants are compressed in parallel; {@link #getFiles()} waits for them to complete. Compression falls back to the
+ * calling thread when the executor rejects it.
+ *
  * @since 3.17
  */
 public class CompressingTempFileStore
     extends ComponentSupport
     implements AutoCloseable
 {
+  /**
+   * Size of the chunks of output handed to the executor.
+   */
+  private static final int CHUNK_SIZE = 64 * 1024;
+
+  /**
+   * Maximum number of chunks waiting to be compressed per variant, before writers are held back.
+   */
+  private static final int MAX_QUEUED_CHUNKS = 16;
+
   private final Map<String, FileHolder> holdersByKey = new HashMap<>();
 
+  @Nullable
+  private final Executor executor;
+
+  public CompressingTempFileStore() {
+    this(null);
+  }
+
+  /**
+   * @param executor compresses output in the background, or {@code null} to compress on the writing thread
+   * @since 3.70
+   */
+  public CompressingTempFileStore(@Nullable final Executor executor) {
+    this.executor = executor == null ? null : command -> {
+      try {
+        executor.execute(command);
+      }
+      catch (RejectedExecutionException e) { // NOSONAR: for example the executor has been shut down
+        command.run();
+      }
+    };
+  }
+
   public Writer openOutput(final String key) {
     try {
       if (holdersByKey.containsKey(key)) {
@@ -51,10 +100,18 @@ public class CompressingTempFileStore
       }
       FileHolder holder = new FileHolder();
       holdersByKey.put(key, holder);
-      return new OutputStreamWriter(new TeeOutputStream(
-          new TeeOutputStream(new GZIPOutputStream(Files.newOutputStream(holder.gzTempFile)),
-              new BZip2CompressorOutputStream(Files.newOutputStream(holder.bzTempFile))),
-          Files.newOutputStream(holder.plainTempFile)), Charsets.UTF_8);
+      OutputStream gz = new GZIPOutputStream(holder.gzStream);
+      OutputStream bz = new BZip2CompressorOutputStream(holder.bzStream);
+      OutputStream compressed;
+      if (executor == null) {
+        compressed = new TeeOutputStream(gz, bz);
+      }
+      else {
+        holder.gzCompressor = new BackgroundCompressor(gz, executor);
+        holder.bzCompressor = new BackgroundCompressor(bz, executor);
+        compressed = new BufferedOutputStream(new BackgroundCompressingStream(holder), CHUNK_SIZE);
+      }
+      return new OutputStreamWriter(new TeeOutputStream(compressed, holder.plainStream), Charsets.UTF_8);
     }
     catch (IOException e) {
       throw new UncheckedIOException(e);
@@ -62,6 +119,9 @@ public class CompressingTempFileStore
   }
 
   public Map<String, FileMetadata> getFiles() {
+    for (FileHolder holder : holdersByKey.values()) {
+      holder.awaitCompression();
+    }
     return Maps.transformValues(holdersByKey, holder -> new FileMetadata(holder));
   }
 
@@ -69,6 +129,17 @@ public class CompressingTempFileStore
     List<Path> notDeletedFiles = new LinkedList<>();
 
     for (FileHolder holder : holdersByKey.values()) {
+      try {
+        holder.awaitCompression();
+      }
+      catch (RuntimeException e) { // NOSONAR: already reported to the caller of getFiles
+        log.debug("Compression failed", e);
+      }
+      IOUtils.closeQuietly(holder.plainStream, null);
+      IOUtils.closeQuietly(holder.gzStream, null);
+      IOUtils.closeQuietly(holder.bzStream, null);
+
+      deleteFile(holder.plainTempFile, notDeletedFiles);
       deleteFile(holder.bzTempFile, notDeletedFiles);
       deleteFile(holder.gzTempFile, notDeletedFiles);
     }
@@ -120,6 +191,119 @@ public class CompressingTempFileStore
     }
   }
 
+  private interface IOAction
+  {
+    void run() throws IOException;
+  }
+
+  /**
+   * Writes chunks of output to a compressing stream on an executor, one after the other in the order they were written.
+   * Writers are held back while too many chunks are waiting, so output isn't buffered in memory without bound.
+   */
+  private static class BackgroundCompressor
+  {
+    private final OutputStream out;
+
+    private final Executor executor;
+
+    private final Semaphore queued = new Semaphore(MAX_QUEUED_CHUNKS);
+
+    private volatile CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+
+    BackgroundCompressor(final OutputStream out, final Executor executor) {
+      this.out = out;
+      this.executor = executor;
+    }
+
+    void write(final byte[] chunk) throws IOException {
+      submit(() -> out.write(chunk));
+    }
+
+    void close() throws IOException {
+      submit(out::close);
+    }
+
+    private void submit(final IOAction action) throws IOException {
+      if (tail.isCompletedExceptionally()) {
+        throw new IOException("Compression failed", failure());
+      }
+      try {
+        queued.acquire();
+      }
+      catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException();
+      }
+      // runs even when an earlier chunk failed, so that its permit is released
+      tail = tail.handleAsync((ignored, failure) -> {
+        try {
+          if (failure != null) {
+            throw failure instanceof CompletionException ? (CompletionException) failure
+                : new CompletionException(failure);
+          }
+          action.run();
+          return null;
+        }
+        catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        finally {
+          queued.release();
+        }
+      }, executor);
+    }
+
+    void await() {
+      tail.join();
+    }
+
+    private Throwable failure() {
+      try {
+        tail.join();
+        return null;
+      }
+      catch (CompletionException e) {
+        return e.getCause();
+      }
+    }
+  }
+
+  /**
+   * Hands each chunk of output to the GZIP and BZ2 compressors of a file.
+   */
+  private static class BackgroundCompressingStream
+      extends OutputStream
+  {
+    private final FileHolder holder;
+
+    BackgroundCompressingStream(final FileHolder holder) {
+      this.holder = holder;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+      // both compressors read the same copy, it is never written to again
+      byte[] chunk = Arrays.copyOfRange(b, off, off + len);
+      holder.gzCompressor.write(chunk);
+      holder.bzCompressor.write(chunk);
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        holder.gzCompressor.close();
+      }
+      finally {
+        holder.bzCompressor.close();
+      }
+    }
+  }
+
   private static class FileHolder
   {
     final CountingOutputStream plainStream;
@@ -134,6 +318,10 @@ public class CompressingTempFileStore
 
     final Path bzTempFile;
 
+    BackgroundCompressor gzCompressor;
+
+    BackgroundCompressor bzCompressor;
+
     public FileHolder() throws IOException {
       super();
       this.plainTempFile = Files.createTempFile("", "");
@@ -143,5 +331,22 @@ public class CompressingTempFileStore
       this.bzTempFile = Files.createTempFile("", "");
       this.bzStream = new CountingOutputStream(Files.newOutputStream(bzTempFile));
     }
+
+    void awaitCompression() {
+      try {
+        if (gzCompressor != null) {
+          gzCompressor.await();
+        }
+        if (bzCompressor != null) {
+          bzCompressor.await();
+        }
+      }
+      catch (CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException) {
+          throw (UncheckedIOException) e.getCause();
+        }
+        throw e;
+      }
+    }
   }
 }
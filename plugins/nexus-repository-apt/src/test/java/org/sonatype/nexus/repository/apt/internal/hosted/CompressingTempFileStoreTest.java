@@ -0,0 +1,124 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.apt.internal.hosted;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.apt.internal.hosted.CompressingTempFileStore.FileMetadata;
+
+import com.google.common.io.ByteStreams;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.is;
+
+public class CompressingTempFileStoreTest
+    extends TestSupport
+{
+  private ExecutorService executor;
+
+  @Before
+  public void setup() {
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void compressesAsOutputIsWritten() throws IOException {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore()) {
+      writeAndVerify(underTest, 1000);
+    }
+  }
+
+  @Test
+  public void compressesOutputsInParallel() throws IOException {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(executor)) {
+      writeAndVerify(underTest, 1000);
+    }
+  }
+
+  @Test
+  public void compressesOutputLargerThanQueuedChunks() throws IOException {
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(executor)) {
+      writeAndVerify(underTest, 50_000);
+    }
+  }
+
+  @Test
+  public void compressesOnCallingThreadOnceExecutorIsShutDown() throws IOException {
+    executor.shutdown();
+    try (CompressingTempFileStore underTest = new CompressingTempFileStore(executor)) {
+      writeAndVerify(underTest, 1000);
+    }
+  }
+
+  private static void writeAndVerify(final CompressingTempFileStore underTest, final int count) throws IOException {
+    String amd64 = stanzas("amd64", count);
+    String i386 = stanzas("i386", count);
+
+    try (Writer amd64Writer = underTest.openOutput("amd64"); Writer i386Writer = underTest.openOutput("i386")) {
+      amd64Writer.write(amd64);
+      i386Writer.write(i386);
+    }
+
+    Map<String, FileMetadata> files = underTest.getFiles();
+    assertThat(files.keySet(), containsInAnyOrder("amd64", "i386"));
+    verify(files.get("amd64"), amd64);
+    verify(files.get("i386"), i386);
+  }
+
+  private static void verify(final FileMetadata metadata, final String expected) throws IOException {
+    byte[] plain = read(metadata.plainSupplier().get());
+    byte[] gz = read(metadata.gzSupplier().get());
+    byte[] bz = read(metadata.bzSupplier().get());
+
+    assertThat(new String(plain, UTF_8), is(expected));
+    assertThat(metadata.plainSize(), is((long) plain.length));
+    assertThat(metadata.gzSize(), is((long) gz.length));
+    assertThat(metadata.bzSize(), is((long) bz.length));
+
+    assertThat(new String(read(new GZIPInputStream(metadata.gzSupplier().get())), UTF_8), is(expected));
+    assertThat(new String(read(new BZip2CompressorInputStream(metadata.bzSupplier().get())), UTF_8), is(expected));
+  }
+
+  private static String stanzas(final String architecture, final int count) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      builder.append("Package: package-").append(i).append('\n')
+          .append("Architecture: ").append(architecture).append("\n\n");
+    }
+    return builder.toString();
+  }
+
+  private static byte[] read(final InputStream in) throws IOException {
+    try (InputStream input = in) {
+      return ByteStreams.toByteArray(input);
+    }
+  }
+}
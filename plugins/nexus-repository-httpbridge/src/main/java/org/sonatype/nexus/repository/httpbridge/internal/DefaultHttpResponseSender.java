@@ -12,9 +12,13 @@
  */
 package org.sonatype.nexus.repository.httpbridge.internal;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -75,8 +79,16 @@ public class DefaultHttpResponseSender
           }
 
           if (request != null && !HttpMethods.HEAD.equals(request.getAction())) {
-            try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
-              payload.copy(input, output);
+            FileChannel channel = payload.getSize() != Payload.UNKNOWN_SIZE ? payload.openFileChannel() : null;
+            if (channel != null) {
+              try (FileChannel input = channel; OutputStream output = httpResponse.getOutputStream()) {
+                transfer(input, payload.getSize(), output);
+              }
+            }
+            else {
+              try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
+                payload.copy(input, output);
+              }
             }
           }
         }
@@ -86,4 +98,29 @@ public class DefaultHttpResponseSender
       }
     }
   }
+
+  /**
+   * Transfers content from the channel's current position using positioned reads. This is zero-copy when the servlet
+   * output is itself a channel; otherwise bytes are written through a single transfer buffer.
+   */
+  private static void transfer(final FileChannel input, final long size, final OutputStream output)
+      throws IOException
+  {
+    WritableByteChannel target =
+        output instanceof WritableByteChannel ? (WritableByteChannel) output : Channels.newChannel(output);
+
+    long position = input.position();
+    long end = position + size;
+    while (position < end) {
+      long transferred = input.transferTo(position, end - position, target);
+      if (transferred <= 0) {
+        if (position >= input.size()) {
+          throw new EOFException("Content ended after " + (size - (end - position)) + " of " + size + " bytes");
+        }
+        // a blocking target always accepts some bytes; stop rather than spin on one that won't
+        throw new IOException("Transfer stalled after " + (size - (end - position)) + " of " + size + " bytes");
+      }
+      position += transferred;
+    }
+  }
 }
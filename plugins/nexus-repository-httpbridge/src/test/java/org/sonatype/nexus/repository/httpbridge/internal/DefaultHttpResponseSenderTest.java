@@ -13,11 +13,18 @@
 package org.sonatype.nexus.repository.httpbridge.internal;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.goodies.testsupport.TestSupport;
@@ -29,6 +36,7 @@ import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.payloads.PathPayload;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
 
 import org.junit.Before;
@@ -38,9 +46,11 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
@@ -119,6 +129,7 @@ public class DefaultHttpResponseSenderTest
 
     order.verify(payload).getContentType();
     order.verify(payload, atLeastOnce()).getSize();
+    order.verify(payload).openFileChannel();
     order.verify(payload).openInputStream();
     order.verify(input).close();
     order.verify(payload).close();
@@ -144,6 +155,7 @@ public class DefaultHttpResponseSenderTest
 
     order.verify(payload).getContentType();
     order.verify(payload, atLeastOnce()).getSize();
+    order.verify(payload).openFileChannel();
     order.verify(payload).openInputStream();
     order.verify(input).close();
     order.verify(payload).close();
@@ -151,6 +163,54 @@ public class DefaultHttpResponseSenderTest
     order.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void fileContentIsTransferredFromChannel() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    when(httpServletResponse.getOutputStream()).thenReturn(new CapturingOutputStream(sent));
+
+    underTest.send(request, HttpResponses.ok(new PathPayload(file, "text/plain")), httpServletResponse);
+
+    assertThat(sent.toByteArray(), is(TEST_CONTENT));
+  }
+
+  @Test
+  public void channelIsTransferredFromItsPosition() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    FileChannel channel = FileChannel.open(file);
+    channel.position(5);
+    when(payload.getSize()).thenReturn(4L);
+    when(payload.openFileChannel()).thenReturn(channel);
+    ByteArrayOutputStream sent = new ByteArrayOutputStream();
+    when(httpServletResponse.getOutputStream()).thenReturn(new CapturingOutputStream(sent));
+
+    underTest.send(request, HttpResponses.ok(payload), httpServletResponse);
+
+    assertThat(new String(sent.toByteArray(), StandardCharsets.UTF_8), is("CONT"));
+    assertThat(channel.isOpen(), is(false));
+    verify(payload, never()).openInputStream();
+  }
+
+  @Test
+  public void stalledTransferIsReported() throws Exception {
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    Path file = util.createTempFile().toPath();
+    Files.write(file, TEST_CONTENT);
+    when(httpServletResponse.getOutputStream()).thenReturn(new StalledOutputStream());
+
+    try {
+      underTest.send(request, HttpResponses.ok(new PathPayload(file, "text/plain")), httpServletResponse);
+      fail("Expected stalled transfer to fail");
+    }
+    catch (IOException e) {
+      assertThat(e.getMessage(), containsString("stalled after 0 of " + TEST_CONTENT.length));
+    }
+  }
+
   @Test
   public void customStatusMessageIsMaintained() throws Exception {
     when(request.getAction()).thenReturn(HttpMethods.GET);
@@ -175,4 +235,61 @@ public class DefaultHttpResponseSenderTest
     verify(httpServletResponse).setStatus(403, "You can't see this");
   }
 
+  private static class CapturingOutputStream
+      extends ServletOutputStream
+  {
+    private final ByteArrayOutputStream captured;
+
+    CapturingOutputStream(final ByteArrayOutputStream captured) {
+      this.captured = captured;
+    }
+
+    @Override
+    public void write(final int b) {
+      captured.write(b);
+    }
+
+    @Override
+    public boolean isReady() {
+      return true;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // not needed
+    }
+  }
+
+  /**
+   * Output channel which never accepts any bytes, like a non-blocking channel that isn't ready.
+   */
+  private static class StalledOutputStream
+      extends ServletOutputStream
+      implements WritableByteChannel
+  {
+    @Override
+    public int write(final ByteBuffer src) {
+      return 0;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+      throw new IOException("Unexpected write");
+    }
+
+    @Override
+    public boolean isOpen() {
+      return true;
+    }
+
+    @Override
+    public boolean isReady() {
+      return false;
+    }
+
+    @Override
+    public void setWriteListener(final WriteListener writeListener) {
+      // not needed
+    }
+  }
 }
@@ -43,6 +43,7 @@ import org.sonatype.nexus.repository.content.event.asset.AssetUploadedEvent;
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
 import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.group.GroupFacetImpl;
+import org.sonatype.nexus.repository.group.MemberEtagDigest;
 import org.sonatype.nexus.repository.http.HttpStatus;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.maven.MavenPath;
@@ -63,6 +64,7 @@ import org.sonatype.nexus.repository.view.payloads.TempBlob;
 import org.sonatype.nexus.thread.io.StreamCopier;
 import org.sonatype.nexus.validation.ConstraintViolationFactory;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Maps;
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
@@ -87,6 +89,13 @@ public class MavenContentGroupFacetImpl
     implements MavenGroupFacet, EventAware.Asynchronous
 {
   private static final String PATH_PREFIX = "/";
+
+  /**
+   * Asset attribute holding the {@link MemberEtagDigest} of the member content the asset was merged from.
+   */
+  @VisibleForTesting
+  static final String MEMBERS_ETAG = "membersEtag";
+
   private final RepositoryMetadataMerger repositoryMetadataMerger;
 
   private final ArchetypeCatalogMerger archetypeCatalogMerger;
@@ -152,13 +161,23 @@ public class MavenContentGroupFacetImpl
   public Content mergeAndCache(
       final MavenPath mavenPath, final Map<Repository, Response> responses) throws IOException
   {
+    LinkedHashMap<Repository, Content> contents = okContents(responses);
+    Optional<String> membersEtag = contents.isEmpty()
+        ? Optional.empty()
+        : MemberEtagDigest.digest(contents.values(), this::memberEtag);
+    Optional<Content> unchanged = membersEtag.flatMap(etag -> findUnchanged(mavenPath, etag));
+    if (unchanged.isPresent()) {
+      log.trace("Members unchanged, reusing merged content {} : {}", getRepository().getName(), mavenPath.getPath());
+      return unchanged.get();
+    }
+
     return merge(
         mavenPath,
         responses,
         this::createTempBlob,
         (tempBlob, contentType) -> {
           log.trace("Caching merged content");
-          return cache(mavenPath, tempBlob, contentType);
+          return cache(mavenPath, tempBlob, contentType, membersEtag);
         }
     );
   }
@@ -175,13 +194,49 @@ public class MavenContentGroupFacetImpl
     });
   }
 
+  /**
+   * Etag identifying the member's content, preferring the checksum of the member's own blob.
+   */
+  private Optional<String> memberEtag(final Content content) {
+    Asset asset = content.getAttributes().get(Asset.class);
+    Optional<String> sha1 = Optional.ofNullable(asset)
+        .flatMap(Asset::blob)
+        .map(blob -> blob.checksums().get(HashAlgorithm.SHA1.name()));
+    if (sha1.isPresent()) {
+      return sha1;
+    }
+    return Optional.ofNullable(content.getAttributes().get(Content.CONTENT_ETAG, String.class));
+  }
+
+  /**
+   * Returns the previously merged content when it was merged from the same member content, marking it as cached again.
+   */
+  private Optional<Content> findUnchanged(final MavenPath mavenPath, final String membersEtag) {
+    Optional<FluentAsset> existing = getRepository().facet(ContentFacet.class).assets()
+        .path(prependIfMissing(mavenPath.getPath(), PATH_PREFIX))
+        .find()
+        .filter(asset -> membersEtag.equals(asset.attributes().get(MEMBERS_ETAG)));
+    if (!existing.isPresent()) {
+      return Optional.empty();
+    }
+
+    Content content = existing.get().download();
+    if (content.getSize() == 0L) {
+      return Optional.empty();
+    }
+    maintainCacheInfo(content.getAttributes());
+    existing.get().markAsCached(content);
+    return Optional.of(content);
+  }
+
   /**
    * Attempts to cache the merged content, falling back to temporary uncached result if necessary.
    */
   private Content cache(
       final MavenPath mavenPath,
       final TempBlob tempBlob,
-      final String contentType) throws IOException
+      final String contentType,
+      final Optional<String> membersEtag) throws IOException
   {
     try {
       Content content = new Content(getRepository().facet(MavenContentFacet.class)
@@ -196,7 +251,15 @@ public class MavenContentGroupFacetImpl
       }
 
       getRepository().facet(ContentFacet.class).assets().path(prependIfMissing(mavenPath.getPath(), "/")).find()
-          .ifPresent(a -> a.markAsCached(content));
+          .ifPresent(a -> {
+            a.markAsCached(content);
+            if (membersEtag.isPresent()) {
+              a.withAttribute(MEMBERS_ETAG, membersEtag.get());
+            }
+            else {
+              a.withoutAttribute(MEMBERS_ETAG);
+            }
+          });
 
       return content;
     }
@@ -207,7 +270,7 @@ public class MavenContentGroupFacetImpl
 
     // Handle exception by forcing re-merge on next request and retrieving content from TempBlob
     getRepository().facet(ContentFacet.class).assets().path(prependIfMissing(mavenPath.getPath(), "/")).find()
-        .ifPresent(FluentAsset::markAsStale);
+        .ifPresent(asset -> asset.markAsStale().withoutAttribute(MEMBERS_ETAG));
 
     try (InputStream in = tempBlob.get()) {
       // load bytes in memory before tempBlob vanishes; metadata shouldn't be too large
@@ -258,15 +321,7 @@ public class MavenContentGroupFacetImpl
     checkMergeHandled(mavenPath);
     // we do not cache subordinates/hashes, they are created as side-effect of cache
     checkArgument(!mavenPath.isSubordinate(), "Only main content handled, not hash or signature: %s", mavenPath);
-    LinkedHashMap<Repository, Content> contents = Maps.newLinkedHashMap();
-    for (Map.Entry<Repository, Response> entry : responses.entrySet()) {
-      if (entry.getValue().getStatus().getCode() == HttpStatus.OK) {
-        Response response = entry.getValue();
-        if (response.getPayload() instanceof Content) {
-          contents.put(entry.getKey(), (Content) response.getPayload());
-        }
-      }
-    }
+    LinkedHashMap<Repository, Content> contents = okContents(responses);
 
     if (contents.isEmpty()) {
       log.trace("No 200 OK responses to merge");
@@ -300,6 +355,19 @@ public class MavenContentGroupFacetImpl
     }
   }
 
+  private static LinkedHashMap<Repository, Content> okContents(final Map<Repository, Response> responses) {
+    LinkedHashMap<Repository, Content> contents = Maps.newLinkedHashMap();
+    for (Map.Entry<Repository, Response> entry : responses.entrySet()) {
+      if (entry.getValue().getStatus().getCode() == HttpStatus.OK) {
+        Response response = entry.getValue();
+        if (response.getPayload() instanceof Content) {
+          contents.put(entry.getKey(), (Content) response.getPayload());
+        }
+      }
+    }
+    return contents;
+  }
+
   /**
    * Adds {@link Content#CONTENT_ETAG} content attribute if not present. In case of hosted repositories, this is safe
    * and even good thing to do, as the content is hosted here only and NX is content authority.
@@ -14,6 +14,8 @@ package org.sonatype.nexus.repository.maven.internal.content;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -21,6 +23,7 @@ import org.sonatype.nexus.content.maven.MavenContentFacet;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.AssetBlob;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.MavenPath.HashType;
 import org.sonatype.nexus.repository.maven.internal.Constants;
@@ -30,10 +33,13 @@ import org.sonatype.nexus.repository.maven.internal.hosted.metadata.AbstractMeta
 import org.sonatype.nexus.repository.view.payloads.BytesPayload;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
 
+import com.google.common.hash.Hashing;
 import org.apache.maven.artifact.repository.metadata.Metadata;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.sonatype.nexus.repository.maven.MavenMetadataRebuildFacet.METADATA_REBUILD;
 
 /**
  * @since 3.26
@@ -41,6 +47,18 @@ import static com.google.common.base.Preconditions.checkState;
 public class DatastoreMetadataUpdater
     extends AbstractMetadataUpdater
 {
+  /**
+   * Asset attribute holding a fingerprint of the versions listed in artifact level metadata, along with the SHA1 of
+   * the metadata it was taken from.
+   *
+   * @since 3.70
+   */
+  public static final String VERSIONS_FINGERPRINT = "versionsFingerprint";
+
+  private static final String FINGERPRINT_VERSIONS = "versions";
+
+  private static final String FINGERPRINT_SHA1 = "sha1";
+
   public DatastoreMetadataUpdater(final boolean update, final Repository repository) {
     super(update, repository);
   }
@@ -52,14 +70,19 @@ public class DatastoreMetadataUpdater
     MavenModels.writeMetadata(buffer, metadata);
     mavenContentFacet.put(mavenPath, new BytesPayload(buffer.toByteArray(), MavenMimeRulesSource.METADATA_TYPE));
 
-    final Optional<Map<String, String>> hashCodes = mavenContentFacet
+    final Optional<FluentAsset> asset = mavenContentFacet
         .assets()
         .path("/" + mavenPath.getPath())
-        .find()
+        .find();
+    final Optional<Map<String, String>> hashCodes = asset
         .flatMap(Asset::blob)
         .map(AssetBlob::checksums);
     checkState(hashCodes.isPresent(), "hashCodes");
 
+    if (isArtifactMetadata(metadata)) {
+      recordVersions(asset.get(), metadata);
+    }
+
     for (HashType hashType : HashType.values()) {
       MavenPath checksumPath = mavenPath.hash(hashType);
       String hashCode = hashCodes.get().get(hashType.getHashAlgorithm().name());
@@ -68,6 +91,70 @@ public class DatastoreMetadataUpdater
     }
   }
 
+  /**
+   * Records the versions of artifact level metadata which did not need rewriting, so later rebuilds can skip it.
+   */
+  @Override
+  protected void unchanged(final MavenPath mavenPath, final Metadata metadata) {
+    if (isArtifactMetadata(metadata)) {
+      repository.facet(MavenContentFacet.class)
+          .assets()
+          .path("/" + mavenPath.getPath())
+          .find()
+          .ifPresent(asset -> recordVersions(asset, metadata));
+    }
+  }
+
+  /**
+   * Whether the artifact level metadata at the given path was written, or found unchanged, for exactly the given
+   * versions and has not been replaced or flagged for rebuild since, so the versions can be compared without reading the
+   * metadata.
+   *
+   * @since 3.70
+   */
+  public boolean hasVersions(final MavenPath mavenPath, final List<String> versions) {
+    return repository.facet(MavenContentFacet.class)
+        .assets()
+        .path("/" + mavenPath.getPath())
+        .find()
+        .filter(asset -> !asset.attributes().contains(METADATA_REBUILD))
+        .filter(asset -> {
+          Object fingerprint = asset.attributes().get(VERSIONS_FINGERPRINT);
+          if (!(fingerprint instanceof Map)) {
+            return false;
+          }
+          Optional<String> sha1 = asset.blob()
+              .map(AssetBlob::checksums)
+              .map(checksums -> checksums.get(HashType.SHA1.getHashAlgorithm().name()));
+          return sha1.isPresent() && sha1.get().equals(((Map<?, ?>) fingerprint).get(FINGERPRINT_SHA1)) &&
+              fingerprint(versions).equals(((Map<?, ?>) fingerprint).get(FINGERPRINT_VERSIONS));
+        })
+        .isPresent();
+  }
+
+  /*
+   * Stores a fingerprint of the metadata versions on its asset, along with the SHA1 of the metadata blob.
+   */
+  private static void recordVersions(final FluentAsset asset, final Metadata metadata) {
+    Optional<String> sha1 = asset.blob()
+        .map(AssetBlob::checksums)
+        .map(checksums -> checksums.get(HashType.SHA1.getHashAlgorithm().name()));
+    if (sha1.isPresent()) {
+      Map<String, Object> fingerprint = new HashMap<>();
+      fingerprint.put(FINGERPRINT_VERSIONS, fingerprint(metadata.getVersioning().getVersions()));
+      fingerprint.put(FINGERPRINT_SHA1, sha1.get());
+      asset.withAttribute(VERSIONS_FINGERPRINT, fingerprint);
+    }
+  }
+
+  private static boolean isArtifactMetadata(final Metadata metadata) {
+    return metadata.getArtifactId() != null && metadata.getVersion() == null && metadata.getVersioning() != null;
+  }
+
+  private static String fingerprint(final List<String> versions) {
+    return Hashing.sha256().hashString(String.join("\n", versions), UTF_8).toString();
+  }
+
   @Override
   protected Optional<Metadata> read(final MavenPath mavenPath) throws IOException {
     return repository.facet(MavenContentFacet.class)
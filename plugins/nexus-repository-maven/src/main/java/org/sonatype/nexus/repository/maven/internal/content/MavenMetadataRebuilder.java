@@ -25,8 +25,10 @@ import javax.inject.Singleton;
 
 import org.sonatype.goodies.common.ComponentSupport;
 import org.sonatype.goodies.common.MultipleFailures;
+import org.sonatype.goodies.common.Time;
 import org.sonatype.nexus.content.maven.MavenContentFacet;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.content.kv.global.GlobalKeyValueStore;
 import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.MavenPath.HashType;
 import org.sonatype.nexus.repository.maven.internal.hosted.metadata.MetadataRebuilder;
@@ -44,6 +46,10 @@ import static org.sonatype.nexus.repository.maven.internal.hosted.metadata.Metad
 
 /**
  * A maven2 metadata rebuilder written to take advantage of the SQL database design.
+ *
+ * Full rebuilds work on up to {@code nexus.maven.metadata.rebuild.parallelism} artifacts at once and record their
+ * progress every {@code nexus.maven.metadata.rebuild.checkpointInterval} artifacts, so an interrupted rebuild resumes
+ * where it left off, unless the progress is older than {@code nexus.maven.metadata.rebuild.checkpointMaxAge}.
  */
 @Singleton
 @Named
@@ -57,16 +63,41 @@ public class MavenMetadataRebuilder
 
   private final ExecutorService executor;
 
+  private final int parallelism;
+
+  private final int checkpointInterval;
+
+  private final Time checkpointMaxAge;
+
+  @Nullable
+  private final GlobalKeyValueStore keyValueStore;
+
   @Inject
   public MavenMetadataRebuilder(@Named("${nexus.maven.metadata.rebuild.bufferSize:-1000}") final int bufferSize,
-                                @Named("${nexus.maven.metadata.rebuild.threadPoolSize:-1}") final int maxTreads) {
+                                @Named("${nexus.maven.metadata.rebuild.threadPoolSize:-1}") final int maxTreads,
+                                @Named("${nexus.maven.metadata.rebuild.parallelism:-4}") final int parallelism,
+                                @Named("${nexus.maven.metadata.rebuild.checkpointInterval:-1000}") final int checkpointInterval,
+                                @Named("${nexus.maven.metadata.rebuild.checkpointMaxAge:-2d}") final Time checkpointMaxAge,
+                                @Nullable final GlobalKeyValueStore keyValueStore)
+  {
     checkArgument(bufferSize > 0, "Buffer size must be greater than 0");
+    checkArgument(parallelism > 0, "Parallelism must be greater than 0");
+    checkArgument(checkpointInterval > 0, "Checkpoint interval must be greater than 0");
 
     this.bufferSize = bufferSize;
+    this.parallelism = parallelism;
+    this.checkpointInterval = checkpointInterval;
+    this.checkpointMaxAge = checkNotNull(checkpointMaxAge);
+    this.keyValueStore = keyValueStore;
     executor = Executors.newFixedThreadPool(maxTreads,
         new ExceptionAwareThreadFactory("metadata-rebuild-tasks", "metadata-rebuild-tasks"));
   }
 
+  @VisibleForTesting
+  MavenMetadataRebuilder(final int bufferSize, final int maxTreads) {
+    this(bufferSize, maxTreads, 1, 1000, Time.days(2), null);
+  }
+
   @Override
   public boolean rebuild(
       final Repository repository,
@@ -78,7 +109,11 @@ public class MavenMetadataRebuilder
       @Nullable final String baseVersion)
   {
     checkNotNull(repository);
-    MetadataRebuildWorker worker = new MetadataRebuildWorker(repository, update, groupId, artifactId, baseVersion, bufferSize);
+    MetadataRebuildCheckpoint checkpoint = groupId == null && keyValueStore != null
+        ? new MetadataRebuildCheckpoint(keyValueStore, repository.getName(), checkpointInterval, checkpointMaxAge)
+        : null;
+    MetadataRebuildWorker worker = new MetadataRebuildWorker(repository, update, groupId, artifactId, baseVersion,
+        bufferSize, parallelism, checkpoint);
     return rebuildWithWorker(worker, rebuildChecksums, cascadeUpdate, groupId, artifactId, baseVersion);
   }
 
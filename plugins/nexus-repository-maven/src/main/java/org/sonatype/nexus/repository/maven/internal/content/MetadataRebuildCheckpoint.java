@@ -0,0 +1,160 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal.content;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+import javax.annotation.Nullable;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.goodies.common.Time;
+import org.sonatype.nexus.repository.content.kv.global.GlobalKeyValueStore;
+import org.sonatype.nexus.repository.content.kv.global.NexusKeyValue;
+import org.sonatype.nexus.repository.content.kv.global.ValueType;
+
+import com.google.common.primitives.Longs;
+import org.apache.commons.lang3.tuple.Pair;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Records how far a full metadata rebuild of a repository has got, so an interrupted rebuild can resume after the last
+ * group and artifact coordinates which were completed rather than starting again.
+ *
+ * Coordinates are rebuilt out of order by concurrent workers, so the checkpoint only moves past coordinates once all
+ * that were started before them have completed. It is persisted every {@code interval} coordinates.
+ *
+ * The checkpoint records when it was saved. One older than {@code maxAge} is discarded rather than resumed from, as the
+ * repository may have changed a lot since.
+ *
+ * @since 3.70
+ */
+class MetadataRebuildCheckpoint
+    extends ComponentSupport
+{
+  private static final String KEY_PREFIX = "maven.metadata.rebuild.checkpoint.";
+
+  // neither group nor artifact ids may contain a colon
+  private static final String SEPARATOR = ":";
+
+  private final GlobalKeyValueStore keyValueStore;
+
+  private final String key;
+
+  private final int interval;
+
+  private final long maxAgeMillis;
+
+  private final Deque<Coordinates> started = new ArrayDeque<>();
+
+  @Nullable
+  private Coordinates completedUpTo;
+
+  private int sinceSaved;
+
+  MetadataRebuildCheckpoint(
+      final GlobalKeyValueStore keyValueStore,
+      final String repositoryName,
+      final int interval,
+      final Time maxAge)
+  {
+    checkArgument(interval > 0);
+    this.keyValueStore = checkNotNull(keyValueStore);
+    this.key = KEY_PREFIX + checkNotNull(repositoryName);
+    this.interval = interval;
+    this.maxAgeMillis = checkNotNull(maxAge).toMillis();
+  }
+
+  /**
+   * Returns the group and artifact ids of the last coordinates completed by an earlier rebuild, if it did not finish
+   * and the checkpoint is not stale. A stale or unreadable checkpoint is removed.
+   */
+  Optional<Pair<String, String>> load() {
+    Optional<String> value = keyValueStore.getKey(key).map(NexusKeyValue::getAsString);
+    if (!value.isPresent()) {
+      return Optional.empty();
+    }
+
+    String[] parts = value.get().split(SEPARATOR, 3);
+    Long savedAt = parts.length == 3 ? Longs.tryParse(parts[0]) : null;
+    if (savedAt == null || System.currentTimeMillis() - savedAt > maxAgeMillis) {
+      log.info("Ignoring stale metadata rebuild checkpoint {} at {}", key, value.get());
+      clear();
+      return Optional.empty();
+    }
+    return Optional.of(Pair.of(parts[1], parts[2]));
+  }
+
+  /**
+   * Notes that rebuilding the coordinates has started, in the order coordinates are rebuilt.
+   */
+  synchronized Coordinates started(final String namespace, final String name) {
+    Coordinates coordinates = new Coordinates(namespace, name);
+    started.addLast(coordinates);
+    return coordinates;
+  }
+
+  /**
+   * Notes that rebuilding the coordinates returned by {@link #started} has completed.
+   */
+  synchronized void completed(final Coordinates coordinates) {
+    coordinates.completed = true;
+    while (!started.isEmpty() && started.peekFirst().completed) {
+      completedUpTo = started.removeFirst();
+      sinceSaved++;
+    }
+    if (sinceSaved >= interval) {
+      save();
+    }
+  }
+
+  /**
+   * Persists the coordinates up to which the rebuild has completed.
+   */
+  synchronized void save() {
+    if (completedUpTo != null && sinceSaved > 0) {
+      log.debug("Saving metadata rebuild checkpoint {} at {}", key, completedUpTo);
+      keyValueStore.setKey(new NexusKeyValue(key, ValueType.CHARACTER,
+          System.currentTimeMillis() + SEPARATOR + completedUpTo.namespace + SEPARATOR + completedUpTo.name));
+      sinceSaved = 0;
+    }
+  }
+
+  /**
+   * Forgets the checkpoint once the rebuild has finished.
+   */
+  void clear() {
+    keyValueStore.removeKey(key);
+  }
+
+  static final class Coordinates
+  {
+    private final String namespace;
+
+    private final String name;
+
+    private boolean completed;
+
+    Coordinates(final String namespace, final String name) {
+      this.namespace = namespace;
+      this.name = name;
+    }
+
+    @Override
+    public String toString() {
+      return namespace + SEPARATOR + name;
+    }
+  }
+}
@@ -14,11 +14,15 @@ package org.sonatype.nexus.repository.maven.internal.content;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.stream.Stream;
@@ -50,7 +54,9 @@ import org.sonatype.nexus.repository.maven.internal.hosted.metadata.MetadataBuil
 import org.sonatype.nexus.repository.maven.internal.hosted.metadata.MetadataException;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
+import org.sonatype.nexus.repository.maven.internal.content.MetadataRebuildCheckpoint.Coordinates;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.thread.NexusExecutorService;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.hash.HashCode;
@@ -91,12 +97,19 @@ public class MetadataRebuildWorker
 
   private final int bufferSize;
 
+  private final int parallelism;
+
+  @Nullable
+  private final MetadataRebuildCheckpoint checkpoint;
+
   private final VersionScheme versionScheme = new GenericVersionScheme();
 
   private DatastoreMetadataUpdater metadataUpdater;
 
   private boolean rebuilt = false;
 
+  private volatile RuntimeException abort;
+
   public MetadataRebuildWorker(
       final Repository repository, // NOSONAR
       final boolean update,
@@ -105,6 +118,29 @@ public class MetadataRebuildWorker
       @Nullable final String baseVersion,
       final int bufferSize)
   {
+    this(repository, update, groupId, artifactId, baseVersion, bufferSize, 1, null);
+  }
+
+  /**
+   * @param parallelism how many group and artifact coordinates a full rebuild works on at once
+   * @param checkpoint  where a full rebuild records its progress so it can resume, if anywhere
+   *
+   * @since 3.70
+   */
+  public MetadataRebuildWorker(
+      final Repository repository, // NOSONAR
+      final boolean update,
+      @Nullable final String groupId,
+      @Nullable final String artifactId,
+      @Nullable final String baseVersion,
+      final int bufferSize,
+      final int parallelism,
+      @Nullable final MetadataRebuildCheckpoint checkpoint)
+  {
+    checkArgument(parallelism > 0, "Parallelism must be greater than 0");
+    this.parallelism = parallelism;
+    this.checkpoint = checkpoint;
+
     metadataUpdater = new DatastoreMetadataUpdater(update, repository);
     content = repository.facet(MavenContentFacet.class);
     mavenPathParser = repository.facet(MavenContentFacet.class).getMavenPathParser();
@@ -125,10 +161,12 @@ public class MetadataRebuildWorker
     log.debug("Beginning rebuild provided: r {} g {} a {} bv {}", repository.getName(), groupId, artifactId,
         baseVersion);
 
-    groupId.map(Collections::singleton)
-        .map(Collection::stream)
-        // If no groupId provided we do a full build
-        .orElseGet(() -> components.namespaces().stream())
+    if (!groupId.isPresent()) {
+      rebuildAllMetadata(components);
+      return rebuilt;
+    }
+
+    Stream.of(groupId.get())
         .flatMap(namespace -> {
           rebuildGroupMetadata(namespace);
 
@@ -156,6 +194,125 @@ public class MetadataRebuildWorker
     return rebuilt;
   }
 
+  /*
+   * Rebuilds the metadata of every group and artifact in the repository, in order of their coordinates so that the
+   * rebuild can resume from its checkpoint. Artifacts are rebuilt concurrently when parallelism allows, those whose
+   * versions match their existing metadata are skipped.
+   */
+  private void rebuildAllMetadata(final FluentComponents components) {
+    Optional<Pair<String, String>> resumeAfter = checkpoint != null ? checkpoint.load() : Optional.empty();
+    resumeAfter.ifPresent(ga -> log.info("Resuming metadata rebuild of {} after {}:{}", repository.getName(),
+        ga.getLeft(), ga.getRight()));
+
+    ExecutorService executor =
+        parallelism > 1 ? NexusExecutorService.forCurrentSubject(new ForkJoinPool(parallelism)) : null;
+    // bounds the artifacts queued up for the pool so their number doesn't grow with the repository
+    Semaphore pending = new Semaphore(parallelism * 2);
+    boolean drained = false;
+    boolean completed = false;
+    try {
+      for (String namespace : sorted(components.namespaces())) {
+        if (resumeAfter.isPresent() && namespace.compareTo(resumeAfter.get().getLeft()) < 0) {
+          continue;
+        }
+        rebuildGroupMetadata(namespace);
+
+        for (String name : sorted(components.names(namespace))) {
+          if (resumeAfter.isPresent() && namespace.equals(resumeAfter.get().getLeft()) &&
+              name.compareTo(resumeAfter.get().getRight()) <= 0) {
+            continue;
+          }
+          checkCancellation();
+          maybeAbort();
+
+          Coordinates coordinates = checkpoint != null ? checkpoint.started(namespace, name) : null;
+          if (executor == null) {
+            rebuildArtifact(namespace, name, coordinates);
+          }
+          else {
+            pending.acquire();
+            executor.execute(() -> {
+              try {
+                rebuildArtifact(namespace, name, coordinates);
+              }
+              finally {
+                pending.release();
+              }
+            });
+          }
+        }
+      }
+
+      pending.acquire(parallelism * 2);
+      drained = true;
+      maybeAbort();
+      completed = true;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new TaskInterruptedException("Thread '" + Thread.currentThread().getName() + "' is interrupted", false);
+    }
+    finally {
+      if (executor != null) {
+        if (!drained) {
+          // skip queued artifacts, but let those being rebuilt finish so the checkpoint can include them
+          if (abort == null) {
+            abort = new TaskInterruptedException("Metadata rebuild of " + repository.getName() + " stopped", true);
+          }
+          pending.acquireUninterruptibly(parallelism * 2);
+        }
+        executor.shutdown();
+      }
+      if (checkpoint != null) {
+        if (completed) {
+          checkpoint.clear();
+        }
+        else {
+          checkpoint.save();
+        }
+      }
+    }
+  }
+
+  /*
+   * Rebuilds artifact level metadata, and the version level metadata of any snapshots, for the coordinates.
+   */
+  private void rebuildArtifact(final String namespace, final String name, @Nullable final Coordinates coordinates) {
+    if (abort != null) {
+      return;
+    }
+    try {
+      rebuildArtifactMetadata(namespace, name, true).stream()
+          // Version level metadata is only relevant for snapshot base versions
+          .filter(version -> version.endsWith(SNAPSHOT_SUFFIX))
+          .forEach(version -> rebuildVersionMetadata(namespace, name, version));
+
+      if (coordinates != null) {
+        checkpoint.completed(coordinates);
+      }
+    }
+    catch (RuntimeException e) {
+      if (abort == null) {
+        abort = e;
+      }
+      if (parallelism == 1) {
+        throw e;
+      }
+    }
+  }
+
+  private void maybeAbort() {
+    if (abort != null) {
+      throw abort;
+    }
+  }
+
+  private static List<String> sorted(final Collection<String> values) {
+    List<String> sorted = new ArrayList<>(values);
+    Collections.sort(sorted);
+    return sorted;
+  }
+
   public Collection<String> rebuildGA(final String namespace, final String name) {
     rebuildGroupMetadata(namespace);
     return rebuildArtifactMetadata(repository, namespace, name);
@@ -237,7 +394,7 @@ public class MetadataRebuildWorker
     catch (Exception e) {
       maybeRethrow(e);
       log.debug("Failed rebuild for repo {} g {}", repository.getName(), namespace);
-      failures.add(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
+      addFailure(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
       updateRebuilt(false);
     }
   }
@@ -264,7 +421,7 @@ public class MetadataRebuildWorker
     catch (Exception e) {
       maybeRethrow(e);
 
-      failures.add(new MetadataException(
+      addFailure(new MetadataException(
           "Error processing maven plugin in " + repository.getName() + " path  " + asset.path(), e));
     }
   }
@@ -277,6 +434,18 @@ public class MetadataRebuildWorker
       final Repository repository,
       final String namespace,
       final String name)
+  {
+    return rebuildArtifactMetadata(namespace, name, false);
+  }
+
+  /*
+   * Rebuilds artifact level metadata, unless asked to skip metadata whose versions are unchanged. Returns a list of
+   * base versions.
+   */
+  private Collection<String> rebuildArtifactMetadata(
+      final String namespace,
+      final String name,
+      final boolean skipUnchanged)
   {
     checkCancellation();
     MavenPath metadataPath = metadataPath(namespace, name, null);
@@ -290,14 +459,19 @@ public class MetadataRebuildWorker
       baseVersions.stream()
           .forEach(metadataBuilder::addBaseVersion);
       Maven2Metadata metadata = metadataBuilder.onExitArtifactId();
+      if (skipUnchanged && metadata != null &&
+          metadataUpdater.hasVersions(metadataPath, metadata.getBaseVersions().getVersions())) {
+        log.debug("Versions unchanged for repo {} g {} a {}", repository.getName(), namespace, name);
+        return metadata.getBaseVersions().getVersions();
+      }
       metadataUpdater.processMetadata(metadataPath, metadata);
       log.debug("Finished rebuild for repo {} g {} a {}", repository.getName(), namespace, name);
       updateRebuilt(true);
-      return metadata.getBaseVersions().getVersions();
+      return metadata != null ? metadata.getBaseVersions().getVersions() : baseVersions;
     }
     catch (Exception e) {
       maybeRethrow(e);
-      failures.add(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
+      addFailure(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
       updateRebuilt(false);
       return baseVersions != null ? baseVersions : Collections.emptySet();
     }
@@ -353,7 +527,7 @@ public class MetadataRebuildWorker
     }
     catch (Exception e) {
       maybeRethrow(e);
-      failures.add(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
+      addFailure(new MetadataException("Error processing metadata for path: " + metadataPath.getPath(), e));
       updateRebuilt(false);
     }
   }
@@ -436,10 +610,19 @@ public class MetadataRebuildWorker
   /*
    * Flag that metadata has been rebuilt
    */
-  private void updateRebuilt(final boolean rebuilt) {
+  private synchronized void updateRebuilt(final boolean rebuilt) {
     this.rebuilt |= rebuilt;
   }
 
+  /*
+   * Records a failure, artifacts may be rebuilt concurrently
+   */
+  private void addFailure(final MetadataException failure) {
+    synchronized (failures) {
+      failures.add(failure);
+    }
+  }
+
   private void maybeRebuildChecksum(final Asset asset) {
     checkCancellation();
     MavenPath mavenPath = mavenPathParser.parsePath(asset.path());
@@ -14,13 +14,11 @@ package org.sonatype.nexus.repository.maven.internal.group;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Objects;
 import java.util.function.BiPredicate;
 
@@ -32,7 +30,6 @@ import org.sonatype.nexus.common.app.VersionComparator;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.internal.Constants;
-import org.sonatype.nexus.repository.maven.internal.MavenModels;
 import org.sonatype.nexus.repository.view.Content;
 
 import com.google.common.base.Strings;
@@ -55,50 +52,25 @@ import static org.sonatype.nexus.common.app.VersionComparator.version;
 public class RepositoryMetadataMerger
     extends ComponentSupport
 {
+  private final StreamingMetadataMerger streamingMerger = new StreamingMetadataMerger();
+
   /**
-   * Merges the contents of passed in metadata.
+   * Merges the contents of passed in metadata. The contents are merged while streaming through them, without loading
+   * them into the {@link Metadata} model.
    */
   public void merge(final OutputStream outputStream,
                     final MavenPath mavenPath,
                     final Map<Repository, Content> contents)
   {
     log.debug("Merge metadata for {}", mavenPath.getPath());
-    List<Envelope> metadatas = new ArrayList<>(contents.size());
     try {
-      for (Map.Entry<Repository, Content> entry : contents.entrySet()) {
-        addReadMetadata(mavenPath, metadatas, entry);
-      }
-
-      final Metadata mergedMetadata = merge(metadatas);
-      if (mergedMetadata == null) {
-        return;
-      }
-      MavenModels.writeMetadata(outputStream, mergedMetadata);
+      streamingMerger.merge(outputStream, mavenPath, contents);
     }
     catch (IOException e) {
       log.error("Unable to merge {}", mavenPath, e);
     }
   }
 
-  private void addReadMetadata(final MavenPath mavenPath,
-                               final List<Envelope> metadatas,
-                               final Entry<Repository, Content> entry) throws IOException
-  {
-    final String origin = entry.getKey().getName() + " @ " + mavenPath.getPath();
-    try {
-      final Metadata metadata = MavenModels.readMetadata(entry.getValue().openInputStream());
-      if (metadata == null) {
-        log.debug("Corrupted repository metadata: {}, source: {}", origin, entry.getValue());
-        return;
-      }
-      metadatas.add(new Envelope(origin, metadata));
-    }
-    catch (IOException e) {
-      log.debug("Error downloading repository metadata: {}, source: {}", origin, entry.getValue());
-      throw new IOException("Error downloading repository metadata for " + origin + ": " + e.getMessage(), e);
-    }
-  }
-
   /**
    * Model version, since Maven 3.x it is "1.1.0".
    */
@@ -0,0 +1,752 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal.group;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.sonatype.goodies.common.ComponentSupport;
+import org.sonatype.nexus.common.app.VersionComparator;
+import org.sonatype.nexus.common.io.SafeXml;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.maven.MavenPath;
+import org.sonatype.nexus.repository.maven.internal.Constants;
+import org.sonatype.nexus.repository.view.Content;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.eclipse.aether.version.Version;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Comparator.naturalOrder;
+import static java.util.Comparator.nullsFirst;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+import static org.sonatype.nexus.common.app.VersionComparator.version;
+
+/**
+ * Streaming Maven 2 repository metadata merger.
+ *
+ * Members are read with StAX into plain lists instead of the Maven {@link Metadata} model. Their version lists are
+ * sorted once each and combined with a k-way merge, and the merged document is written out element by element. The
+ * outcome is the same as {@link RepositoryMetadataMerger#merge(Iterable)} for the same members in the same order.
+ *
+ * @since 3.70
+ */
+class StreamingMetadataMerger
+    extends ComponentSupport
+{
+  private static final XMLInputFactory INPUT_FACTORY = SafeXml.newXmlInputFactory();
+
+  private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+  private static final String MODEL_VERSION = "1.1.0";
+
+  private static final String INDENT = "  ";
+
+  private static final VersionLike VERSION_LIKE = new VersionLike();
+
+  private static final Comparator<Plugin> PLUGIN_COMPARATOR =
+      Comparator.comparing(Plugin::getArtifactId, nullsFirst(naturalOrder()));
+
+  /**
+   * Merges the metadata of the members in iteration order. Nothing is written if no member has readable metadata.
+   */
+  public void merge(
+      final OutputStream outputStream,
+      final MavenPath mavenPath,
+      final Map<Repository, Content> contents) throws IOException
+  {
+    Merge merge = null;
+    for (Entry<Repository, Content> entry : contents.entrySet()) {
+      String origin = entry.getKey().getName() + " @ " + mavenPath.getPath();
+      Member member = read(origin, entry.getValue());
+      if (member == null) {
+        continue;
+      }
+      if (merge == null) {
+        merge = new Merge(member);
+      }
+      else {
+        try {
+          merge.add(member);
+        }
+        catch (IllegalArgumentException e) {
+          // leave out, log it
+          log.warn("Bad data {}", origin, e);
+        }
+      }
+    }
+    if (merge != null) {
+      write(outputStream, merge);
+    }
+  }
+
+  @Nullable
+  private Member read(final String origin, final Content content) throws IOException {
+    try (InputStream in = content.openInputStream()) {
+      XMLStreamReader reader = INPUT_FACTORY.createXMLStreamReader(in);
+      try {
+        return readMetadata(reader);
+      }
+      finally {
+        reader.close();
+      }
+    }
+    catch (XMLStreamException e) {
+      // premature end of input means corrupted metadata, like any other parse error
+      Throwable nested = e.getNestedException();
+      if (nested instanceof IOException && !(nested instanceof EOFException)) {
+        throw downloadFailed(origin, content, (IOException) nested);
+      }
+      log.debug("Corrupted repository metadata: {}, source: {}", origin, content, e);
+      return null;
+    }
+    catch (IOException e) {
+      throw downloadFailed(origin, content, e);
+    }
+  }
+
+  private IOException downloadFailed(final String origin, final Content content, final IOException e) {
+    log.debug("Error downloading repository metadata: {}, source: {}", origin, content);
+    return new IOException("Error downloading repository metadata for " + origin + ": " + e.getMessage(), e);
+  }
+
+  private static Member readMetadata(final XMLStreamReader reader) throws XMLStreamException {
+    if (!nextElement(reader)) {
+      throw new XMLStreamException("Missing metadata element");
+    }
+    Member member = new Member();
+    while (nextElement(reader)) {
+      switch (reader.getLocalName()) {
+        case "groupId":
+          member.groupId = text(reader);
+          break;
+        case "artifactId":
+          member.artifactId = text(reader);
+          break;
+        case "version":
+          member.version = text(reader);
+          break;
+        case "versioning":
+          readVersioning(reader, member);
+          break;
+        case "plugins":
+          member.plugins = readPlugins(reader);
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+    return member;
+  }
+
+  private static void readVersioning(final XMLStreamReader reader, final Member member) throws XMLStreamException {
+    member.versioning = true;
+    while (nextElement(reader)) {
+      switch (reader.getLocalName()) {
+        case "latest":
+          member.latest = text(reader);
+          break;
+        case "release":
+          member.release = text(reader);
+          break;
+        case "lastUpdated":
+          member.lastUpdated = text(reader);
+          break;
+        case "snapshot":
+          member.snapshot = readSnapshot(reader);
+          break;
+        case "versions":
+          member.versions = readVersions(reader);
+          break;
+        case "snapshotVersions":
+          member.snapshotVersions = readSnapshotVersions(reader);
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+  }
+
+  private static Snapshot readSnapshot(final XMLStreamReader reader) throws XMLStreamException {
+    Snapshot snapshot = new Snapshot();
+    while (nextElement(reader)) {
+      switch (reader.getLocalName()) {
+        case "timestamp":
+          snapshot.setTimestamp(text(reader));
+          break;
+        case "buildNumber":
+          String buildNumber = text(reader);
+          try {
+            snapshot.setBuildNumber(Integer.parseInt(buildNumber));
+          }
+          catch (NumberFormatException e) {
+            throw new XMLStreamException("Invalid buildNumber: " + buildNumber, reader.getLocation(), e);
+          }
+          break;
+        case "localCopy":
+          snapshot.setLocalCopy(Boolean.parseBoolean(text(reader)));
+          break;
+        default:
+          skipElement(reader);
+      }
+    }
+    return snapshot;
+  }
+
+  private static List<String> readVersions(final XMLStreamReader reader) throws XMLStreamException {
+    List<String> versions = new ArrayList<>();
+    while (nextElement(reader)) {
+      if ("version".equals(reader.getLocalName())) {
+        String version = text(reader);
+        if (!"null".equals(version)) {
+          versions.add(version);
+        }
+      }
+      else {
+        skipElement(reader);
+      }
+    }
+    return versions;
+  }
+
+  private static List<SnapshotVersion> readSnapshotVersions(final XMLStreamReader reader)
+      throws XMLStreamException
+  {
+    List<SnapshotVersion> snapshotVersions = new ArrayList<>();
+    while (nextElement(reader)) {
+      if (!"snapshotVersion".equals(reader.getLocalName())) {
+        skipElement(reader);
+        continue;
+      }
+      SnapshotVersion snapshotVersion = new SnapshotVersion();
+      while (nextElement(reader)) {
+        switch (reader.getLocalName()) {
+          case "classifier":
+            snapshotVersion.setClassifier(text(reader));
+            break;
+          case "extension":
+            snapshotVersion.setExtension(text(reader));
+            break;
+          case "value":
+            snapshotVersion.setVersion(text(reader));
+            break;
+          case "updated":
+            snapshotVersion.setUpdated(text(reader));
+            break;
+          default:
+            skipElement(reader);
+        }
+      }
+      snapshotVersions.add(snapshotVersion);
+    }
+    return snapshotVersions;
+  }
+
+  private static List<Plugin> readPlugins(final XMLStreamReader reader) throws XMLStreamException {
+    List<Plugin> plugins = new ArrayList<>();
+    while (nextElement(reader)) {
+      if (!"plugin".equals(reader.getLocalName())) {
+        skipElement(reader);
+        continue;
+      }
+      Plugin plugin = new Plugin();
+      while (nextElement(reader)) {
+        switch (reader.getLocalName()) {
+          case "name":
+            plugin.setName(text(reader));
+            break;
+          case "prefix":
+            plugin.setPrefix(text(reader));
+            break;
+          case "artifactId":
+            plugin.setArtifactId(text(reader));
+            break;
+          default:
+            skipElement(reader);
+        }
+      }
+      plugins.add(plugin);
+    }
+    return plugins;
+  }
+
+  /**
+   * Moves to the next child element, returning {@code false} once the current element ends instead.
+   */
+  private static boolean nextElement(final XMLStreamReader reader) throws XMLStreamException {
+    while (reader.hasNext()) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        return true;
+      }
+      if (event == END_ELEMENT) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static String text(final XMLStreamReader reader) throws XMLStreamException {
+    return reader.getElementText().trim();
+  }
+
+  private static void skipElement(final XMLStreamReader reader) throws XMLStreamException {
+    int depth = 1;
+    while (depth > 0) {
+      int event = reader.next();
+      if (event == START_ELEMENT) {
+        depth++;
+      }
+      else if (event == END_ELEMENT) {
+        depth--;
+      }
+    }
+  }
+
+  private static void write(final OutputStream outputStream, final Merge merge) throws IOException {
+    Member target = merge.target;
+    try {
+      XMLStreamWriter xmlWriter = OUTPUT_FACTORY.createXMLStreamWriter(outputStream, UTF_8.name());
+      IndentingWriter writer = new IndentingWriter(xmlWriter);
+      xmlWriter.writeStartDocument(UTF_8.name(), "1.0");
+      writer.start("metadata");
+      xmlWriter.writeAttribute("modelVersion", MODEL_VERSION);
+      writer.element("groupId", target.groupId);
+      writer.element("artifactId", target.artifactId);
+      writer.element("version", target.version);
+
+      if (target.versioning) {
+        List<String> versions = mergeVersions(merge.versionLists);
+        String latest = target.latest;
+        String release = target.release;
+        if (!versions.isEmpty()) {
+          // the last in ordered list, and the last non-snapshot which may be null
+          latest = versions.get(versions.size() - 1);
+          release = null;
+          for (int i = versions.size() - 1; i >= 0; i--) {
+            if (!versions.get(i).endsWith(Constants.SNAPSHOT_VERSION_SUFFIX)) {
+              release = versions.get(i);
+              break;
+            }
+          }
+        }
+
+        writer.start("versioning");
+        writer.element("latest", latest);
+        writer.element("release", release);
+        if (target.snapshot != null) {
+          Snapshot snapshot = target.snapshot;
+          writer.start("snapshot");
+          writer.element("timestamp", snapshot.getTimestamp());
+          if (snapshot.getBuildNumber() != 0) {
+            writer.element("buildNumber", String.valueOf(snapshot.getBuildNumber()));
+          }
+          if (snapshot.isLocalCopy()) {
+            writer.element("localCopy", "true");
+          }
+          writer.end();
+        }
+        if (!versions.isEmpty()) {
+          writer.start("versions");
+          for (String version : versions) {
+            writer.element("version", version);
+          }
+          writer.end();
+        }
+        writer.element("lastUpdated", target.lastUpdated);
+        if (!target.snapshotVersions.isEmpty()) {
+          writer.start("snapshotVersions");
+          for (SnapshotVersion snapshotVersion : target.snapshotVersions) {
+            writer.start("snapshotVersion");
+            if (!isNullOrEmpty(snapshotVersion.getClassifier())) {
+              writer.element("classifier", snapshotVersion.getClassifier());
+            }
+            writer.element("extension", snapshotVersion.getExtension());
+            writer.element("value", snapshotVersion.getVersion());
+            writer.element("updated", snapshotVersion.getUpdated());
+            writer.end();
+          }
+          writer.end();
+        }
+        writer.end();
+      }
+
+      if (!target.plugins.isEmpty()) {
+        target.plugins.sort(PLUGIN_COMPARATOR);
+        writer.start("plugins");
+        for (Plugin plugin : target.plugins) {
+          writer.start("plugin");
+          writer.element("name", plugin.getName());
+          writer.element("prefix", plugin.getPrefix());
+          writer.element("artifactId", plugin.getArtifactId());
+          writer.end();
+        }
+        writer.end();
+      }
+
+      writer.end();
+      xmlWriter.writeCharacters("\n");
+      xmlWriter.writeEndDocument();
+      // closing the writer leaves the underlying stream open
+      xmlWriter.close();
+    }
+    catch (XMLStreamException e) {
+      throw new IOException("Unable to write merged metadata", e);
+    }
+  }
+
+  /**
+   * Merges the version lists into a single list ordered by {@link VersionComparator}. Each list is sorted on its own
+   * before the heads of the lists are merged through a priority queue, so every version string is parsed just once.
+   *
+   * Versions already contributed by an earlier list are dropped, except that the first list is kept whole. Versions
+   * which compare as equal keep the order of their lists.
+   */
+  @VisibleForTesting
+  static List<String> mergeVersions(final List<List<String>> versionLists) {
+    int total = 0;
+    PriorityQueue<Cursor> heads = new PriorityQueue<>(Math.max(1, versionLists.size()));
+    for (int i = 0; i < versionLists.size(); i++) {
+      List<String> versions = versionLists.get(i);
+      total += versions.size();
+      if (!versions.isEmpty()) {
+        List<VersionKey> keys = new ArrayList<>(versions.size());
+        for (String version : versions) {
+          keys.add(new VersionKey(version));
+        }
+        // stable, and linear when the member already lists its versions in order
+        keys.sort(null);
+        heads.add(new Cursor(i, keys));
+      }
+    }
+
+    List<String> merged = new ArrayList<>(total);
+    Set<String> equalVersions = new HashSet<>();
+    VersionKey previous = null;
+    while (!heads.isEmpty()) {
+      Cursor head = heads.poll();
+      VersionKey key = head.current();
+      if (previous == null || previous.compareTo(key) != 0) {
+        equalVersions.clear();
+        previous = key;
+      }
+      if (equalVersions.add(key.value) || head.list == 0) {
+        merged.add(key.value);
+      }
+      if (head.advance()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
+  /**
+   * Parses string into a long (accepts strings with dots too, like maven timestamp is, where dot is between date and
+   * time). If fails or is null, returns -1.
+   */
+  private static long ts(final String ts) {
+    try {
+      if (ts != null) {
+        return Long.parseLong(ts.replace(".", ""));
+      }
+    }
+    catch (NumberFormatException e) {
+      // Just fall through and return -1 just as if ts were null
+    }
+
+    return -1;
+  }
+
+  private static String nullOrEmptyStringFilter(@Nullable final String str) {
+    return isNullOrEmpty(str) ? "" : str.trim();
+  }
+
+  /**
+   * Metadata read from a single member.
+   */
+  private static class Member
+  {
+    private String groupId;
+
+    private String artifactId;
+
+    private String version;
+
+    private boolean versioning;
+
+    private String latest;
+
+    private String release;
+
+    private String lastUpdated;
+
+    private Snapshot snapshot;
+
+    private List<String> versions = new ArrayList<>();
+
+    private List<SnapshotVersion> snapshotVersions = new ArrayList<>();
+
+    private List<Plugin> plugins = new ArrayList<>();
+  }
+
+  /**
+   * Merges members on top of the first one, following the same rules as {@link RepositoryMetadataMerger}. Version
+   * lists are only collected here and combined when written.
+   */
+  private class Merge
+  {
+    private final Member target;
+
+    private final List<List<String>> versionLists = new ArrayList<>();
+
+    private final Map<List<String>, Plugin> plugins = new HashMap<>();
+
+    private final Map<List<String>, SnapshotVersion> snapshotVersions = new HashMap<>();
+
+    Merge(final Member first) {
+      this.target = first;
+      versionLists.add(first.versions);
+      first.plugins.forEach(plugin -> plugins.putIfAbsent(key(plugin), plugin));
+      first.snapshotVersions.forEach(snapshotVersion -> snapshotVersions.putIfAbsent(key(snapshotVersion),
+          snapshotVersion));
+    }
+
+    void add(final Member source) {
+      // sanity checks
+      if (isNullOrEmpty(source.groupId)) {
+        source.groupId = target.groupId;
+      }
+      if (isNullOrEmpty(source.artifactId)) {
+        source.artifactId = target.artifactId;
+      }
+
+      // version differs: we do it "both ways" if set at all
+      if (isNullOrEmpty(target.version)) {
+        target.version = source.version;
+      }
+      if (isNullOrEmpty(source.version)) {
+        source.version = target.version;
+      }
+      checkArgument(Objects.equals(nullOrEmptyStringFilter(target.groupId), nullOrEmptyStringFilter(source.groupId)),
+          "GroupId mismatch: %s vs %s", target.groupId, source.groupId);
+      checkArgument(
+          Objects.equals(nullOrEmptyStringFilter(target.artifactId), nullOrEmptyStringFilter(source.artifactId)),
+          "ArtifactId mismatch: %s vs %s", target.artifactId, source.artifactId);
+
+      String targetVersion = nullOrEmptyStringFilter(target.version);
+      String sourceVersion = nullOrEmptyStringFilter(source.version);
+
+      // As per NEXUS-13085 allow this and log for support in case the resulting merge leads to downstream problems
+      if (!Objects.equals(targetVersion, sourceVersion)) {
+        log.warn("Merging with version mismatch for GA={}:{}, {} vs {}", target.groupId, target.artifactId,
+            targetVersion, sourceVersion);
+      }
+
+      mergePlugins(source);
+      mergeVersioning(source);
+    }
+
+    private void mergePlugins(final Member source) {
+      for (Plugin plugin : source.plugins) {
+        Plugin preExisting = plugins.get(key(plugin));
+        if (preExisting != null) {
+          preExisting.setName(plugin.getName());
+        }
+        else {
+          plugins.put(key(plugin), plugin);
+          target.plugins.add(plugin);
+        }
+      }
+    }
+
+    private void mergeVersioning(final Member source) {
+      if (!source.versioning) {
+        return; // nothing to do
+      }
+      target.versioning = true;
+
+      // lastUpdated: if target not set, set from source, otherwise newer
+      if (source.lastUpdated != null
+          && (target.lastUpdated == null || ts(source.lastUpdated) > ts(target.lastUpdated))) {
+        target.lastUpdated = source.lastUpdated;
+      }
+
+      versionLists.add(source.versions);
+
+      // snapshot: add if source has it, and target does not have it, or target is older
+      if (source.snapshot != null && (target.snapshot == null
+          || ts(source.snapshot.getTimestamp()) > ts(target.snapshot.getTimestamp()))) {
+        target.snapshot = source.snapshot;
+      }
+
+      // snapshotVersions: add ext+classifier combos, if not exist, or are older version
+      for (SnapshotVersion snapshotVersion : source.snapshotVersions) {
+        SnapshotVersion preExisting = snapshotVersions.get(key(snapshotVersion));
+        if (preExisting == null) {
+          snapshotVersions.put(key(snapshotVersion), snapshotVersion);
+          target.snapshotVersions.add(snapshotVersion);
+        }
+        else if (version(snapshotVersion.getVersion()).compareTo(version(preExisting.getVersion())) > 0) {
+          preExisting.setClassifier(nullOrEmptyStringFilter(snapshotVersion.getClassifier()));
+          preExisting.setVersion(snapshotVersion.getVersion());
+          preExisting.setUpdated(snapshotVersion.getUpdated());
+        }
+      }
+    }
+
+    private List<String> key(final Plugin plugin) {
+      return Arrays.asList(plugin.getArtifactId(), plugin.getPrefix());
+    }
+
+    private List<String> key(final SnapshotVersion snapshotVersion) {
+      return Arrays.asList(snapshotVersion.getExtension(), nullOrEmptyStringFilter(snapshotVersion.getClassifier()));
+    }
+  }
+
+  /**
+   * Version string with its parsed form, ordered as {@link VersionComparator} orders strings.
+   */
+  private static final class VersionKey
+      implements Comparable<VersionKey>
+  {
+    private final String value;
+
+    @Nullable
+    private final Version version;
+
+    VersionKey(final String value) {
+      this.value = value;
+      this.version = VERSION_LIKE.test(value) ? version(value) : null;
+    }
+
+    @Override
+    public int compareTo(final VersionKey other) {
+      if ((version == null) != (other.version == null)) {
+        return version != null ? 1 : -1;
+      }
+      return version != null ? version.compareTo(other.version) : value.compareTo(other.value);
+    }
+  }
+
+  /**
+   * Position within one sorted version list, ordered by its current version and then by list.
+   */
+  private static final class Cursor
+      implements Comparable<Cursor>
+  {
+    private final int list;
+
+    private final List<VersionKey> keys;
+
+    private int index;
+
+    Cursor(final int list, final List<VersionKey> keys) {
+      this.list = list;
+      this.keys = keys;
+    }
+
+    VersionKey current() {
+      return keys.get(index);
+    }
+
+    boolean advance() {
+      return ++index < keys.size();
+    }
+
+    @Override
+    public int compareTo(final Cursor other) {
+      int result = current().compareTo(other.current());
+      return result != 0 ? result : Integer.compare(list, other.list);
+    }
+  }
+
+  /**
+   * Exposes {@link VersionComparator}'s check for version-like strings.
+   */
+  private static final class VersionLike
+      extends VersionComparator
+  {
+    boolean test(final String value) {
+      return isVersionLike(value);
+    }
+  }
+
+  /**
+   * Writes elements on their own lines, indented by depth.
+   */
+  private static final class IndentingWriter
+  {
+    private final XMLStreamWriter writer;
+
+    private int depth;
+
+    IndentingWriter(final XMLStreamWriter writer) {
+      this.writer = writer;
+    }
+
+    void start(final String name) throws XMLStreamException {
+      newline();
+      writer.writeStartElement(name);
+      depth++;
+    }
+
+    void end() throws XMLStreamException {
+      depth--;
+      newline();
+      writer.writeEndElement();
+    }
+
+    void element(final String name, @Nullable final String value) throws XMLStreamException {
+      if (value != null) {
+        newline();
+        writer.writeStartElement(name);
+        writer.writeCharacters(value);
+        writer.writeEndElement();
+      }
+    }
+
+    private void newline() throws XMLStreamException {
+      writer.writeCharacters("\n");
+      for (int i = 0; i < depth; i++) {
+        writer.writeCharacters(INDENT);
+      }
+    }
+  }
+}
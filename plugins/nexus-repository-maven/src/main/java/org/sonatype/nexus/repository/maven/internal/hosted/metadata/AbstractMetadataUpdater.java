@@ -204,6 +204,7 @@ abstract public class AbstractMetadataUpdater
   {
     if (repositoryMetadataMerger.metadataEquals(oldMetadata, newMetadata)) {
       log.info("Metadata for {} hasn't changed, skipping", mavenPath.getPath());
+      unchanged(mavenPath, newMetadata);
     }
     else {
       write(mavenPath, newMetadata);
@@ -215,6 +216,15 @@ abstract public class AbstractMetadataUpdater
    */
   abstract protected void write(final MavenPath mavenPath, final Metadata metadata) throws IOException;
 
+  /**
+   * Called instead of {@link #write} when the existing metadata already matches the passed in metadata.
+   *
+   * @since 3.70
+   */
+  protected void unchanged(final MavenPath mavenPath, final Metadata metadata) throws IOException {
+    // nothing to do by default
+  }
+
   /**
    * Reads metadata from XML.
    */
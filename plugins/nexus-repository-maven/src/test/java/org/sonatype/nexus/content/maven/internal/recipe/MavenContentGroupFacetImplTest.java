@@ -12,9 +12,12 @@
  */
 package org.sonatype.nexus.content.maven.internal.recipe;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
 
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
 import org.sonatype.nexus.content.maven.MavenContentFacet;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.Type;
@@ -22,22 +25,38 @@ import org.sonatype.nexus.repository.cache.RepositoryCacheInvalidationService;
 import org.sonatype.nexus.repository.content.Asset;
 import org.sonatype.nexus.repository.content.event.asset.AssetUploadedEvent;
 import org.sonatype.nexus.repository.content.facet.ContentFacet;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
 import org.sonatype.nexus.repository.content.fluent.FluentAssetBuilder;
 import org.sonatype.nexus.repository.content.fluent.FluentAssets;
+import org.sonatype.nexus.repository.group.MemberEtagDigest;
+import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.internal.Maven2MavenPathParser;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
 import org.sonatype.nexus.validation.ConstraintViolationFactory;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.Mock;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.singletonList;
+import static java.util.Collections.singletonMap;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.content.maven.internal.recipe.MavenContentGroupFacetImpl.MEMBERS_ETAG;
 
 public class MavenContentGroupFacetImplTest
     extends TestSupport
@@ -90,4 +109,40 @@ public class MavenContentGroupFacetImplTest
     underTest.onAssetUploadedEvent(event);
     verify(assets).path("/com/example/foo/1.0-SNAPSHOT/maven-metadata.xml");
   }
+
+  @Test
+  public void mergeAndCacheReusesContentMergedFromUnchangedMembers() throws Exception {
+    MavenPath mavenPath = new Maven2MavenPathParser().parsePath("com/example/foo/maven-metadata.xml");
+    Content memberContent = new Content(new BytesPayload("<metadata/>".getBytes(UTF_8), null));
+    memberContent.getAttributes().set(Content.CONTENT_ETAG, "member-etag");
+    Map<Repository, Response> responses = singletonMap(mock(Repository.class), HttpResponses.ok(memberContent));
+
+    Content merged = new Content(new BytesPayload("<metadata></metadata>".getBytes(UTF_8), null));
+    NestedAttributesMap assetAttributes = new NestedAttributesMap("attributes", new HashMap<>());
+    assetAttributes.set(MEMBERS_ETAG,
+        MemberEtagDigest.digest(singletonList("member-etag"), Optional::of).get());
+    FluentAsset asset = mock(FluentAsset.class);
+    when(asset.attributes()).thenReturn(assetAttributes);
+    when(asset.download()).thenReturn(merged);
+
+    MavenContentFacet contentFacet = attachContentFacet();
+    when(contentFacet.assets().path("/com/example/foo/maven-metadata.xml").find()).thenReturn(Optional.of(asset));
+    doNothing().when(underTest).maintainCacheInfo(any());
+
+    assertThat(underTest.mergeAndCache(mavenPath, responses), is(merged));
+
+    verify(asset).markAsCached(merged);
+    verify(contentFacet, never()).put(any(), any());
+  }
+
+  private MavenContentFacet attachContentFacet() throws Exception {
+    MavenContentFacet contentFacet = mock(MavenContentFacet.class, RETURNS_DEEP_STUBS);
+    when(contentFacet.getMavenPathParser()).thenReturn(new Maven2MavenPathParser());
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn("group");
+    when(repository.facet(MavenContentFacet.class)).thenReturn(contentFacet);
+    when(repository.facet(ContentFacet.class)).thenReturn(contentFacet);
+    underTest.attach(repository);
+    return contentFacet;
+  }
 }
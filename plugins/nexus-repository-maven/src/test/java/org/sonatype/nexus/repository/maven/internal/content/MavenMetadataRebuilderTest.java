@@ -13,7 +13,10 @@
 package org.sonatype.nexus.repository.maven.internal.content;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.io.ByteArrayOutputStream;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
@@ -21,25 +24,39 @@ import java.util.Spliterator;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.sonatype.goodies.common.MultipleFailures;
+import org.sonatype.goodies.common.Time;
 import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
 import org.sonatype.nexus.common.entity.Continuation;
 import org.sonatype.nexus.content.maven.MavenContentFacet;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.content.Asset;
+import org.sonatype.nexus.repository.content.AssetBlob;
 import org.sonatype.nexus.repository.content.Component;
+import org.sonatype.nexus.repository.content.fluent.FluentAsset;
+import org.sonatype.nexus.repository.content.fluent.FluentAssetBuilder;
 import org.sonatype.nexus.repository.content.fluent.FluentAssets;
 import org.sonatype.nexus.repository.content.fluent.FluentComponent;
 import org.sonatype.nexus.repository.content.fluent.FluentComponents;
+import org.sonatype.nexus.repository.content.kv.global.GlobalKeyValueStore;
+import org.sonatype.nexus.repository.content.kv.global.NexusKeyValue;
+import org.sonatype.nexus.repository.content.kv.global.ValueType;
 import org.sonatype.nexus.repository.maven.MavenPath;
 import org.sonatype.nexus.repository.maven.MavenPathParser;
 import org.sonatype.nexus.repository.maven.internal.Maven2Format;
+import org.sonatype.nexus.repository.maven.internal.MavenModels;
 import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
 import org.sonatype.nexus.scheduling.CancelableHelper;
 import org.sonatype.nexus.scheduling.TaskInterruptedException;
+import org.sonatype.nexus.security.subject.FakeAlmightySubject;
 
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import ch.qos.logback.core.Appender;
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.apache.shiro.util.ThreadContext;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -60,6 +77,7 @@ import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -255,6 +273,109 @@ public class MavenMetadataRebuilderTest
     assertThat(failures.size(), is(0));
   }
 
+  @Test
+  public void fullRebuildResumesAfterCheckpoint() {
+    GlobalKeyValueStore keyValueStore = mock(GlobalKeyValueStore.class);
+    when(repository.getName()).thenReturn("maven-releases");
+    when(keyValueStore.getKey("maven.metadata.rebuild.checkpoint.maven-releases"))
+        .thenReturn(Optional.of(new NexusKeyValue("maven.metadata.rebuild.checkpoint.maven-releases",
+            ValueType.CHARACTER, System.currentTimeMillis() + ":group1:artifact2")));
+    setupComponents();
+
+    MetadataRebuildWorker worker = Mockito.spy(new MetadataRebuildWorker(repository, true, null, null, null, 20, 1,
+        new MetadataRebuildCheckpoint(keyValueStore, "maven-releases", 1, Time.days(2))));
+    doNothing().when(worker).rebuildGroupMetadata(anyString());
+
+    worker.rebuildMetadata();
+
+    verify(worker, never()).rebuildGroupMetadata("group0");
+    verify(mavenContentFacet, never()).getBaseVersions("group1", "artifact1");
+    verify(mavenContentFacet, never()).getBaseVersions("group1", "artifact2");
+    verify(mavenContentFacet).getBaseVersions("group1", "artifact3");
+    verify(mavenContentFacet).getBaseVersions("group2", "artifact1");
+    verify(keyValueStore).removeKey("maven.metadata.rebuild.checkpoint.maven-releases");
+  }
+
+  @Test
+  public void fullRebuildWorksOnArtifactsInParallel() {
+    ThreadContext.bind(FakeAlmightySubject.forUserId("disabled-security"));
+    try {
+      setupComponents();
+
+      MetadataRebuildWorker worker =
+          Mockito.spy(new MetadataRebuildWorker(repository, true, null, null, null, 20, 4, null));
+      doNothing().when(worker).rebuildGroupMetadata(anyString());
+
+      worker.rebuildMetadata();
+
+      verify(mavenContentFacet).getBaseVersions("group0", "artifact1");
+      verify(mavenContentFacet).getBaseVersions("group1", "artifact1");
+      verify(mavenContentFacet).getBaseVersions("group1", "artifact2");
+      verify(mavenContentFacet).getBaseVersions("group1", "artifact3");
+      verify(mavenContentFacet).getBaseVersions("group2", "artifact1");
+      assertThat(worker.getFailures().size(), is(0));
+    }
+    finally {
+      ThreadContext.unbindSubject();
+    }
+  }
+
+  @Test
+  public void secondFullRebuildSkipsUnchangedArtifact() throws Exception {
+    when(components.namespaces()).thenReturn(Collections.singletonList("group0"));
+    when(components.names("group0")).thenReturn(Collections.singletonList("artifact1"));
+    when(mavenContentFacet.getBaseVersions("group0", "artifact1")).thenReturn(Collections.singletonList("1.0"));
+
+    // the stored metadata already lists the versions, so the first rebuild has nothing to write
+    Metadata existing = new Metadata();
+    existing.setGroupId("group0");
+    existing.setArtifactId("artifact1");
+    Versioning versioning = new Versioning();
+    versioning.setLatest("1.0");
+    versioning.setRelease("1.0");
+    versioning.addVersion("1.0");
+    existing.setVersioning(versioning);
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    MavenModels.writeMetadata(buffer, existing);
+    when(mavenContentFacet.get(any(MavenPath.class)))
+        .thenAnswer(i -> Optional.of(new Content(new BytesPayload(buffer.toByteArray(), null))));
+
+    NestedAttributesMap attributes = new NestedAttributesMap("attributes", new HashMap<>());
+    AssetBlob assetBlob = mock(AssetBlob.class);
+    when(assetBlob.checksums()).thenReturn(Collections.singletonMap("sha1", "0123456789abcdef"));
+    FluentAsset metadataAsset = mock(FluentAsset.class);
+    when(metadataAsset.attributes()).thenReturn(attributes);
+    when(metadataAsset.blob()).thenReturn(Optional.of(assetBlob));
+    when(metadataAsset.withAttribute(anyString(), any())).thenAnswer(i -> {
+      attributes.set(i.getArgument(0), i.getArgument(1));
+      return metadataAsset;
+    });
+    FluentAssetBuilder assetBuilder = mock(FluentAssetBuilder.class);
+    when(assetBuilder.find()).thenReturn(Optional.of(metadataAsset));
+    when(assets.path(anyString())).thenReturn(assetBuilder);
+
+    for (int run = 0; run < 2; run++) {
+      MetadataRebuildWorker worker = Mockito.spy(new MetadataRebuildWorker(repository, false, null, null, null, 20));
+      doNothing().when(worker).rebuildGroupMetadata(anyString());
+
+      worker.rebuildMetadata();
+
+      assertThat(worker.getFailures().size(), is(0));
+    }
+
+    // only the first rebuild reads the metadata, the second trusts the versions recorded by the first
+    verify(mavenContentFacet, times(2)).getBaseVersions("group0", "artifact1");
+    verify(mavenContentFacet).get(any(MavenPath.class));
+    verify(mavenContentFacet, never()).put(any(MavenPath.class), any());
+  }
+
+  private void setupComponents() {
+    when(components.namespaces()).thenReturn(Arrays.asList("group2", "group1", "group0"));
+    when(components.names("group0")).thenReturn(Collections.singletonList("artifact1"));
+    when(components.names("group1")).thenReturn(Arrays.asList("artifact3", "artifact1", "artifact2"));
+    when(components.names("group2")).thenReturn(Collections.singletonList("artifact1"));
+  }
+
   private Continuation infiniteContinuation(final Object returnItem) {
     Continuation continuation = mock(Continuation.class);
     Iterator iterator = mock(Iterator.class);
@@ -0,0 +1,124 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal.content;
+
+import java.util.Optional;
+
+import org.sonatype.goodies.common.Time;
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.content.kv.global.GlobalKeyValueStore;
+import org.sonatype.nexus.repository.content.kv.global.NexusKeyValue;
+import org.sonatype.nexus.repository.content.kv.global.ValueType;
+import org.sonatype.nexus.repository.maven.internal.content.MetadataRebuildCheckpoint.Coordinates;
+
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.endsWith;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MetadataRebuildCheckpointTest
+    extends TestSupport
+{
+  private static final String KEY = "maven.metadata.rebuild.checkpoint.maven-releases";
+
+  @Mock
+  private GlobalKeyValueStore keyValueStore;
+
+  private MetadataRebuildCheckpoint underTest;
+
+  @Before
+  public void setup() {
+    underTest = new MetadataRebuildCheckpoint(keyValueStore, "maven-releases", 2, Time.days(2));
+  }
+
+  @Test
+  public void loadsSavedCoordinates() {
+    when(keyValueStore.getKey(KEY)).thenReturn(
+        Optional.of(new NexusKeyValue(KEY, ValueType.CHARACTER, System.currentTimeMillis() + ":org.foo:bar")));
+
+    assertThat(underTest.load(), is(Optional.of(Pair.of("org.foo", "bar"))));
+    verify(keyValueStore, never()).removeKey(any());
+  }
+
+  @Test
+  public void discardsStaleCheckpoint() {
+    long savedAt = System.currentTimeMillis() - Time.days(3).toMillis();
+    when(keyValueStore.getKey(KEY))
+        .thenReturn(Optional.of(new NexusKeyValue(KEY, ValueType.CHARACTER, savedAt + ":org.foo:bar")));
+
+    assertThat(underTest.load(), is(Optional.empty()));
+    verify(keyValueStore).removeKey(KEY);
+  }
+
+  @Test
+  public void discardsCheckpointWithoutTimestamp() {
+    when(keyValueStore.getKey(KEY)).thenReturn(Optional.of(new NexusKeyValue(KEY, ValueType.CHARACTER, "org.foo:bar")));
+
+    assertThat(underTest.load(), is(Optional.empty()));
+    verify(keyValueStore).removeKey(KEY);
+  }
+
+  @Test
+  public void loadsNothingWithoutCheckpoint() {
+    when(keyValueStore.getKey(KEY)).thenReturn(Optional.empty());
+
+    assertThat(underTest.load(), is(Optional.empty()));
+  }
+
+  @Test
+  public void onlyMovesPastCoordinatesOnceEarlierOnesComplete() {
+    Coordinates first = underTest.started("org.foo", "a");
+    Coordinates second = underTest.started("org.foo", "b");
+    Coordinates third = underTest.started("org.foo", "c");
+
+    underTest.completed(second);
+    underTest.completed(third);
+    underTest.save();
+
+    verify(keyValueStore, never()).setKey(any());
+
+    underTest.completed(first);
+
+    ArgumentCaptor<NexusKeyValue> saved = ArgumentCaptor.forClass(NexusKeyValue.class);
+    verify(keyValueStore).setKey(saved.capture());
+    assertThat(saved.getValue().key(), is(KEY));
+    assertThat(saved.getValue().getAsString(), endsWith(":org.foo:c"));
+  }
+
+  @Test
+  public void savesEveryInterval() {
+    underTest.completed(underTest.started("org.foo", "a"));
+
+    verify(keyValueStore, never()).setKey(any());
+
+    underTest.completed(underTest.started("org.foo", "b"));
+
+    verify(keyValueStore).setKey(any());
+  }
+
+  @Test
+  public void clearRemovesCheckpoint() {
+    underTest.clear();
+
+    verify(keyValueStore).removeKey(KEY);
+  }
+}
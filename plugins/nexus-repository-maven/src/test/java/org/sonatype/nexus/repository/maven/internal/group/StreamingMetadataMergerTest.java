@@ -0,0 +1,309 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-present Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal.group;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.sonatype.goodies.testsupport.TestSupport;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.maven.MavenPath;
+import org.sonatype.nexus.repository.maven.internal.MavenModels;
+import org.sonatype.nexus.repository.maven.internal.group.RepositoryMetadataMerger.Envelope;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+
+import org.apache.maven.artifact.repository.metadata.Metadata;
+import org.apache.maven.artifact.repository.metadata.Plugin;
+import org.apache.maven.artifact.repository.metadata.Snapshot;
+import org.apache.maven.artifact.repository.metadata.SnapshotVersion;
+import org.apache.maven.artifact.repository.metadata.Versioning;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * UT for {@link StreamingMetadataMerger}, checking it agrees with the object model merge of
+ * {@link RepositoryMetadataMerger}.
+ */
+public class StreamingMetadataMergerTest
+    extends TestSupport
+{
+  @Mock
+  private MavenPath mavenPath;
+
+  private final StreamingMetadataMerger underTest = new StreamingMetadataMerger();
+
+  private final RepositoryMetadataMerger modelMerger = new RepositoryMetadataMerger();
+
+  @Before
+  public void setup() {
+    when(mavenPath.getPath()).thenReturn("org/foo/some-project/maven-metadata.xml");
+  }
+
+  @Test
+  public void groupLevelMd() throws Exception {
+    Metadata m2 = g("foo", "bar");
+    m2.getPlugins().get(0).setName("Renamed foo plugin");
+
+    Metadata merged = assertSameAsModelMerge(g("foo"), m2, g("baz"));
+
+    assertThat(merged.getPlugins().stream().map(Plugin::getArtifactId).collect(toList()),
+        contains("bar-maven-plugin", "baz-maven-plugin", "foo-maven-plugin"));
+    assertThat(merged.getPlugins().get(2).getName(), is("Renamed foo plugin"));
+  }
+
+  @Test
+  public void artifactLevelMd() throws Exception {
+    Metadata merged = assertSameAsModelMerge(
+        a("org.foo", "some-project", "20150324121500", "1.0.1", "1.0.1", "1.0.0", "1.0.1"),
+        a("org.foo", "some-project", "20150324121700", "1.0.2", "1.0.2", "1.0.2"),
+        a("org.foo", "some-project", "20150324121600", "1.1.0-SNAPSHOT", null, "1.1.0-SNAPSHOT"));
+
+    assertThat(merged.getVersioning().getLastUpdated(), equalTo("20150324121700"));
+    assertThat(merged.getVersioning().getRelease(), equalTo("1.0.2"));
+    assertThat(merged.getVersioning().getLatest(), equalTo("1.1.0-SNAPSHOT"));
+    assertThat(merged.getVersioning().getVersions(), contains("1.0.0", "1.0.1", "1.0.2", "1.1.0-SNAPSHOT"));
+  }
+
+  @Test
+  public void versionLevelMd() throws Exception {
+    Metadata m2 = v("org.foo", "some-project", "1.0.0", "20150324.121500", 3);
+    SnapshotVersion tests = new SnapshotVersion();
+    tests.setExtension("jar");
+    tests.setClassifier("tests");
+    tests.setVersion("1.0.0-20150324.121500-3");
+    tests.setUpdated("20150324121500");
+    m2.getVersioning().getSnapshotVersions().add(tests);
+
+    Metadata merged = assertSameAsModelMerge(
+        v("org.foo", "some-project", "1.0.0", "20150323.121500", 2),
+        m2,
+        v("org.foo", "some-project", "1.0.0", "20150322.121500", 1));
+
+    assertThat(merged.getVersion(), equalTo("1.0.0-SNAPSHOT"));
+    assertThat(merged.getVersioning().getSnapshot().getTimestamp(), equalTo("20150324.121500"));
+    assertThat(merged.getVersioning().getSnapshot().getBuildNumber(), equalTo(3));
+    assertThat(merged.getVersioning().getSnapshotVersions().stream().map(SnapshotVersion::getVersion).collect(toList()),
+        contains("1.0.0-20150324.121500-3", "1.0.0-20150324.121500-3", "1.0.0-20150324.121500-3"));
+  }
+
+  @Test
+  public void mixedLevelMd() throws Exception {
+    Metadata merged = assertSameAsModelMerge(
+        a("org.foo", "some-project", "20150324121500", "1.0.1", "1.0.1", "1.0.0", "1.0.1"),
+        g("foo", "bar"),
+        v("org.foo", "some-project", "1.1.0", "20150322.121500", 3));
+
+    assertThat(merged.getVersion(), equalTo("1.1.0-SNAPSHOT"));
+    assertThat(merged.getVersioning().getSnapshot().getBuildNumber(), equalTo(3));
+    assertThat(merged.getPlugins().stream().map(Plugin::getArtifactId).collect(toList()),
+        contains("bar-maven-plugin", "foo-maven-plugin"));
+  }
+
+  @Test
+  public void mismatchedArtifactIsLeftOut() throws Exception {
+    Metadata merged = assertSameAsModelMerge(
+        a("org.foo", "some-project", "20150324121500", "1.0.1", "1.0.1", "1.0.0", "1.0.1"),
+        a("org.foo", "other-project", "20150324121700", "2.0.0", "2.0.0", "2.0.0"));
+
+    assertThat(merged.getVersioning().getVersions(), contains("1.0.0", "1.0.1"));
+  }
+
+  @Test
+  public void unsortedAndDuplicateVersions() throws Exception {
+    Metadata merged = assertSameAsModelMerge(
+        a("org.foo", "some-project", null, null, null, "1.0", "1.0.0", "0.1", "1.0"),
+        a("org.foo", "some-project", null, null, null, "2.0-SNAPSHOT", "1.0", "beta", "0.9"),
+        a("org.foo", "some-project", null, null, null, "alpha", "1.0.0", "2.0-SNAPSHOT"));
+
+    assertThat(merged.getVersioning().getVersions(),
+        contains("alpha", "beta", "0.1", "0.9", "1.0", "1.0.0", "1.0", "2.0-SNAPSHOT"));
+    assertThat(merged.getVersioning().getLatest(), equalTo("2.0-SNAPSHOT"));
+    assertThat(merged.getVersioning().getRelease(), equalTo("1.0"));
+  }
+
+  @Test
+  public void corruptedMemberIsLeftOut() throws Exception {
+    Map<Repository, Content> contents = new LinkedHashMap<>();
+    contents.put(repository("broken"), new Content(new BytesPayload("<metadata><versioning>".getBytes(UTF_8), null)));
+    contents.put(repository("good"), content(a("org.foo", "some-project", null, "1.0", "1.0", "1.0")));
+
+    Metadata merged = read(merge(contents));
+
+    assertThat(merged, notNullValue());
+    assertThat(merged.getVersioning().getVersions(), contains("1.0"));
+  }
+
+  @Test
+  public void nothingIsWrittenWithoutReadableMembers() throws Exception {
+    Map<Repository, Content> contents = new LinkedHashMap<>();
+    contents.put(repository("broken"), new Content(new BytesPayload(new byte[0], null)));
+
+    assertThat(merge(contents).length, is(0));
+  }
+
+  @Test
+  public void mergeVersionsKeepsListOrderForEqualVersions() {
+    assertThat(StreamingMetadataMerger.mergeVersions(asList(
+            asList("1.0", "1.0.0", "1.0"),
+            asList("1.0", "0.9"),
+            asList("1.0.0", "2"))),
+        contains("0.9", "1.0", "1.0.0", "1.0", "2"));
+    assertThat(StreamingMetadataMerger.mergeVersions(Collections.emptyList()), contains());
+  }
+
+  @Test
+  public void overlappingUnorderedMembers() throws Exception {
+    Metadata merged = assertSameAsModelMerge(
+        a("org.foo", "some-project", "20150324121500", null, null, "1.0.0", "1.2.0", "1.4.0-SNAPSHOT", "1.10.0"),
+        a("org.foo", "some-project", "20150324121700", null, null, "1.0.0", "1.1.0", "1.3.0"),
+        a("org.foo", "some-project", "20150324121600", null, null, "1.10.0", "1.1.0", "1.9.0", "1.2.0"));
+
+    assertThat(merged.getVersioning().getVersions(),
+        contains("1.0.0", "1.1.0", "1.2.0", "1.3.0", "1.4.0-SNAPSHOT", "1.9.0", "1.10.0"));
+    assertThat(merged.getVersioning().getLatest(), equalTo("1.10.0"));
+    assertThat(merged.getVersioning().getRelease(), equalTo("1.10.0"));
+    assertThat(merged.getVersioning().getLastUpdated(), equalTo("20150324121700"));
+  }
+
+  private Metadata assertSameAsModelMerge(final Metadata... members) throws IOException {
+    List<Envelope> envelopes = new ArrayList<>();
+    for (int i = 0; i < members.length; i++) {
+      envelopes.add(new Envelope("member-" + i, members[i]));
+    }
+    Metadata expected = modelMerger.merge(envelopes);
+    Metadata actual = read(merge(members));
+
+    assertThat(actual, notNullValue());
+    assertThat(actual.getModelVersion(), equalTo(expected.getModelVersion()));
+    assertThat(modelMerger.metadataEquals(actual, expected), is(true));
+    if (expected.getVersioning() != null) {
+      assertThat(actual.getVersioning().getLastUpdated(), equalTo(expected.getVersioning().getLastUpdated()));
+    }
+    assertThat(actual.getPlugins().stream().map(Plugin::getArtifactId).collect(toList()),
+        equalTo(expected.getPlugins().stream().map(Plugin::getArtifactId).collect(toList())));
+    return actual;
+  }
+
+  private byte[] merge(final Metadata... members) throws IOException {
+    Map<Repository, Content> contents = new LinkedHashMap<>();
+    for (int i = 0; i < members.length; i++) {
+      contents.put(repository("member-" + i), content(members[i]));
+    }
+    return merge(contents);
+  }
+
+  private byte[] merge(final Map<Repository, Content> contents) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    underTest.merge(out, mavenPath, contents);
+    return out.toByteArray();
+  }
+
+  private static Metadata read(final byte[] bytes) throws IOException {
+    return MavenModels.readMetadata(new ByteArrayInputStream(bytes));
+  }
+
+  private static Content content(final Metadata metadata) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    MavenModels.writeMetadata(out, metadata);
+    return new Content(new BytesPayload(out.toByteArray(), null));
+  }
+
+  private static Repository repository(final String name) {
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn(name);
+    return repository;
+  }
+
+  private static Plugin plugin(final String name) {
+    Plugin p = new Plugin();
+    p.setPrefix(name);
+    p.setArtifactId(name + "-maven-plugin");
+    p.setName("The " + name + " plugin");
+    return p;
+  }
+
+  private static Metadata g(final String... pluginNames) {
+    Metadata m = new Metadata();
+    for (String pluginName : pluginNames) {
+      m.addPlugin(plugin(pluginName));
+    }
+    return m;
+  }
+
+  private static Metadata a(
+      final String groupId,
+      final String artifactId,
+      final String lastUpdated,
+      final String latest,
+      final String release,
+      final String... versions)
+  {
+    Metadata m = new Metadata();
+    m.setGroupId(groupId);
+    m.setArtifactId(artifactId);
+    Versioning mv = new Versioning();
+    mv.setLastUpdated(lastUpdated);
+    mv.setLatest(latest);
+    mv.setRelease(release);
+    mv.getVersions().addAll(asList(versions));
+    m.setVersioning(mv);
+    return m;
+  }
+
+  private static Metadata v(
+      final String groupId,
+      final String artifactId,
+      final String versionPrefix,
+      final String timestamp,
+      final int buildNumber)
+  {
+    Metadata m = new Metadata();
+    m.setGroupId(groupId);
+    m.setArtifactId(artifactId);
+    m.setVersion(versionPrefix + "-SNAPSHOT");
+    Versioning mv = new Versioning();
+    mv.setLastUpdated(timestamp.replace(".", ""));
+    Snapshot snapshot = new Snapshot();
+    snapshot.setTimestamp(timestamp);
+    snapshot.setBuildNumber(buildNumber);
+    mv.setSnapshot(snapshot);
+    for (String extension : asList("pom", "jar")) {
+      SnapshotVersion snapshotVersion = new SnapshotVersion();
+      snapshotVersion.setExtension(extension);
+      snapshotVersion.setVersion(versionPrefix + "-" + timestamp + "-" + buildNumber);
+      snapshotVersion.setUpdated(timestamp);
+      mv.getSnapshotVersions().add(snapshotVersion);
+    }
+    m.setVersioning(mv);
+    return m;
+  }
+}